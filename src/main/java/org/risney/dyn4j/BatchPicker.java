@@ -0,0 +1,335 @@
+package org.risney.dyn4j;
+
+import java.util.Arrays;
+
+import org.dyn4j.collision.narrowphase.Penetration;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Finds the bodies under many pointers at once.
+ * <p>
+ * The pointers are given in screen space and converted to world space with
+ * the same math as {@link AirHockey#screenToWorld(java.awt.Point)}: the
+ * origin at the center of the screen, y up, and a fixed number of pixels per
+ * meter. Each pointer is a circular probe, like the single pointer of the
+ * examples.
+ * <p>
+ * Each pointer looks up the bodies overlapping its probe in a
+ * {@link SpatialGrid} and tests only those against their fixtures, so a pick
+ * costs a constant per pointer whatever the number of bodies. By default the
+ * picker keeps a grid of its own and brings it up to date at each pick, which
+ * costs a comparison of the transforms of the bodies and places again only
+ * the bodies that moved. A grid updated after every step can be
+ * {@link #setGrid(SpatialGrid) shared} instead, so a pick doesn't look at the
+ * other bodies at all.
+ * <p>
+ * The hits come back in parallel primitive arrays: the pointer, the index of
+ * the body in the world, the index of the fixture in the body, and the
+ * penetration depth of the probe. The arrays are reused by the next pick and
+ * only the first {@link #getHitCount()} entries are valid. Inactive bodies
+ * and sensor fixtures are skipped. Once the arrays are large enough a pick
+ * allocates nothing for circles, polygons and segments.
+ * <p>
+ * Must only be used by the thread stepping the world.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class BatchPicker {
+	/** The probe radius in world space */
+	private final double radius;
+
+	/** The width of the screen in pixels */
+	private final double width;
+
+	/** The height of the screen in pixels */
+	private final double height;
+
+	/** The pixels per meter */
+	private final double scale;
+
+	/** The index of the bodies kept by the picker */
+	private final SpatialGrid ownGrid;
+
+	/** The index of the bodies updated by the caller; null to use {@link #ownGrid} */
+	private SpatialGrid grid;
+
+	/** The exact tests of a probe and a shape */
+	private final QueryContext context;
+
+	/** The penetration of the test being run */
+	private final Penetration penetration;
+
+	/** The normal of the penetration, set back after a test that cleared it */
+	private final Vector2 normal;
+
+	/** The pointers in world space (x, y) */
+	private double[] points;
+
+	/** The pointer of each hit */
+	private int[] hitPointers;
+
+	/** The body index of each hit */
+	private int[] hitBodies;
+
+	/** The fixture index of each hit */
+	private int[] hitFixtures;
+
+	/** The depth of each hit */
+	private double[] hitDepths;
+
+	/** The number of hits */
+	private int hitCount;
+
+	/**
+	 * Full constructor.
+	 * @param radius the probe radius in world space
+	 * @param width the width of the screen in pixels
+	 * @param height the height of the screen in pixels
+	 * @param scale the pixels per meter
+	 */
+	public BatchPicker(double radius, double width, double height, double scale) {
+		this(radius, width, height, scale, SpatialGrid.DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Full constructor.
+	 * @param radius the probe radius in world space
+	 * @param width the width of the screen in pixels
+	 * @param height the height of the screen in pixels
+	 * @param scale the pixels per meter
+	 * @param cellSize the size of the cells of the picker's own grid in world space
+	 * @throws IllegalArgumentException if cellSize is not positive
+	 */
+	public BatchPicker(double radius, double width, double height, double scale, double cellSize) {
+		this.radius = radius;
+		this.width = width;
+		this.height = height;
+		this.scale = scale;
+		this.ownGrid = new SpatialGrid(cellSize);
+		this.context = new QueryContext(radius);
+		this.penetration = new Penetration();
+		this.normal = new Vector2();
+		this.points = new double[32];
+		this.hitPointers = new int[16];
+		this.hitBodies = new int[16];
+		this.hitFixtures = new int[16];
+		this.hitDepths = new double[16];
+	}
+
+	/**
+	 * Returns the world x coordinate of the given screen x coordinate.
+	 * @param x the screen x coordinate
+	 * @param width the width of the screen in pixels
+	 * @param scale the pixels per meter
+	 * @return double
+	 */
+	public static double toWorldX(double x, double width, double scale) {
+		return (x - width * 0.5) / scale;
+	}
+
+	/**
+	 * Returns the world y coordinate of the given screen y coordinate.
+	 * @param y the screen y coordinate
+	 * @param height the height of the screen in pixels
+	 * @param scale the pixels per meter
+	 * @return double
+	 */
+	public static double toWorldY(double y, double height, double scale) {
+		return -((y - height * 0.5) / scale);
+	}
+
+	/**
+	 * Finds the bodies under the given screen space pointers.
+	 * @param world the world
+	 * @param screen the pointers in screen space (x, y)
+	 * @param count the number of pointers
+	 * @return int the number of hits
+	 */
+	public int pick(World world, double[] screen, int count) {
+		this.ensurePointers(count);
+		for (int i = 0; i < count; i++) {
+			this.points[i * 2] = toWorldX(screen[i * 2], this.width, this.scale);
+			this.points[i * 2 + 1] = toWorldY(screen[i * 2 + 1], this.height, this.scale);
+		}
+		return this.resolve(world, count);
+	}
+
+	/**
+	 * Finds the bodies under the given world space pointers.
+	 * @param world the world
+	 * @param points the pointers in world space (x, y)
+	 * @param count the number of pointers
+	 * @return int the number of hits
+	 */
+	public int pickWorld(World world, double[] points, int count) {
+		this.ensurePointers(count);
+		System.arraycopy(points, 0, this.points, 0, count * 2);
+		return this.resolve(world, count);
+	}
+
+	/**
+	 * Grows the per pointer arrays for the given number of pointers.
+	 * @param count the number of pointers
+	 */
+	private void ensurePointers(int count) {
+		if (count * 2 > this.points.length) {
+			this.points = new double[count * 4];
+		}
+	}
+
+	/**
+	 * Returns the index used to find the bodies.
+	 * @return {@link SpatialGrid}; the picker's own if none was set
+	 */
+	public SpatialGrid getGrid() {
+		return this.grid != null ? this.grid : this.ownGrid;
+	}
+
+	/**
+	 * Sets the index used to find the bodies; it must be updated after
+	 * every step of the world picked.
+	 * @param grid the index; null to use the picker's own, updated at each pick
+	 */
+	public void setGrid(SpatialGrid grid) {
+		this.grid = grid;
+	}
+
+	/**
+	 * Looks up the bodies near each pointer in the grid.
+	 * @param world the world
+	 * @param count the number of pointers
+	 * @return int the number of hits
+	 */
+	private int resolve(World world, int count) {
+		this.hitCount = 0;
+		SpatialGrid grid = this.grid;
+		if (grid == null) {
+			grid = this.ownGrid;
+			// only the bodies that moved since the last pick are placed again
+			grid.update(world);
+		}
+		double r = this.radius;
+		for (int p = 0; p < count; p++) {
+			double x = this.points[p * 2];
+			double y = this.points[p * 2 + 1];
+			int n = grid.queryRectangle(x - r, y - r, x + r, y + r);
+			for (int i = 0; i < n; i++) {
+				this.test(world, grid.getBody(i), grid.getResult(i), p);
+			}
+		}
+		return this.hitCount;
+	}
+
+	/**
+	 * Tests a pointer against the fixtures of a body, adding the hits.
+	 * @param world the world
+	 * @param body the body
+	 * @param index the index of the body
+	 * @param p the pointer
+	 */
+	private void test(World world, Body body, int index, int p) {
+		double x = this.points[p * 2];
+		double y = this.points[p * 2 + 1];
+		Transform tx = body.getTransform();
+		int fixtures = body.getFixtureCount();
+		for (int j = 0; j < fixtures; j++) {
+			BodyFixture fixture = body.getFixture(j);
+			if (fixture.isSensor()) continue;
+			this.penetration.setNormal(this.normal);
+			if (this.context.detect(world, x, y, fixture.getShape(), tx, this.penetration)) {
+				this.addHit(p, index, j, this.penetration.getDepth());
+			}
+		}
+	}
+
+	/**
+	 * Adds a hit.
+	 * @param pointer the pointer
+	 * @param body the body index
+	 * @param fixture the fixture index
+	 * @param depth the depth
+	 */
+	private void addHit(int pointer, int body, int fixture, double depth) {
+		int i = this.hitCount;
+		if (i == this.hitBodies.length) {
+			this.hitPointers = Arrays.copyOf(this.hitPointers, i * 2);
+			this.hitBodies = Arrays.copyOf(this.hitBodies, i * 2);
+			this.hitFixtures = Arrays.copyOf(this.hitFixtures, i * 2);
+			this.hitDepths = Arrays.copyOf(this.hitDepths, i * 2);
+		}
+		this.hitPointers[i] = pointer;
+		this.hitBodies[i] = body;
+		this.hitFixtures[i] = fixture;
+		this.hitDepths[i] = depth;
+		this.hitCount = i + 1;
+	}
+
+	/**
+	 * Returns the number of hits of the last pick.
+	 * @return int
+	 */
+	public int getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Returns the pointer of each hit of the last pick.
+	 * @return int[]; reused, valid up to {@link #getHitCount()}
+	 */
+	public int[] getPointers() {
+		return this.hitPointers;
+	}
+
+	/**
+	 * Returns the index in the world of the body of each hit of the last pick.
+	 * @return int[]; reused, valid up to {@link #getHitCount()}
+	 */
+	public int[] getBodies() {
+		return this.hitBodies;
+	}
+
+	/**
+	 * Returns the index in its body of the fixture of each hit of the last pick.
+	 * @return int[]; reused, valid up to {@link #getHitCount()}
+	 */
+	public int[] getFixtures() {
+		return this.hitFixtures;
+	}
+
+	/**
+	 * Returns the penetration depth of each hit of the last pick.
+	 * @return double[]; reused, valid up to {@link #getHitCount()}
+	 */
+	public double[] getDepths() {
+		return this.hitDepths;
+	}
+
+	/**
+	 * Returns the pointers of the last pick in world space.
+	 * @return double[] (x, y); reused, valid up to twice the number of pointers
+	 */
+	public double[] getPoints() {
+		return this.points;
+	}
+
+	/**
+	 * Returns the probe radius.
+	 * @return double
+	 */
+	public double getRadius() {
+		return this.radius;
+	}
+
+	/**
+	 * Returns the size of the cells of the picker's own grid.
+	 * @return double
+	 */
+	public double getCellSize() {
+		return this.ownGrid.getCellSize();
+	}
+}
@@ -0,0 +1,259 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dyn4j.geometry.Circle;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Segment;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Draws the fixtures of many bodies with one fill and one outline per color.
+ * <p>
+ * The world space outlines of all fixtures of the same fill color are
+ * gathered into one path, which is then filled and stroked once, so the
+ * graphics state changes twice per color instead of twice per fixture. This
+ * pays off when many bodies share a few colors.
+ * <p>
+ * Batching changes what is drawn on top: all bodies of one color are drawn
+ * before those of the next color, and overlapping translucent bodies of the
+ * same color are blended once. Shapes drawn by a custom
+ * {@link Graphics2DRenderer.ShapeRenderer} are drawn immediately by it.
+ * Small bodies are added with less detail, see {@link LevelOfDetail}.
+ * <p>
+ * A batch must only be used by the render thread.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class ColorBatch {
+	/** The number of colors above which unused batches are dropped */
+	private static final int MAXIMUM_COLORS = 256;
+
+	/**
+	 * The outlines of one fill color.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private static final class Batch {
+		/** The fill color */
+		private final Color fill;
+
+		/** The outline color */
+		private final Color outline;
+
+		/** The outlines of the closed shapes */
+		private final Path2D.Double shapes = new Path2D.Double();
+
+		/** The segments and the rotation indicators of circles */
+		private final Path2D.Double lines = new Path2D.Double();
+
+		/** The outlines of small bodies, filled but not outlined */
+		private final Path2D.Double fills = new Path2D.Double();
+
+		/** True if shapes were added since the last flush */
+		private boolean hasShapes;
+
+		/** True if lines were added since the last flush */
+		private boolean hasLines;
+
+		/** True if fills were added since the last flush */
+		private boolean hasFills;
+
+		/** True if the batch is to be drawn by the next flush */
+		private boolean pending;
+
+		/**
+		 * Full constructor.
+		 * @param fill the fill color
+		 */
+		public Batch(Color fill) {
+			this.fill = fill;
+			this.outline = Graphics2DRenderer.getOutlineColor(fill);
+		}
+	}
+
+	/** The batch per fill color */
+	private final Map<Color, Batch> batches = new HashMap<Color, Batch>();
+
+	/** The batches with outlines added since the last flush */
+	private final List<Batch> pending = new ArrayList<Batch>();
+
+	/** The local to world transform of the body being added */
+	private final AffineTransform local = new AffineTransform();
+
+	/** The number of flushes that drew something */
+	private long flushCount;
+
+	/** The number of fill colors drawn by the last flush */
+	private int batchCount;
+
+	/**
+	 * Adds the fixtures of the given body at the given position and rotation.
+	 * <p>
+	 * The graphics context is only used for shapes that can't be batched.
+	 * @param g the graphics context, with the world to device transform
+	 * @param body the body
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @param x the world space x coordinate
+	 * @param y the world space y coordinate
+	 * @param rotation the rotation in radians
+	 * @param centerX the world space x coordinate of the center of mass
+	 * @param centerY the world space y coordinate of the center of mass
+	 * @param radius the rotation disc radius; zero or infinite if unknown
+	 * @param color the fill color
+	 */
+	public void add(Graphics2D g, SimulationBody body, double scale, double x, double y, double rotation, double centerX, double centerY, double radius, Color color) {
+		if (color == null) color = Color.ORANGE;
+		Batch batch = this.batches.get(color);
+		if (batch == null) {
+			batch = new Batch(color);
+			this.batches.put(color, batch);
+		}
+		if (!batch.pending) {
+			batch.pending = true;
+			this.pending.add(batch);
+		}
+
+		double cos = Math.cos(rotation);
+		double sin = Math.sin(rotation);
+		LevelOfDetail level = LevelOfDetail.select(radius * scale);
+		if (level == LevelOfDetail.POINT) {
+			// one pixel at the center of mass
+			double px = Math.floor(centerX * scale);
+			double py = Math.floor(centerY * scale);
+			batch.fills.moveTo(px, py);
+			batch.fills.lineTo(px + 1.0, py);
+			batch.fills.lineTo(px + 1.0, py + 1.0);
+			batch.fills.lineTo(px, py + 1.0);
+			batch.fills.closePath();
+			batch.hasFills = true;
+			return;
+		}
+		// small bodies are filled but not outlined
+		boolean full = level == LevelOfDetail.FULL;
+		Path2D.Double shapes = full ? batch.shapes : batch.fills;
+
+		double tx = x * scale;
+		double ty = y * scale;
+		this.local.setTransform(cos, sin, -sin, cos, tx, ty);
+
+		int n = body.getFixtureCount();
+		for (int i = 0; i < n; i++) {
+			Convex convex = body.getFixture(i).getShape();
+			if (!Graphics2DRenderer.isBuiltIn(Graphics2DRenderer.getRenderer(convex.getClass()))) {
+				// drawn by a custom renderer
+				this.renderImmediately(g, convex, scale, batch, full);
+			} else if (convex instanceof Circle) {
+				Circle circle = (Circle)convex;
+				Vector2 c = circle.getCenter();
+				double r = circle.getRadius();
+				double cx = x + cos * c.x - sin * c.y;
+				double cy = y + sin * c.x + cos * c.y;
+				Graphics2DRenderer.appendArc(shapes, cx, cy, r, r, cos, sin, 0.0, 2.0 * Math.PI, scale, true);
+				shapes.closePath();
+				if (full) {
+					batch.hasShapes = true;
+					// the line so that rotation is visible
+					batch.lines.moveTo(cx * scale, cy * scale);
+					batch.lines.lineTo((cx + r * cos) * scale, (cy + r * sin) * scale);
+					batch.hasLines = true;
+				} else {
+					batch.hasFills = true;
+				}
+			} else if (convex instanceof Segment) {
+				Vector2[] v = ((Segment)convex).getVertices();
+				batch.lines.moveTo(tx + (cos * v[0].x - sin * v[0].y) * scale, ty + (sin * v[0].x + cos * v[0].y) * scale);
+				batch.lines.lineTo(tx + (cos * v[1].x - sin * v[1].y) * scale, ty + (sin * v[1].x + cos * v[1].y) * scale);
+				batch.hasLines = true;
+			} else {
+				Path2D path = Graphics2DRenderer.getShapeCache().get(convex, scale);
+				if (path != null) {
+					shapes.append(path.getPathIterator(this.local), false);
+					if (full) {
+						batch.hasShapes = true;
+					} else {
+						batch.hasFills = true;
+					}
+				} else {
+					this.renderImmediately(g, convex, scale, batch, full);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws a shape that can't be batched now with its own renderer.
+	 * @param g the graphics context, with the world to device transform
+	 * @param convex the shape
+	 * @param scale the scale
+	 * @param batch the batch of its color
+	 * @param outlined true to draw its outline
+	 */
+	private void renderImmediately(Graphics2D g, Convex convex, double scale, Batch batch, boolean outlined) {
+		AffineTransform base = g.getTransform();
+		g.transform(this.local);
+		Graphics2DRenderer.getRenderer(convex.getClass()).render(g, convex, scale, batch.fill, outlined ? batch.outline : null);
+		g.setTransform(base);
+	}
+
+	/**
+	 * Fills and outlines every batch added since the last flush.
+	 * @param g the graphics context, with the world to device transform
+	 */
+	public void flush(Graphics2D g) {
+		int n = this.pending.size();
+		for (int i = 0; i < n; i++) {
+			Batch batch = this.pending.get(i);
+			if (batch.hasShapes || batch.hasFills) {
+				g.setColor(batch.fill);
+				if (batch.hasShapes) g.fill(batch.shapes);
+				if (batch.hasFills) g.fill(batch.fills);
+			}
+			if (batch.hasShapes || batch.hasLines) {
+				g.setColor(batch.outline);
+				if (batch.hasShapes) g.draw(batch.shapes);
+				if (batch.hasLines) g.draw(batch.lines);
+			}
+			batch.shapes.reset();
+			batch.lines.reset();
+			batch.fills.reset();
+			batch.hasShapes = false;
+			batch.hasLines = false;
+			batch.hasFills = false;
+			batch.pending = false;
+		}
+		this.pending.clear();
+		this.batchCount = n;
+		if (n > 0) this.flushCount++;
+
+		// don't keep the batches of colors made up every frame
+		if (this.batches.size() > MAXIMUM_COLORS) {
+			this.batches.clear();
+		}
+	}
+
+	/**
+	 * Returns the number of fill colors drawn by the last flush.
+	 * @return int
+	 */
+	public int getBatchCount() {
+		return this.batchCount;
+	}
+
+	/**
+	 * Returns the number of flushes that drew something.
+	 * @return long
+	 */
+	public long getFlushCount() {
+		return this.flushCount;
+	}
+}
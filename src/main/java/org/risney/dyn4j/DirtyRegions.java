@@ -0,0 +1,313 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+/**
+ * Tracks the regions of the screen that changed since the last frame, so
+ * that only those need to be repainted when few bodies move.
+ * <p>
+ * Each frame the transform and color of every body that is not static are
+ * compared with the ones it was drawn with the frame before. A body that moved
+ * dirties the bounds of its rotation disc at both places, one that only
+ * changed color, like a body highlighted under the pointer, at its place.
+ * Overlapping dirty regions are merged. Bodies that did not change, asleep or
+ * not, dirty nothing; changes to the static bodies are handled by
+ * {@link StaticLayer} and force a full repaint.
+ * <p>
+ * A full repaint is asked for instead when the bodies were added or removed,
+ * when the regions cover too much of the screen or there are too many of
+ * them, and after {@link #invalidate()}, for example when the contents of the
+ * back buffer were lost.
+ * <p>
+ * Anything drawn on top of the bodies, like a cursor, must be reported with
+ * {@link #addOverlay(double, double, double)} every frame it is drawn so that
+ * it is repainted and, once gone, erased.
+ * <p>
+ * Must only be used by the render thread.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class DirtyRegions {
+	/** The most regions repainted one by one */
+	private static final int MAXIMUM_REGIONS = 16;
+
+	/** The fraction of the screen above which the whole screen is repainted */
+	private static final double MAXIMUM_AREA_FRACTION = 0.5;
+
+	/** The padding around the bounds of a body in pixels, for outlines and antialiasing */
+	private static final double PADDING_PIXELS = 2.0;
+
+	/** The number of values kept per body */
+	private static final int STRIDE = 3;
+
+	/** The visible region of the world */
+	private final Viewport viewport;
+
+	/** The regions to repaint; the first {@link #regionCount} are in use */
+	private final Viewport[] regions;
+
+	/** The number of regions to repaint */
+	private int regionCount;
+
+	/** The bodies of the last frame */
+	private SimulationBody[] bodies;
+
+	/** The transforms of the bodies of the last frame (x, y, r) */
+	private double[] transforms;
+
+	/** The colors of the bodies of the last frame */
+	private Color[] colors;
+
+	/** The number of bodies of the last frame */
+	private int size;
+
+	/** The static version of the last frame */
+	private long staticVersion;
+
+	/** The overlays of the last frame and this frame (x, y, radius) */
+	private double[] overlays;
+
+	/** The overlays of the last frame */
+	private int lastOverlayCount;
+
+	/** The overlays of this frame */
+	private int overlayCount;
+
+	/** True if the next frame must be repainted in full */
+	private boolean invalid;
+
+	/** The number of full repaints */
+	private long fullCount;
+
+	/** The number of partial repaints */
+	private long partialCount;
+
+	/**
+	 * Full constructor.
+	 * @param viewport the visible region of the world
+	 */
+	public DirtyRegions(Viewport viewport) {
+		this.viewport = viewport;
+		this.regions = new Viewport[MAXIMUM_REGIONS];
+		for (int i = 0; i < MAXIMUM_REGIONS; i++) {
+			this.regions[i] = new Viewport(0, 0, 0, 0);
+		}
+		this.bodies = new SimulationBody[16];
+		this.transforms = new double[16 * STRIDE];
+		this.colors = new Color[16];
+		this.overlays = new double[8 * STRIDE];
+		this.invalid = true;
+	}
+
+	/**
+	 * Reports something drawn on top of the bodies this frame; must be called
+	 * before {@link #update(RenderSnapshot, double, double)}.
+	 * @param x the world space x coordinate of its center
+	 * @param y the world space y coordinate of its center
+	 * @param radius the world space radius it is drawn within
+	 */
+	public void addOverlay(double x, double y, double radius) {
+		int n = (this.lastOverlayCount + this.overlayCount + 1) * STRIDE;
+		if (n > this.overlays.length) {
+			this.overlays = Arrays.copyOf(this.overlays, n * 2);
+		}
+		int o = (this.lastOverlayCount + this.overlayCount) * STRIDE;
+		this.overlays[o] = x;
+		this.overlays[o + 1] = y;
+		this.overlays[o + 2] = radius;
+		this.overlayCount++;
+	}
+
+	/**
+	 * Computes the regions changed since the last frame.
+	 * @param snapshot the snapshot about to be drawn
+	 * @param alpha the interpolation factor it is drawn at
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return boolean true if only the regions need to be repainted; false if the whole screen does
+	 */
+	public boolean update(RenderSnapshot snapshot, double alpha, double scale) {
+		double padding = PADDING_PIXELS / scale;
+		boolean partial = !this.invalid
+				&& snapshot.getSize() == this.size
+				&& snapshot.getStaticVersion() == this.staticVersion;
+		this.regionCount = 0;
+
+		int n = snapshot.getSize();
+		if (n > this.bodies.length) {
+			this.bodies = Arrays.copyOf(this.bodies, n * 2);
+			this.transforms = Arrays.copyOf(this.transforms, n * 2 * STRIDE);
+			this.colors = Arrays.copyOf(this.colors, n * 2);
+		}
+		for (int i = 0; i < n; i++) {
+			SimulationBody body = snapshot.getBody(i);
+			double x = snapshot.getTranslationX(i, alpha);
+			double y = snapshot.getTranslationY(i, alpha);
+			double r = snapshot.getRotation(i, alpha);
+			Color color = snapshot.getColor(i);
+			int o = i * STRIDE;
+			if (partial && !snapshot.isStatic(i)) {
+				if (body != this.bodies[i]) {
+					partial = false;
+				} else if (x != this.transforms[o] || y != this.transforms[o + 1] || r != this.transforms[o + 2]) {
+					double radius = snapshot.getRadius(i) + padding;
+					// where it was
+					double px = this.transforms[o];
+					double py = this.transforms[o + 1];
+					double pr = this.transforms[o + 2];
+					double dx = snapshot.getCenterX(i, alpha) - x;
+					double dy = snapshot.getCenterY(i, alpha) - y;
+					// the local center rotated back to the last rotation
+					double cos = Math.cos(pr - r);
+					double sin = Math.sin(pr - r);
+					partial &= this.add(px + cos * dx - sin * dy, py + sin * dx + cos * dy, radius);
+					// where it is
+					partial &= this.add(x + dx, y + dy, radius);
+				} else if (color != this.colors[i]) {
+					double radius = snapshot.getRadius(i) + padding;
+					partial &= this.add(snapshot.getCenterX(i, alpha), snapshot.getCenterY(i, alpha), radius);
+				}
+			}
+			this.bodies[i] = body;
+			this.colors[i] = color;
+			this.transforms[o] = x;
+			this.transforms[o + 1] = y;
+			this.transforms[o + 2] = r;
+		}
+		for (int i = n; i < this.size; i++) {
+			this.bodies[i] = null;
+			this.colors[i] = null;
+		}
+		this.size = n;
+		this.staticVersion = snapshot.getStaticVersion();
+
+		// the overlays of the last frame to erase and of this frame to draw
+		int overlays = this.lastOverlayCount + this.overlayCount;
+		for (int i = 0; i < overlays && partial; i++) {
+			int o = i * STRIDE;
+			partial &= this.add(this.overlays[o], this.overlays[o + 1], this.overlays[o + 2] + padding);
+		}
+		System.arraycopy(this.overlays, this.lastOverlayCount * STRIDE, this.overlays, 0, this.overlayCount * STRIDE);
+		this.lastOverlayCount = this.overlayCount;
+		this.overlayCount = 0;
+
+		if (partial) {
+			partial = this.getArea() <= this.getViewportArea() * MAXIMUM_AREA_FRACTION;
+		}
+		this.invalid = false;
+		if (partial) {
+			this.partialCount++;
+		} else {
+			this.regionCount = 0;
+			this.fullCount++;
+		}
+		return partial;
+	}
+
+	/**
+	 * Adds the square of the given half size around the given point as a
+	 * dirty region, merging it with the regions it overlaps.
+	 * @param x the world space x coordinate of the center
+	 * @param y the world space y coordinate of the center
+	 * @param radius the half size
+	 * @return boolean false if there are too many regions
+	 */
+	private boolean add(double x, double y, double radius) {
+		if (Double.isInfinite(radius)) return false;
+		double minX = Math.max(x - radius, this.viewport.getMinX());
+		double minY = Math.max(y - radius, this.viewport.getMinY());
+		double maxX = Math.min(x + radius, this.viewport.getMaxX());
+		double maxY = Math.min(y + radius, this.viewport.getMaxY());
+		// off screen
+		if (minX > maxX || minY > maxY) return true;
+
+		// merge with every overlapping region until none overlaps
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+			for (int i = 0; i < this.regionCount; i++) {
+				Viewport region = this.regions[i];
+				if (minX <= region.getMaxX() && maxX >= region.getMinX()
+				 && minY <= region.getMaxY() && maxY >= region.getMinY()) {
+					minX = Math.min(minX, region.getMinX());
+					minY = Math.min(minY, region.getMinY());
+					maxX = Math.max(maxX, region.getMaxX());
+					maxY = Math.max(maxY, region.getMaxY());
+					// remove it by moving the last region in its place
+					this.regionCount--;
+					Viewport last = this.regions[this.regionCount];
+					this.regions[this.regionCount] = region;
+					this.regions[i] = last;
+					merged = true;
+					break;
+				}
+			}
+		}
+		if (this.regionCount == MAXIMUM_REGIONS) return false;
+		this.regions[this.regionCount++].set(minX, minY, maxX, maxY);
+		return true;
+	}
+
+	/**
+	 * Returns the total area of the regions.
+	 * @return double
+	 */
+	private double getArea() {
+		double area = 0.0;
+		for (int i = 0; i < this.regionCount; i++) {
+			Viewport region = this.regions[i];
+			area += (region.getMaxX() - region.getMinX()) * (region.getMaxY() - region.getMinY());
+		}
+		return area;
+	}
+
+	/**
+	 * Returns the area of the viewport.
+	 * @return double
+	 */
+	private double getViewportArea() {
+		return (this.viewport.getMaxX() - this.viewport.getMinX()) * (this.viewport.getMaxY() - this.viewport.getMinY());
+	}
+
+	/**
+	 * Forces a full repaint on the next frame.
+	 */
+	public void invalidate() {
+		this.invalid = true;
+	}
+
+	/**
+	 * Returns the number of regions to repaint this frame.
+	 * @return int
+	 */
+	public int getRegionCount() {
+		return this.regionCount;
+	}
+
+	/**
+	 * Returns the region at the given index; also used to cull the bodies
+	 * drawn into it.
+	 * @param index the region index
+	 * @return {@link Viewport}
+	 */
+	public Viewport getRegion(int index) {
+		return this.regions[index];
+	}
+
+	/**
+	 * Returns the number of frames repainted in full.
+	 * @return long
+	 */
+	public long getFullCount() {
+		return this.fullCount;
+	}
+
+	/**
+	 * Returns the number of frames repainted in part.
+	 * @return long
+	 */
+	public long getPartialCount() {
+		return this.partialCount;
+	}
+}
@@ -0,0 +1,155 @@
+package org.risney.dyn4j;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+
+/**
+ * The scenes of the examples, buildable without a window.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public enum ExampleScene {
+	/** The {@link AirHockey} table */
+	AIR_HOCKEY(AirHockey.SCALE) {
+		@Override
+		public World createWorld() {
+			return AirHockey.createWorld();
+		}
+
+		@Override
+		public void applyInput(World world, StepInput input, QueryContext context) {
+			AirHockey.applyInput(world, input);
+		}
+	},
+
+	/** The {@link BouncingBall2D} box */
+	BOUNCING_BALL(BouncingBall2D.SCALE) {
+		@Override
+		public World createWorld() {
+			return BouncingBall2D.createWorld();
+		}
+
+		@Override
+		public void applyInput(World world, StepInput input, QueryContext context) {
+			BouncingBall2D.applyInput(world, input, context);
+		}
+	},
+
+	/** The {@link MouseDrag} controller and wall */
+	MOUSE_DRAG(MouseDrag.SCALE) {
+		@Override
+		public World createWorld() {
+			return MouseDrag.createWorld();
+		}
+
+		@Override
+		public void applyInput(World world, StepInput input, QueryContext context) {
+			MouseDrag.applyInput(world, input);
+		}
+	},
+
+	/** The {@link Picking} shapes */
+	PICKING(Picking.SCALE) {
+		@Override
+		public World createWorld() {
+			return Picking.createWorld();
+		}
+	},
+
+	/** The {@link Thrust} ship */
+	THRUST(Thrust.SCALE) {
+		@Override
+		public World createWorld() {
+			return Thrust.createWorld();
+		}
+
+		@Override
+		public void applyInput(World world, StepInput input, QueryContext context) {
+			Thrust.applyInput(world, input);
+		}
+	};
+
+	/** The radius of the probe at the pointer in meters */
+	private static final double PICK_RADIUS = 0.1;
+
+	/** The scale of the example in pixels per meter */
+	private final double scale;
+
+	/**
+	 * Full constructor.
+	 * @param scale the scale of the example in pixels per meter
+	 */
+	private ExampleScene(double scale) {
+		this.scale = scale;
+	}
+
+	/**
+	 * Creates a new world populated with the bodies and joints of the scene.
+	 * @return {@link World}
+	 */
+	public abstract World createWorld();
+
+	/**
+	 * Returns the scale the example draws the scene at.
+	 * @return double the pixels per meter
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * Creates the query of the bodies under the pointer that
+	 * {@link #applyInput(World, StepInput, QueryContext)} reuses across the
+	 * steps of a run; one per world.
+	 * @return {@link QueryContext}
+	 */
+	public QueryContext createQueryContext() {
+		return new QueryContext(PICK_RADIUS);
+	}
+
+	/**
+	 * Applies the given input to a world of the scene before a step, as the
+	 * example does.
+	 * <p>
+	 * The default does nothing; the input of the scene only affects what is drawn.
+	 * @param world the world created by {@link #createWorld()}
+	 * @param input the input of the step
+	 * @param context the query created by {@link #createQueryContext()} for this world
+	 */
+	public void applyInput(World world, StepInput input, QueryContext context) {}
+
+	/**
+	 * Creates a scaled up scene with the given number of dynamic bodies.
+	 * <p>
+	 * The bodies are alternating circles and squares laid out in a square
+	 * grid, one meter apart, above a static floor. They fall onto the floor
+	 * and pile up, so the number of contacts grows with the number of bodies.
+	 * @param bodies the number of dynamic bodies
+	 * @return {@link World}
+	 */
+	public static World createWorld(int bodies) {
+		World world = new World();
+		int columns = (int)Math.ceil(Math.sqrt(bodies));
+
+		SimulationBody floor = new SimulationBody();
+		floor.addFixture(Geometry.createRectangle(columns + 2.0, 1.0));
+		floor.setMass(Mass.Type.INFINITE);
+		world.addBody(floor);
+
+		Convex circle = Geometry.createCircle(0.25);
+		Convex square = Geometry.createSquare(0.5);
+		for (int i = 0; i < bodies; i++) {
+			int column = i % columns;
+			int row = i / columns;
+			SimulationBody body = new SimulationBody();
+			body.addFixture(i % 2 == 0 ? circle : square);
+			body.translate(column - (columns - 1) * 0.5, row + 1.5);
+			body.setMass(Mass.Type.NORMAL);
+			world.addBody(body);
+		}
+		return world;
+	}
+}
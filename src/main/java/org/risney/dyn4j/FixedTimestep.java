@@ -0,0 +1,134 @@
+package org.risney.dyn4j;
+
+/**
+ * Accumulates elapsed frame time and converts it into a number of fixed
+ * size simulation steps.
+ * <p>
+ * The number of steps per call to {@link #advance(double)} is capped so that
+ * a slow frame cannot make the next frame even slower (the spiral of death);
+ * any time beyond the cap is dropped.
+ * <p>
+ * The time left in the accumulator after stepping is exposed as the
+ * interpolation factor {@link #getAlpha()} so that rendering can blend
+ * between the last two steps.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class FixedTimestep {
+	/** The default step size; 60 steps per second */
+	public static final double DEFAULT_STEP = 1.0 / 60.0;
+
+	/** The default maximum number of steps per frame */
+	public static final int DEFAULT_MAXIMUM_STEPS = 5;
+
+	/** The fixed step size in seconds */
+	private final double step;
+
+	/** The maximum number of steps per frame */
+	private final int maximumSteps;
+
+	/** The time not yet consumed by a step in seconds */
+	private double accumulator;
+
+	/** The number of steps taken */
+	private long stepCount;
+
+	/** The number of steps dropped because of the maximum */
+	private long droppedStepCount;
+
+	/**
+	 * Default constructor.
+	 */
+	public FixedTimestep() {
+		this(DEFAULT_STEP, DEFAULT_MAXIMUM_STEPS);
+	}
+
+	/**
+	 * Full constructor.
+	 * @param step the fixed step size in seconds
+	 * @param maximumSteps the maximum number of steps per frame
+	 * @throws IllegalArgumentException if step is not positive or maximumSteps is less than 1
+	 */
+	public FixedTimestep(double step, int maximumSteps) {
+		if (step <= 0.0) throw new IllegalArgumentException("The step size must be greater than zero.");
+		if (maximumSteps < 1) throw new IllegalArgumentException("The maximum number of steps must be at least 1.");
+		this.step = step;
+		this.maximumSteps = maximumSteps;
+	}
+
+	/**
+	 * Adds the given elapsed time to the accumulator and returns the number
+	 * of fixed steps that should be taken.
+	 * @param elapsedTime the elapsed time in seconds
+	 * @return int the number of steps to take in the range [0, maximumSteps]
+	 */
+	public int advance(double elapsedTime) {
+		// a negative elapsed time is treated as no time
+		if (elapsedTime > 0.0) {
+			this.accumulator += elapsedTime;
+		}
+
+		long due = (long)(this.accumulator / this.step);
+		int steps = due > this.maximumSteps ? this.maximumSteps : (int)due;
+
+		// consume all the due steps, even the dropped ones, so that
+		// the remainder is always less than one step
+		this.accumulator -= due * this.step;
+		if (this.accumulator < 0.0) {
+			this.accumulator = 0.0;
+		}
+
+		this.stepCount += steps;
+		this.droppedStepCount += due - steps;
+		return steps;
+	}
+
+	/**
+	 * Returns the interpolation factor between the previous and the current step.
+	 * @return double in the range [0, 1)
+	 */
+	public double getAlpha() {
+		return this.accumulator / this.step;
+	}
+
+	/**
+	 * Clears the accumulated time.
+	 */
+	public void reset() {
+		this.accumulator = 0.0;
+	}
+
+	/**
+	 * Returns the fixed step size in seconds.
+	 * @return double
+	 */
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Returns the maximum number of steps per frame.
+	 * @return int
+	 */
+	public int getMaximumSteps() {
+		return this.maximumSteps;
+	}
+
+	/**
+	 * Returns the number of steps taken.
+	 * @return long
+	 */
+	public long getStepCount() {
+		return this.stepCount;
+	}
+
+	/**
+	 * Returns the number of steps dropped because a frame exceeded the
+	 * maximum number of steps.
+	 * @return long
+	 */
+	public long getDroppedStepCount() {
+		return this.droppedStepCount;
+	}
+}
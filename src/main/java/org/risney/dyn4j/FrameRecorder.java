@@ -0,0 +1,477 @@
+package org.risney.dyn4j;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes rendered frames to disk on a background thread.
+ * <p>
+ * Frames are drawn into a fixed pool of reused {@link BufferedImage}s. A
+ * drawn frame is queued for the encoder thread, which hands it to a
+ * {@link FrameWriter} and then returns its image to the pool. Neither taking
+ * an image with {@link #acquire()} nor queuing a frame ever waits: when the
+ * encoder falls behind the pool runs dry and frames are dropped, so
+ * recording can't slow down the loop producing the frames. Recordings that
+ * must not lose frames take their images with {@link #take()} instead, which
+ * waits for the encoder.
+ * <p>
+ * One thread may draw frames while another closes the recorder; every frame
+ * counted as submitted is written, unless writing fails.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ * @see OffscreenRenderer
+ */
+public final class FrameRecorder {
+	private static final Logger log = LoggerFactory.getLogger(FrameRecorder.class);
+
+	/** The default number of images in the pool */
+	public static final int DEFAULT_POOL_SIZE = 4;
+
+	/** The time {@link #take()} waits for an image before checking if it is closed, in milliseconds */
+	private static final long POLL_MILLIS = 100;
+
+	/**
+	 * Writes frames in some format.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public interface FrameWriter {
+		/**
+		 * Writes the given frame.
+		 * @param image the frame image
+		 * @param number the frame number
+		 * @throws IOException if the frame could not be written
+		 */
+		public void write(BufferedImage image, long number) throws IOException;
+
+		/**
+		 * Finishes writing; called once after the last frame.
+		 * @throws IOException if the output could not be closed
+		 */
+		public void close() throws IOException;
+	}
+
+	/**
+	 * Writes each frame to its own PNG file named after the frame number.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static final class PngSequence implements FrameWriter {
+		/** The directory to write to */
+		private final File directory;
+
+		/** The file name prefix */
+		private final String prefix;
+
+		/**
+		 * Full constructor.
+		 * @param directory the directory to write to; created if it does not exist
+		 * @param prefix the file name prefix
+		 * @throws IOException if the directory could not be created
+		 */
+		public PngSequence(File directory, String prefix) throws IOException {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Unable to create " + directory + ".");
+			}
+			this.directory = directory;
+			this.prefix = prefix;
+		}
+
+		/**
+		 * Returns the file of the given frame.
+		 * @param number the frame number
+		 * @return File
+		 */
+		public File getFile(long number) {
+			return new File(this.directory, String.format(Locale.ROOT, "%s%06d.png", this.prefix, number));
+		}
+
+		/* (non-Javadoc)
+		 * @see org.risney.dyn4j.FrameRecorder.FrameWriter#write(java.awt.image.BufferedImage, long)
+		 */
+		@Override
+		public void write(BufferedImage image, long number) throws IOException {
+			if (!ImageIO.write(image, "png", this.getFile(number))) {
+				throw new IOException("No PNG writer available.");
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.risney.dyn4j.FrameRecorder.FrameWriter#close()
+		 */
+		@Override
+		public void close() {}
+	}
+
+	/**
+	 * Writes all frames to one stream of uncompressed RGB pixels.
+	 * <p>
+	 * The stream starts with the magic number "D4JF", a version byte and the
+	 * width and height as ints; each frame is its frame number as a long
+	 * followed by its pixels, row by row, three bytes each.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static final class RawFrames implements FrameWriter {
+		/** The stream magic number "D4JF" */
+		public static final int MAGIC = 0x44344A46;
+
+		/** The stream format version */
+		public static final int VERSION = 1;
+
+		/** The stream */
+		private final DataOutputStream out;
+
+		/** The frame width */
+		private final int width;
+
+		/** The frame height */
+		private final int height;
+
+		/** One row of pixels as read */
+		private final int[] pixels;
+
+		/** One row of pixels as written */
+		private final byte[] row;
+
+		/**
+		 * Full constructor; writes the stream header.
+		 * @param out the stream to write to
+		 * @param width the frame width
+		 * @param height the frame height
+		 * @throws IOException if the header could not be written
+		 */
+		public RawFrames(OutputStream out, int width, int height) throws IOException {
+			this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+			this.width = width;
+			this.height = height;
+			this.pixels = new int[width];
+			this.row = new byte[width * 3];
+			this.out.writeInt(MAGIC);
+			this.out.writeByte(VERSION);
+			this.out.writeInt(width);
+			this.out.writeInt(height);
+		}
+
+		/* (non-Javadoc)
+		 * @see org.risney.dyn4j.FrameRecorder.FrameWriter#write(java.awt.image.BufferedImage, long)
+		 */
+		@Override
+		public void write(BufferedImage image, long number) throws IOException {
+			if (image.getWidth() != this.width || image.getHeight() != this.height) {
+				throw new IOException("Frame size " + image.getWidth() + "x" + image.getHeight() + " does not match the stream.");
+			}
+			this.out.writeLong(number);
+			for (int y = 0; y < this.height; y++) {
+				image.getRGB(0, y, this.width, 1, this.pixels, 0, this.width);
+				int o = 0;
+				for (int x = 0; x < this.width; x++) {
+					int rgb = this.pixels[x];
+					this.row[o++] = (byte)(rgb >> 16);
+					this.row[o++] = (byte)(rgb >> 8);
+					this.row[o++] = (byte)rgb;
+				}
+				this.out.write(this.row);
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see org.risney.dyn4j.FrameRecorder.FrameWriter#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			this.out.close();
+		}
+	}
+
+	/**
+	 * A pooled frame image and its frame number.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static final class Frame {
+		/** The image */
+		private final BufferedImage image;
+
+		/** The frame number */
+		private long number;
+
+		/**
+		 * Full constructor.
+		 * @param image the image
+		 */
+		private Frame(BufferedImage image) {
+			this.image = image;
+		}
+
+		/**
+		 * Returns the image to draw the frame into.
+		 * @return BufferedImage
+		 */
+		public BufferedImage getImage() {
+			return this.image;
+		}
+
+		/**
+		 * Returns the frame number.
+		 * @return long
+		 */
+		public long getNumber() {
+			return this.number;
+		}
+	}
+
+	/** Queued by {@link #close()} after the last frame to write */
+	private static final Frame END = new Frame(null);
+
+	/** The frame writer; only used by the encoder thread */
+	private final FrameWriter writer;
+
+	/** The frames free to draw into */
+	private final BlockingQueue<Frame> free;
+
+	/** The drawn frames waiting to be written */
+	private final BlockingQueue<Frame> queue;
+
+	/** The encoder thread */
+	private final Thread encoder;
+
+	/** True once closed */
+	private volatile boolean closed;
+
+	/** True once writing failed */
+	private volatile boolean failed;
+
+	/** The number of frames submitted */
+	private final AtomicLong submitted = new AtomicLong();
+
+	/** The number of frames written */
+	private final AtomicLong written = new AtomicLong();
+
+	/** The number of frames dropped */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/** The width of the frames */
+	private final int width;
+
+	/** The height of the frames */
+	private final int height;
+
+	/**
+	 * Minimal constructor.
+	 * @param width the frame width in pixels
+	 * @param height the frame height in pixels
+	 * @param writer the frame writer
+	 */
+	public FrameRecorder(int width, int height, FrameWriter writer) {
+		this(width, height, DEFAULT_POOL_SIZE, writer);
+	}
+
+	/**
+	 * Full constructor; starts the encoder thread.
+	 * @param width the frame width in pixels
+	 * @param height the frame height in pixels
+	 * @param poolSize the number of images, and so the most frames waiting to be written
+	 * @param writer the frame writer
+	 */
+	public FrameRecorder(int width, int height, int poolSize, FrameWriter writer) {
+		if (poolSize < 1) throw new IllegalArgumentException("The pool size must be at least one.");
+		this.width = width;
+		this.height = height;
+		this.writer = writer;
+		this.free = new ArrayBlockingQueue<Frame>(poolSize);
+		// room for every frame and the end
+		this.queue = new ArrayBlockingQueue<Frame>(poolSize + 1);
+		for (int i = 0; i < poolSize; i++) {
+			this.free.add(new Frame(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)));
+		}
+		this.encoder = new Thread("frame-encoder") {
+			@Override
+			public void run() {
+				encode();
+			}
+		};
+		this.encoder.setDaemon(true);
+		this.encoder.start();
+	}
+
+	/**
+	 * Returns a free frame to draw into, or null if there is none, in which
+	 * case the frame is counted as dropped.
+	 * <p>
+	 * Never waits.
+	 * @return {@link Frame}
+	 */
+	public Frame acquire() {
+		Frame frame = this.closed || this.failed ? null : this.free.poll();
+		if (frame == null) {
+			this.dropped.incrementAndGet();
+		}
+		return frame;
+	}
+
+	/**
+	 * Returns a free frame to draw into, waiting for the encoder to free one,
+	 * or null once the recorder is closed or writing failed, in which case the
+	 * frame is counted as dropped.
+	 * @return {@link Frame}
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public Frame take() throws InterruptedException {
+		while (!this.closed && !this.failed) {
+			Frame frame = this.free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			if (frame != null) return frame;
+		}
+		this.dropped.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Queues the given drawn frame for writing.
+	 * <p>
+	 * Never waits.
+	 * @param frame a frame returned by {@link #acquire()} or {@link #take()}
+	 * @param number the frame number
+	 */
+	public void submit(Frame frame, long number) {
+		frame.number = number;
+		if (this.closed || !this.queue.offer(frame)) {
+			this.drop(frame);
+			return;
+		}
+		// closed in between: the frame may be behind the end, where the
+		// encoder never takes it
+		if (this.closed && this.queue.remove(frame)) {
+			this.drop(frame);
+			return;
+		}
+		this.submitted.incrementAndGet();
+	}
+
+	/**
+	 * Counts the given frame as dropped and returns it to the pool.
+	 * @param frame the frame
+	 */
+	private void drop(Frame frame) {
+		this.dropped.incrementAndGet();
+		this.free.offer(frame);
+	}
+
+	/**
+	 * Writes queued frames up to the end queued by {@link #close()}.
+	 */
+	private void encode() {
+		try {
+			while (true) {
+				Frame frame = this.queue.take();
+				if (frame == END) break;
+				if (!this.failed) {
+					try {
+						this.writer.write(frame.image, frame.number);
+						this.written.incrementAndGet();
+					} catch (IOException e) {
+						log.error("Unable to write frame " + frame.number + "; no more frames will be recorded", e);
+						this.failed = true;
+					}
+				}
+				if (this.failed) {
+					this.dropped.incrementAndGet();
+				}
+				this.free.offer(frame);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				this.writer.close();
+			} catch (IOException e) {
+				log.error("Unable to close the frame writer", e);
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting frames, writes the frames still queued and closes the writer.
+	 * <p>
+	 * Waits for the encoder thread to finish.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void close() throws InterruptedException {
+		synchronized (this) {
+			if (!this.closed) {
+				this.closed = true;
+				// never full: there are no more frames than images
+				this.queue.put(END);
+			}
+		}
+		this.encoder.join();
+	}
+
+	/**
+	 * Returns true if writing a frame failed.
+	 * @return boolean
+	 */
+	public boolean isFailed() {
+		return this.failed;
+	}
+
+	/**
+	 * Returns the number of frames queued for writing.
+	 * @return long
+	 */
+	public long getSubmittedCount() {
+		return this.submitted.get();
+	}
+
+	/**
+	 * Returns the number of frames written.
+	 * @return long
+	 */
+	public long getWrittenCount() {
+		return this.written.get();
+	}
+
+	/**
+	 * Returns the number of frames dropped because the encoder was behind,
+	 * the recorder was closed or writing failed.
+	 * @return long
+	 */
+	public long getDroppedCount() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Returns the frame width in pixels.
+	 * @return int
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Returns the frame height in pixels.
+	 * @return int
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+}
@@ -0,0 +1,192 @@
+package org.risney.dyn4j;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a loop to a target frame rate.
+ * <p>
+ * Each call to {@link #sync()} waits for the next frame deadline. Most of the
+ * wait is spent parked; the last part, where the park could overshoot the
+ * deadline, is spent spinning. The spin window adapts to the overshoot observed
+ * on this machine so that deadlines are met without spinning longer than needed.
+ * <p>
+ * A second, lower, frame rate is used while the scheduler is idle, for example
+ * when every body of the world is asleep.
+ * <p>
+ * An interrupted thread is not paced: {@link #sync()} returns false at once,
+ * leaving the interrupt set, so that the loop can exit.
+ * <p>
+ * A scheduler must only be used by one thread.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class FrameScheduler {
+	/** The initial spin window in nanoseconds */
+	private static final long INITIAL_SPIN_NANOS = 1000000L;
+
+	/** The smallest spin window in nanoseconds */
+	private static final long MINIMUM_SPIN_NANOS = 50000L;
+
+	/** The largest spin window in nanoseconds */
+	private static final long MAXIMUM_SPIN_NANOS = 4000000L;
+
+	/** The frame period in nanoseconds; zero or less for no pacing */
+	private final long period;
+
+	/** The idle frame period in nanoseconds; zero or less for no pacing */
+	private final long idlePeriod;
+
+	/** True if the idle frame rate should be used */
+	private boolean idle;
+
+	/** The deadline of the next frame */
+	private long next;
+
+	/** The current spin window in nanoseconds */
+	private long spinNanos;
+
+	/**
+	 * Minimal constructor.
+	 * @param frameRate the target frames per second; zero or less for no pacing
+	 */
+	public FrameScheduler(double frameRate) {
+		this(frameRate, frameRate);
+	}
+
+	/**
+	 * Full constructor.
+	 * @param frameRate the target frames per second; zero or less for no pacing
+	 * @param idleFrameRate the target frames per second while idle; zero or less for no pacing
+	 */
+	public FrameScheduler(double frameRate, double idleFrameRate) {
+		this.period = toPeriod(frameRate);
+		this.idlePeriod = toPeriod(idleFrameRate);
+		this.spinNanos = INITIAL_SPIN_NANOS;
+	}
+
+	/**
+	 * Returns the frame period in nanoseconds for the given frame rate.
+	 * @param frameRate the frames per second
+	 * @return long
+	 */
+	private static final long toPeriod(double frameRate) {
+		return frameRate > 0.0 ? (long)(SimulationFrame.NANO_TO_BASE / frameRate) : 0L;
+	}
+
+	/**
+	 * Waits until the deadline of the next frame.
+	 * <p>
+	 * If the deadline has already passed by more than one frame the schedule
+	 * is reset to now rather than running frames back to back to catch up.
+	 * @return boolean false if the thread is interrupted; the loop should exit
+	 */
+	public boolean sync() {
+		if (Thread.currentThread().isInterrupted()) {
+			return false;
+		}
+		long period = this.idle ? this.idlePeriod : this.period;
+		long now = System.nanoTime();
+		if (period <= 0) {
+			this.next = now;
+			return true;
+		}
+
+		if (this.next == 0) {
+			this.next = now;
+		}
+		this.next += period;
+
+		if (this.next <= now) {
+			// we are late; don't try to catch up
+			if (now - this.next > period) {
+				this.next = now;
+			}
+			return true;
+		}
+
+		// park for the bulk of the wait
+		long remaining = this.next - now;
+		while (remaining > this.spinNanos) {
+			long target = remaining - this.spinNanos;
+			long start = System.nanoTime();
+			LockSupport.parkNanos(target);
+			long end = System.nanoTime();
+			if (Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			this.adapt(end - start - target);
+			remaining = this.next - end;
+		}
+
+		// spin for the rest so the deadline is met precisely
+		while (System.nanoTime() < this.next) {
+			Thread.yield();
+		}
+		return true;
+	}
+
+	/**
+	 * Adjusts the spin window to the given observed park overshoot.
+	 * @param overshoot the time parked beyond the requested time in nanoseconds
+	 */
+	private void adapt(long overshoot) {
+		// move a quarter of the way towards twice the overshoot
+		long target = overshoot * 2;
+		long spin = this.spinNanos + (target - this.spinNanos) / 4;
+		if (spin < MINIMUM_SPIN_NANOS) spin = MINIMUM_SPIN_NANOS;
+		if (spin > MAXIMUM_SPIN_NANOS) spin = MAXIMUM_SPIN_NANOS;
+		this.spinNanos = spin;
+	}
+
+	/**
+	 * Restarts the schedule from the next call to {@link #sync()}.
+	 */
+	public void reset() {
+		this.next = 0;
+	}
+
+	/**
+	 * Returns true if the idle frame rate is used.
+	 * @return boolean
+	 */
+	public boolean isIdle() {
+		return this.idle;
+	}
+
+	/**
+	 * Sets whether the idle frame rate is used.
+	 * @param flag true to use the idle frame rate
+	 */
+	public void setIdle(boolean flag) {
+		if (this.idle && !flag) {
+			// leave idle without waiting out the long idle frame
+			this.next = 0;
+		}
+		this.idle = flag;
+	}
+
+	/**
+	 * Returns the current spin window in nanoseconds.
+	 * @return long
+	 */
+	public long getSpinNanos() {
+		return this.spinNanos;
+	}
+
+	/**
+	 * Returns the frame period in nanoseconds; zero if not paced.
+	 * @return long
+	 */
+	public long getPeriod() {
+		return this.period;
+	}
+
+	/**
+	 * Returns the idle frame period in nanoseconds; zero if not paced.
+	 * @return long
+	 */
+	public long getIdlePeriod() {
+		return this.idlePeriod;
+	}
+}
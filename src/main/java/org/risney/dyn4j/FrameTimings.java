@@ -0,0 +1,187 @@
+package org.risney.dyn4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Latency histograms of the phases of a frame.
+ * <p>
+ * Each {@link Phase} has its own {@link LatencyHistogram}. The histograms can
+ * be registered as JMX MBeans under
+ * <code>org.risney.dyn4j:type=FrameTimings,name=&lt;name&gt;,phase=&lt;phase&gt;</code>
+ * and dumped to the log periodically.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class FrameTimings {
+	private static final Logger log = LoggerFactory.getLogger(FrameTimings.class);
+
+	/**
+	 * The timed phases of a frame.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public enum Phase {
+		/** Drawing the world into the back buffer */
+		RENDER,
+		/** Showing the back buffer */
+		SHOW,
+		/** Syncing the display */
+		SYNC,
+		/** Updating the world */
+		UPDATE
+	}
+
+	/** The name to register and log the histograms under */
+	private final String name;
+
+	/** The histogram per phase */
+	private final LatencyHistogram[] histograms;
+
+	/** The MBean names while registered */
+	private ObjectName[] names;
+
+	/** The log dump executor while logging */
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Full constructor.
+	 * @param name the name to register and log the histograms under, typically the frame title
+	 */
+	public FrameTimings(String name) {
+		this.name = name;
+		Phase[] phases = Phase.values();
+		this.histograms = new LatencyHistogram[phases.length];
+		for (int i = 0; i < phases.length; i++) {
+			this.histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Records the duration of the given phase.
+	 * @param phase the phase
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(Phase phase, long nanos) {
+		this.histograms[phase.ordinal()].record(nanos);
+	}
+
+	/**
+	 * Returns the name the histograms are registered and logged under.
+	 * @return String
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the histogram of the given phase.
+	 * @param phase the phase
+	 * @return {@link LatencyHistogram}
+	 */
+	public LatencyHistogram getHistogram(Phase phase) {
+		return this.histograms[phase.ordinal()];
+	}
+
+	/**
+	 * Registers the histograms with the platform MBean server.
+	 * <p>
+	 * Failures are logged; timing is not essential to running an example.
+	 */
+	public synchronized void register() {
+		if (this.names != null) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		Phase[] phases = Phase.values();
+		ObjectName[] names = new ObjectName[phases.length];
+		try {
+			for (int i = 0; i < phases.length; i++) {
+				names[i] = new ObjectName("org.risney.dyn4j:type=FrameTimings,name="
+						+ ObjectName.quote(this.name)
+						+ ",phase=" + phases[i].name().toLowerCase(Locale.ROOT));
+				server.registerMBean(this.histograms[i], names[i]);
+			}
+			this.names = names;
+		} catch (JMException e) {
+			log.warn("Unable to register the frame timings of " + this.name, e);
+			unregister(server, names);
+		}
+	}
+
+	/**
+	 * Unregisters the histograms from the platform MBean server.
+	 */
+	public synchronized void unregister() {
+		if (this.names == null) return;
+		unregister(ManagementFactory.getPlatformMBeanServer(), this.names);
+		this.names = null;
+	}
+
+	/**
+	 * Unregisters the given MBeans, ignoring those not registered.
+	 * @param server the MBean server
+	 * @param names the MBean names; may contain nulls
+	 */
+	private static final void unregister(MBeanServer server, ObjectName[] names) {
+		for (ObjectName name : names) {
+			if (name == null || !server.isRegistered(name)) continue;
+			try {
+				server.unregisterMBean(name);
+			} catch (JMException e) {
+				log.warn("Unable to unregister " + name, e);
+			}
+		}
+	}
+
+	/**
+	 * Starts logging the histograms at info level every given period.
+	 * @param period the time between dumps
+	 * @param unit the unit of the period
+	 */
+	public synchronized void startLogging(long period, TimeUnit unit) {
+		if (this.executor != null) return;
+		this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "frame-timings");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.executor.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				dump();
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Stops logging the histograms.
+	 */
+	public synchronized void stopLogging() {
+		if (this.executor == null) return;
+		this.executor.shutdown();
+		this.executor = null;
+	}
+
+	/**
+	 * Logs the histograms of every phase at info level.
+	 */
+	public void dump() {
+		if (!log.isInfoEnabled()) return;
+		for (Phase phase : Phase.values()) {
+			log.info("{} {}: {}", this.name, phase, this.histograms[phase.ordinal()]);
+		}
+	}
+}
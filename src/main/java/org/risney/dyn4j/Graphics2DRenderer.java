@@ -28,11 +28,15 @@ package org.risney.dyn4j;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.dyn4j.geometry.Capsule;
 import org.dyn4j.geometry.Circle;
@@ -43,14 +47,163 @@ import org.dyn4j.geometry.Segment;
 import org.dyn4j.geometry.Shape;
 import org.dyn4j.geometry.Slice;
 import org.dyn4j.geometry.Vector2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Graphics2D renderer for dyn4j shape types.
+ * <p>
+ * Drawing a shape does not allocate: circles and segments are drawn with Java2D
+ * geometry objects reused per thread, every other shape with its local space
+ * path from a {@link ShapeCache}, and the outline colors are cached per fill
+ * color. Shapes never change in local space, so a polygon or capsule costs a
+ * fill and a draw under the body transform once its path is built. Rotated arcs
+ * (of capsules, ellipses, slices and half ellipses) are built as cubic Bezier
+ * curves, or as lines when a few pixels across, in the shape's local rotation instead of rotating the graphics
+ * context, which would need a copy of its transform to restore.
+ * <p>
+ * Shapes are drawn by the {@link ShapeRenderer} registered for their class or
+ * their closest registered superclass. The renderer resolved for a class is
+ * cached, so dispatching a shape is one map lookup however many renderers are
+ * registered, and callers such as {@link SimulationBody} can keep the renderer
+ * of each fixture. Renderers for custom shapes are added with
+ * {@link #register(Class, ShapeRenderer)}.
+ * <p>
+ * Allocations made by the Java2D pipeline itself while filling or stroking
+ * are outside the control of this class.
  * @author William Bittle
- * @version 3.1.7
+ * @version 3.2.0
  * @since 3.1.5
  */
 public final class Graphics2DRenderer {
+	/**
+	 * Draws one type of shape.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 * @param <T> the shape type
+	 */
+	public interface ShapeRenderer<T extends Shape> {
+		/**
+		 * Renders the given shape to the given graphics context using the given scale, fill and outline color.
+		 * @param g the graphics context
+		 * @param shape the shape to render
+		 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+		 * @param fill the fill color; null to not fill the shape
+		 * @param outline the outline color; null to not draw the outline
+		 */
+		public void render(Graphics2D g, T shape, double scale, Color fill, Color outline);
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(Graphics2DRenderer.class);
+
+	/** The largest arc, in radians, approximated by one Bezier curve */
+	private static final double MAXIMUM_CURVE_EXTENT = Math.PI * 0.5;
+
+	/** The radius in pixels below which arcs are approximated by lines */
+	private static final double CURVE_RADIUS = 4.0;
+
+	/** The largest distance in pixels between an arc and the lines approximating it */
+	private static final double LINE_FLATNESS = 0.25;
+
+	/** The largest arc, in radians, approximated by one line */
+	private static final double MAXIMUM_LINE_EXTENT = Math.PI * 2.0 / 3.0;
+
+	/** The number of cached outline colors above which the cache is cleared */
+	private static final int MAXIMUM_OUTLINE_COLORS = 4096;
+
+	/** The outline color per fill color */
+	private static final ConcurrentMap<Color, Color> OUTLINE_COLORS = new ConcurrentHashMap<Color, Color>();
+
+	/** The local space paths of every other shape */
+	private static final ShapeCache SHAPES = new ShapeCache();
+
+	/** The renderers registered per shape class */
+	private static final ConcurrentMap<Class<?>, ShapeRenderer<Shape>> REGISTERED = new ConcurrentHashMap<Class<?>, ShapeRenderer<Shape>>();
+
+	/** The renderers resolved per shape class */
+	private static final ConcurrentMap<Class<?>, ShapeRenderer<Shape>> RESOLVED = new ConcurrentHashMap<Class<?>, ShapeRenderer<Shape>>();
+
+	/** The renderers of the dyn4j shapes */
+	private static final Set<ShapeRenderer<?>> BUILT_IN = Collections.newSetFromMap(new IdentityHashMap<ShapeRenderer<?>, Boolean>());
+
+	/** Incremented whenever a renderer is registered so that cached renderers can be checked */
+	private static final AtomicInteger VERSION = new AtomicInteger();
+
+	/** Draws nothing; for shapes without a renderer */
+	private static final ShapeRenderer<Shape> NONE = new ShapeRenderer<Shape>() {
+		@Override
+		public void render(Graphics2D g, Shape shape, double scale, Color fill, Color outline) {}
+	};
+
+	static {
+		register(Circle.class, new ShapeRenderer<Circle>() {
+			@Override
+			public void render(Graphics2D g, Circle shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		register(Polygon.class, new ShapeRenderer<Polygon>() {
+			@Override
+			public void render(Graphics2D g, Polygon shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		register(Segment.class, new ShapeRenderer<Segment>() {
+			@Override
+			public void render(Graphics2D g, Segment shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		register(Capsule.class, new ShapeRenderer<Capsule>() {
+			@Override
+			public void render(Graphics2D g, Capsule shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		register(Ellipse.class, new ShapeRenderer<Ellipse>() {
+			@Override
+			public void render(Graphics2D g, Ellipse shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		register(Slice.class, new ShapeRenderer<Slice>() {
+			@Override
+			public void render(Graphics2D g, Slice shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		register(HalfEllipse.class, new ShapeRenderer<HalfEllipse>() {
+			@Override
+			public void render(Graphics2D g, HalfEllipse shape, double scale, Color fill, Color outline) {
+				Graphics2DRenderer.render(g, shape, scale, fill, outline);
+			}
+		});
+		BUILT_IN.addAll(REGISTERED.values());
+	}
+
+	/**
+	 * The Java2D geometry reused by one thread.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private static final class Geometry2D {
+		/** For circles */
+		private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+
+		/** For segments and the rotation indicator of circles */
+		private final Line2D.Double line = new Line2D.Double();
+	}
+
+	/** The geometry of the current thread */
+	private static final ThreadLocal<Geometry2D> GEOMETRY = new ThreadLocal<Geometry2D>() {
+		@Override
+		protected Geometry2D initialValue() {
+			return new Geometry2D();
+		}
+	};
+
 	/**
 	 * Renders the given shape to the given graphics context using the given scale and color.
 	 * @param g the graphics context
@@ -65,25 +218,101 @@ public final class Graphics2DRenderer {
 		// just default the color
 		if (color == null) color = Color.ORANGE;
 		
-		if (shape instanceof Circle) {
-			Graphics2DRenderer.render(g, (Circle)shape, scale, color);
-		} else if (shape instanceof Polygon) {
-			Graphics2DRenderer.render(g, (Polygon)shape, scale, color);
-		} else if (shape instanceof Segment) {
-			Graphics2DRenderer.render(g, (Segment)shape, scale, color);
-		} else if (shape instanceof Capsule) {
-			Graphics2DRenderer.render(g, (Capsule)shape, scale, color);
-		} else if (shape instanceof Ellipse) {
-			Graphics2DRenderer.render(g, (Ellipse)shape, scale, color);
-		} else if (shape instanceof Slice) {
-			Graphics2DRenderer.render(g, (Slice)shape, scale, color);
-		} else if (shape instanceof HalfEllipse) {
-			Graphics2DRenderer.render(g, (HalfEllipse)shape, scale, color);
-		} else {
-			// unknown shape
+		Graphics2DRenderer.render(g, shape, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given shape to the given graphics context using the given scale, fill and outline color.
+	 * <p>
+	 * A null fill or outline color skips the fill or the outline respectively.
+	 * @param g the graphics context
+	 * @param shape the shape to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Shape shape, double scale, Color fill, Color outline) {
+		// no-op
+		if (shape == null) return;
+		
+		Graphics2DRenderer.getRenderer(shape.getClass()).render(g, shape, scale, fill, outline);
+	}
+	
+	/**
+	 * Registers the renderer for the given shape class and its subclasses that
+	 * have no renderer of their own, replacing any previous one.
+	 * @param type the shape class
+	 * @param renderer the renderer
+	 * @since 3.2.0
+	 */
+	@SuppressWarnings("unchecked")
+	public static final <T extends Shape> void register(Class<T> type, ShapeRenderer<? super T> renderer) {
+		if (type == null || renderer == null) throw new NullPointerException();
+		synchronized (REGISTERED) {
+			REGISTERED.put(type, (ShapeRenderer<Shape>)renderer);
+			// subclasses may now resolve to the new renderer
+			RESOLVED.clear();
+			VERSION.incrementAndGet();
 		}
 	}
 	
+	/**
+	 * Returns the renderer for the given shape class.
+	 * <p>
+	 * This is the renderer registered for the class or else for its closest
+	 * superclass. Shapes without one are not drawn and logged once.
+	 * @param type the shape class
+	 * @return {@link ShapeRenderer}; never null
+	 * @since 3.2.0
+	 */
+	public static final ShapeRenderer<Shape> getRenderer(Class<?> type) {
+		ShapeRenderer<Shape> renderer = RESOLVED.get(type);
+		if (renderer == null) {
+			synchronized (REGISTERED) {
+				renderer = RESOLVED.get(type);
+				if (renderer == null) {
+					renderer = resolve(type);
+					RESOLVED.put(type, renderer);
+				}
+			}
+		}
+		return renderer;
+	}
+	
+	/**
+	 * Returns the renderer registered for the given class or its closest superclass.
+	 * @param type the shape class
+	 * @return {@link ShapeRenderer}; {@link #NONE} if there is none
+	 */
+	private static final ShapeRenderer<Shape> resolve(Class<?> type) {
+		for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+			ShapeRenderer<Shape> renderer = REGISTERED.get(c);
+			if (renderer != null) return renderer;
+		}
+		log.warn("No renderer for shapes of type {}; they will not be drawn", type.getName());
+		return NONE;
+	}
+	
+	/**
+	 * Returns true if the given renderer is one of the renderers of the dyn4j shapes.
+	 * @param renderer the renderer
+	 * @return boolean
+	 */
+	static final boolean isBuiltIn(ShapeRenderer<?> renderer) {
+		return BUILT_IN.contains(renderer);
+	}
+	
+	/**
+	 * Returns a number that changes whenever a renderer is registered, so that
+	 * renderers returned by {@link #getRenderer(Class)} can be cached.
+	 * @return int
+	 * @since 3.2.0
+	 */
+	public static final int getRendererVersion() {
+		return VERSION.get();
+	}
+	
 	/**
 	 * Renders the given {@link Circle} to the given graphics context using the given scale and color.
 	 * @param g the graphics context
@@ -92,30 +321,50 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, Circle circle, double scale, Color color) {
+		Graphics2DRenderer.render(g, circle, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link Circle} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param circle the circle to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Circle circle, double scale, Color fill, Color outline) {
+		Geometry2D geometry = GEOMETRY.get();
 		double radius = circle.getRadius();
 		Vector2 center = circle.getCenter();
 		
 		double radius2 = 2.0 * radius;
-		Ellipse2D.Double c = new Ellipse2D.Double(
+		Ellipse2D.Double c = geometry.ellipse;
+		c.setFrame(
 			(center.x - radius) * scale,
 			(center.y - radius) * scale,
 			radius2 * scale,
 			radius2 * scale);
 		
 		// fill the shape
-		g.setColor(color);
-		g.fill(c);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(c);
-		
-		// draw a line so that rotation is visible
-		Line2D.Double l = new Line2D.Double(
-				center.x * scale,
-				center.y * scale,
-				(center.x + radius) * scale,
-				center.y * scale);
-		g.draw(l);
+		if (fill != null) {
+			g.setColor(fill);
+			g.fill(c);
+		}
+		if (outline != null) {
+			// draw the outline
+			g.setColor(outline);
+			g.draw(c);
+			
+			// draw a line so that rotation is visible
+			Line2D.Double l = geometry.line;
+			l.setLine(
+					center.x * scale,
+					center.y * scale,
+					(center.x + radius) * scale,
+					center.y * scale);
+			g.draw(l);
+		}
 	}
 	
 	/**
@@ -126,23 +375,20 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, Polygon polygon, double scale, Color color) {
-		Vector2[] vertices = polygon.getVertices();
-		int l = vertices.length;
-		
-		// create the awt polygon
-		Path2D.Double p = new Path2D.Double();
-		p.moveTo(vertices[0].x * scale, vertices[0].y * scale);
-		for (int i = 1; i < l; i++) {
-			p.lineTo(vertices[i].x * scale, vertices[i].y * scale);
-		}
-		p.closePath();
-		
-		// fill the shape
-		g.setColor(color);
-		g.fill(p);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(p);
+		Graphics2DRenderer.render(g, polygon, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link Polygon} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param polygon the polygon to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Polygon polygon, double scale, Color fill, Color outline) {
+		fillAndDraw(g, SHAPES.get(polygon, scale), fill, outline);
 	}
 	
 	/**
@@ -153,17 +399,35 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, Segment segment, double scale, Color color) {
+		Graphics2DRenderer.render(g, segment, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link Segment} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param segment the segment to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Segment segment, double scale, Color fill, Color outline) {
 		Vector2[] vertices = segment.getVertices();
 		
-		Line2D.Double l = new Line2D.Double(
+		Line2D.Double l = GEOMETRY.get().line;
+		l.setLine(
 			vertices[0].x * scale,
 			vertices[0].y * scale,
 			vertices[1].x * scale,
 			vertices[1].y * scale);
 		
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(l);
+		// a segment has no interior so it's drawn in the
+		// outline color or the fill color if there's no outline
+		Color color = outline != null ? outline : fill;
+		if (color != null) {
+			g.setColor(color);
+			g.draw(l);
+		}
 	}
 	
 	/**
@@ -174,55 +438,20 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, Capsule capsule, double scale, Color color) {
-		// get the local rotation and translation
-		double rotation = capsule.getRotation();
-		Vector2 center = capsule.getCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		// translate and rotate
-		g.translate(center.x * scale, center.y * scale);
-		g.rotate(rotation);
-		
-		double width = capsule.getLength();
-		double radius = capsule.getCapRadius();
-		double radius2 = radius * 2.0;
-		
-		Arc2D.Double arcL = new Arc2D.Double(
-				-(width * 0.5) * scale,
-				-radius * scale,
-				radius2 * scale,
-				radius2 * scale,
-				90.0,
-				180.0,
-				Arc2D.OPEN);
-		Arc2D.Double arcR = new Arc2D.Double(
-				(width * 0.5 - radius2) * scale,
-				-radius * scale,
-				radius2 * scale,
-				radius2 * scale,
-				-90.0,
-				180.0,
-				Arc2D.OPEN);
-		
-		// connect the shapes
-		Path2D.Double path = new Path2D.Double();
-		path.append(arcL, true);
-		path.append(new Line2D.Double(arcL.getEndPoint(), arcR.getStartPoint()), true);
-		path.append(arcR, true);
-		path.append(new Line2D.Double(arcR.getEndPoint(), arcL.getStartPoint()), true);
-		
-		// set the color
-		g.setColor(color);
-		// fill the shape
-		g.fill(path);
-		// set the color
-		g.setColor(getOutlineColor(color));
-		// draw the shape
-		g.draw(path);
-		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		Graphics2DRenderer.render(g, capsule, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link Capsule} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param capsule the capsule to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Capsule capsule, double scale, Color fill, Color outline) {
+		fillAndDraw(g, SHAPES.get(capsule, scale), fill, outline);
 	}
 	
 	/**
@@ -233,32 +462,20 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, Ellipse ellipse, double scale, Color color) {
-		// get the local rotation and translation
-		double rotation = ellipse.getRotation();
-		Vector2 center = ellipse.getCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		g.translate(center.x * scale, center.y * scale);
-		g.rotate(rotation);
-		
-		double width = ellipse.getWidth();
-		double height = ellipse.getHeight();
-		Ellipse2D.Double c = new Ellipse2D.Double(
-			(-width * 0.5) * scale,
-			(-height * 0.5) * scale,
-			width * scale,
-			height * scale);
-		
-		// fill the shape
-		g.setColor(color);
-		g.fill(c);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(c);
-		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		Graphics2DRenderer.render(g, ellipse, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link Ellipse} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param ellipse the ellipse to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Ellipse ellipse, double scale, Color fill, Color outline) {
+		fillAndDraw(g, SHAPES.get(ellipse, scale), fill, outline);
 	}
 	
 	/**
@@ -269,38 +486,20 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, Slice slice, double scale, Color color) {
-		double radius = slice.getSliceRadius();
-		double theta2 = slice.getTheta() * 0.5;
-		
-		// get the local rotation and translation
-		double rotation = slice.getRotation();
-		Vector2 circleCenter = slice.getCircleCenter();
-		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		// translate and rotate
-		g.translate(circleCenter.x * scale, circleCenter.y * scale);
-		g.rotate(rotation);
-		
-		// to draw the arc, java2d wants the top left x,y
-		// as if you were drawing a circle
-		Arc2D a = new Arc2D.Double(-radius * scale, 
-				-radius * scale,
-				2.0 * radius * scale, 
-				2.0 * radius * scale,
-				-Math.toDegrees(theta2),
-				Math.toDegrees(2.0 * theta2),
-				Arc2D.PIE);
-		
-		// fill the shape
-		g.setColor(color);
-		g.fill(a);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(a);
-		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		Graphics2DRenderer.render(g, slice, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link Slice} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param slice the slice to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, Slice slice, double scale, Color fill, Color outline) {
+		fillAndDraw(g, SHAPES.get(slice, scale), fill, outline);
 	}
 	
 	/**
@@ -311,48 +510,266 @@ public final class Graphics2DRenderer {
 	 * @param color the color
 	 */
 	public static final void render(Graphics2D g, HalfEllipse halfEllipse, double scale, Color color) {
-		double width = halfEllipse.getWidth();
-		double height = halfEllipse.getHeight();
+		Graphics2DRenderer.render(g, halfEllipse, scale, color, getOutlineColor(color));
+	}
+	
+	/**
+	 * Renders the given {@link HalfEllipse} to the given graphics context using the given scale, fill and outline color.
+	 * @param g the graphics context
+	 * @param halfEllipse the halfEllipse to render
+	 * @param scale the scale to render the shape (pixels per dyn4j unit (typically meter))
+	 * @param fill the fill color; null to not fill the shape
+	 * @param outline the outline color; null to not draw the outline
+	 * @since 3.2.0
+	 */
+	public static final void render(Graphics2D g, HalfEllipse halfEllipse, double scale, Color fill, Color outline) {
+		fillAndDraw(g, SHAPES.get(halfEllipse, scale), fill, outline);
+	}
+	
+	/**
+	 * Returns the cache of the local space paths of the shapes drawn.
+	 * @return {@link ShapeCache}
+	 * @since 3.2.0
+	 */
+	public static final ShapeCache getShapeCache() {
+		return SHAPES;
+	}
+	
+	/**
+	 * Fills and outlines the given path.
+	 * @param g the graphics context
+	 * @param path the path
+	 * @param fill the fill color; null to not fill the path
+	 * @param outline the outline color; null to not draw the outline
+	 */
+	private static final void fillAndDraw(Graphics2D g, Path2D path, Color fill, Color outline) {
+		// fill the shape
+		if (fill != null) {
+			g.setColor(fill);
+			g.fill(path);
+		}
+		// draw the outline
+		if (outline != null) {
+			g.setColor(outline);
+			g.draw(path);
+		}
+	}
+	
+	/**
+	 * Appends the outline of the given {@link Polygon} to the given path.
+	 * @param path the path
+	 * @param polygon the polygon
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 */
+	static final void append(Path2D.Double path, Polygon polygon, double scale) {
+		Vector2[] vertices = polygon.getVertices();
+		int l = vertices.length;
 		
+		path.moveTo(vertices[0].x * scale, vertices[0].y * scale);
+		for (int i = 1; i < l; i++) {
+			path.lineTo(vertices[i].x * scale, vertices[i].y * scale);
+		}
+		path.closePath();
+	}
+	
+	/**
+	 * Appends the outline of the given {@link Capsule} to the given path.
+	 * @param path the path
+	 * @param capsule the capsule
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 */
+	static final void append(Path2D.Double path, Capsule capsule, double scale) {
 		// get the local rotation and translation
+		double rotation = capsule.getRotation();
+		Vector2 center = capsule.getCenter();
+		double cos = Math.cos(rotation);
+		double sin = Math.sin(rotation);
+		
+		double radius = capsule.getCapRadius();
+		double offset = capsule.getLength() * 0.5 - radius;
+		
+		// the left cap, the bottom edge, the right cap and the top edge
+		appendArc(path, center.x - offset * cos, center.y - offset * sin, radius, radius,
+				cos, sin, Math.PI * 0.5, Math.PI, scale, true);
+		appendArc(path, center.x + offset * cos, center.y + offset * sin, radius, radius,
+				cos, sin, -Math.PI * 0.5, Math.PI, scale, false);
+		path.closePath();
+	}
+	
+	/**
+	 * Appends the outline of the given {@link Ellipse} to the given path.
+	 * @param path the path
+	 * @param ellipse the ellipse
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 */
+	static final void append(Path2D.Double path, Ellipse ellipse, double scale) {
+		double rotation = ellipse.getRotation();
+		Vector2 center = ellipse.getCenter();
+		appendArc(path, center.x, center.y,
+				ellipse.getHalfWidth(), ellipse.getHalfHeight(),
+				Math.cos(rotation), Math.sin(rotation),
+				0.0, 2.0 * Math.PI, scale, true);
+		path.closePath();
+	}
+	
+	/**
+	 * Appends the outline of the given {@link Slice} to the given path.
+	 * @param path the path
+	 * @param slice the slice
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 */
+	static final void append(Path2D.Double path, Slice slice, double scale) {
+		double radius = slice.getSliceRadius();
+		double theta = slice.getTheta();
+		double rotation = slice.getRotation();
+		Vector2 center = slice.getCircleCenter();
+		
+		// the pie starts and ends at the circle center
+		path.moveTo(center.x * scale, center.y * scale);
+		appendArc(path, center.x, center.y, radius, radius,
+				Math.cos(rotation), Math.sin(rotation),
+				-theta * 0.5, theta, scale, false);
+		path.closePath();
+	}
+	
+	/**
+	 * Appends the outline of the given {@link HalfEllipse} to the given path.
+	 * @param path the path
+	 * @param halfEllipse the half ellipse
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 */
+	static final void append(Path2D.Double path, HalfEllipse halfEllipse, double scale) {
 		double rotation = halfEllipse.getRotation();
 		Vector2 center = halfEllipse.getEllipseCenter();
 		
-		// save the old transform
-		AffineTransform oTransform = g.getTransform();
-		// translate and rotate
-		g.translate(center.x * scale, center.y * scale);
-		g.rotate(rotation);
-		
-		// to draw the arc, java2d wants the top left x,y
-		// as if you were drawing a circle
-		Arc2D a = new Arc2D.Double(
-				(-width * 0.5) * scale, 
-				-height * scale,
-				width * scale, 
-				height * 2.0 * scale,
-				0,
-				-180.0,
-				Arc2D.PIE);
+		// the upper half of the ellipse closed by its major axis
+		appendArc(path, center.x, center.y,
+				halfEllipse.getWidth() * 0.5, halfEllipse.getHeight(),
+				Math.cos(rotation), Math.sin(rotation),
+				0.0, Math.PI, scale, true);
+		path.closePath();
+	}
+	
+	/**
+	 * Appends an elliptical arc, approximated by cubic Bezier curves, to the given path.
+	 * <p>
+	 * The arc is the set of points c + R(rx cos(t), ry sin(t)) for t from start
+	 * to start + extent, where R is the rotation given by its cosine and sine.
+	 * <p>
+	 * Arcs a few pixels across are approximated by as few lines as stay within
+	 * a quarter of a pixel of the arc instead, which are cheaper to fill and
+	 * stroke than curves.
+	 * @param path the path
+	 * @param cx the center x coordinate
+	 * @param cy the center y coordinate
+	 * @param rx the radius along the rotated x axis
+	 * @param ry the radius along the rotated y axis
+	 * @param cos the cosine of the rotation
+	 * @param sin the sine of the rotation
+	 * @param start the start angle in radians
+	 * @param extent the extent in radians
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @param move true to start a new sub path at the start of the arc; false to connect it with a line
+	 */
+	static final void appendArc(Path2D.Double path, double cx, double cy, double rx, double ry,
+			double cos, double sin, double start, double extent, double scale, boolean move) {
+		double radius = Math.max(Math.abs(rx), Math.abs(ry)) * scale;
+		if (radius < CURVE_RADIUS) {
+			appendLines(path, cx, cy, rx, ry, cos, sin, start, extent, scale, move, radius);
+			return;
+		}
+		int n = Math.max(1, (int)Math.ceil(Math.abs(extent) / MAXIMUM_CURVE_EXTENT - 1.0e-9));
+		double step = extent / n;
+		// the length of the control point tangents on the unit circle
+		double k = 4.0 / 3.0 * Math.tan(step * 0.25);
 		
-		// fill the shape
-		g.setColor(color);
-		g.fill(a);
-		// draw the outline
-		g.setColor(getOutlineColor(color));
-		g.draw(a);
+		double a = start;
+		double ac = Math.cos(a);
+		double as = Math.sin(a);
+		double x0 = rx * ac;
+		double y0 = ry * as;
+		double px = (cx + x0 * cos - y0 * sin) * scale;
+		double py = (cy + x0 * sin + y0 * cos) * scale;
+		if (move) {
+			path.moveTo(px, py);
+		} else {
+			path.lineTo(px, py);
+		}
 		
-		// re-instate the old transform
-		g.setTransform(oTransform);
+		for (int i = 0; i < n; i++) {
+			double b = start + step * (i + 1);
+			double bc = Math.cos(b);
+			double bs = Math.sin(b);
+			// the control points and the end point in the unrotated frame
+			double x1 = rx * (ac - k * as);
+			double y1 = ry * (as + k * ac);
+			double x2 = rx * (bc + k * bs);
+			double y2 = ry * (bs - k * bc);
+			double x3 = rx * bc;
+			double y3 = ry * bs;
+			path.curveTo(
+					(cx + x1 * cos - y1 * sin) * scale, (cy + x1 * sin + y1 * cos) * scale,
+					(cx + x2 * cos - y2 * sin) * scale, (cy + x2 * sin + y2 * cos) * scale,
+					(cx + x3 * cos - y3 * sin) * scale, (cy + x3 * sin + y3 * cos) * scale);
+			ac = bc;
+			as = bs;
+		}
+	}
+	
+	/**
+	 * Appends an elliptical arc approximated by lines to the given path.
+	 * @param path the path
+	 * @param cx the center x coordinate
+	 * @param cy the center y coordinate
+	 * @param rx the radius along the rotated x axis
+	 * @param ry the radius along the rotated y axis
+	 * @param cos the cosine of the rotation
+	 * @param sin the sine of the rotation
+	 * @param start the start angle in radians
+	 * @param extent the extent in radians
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @param move true to start a new sub path at the start of the arc; false to connect it with a line
+	 * @param radius the larger radius in pixels
+	 */
+	private static final void appendLines(Path2D.Double path, double cx, double cy, double rx, double ry,
+			double cos, double sin, double start, double extent, double scale, boolean move, double radius) {
+		// the extent of a chord that far from a circle of the larger radius
+		double c = 1.0 - LINE_FLATNESS / radius;
+		double maximum = c > -0.5 ? Math.min(2.0 * Math.acos(c), MAXIMUM_LINE_EXTENT) : MAXIMUM_LINE_EXTENT;
+		int n = Math.max(1, (int)Math.ceil(Math.abs(extent) / maximum - 1.0e-9));
+		double step = extent / n;
+		for (int i = 0; i <= n; i++) {
+			double a = start + step * i;
+			double x = rx * Math.cos(a);
+			double y = ry * Math.sin(a);
+			double px = (cx + x * cos - y * sin) * scale;
+			double py = (cy + x * sin + y * cos) * scale;
+			if (i == 0 && move) {
+				path.moveTo(px, py);
+			} else {
+				path.lineTo(px, py);
+			}
+		}
 	}
 	
 	/**
 	 * Returns the outline color for the given color.
+	 * <p>
+	 * The outline colors are cached per fill color.
 	 * @param color the fill color
 	 * @return Color
 	 */
-	private static final Color getOutlineColor(Color color) {
-		Color oc = color.darker();
-		return new Color(oc.getRed(), oc.getGreen(), oc.getBlue(), color.getAlpha());
+	static final Color getOutlineColor(Color color) {
+		Color oc = OUTLINE_COLORS.get(color);
+		if (oc == null) {
+			oc = color.darker();
+			oc = new Color(oc.getRed(), oc.getGreen(), oc.getBlue(), color.getAlpha());
+			// keep colors made up every frame from growing the cache without bound
+			if (OUTLINE_COLORS.size() >= MAXIMUM_OUTLINE_COLORS) {
+				OUTLINE_COLORS.clear();
+			}
+			OUTLINE_COLORS.put(color, oc);
+		}
+		return oc;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,186 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.log4j.BasicConfigurator;
+import org.dyn4j.dynamics.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Steps the example scenes without a window as fast as possible and reports
+ * the achieved steps per second.
+ * <p>
+ * Usage:
+ * <pre>
+ * HeadlessRunner [scene,...|all] [-steps n | -seconds s] [-warmup n]
+ * </pre>
+ * By default every scene is run for 10 seconds after 600 warm up steps.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class HeadlessRunner {
+	private static final Logger log = LoggerFactory.getLogger(HeadlessRunner.class);
+
+	/** The default run time in seconds */
+	private static final double DEFAULT_SECONDS = 10.0;
+
+	/** The default number of warm up steps */
+	private static final int DEFAULT_WARMUP_STEPS = 600;
+
+	/**
+	 * The outcome of a headless run.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static final class Result {
+		/** The number of steps taken */
+		private final long steps;
+
+		/** The wall time in nanoseconds */
+		private final long nanos;
+
+		/**
+		 * Full constructor.
+		 * @param steps the number of steps taken
+		 * @param nanos the wall time in nanoseconds
+		 */
+		Result(long steps, long nanos) {
+			this.steps = steps;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * Returns the number of steps taken.
+		 * @return long
+		 */
+		public long getSteps() {
+			return this.steps;
+		}
+
+		/**
+		 * Returns the wall time in seconds.
+		 * @return double
+		 */
+		public double getWallTime() {
+			return this.nanos / SimulationFrame.NANO_TO_BASE;
+		}
+
+		/**
+		 * Returns the number of steps per second of wall time.
+		 * @return double
+		 */
+		public double getStepsPerSecond() {
+			return this.nanos == 0 ? 0.0 : this.steps / this.getWallTime();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%d steps in %.3f s (%.1f steps/s)",
+					this.steps, this.getWallTime(), this.getStepsPerSecond());
+		}
+	}
+
+	/** The fixed step size in seconds */
+	private final double step;
+
+	/**
+	 * Default constructor.
+	 */
+	public HeadlessRunner() {
+		this(FixedTimestep.DEFAULT_STEP);
+	}
+
+	/**
+	 * Full constructor.
+	 * @param step the fixed step size in seconds
+	 */
+	public HeadlessRunner(double step) {
+		this.step = step;
+	}
+
+	/**
+	 * Steps the given world the given number of times.
+	 * @param world the world to step
+	 * @param steps the number of steps
+	 * @return {@link Result}
+	 */
+	public Result run(World world, long steps) {
+		long start = System.nanoTime();
+		for (long i = 0; i < steps; i++) {
+			world.step(1, this.step);
+		}
+		return new Result(steps, System.nanoTime() - start);
+	}
+
+	/**
+	 * Steps the given world as fast as possible for the given wall time.
+	 * @param world the world to step
+	 * @param seconds the wall time in seconds
+	 * @return {@link Result}
+	 */
+	public Result runFor(World world, double seconds) {
+		long start = System.nanoTime();
+		long end = start + (long)(seconds * SimulationFrame.NANO_TO_BASE);
+		long steps = 0;
+		long time = start;
+		while (time < end) {
+			world.step(1, this.step);
+			steps++;
+			time = System.nanoTime();
+		}
+		return new Result(steps, time - start);
+	}
+
+	/**
+	 * Entry point for the headless runner.
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		BasicConfigurator.configure();
+
+		List<ExampleScene> scenes = new ArrayList<ExampleScene>();
+		long steps = 0;
+		double seconds = DEFAULT_SECONDS;
+		int warmup = DEFAULT_WARMUP_STEPS;
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ("-steps".equals(arg)) {
+				steps = Long.parseLong(args[++i]);
+			} else if ("-seconds".equals(arg)) {
+				seconds = Double.parseDouble(args[++i]);
+			} else if ("-warmup".equals(arg)) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if ("all".equalsIgnoreCase(arg)) {
+				for (ExampleScene scene : ExampleScene.values()) {
+					scenes.add(scene);
+				}
+			} else {
+				for (String name : arg.split(",")) {
+					scenes.add(ExampleScene.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+				}
+			}
+		}
+		if (scenes.isEmpty()) {
+			for (ExampleScene scene : ExampleScene.values()) {
+				scenes.add(scene);
+			}
+		}
+
+		HeadlessRunner runner = new HeadlessRunner();
+		for (ExampleScene scene : scenes) {
+			World world = scene.createWorld();
+			runner.run(world, warmup);
+			Result result = steps > 0 ? runner.run(world, steps) : runner.runFor(world, seconds);
+			log.info("{} ({} bodies): {}", scene, world.getBodyCount(), result);
+		}
+	}
+}
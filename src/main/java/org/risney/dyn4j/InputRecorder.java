@@ -0,0 +1,158 @@
+package org.risney.dyn4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends the input of each fixed step to a compact binary log.
+ * <p>
+ * Only changes are written: a record holds the number of steps since the
+ * previous record (as a variable length integer), a flags byte and, when there
+ * is a pointer, its world coordinates as doubles so that a replay reproduces
+ * the session exactly. The log starts with a header naming the
+ * {@link ExampleScene} and the step size and ends with a record giving the
+ * total number of steps.
+ * <p>
+ * The recorder is safe to close from another thread than the one recording.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ * @see InputReplayer
+ */
+public final class InputRecorder {
+	/** The log magic number "D4JI" */
+	static final int MAGIC = 0x44344A49;
+
+	/** The log format version */
+	static final int VERSION = 1;
+
+	/** Record flag: the pointer is present */
+	static final int FLAG_POINTER = 0x01;
+
+	/** Record flag: the key is held down */
+	static final int FLAG_KEY_DOWN = 0x02;
+
+	/** Record flag: the end of the log */
+	static final int FLAG_END = 0x80;
+
+	/** The log */
+	private final DataOutputStream out;
+
+	/** The input of the last record */
+	private final StepInput last;
+
+	/** The step of the last record */
+	private long lastRecordStep;
+
+	/** The last step recorded */
+	private long lastStep;
+
+	/** True once closed */
+	private boolean closed;
+
+	/**
+	 * Full constructor; writes the log header.
+	 * @param out the stream to write the log to
+	 * @param scene the scene being recorded
+	 * @param step the fixed step size in seconds
+	 * @throws IOException if the header could not be written
+	 */
+	public InputRecorder(OutputStream out, ExampleScene scene, double step) throws IOException {
+		if (scene == null) throw new NullPointerException("The scene cannot be null.");
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.last = new StepInput();
+		this.lastStep = -1;
+		this.out.writeInt(MAGIC);
+		this.out.writeByte(VERSION);
+		this.out.writeUTF(scene.name());
+		this.out.writeDouble(step);
+	}
+
+	/**
+	 * Records the input of the given step.
+	 * <p>
+	 * Must be called for the steps in order; nothing is written if the input
+	 * did not change since the last record.
+	 * @param step the step index, starting at zero
+	 * @param input the input applied before the step
+	 * @throws IOException if the record could not be written
+	 */
+	public synchronized void record(long step, StepInput input) throws IOException {
+		if (this.closed) return;
+		if (step <= this.lastStep) throw new IllegalArgumentException("The steps must be recorded in order.");
+		this.lastStep = step;
+		// the initial input of an empty log is no input
+		if (input.equals(this.last)) return;
+
+		int flags = 0;
+		if (input.hasPointer()) flags |= FLAG_POINTER;
+		if (input.isKeyDown()) flags |= FLAG_KEY_DOWN;
+		writeVarLong(this.out, step - this.lastRecordStep);
+		this.out.writeByte(flags);
+		if (input.hasPointer()) {
+			this.out.writeDouble(input.getX());
+			this.out.writeDouble(input.getY());
+		}
+		this.lastRecordStep = step;
+		this.last.set(input);
+	}
+
+	/**
+	 * Writes the end of the log and closes the stream.
+	 * @throws IOException if the stream could not be written or closed
+	 */
+	public synchronized void close() throws IOException {
+		if (this.closed) return;
+		this.closed = true;
+		try {
+			writeVarLong(this.out, this.lastStep + 1 - this.lastRecordStep);
+			this.out.writeByte(FLAG_END);
+		} finally {
+			this.out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of steps recorded.
+	 * @return long
+	 */
+	public synchronized long getStepCount() {
+		return this.lastStep + 1;
+	}
+
+	/**
+	 * Writes the given non-negative value in 7 bit groups, least significant first.
+	 * @param out the output
+	 * @param value the value
+	 * @throws IOException if the value could not be written
+	 */
+	static final void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int)value);
+	}
+
+	/**
+	 * Reads a value written by {@link #writeVarLong(DataOutput, long)}.
+	 * @param in the input
+	 * @return long
+	 * @throws IOException if the value could not be read
+	 */
+	static final long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
+}
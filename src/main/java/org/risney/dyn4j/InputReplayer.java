@@ -0,0 +1,162 @@
+package org.risney.dyn4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.log4j.BasicConfigurator;
+import org.dyn4j.dynamics.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays an input log written by an {@link InputRecorder} headless and as
+ * fast as possible.
+ * <p>
+ * The recorded scene is rebuilt and stepped with the recorded step size,
+ * applying the recorded input before every step exactly as the example did,
+ * so the replay ends in the same state as the recorded session.
+ * <p>
+ * Usage:
+ * <pre>
+ * InputReplayer log [log ...]
+ * </pre>
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class InputReplayer {
+	private static final Logger log = LoggerFactory.getLogger(InputReplayer.class);
+
+	/** The log */
+	private final DataInputStream in;
+
+	/** The recorded scene */
+	private final ExampleScene scene;
+
+	/** The recorded step size in seconds */
+	private final double step;
+
+	/**
+	 * Full constructor; reads the log header.
+	 * @param in the stream to read the log from
+	 * @throws IOException if the header could not be read or is not an input log header
+	 */
+	public InputReplayer(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		if (this.in.readInt() != InputRecorder.MAGIC) {
+			throw new IOException("Not an input log.");
+		}
+		int version = this.in.readUnsignedByte();
+		if (version != InputRecorder.VERSION) {
+			throw new IOException("Unsupported input log version " + version + ".");
+		}
+		String name = this.in.readUTF();
+		try {
+			this.scene = ExampleScene.valueOf(name);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Unknown scene " + name + ".");
+		}
+		this.step = this.in.readDouble();
+	}
+
+	/**
+	 * Replays the log on a new world of the recorded scene.
+	 * @return {@link HeadlessRunner.Result}
+	 * @throws IOException if the log could not be read
+	 */
+	public HeadlessRunner.Result replay() throws IOException {
+		return this.replay(this.scene.createWorld());
+	}
+
+	/**
+	 * Replays the log on the given world.
+	 * <p>
+	 * The world must be in the initial state of the recorded scene. The log is
+	 * consumed; a replayer can only replay once.
+	 * @param world the world
+	 * @return {@link HeadlessRunner.Result}
+	 * @throws IOException if the log could not be read
+	 */
+	public HeadlessRunner.Result replay(World world) throws IOException {
+		StepInput input = new StepInput();
+		QueryContext context = this.scene.createQueryContext();
+		long start = System.nanoTime();
+		long step = 0;
+		long next = this.readNext();
+		while (true) {
+			// apply every record due at this step
+			while (next == 0) {
+				int flags = this.in.readUnsignedByte();
+				if ((flags & InputRecorder.FLAG_END) != 0) {
+					this.in.close();
+					return new HeadlessRunner.Result(step, System.nanoTime() - start);
+				}
+				if ((flags & InputRecorder.FLAG_POINTER) != 0) {
+					double x = this.in.readDouble();
+					double y = this.in.readDouble();
+					input.setPointer(x, y);
+				} else {
+					input.clearPointer();
+				}
+				input.setKeyDown((flags & InputRecorder.FLAG_KEY_DOWN) != 0);
+				next = this.readNext();
+			}
+			if (next < 0) {
+				// the log was cut short, the session ended without closing it
+				this.in.close();
+				return new HeadlessRunner.Result(step, System.nanoTime() - start);
+			}
+			this.scene.applyInput(world, input, context);
+			world.step(1, this.step);
+			step++;
+			next--;
+		}
+	}
+
+	/**
+	 * Returns the number of steps until the next record or -1 at the end of the stream.
+	 * @return long
+	 * @throws IOException if the log could not be read
+	 */
+	private long readNext() throws IOException {
+		try {
+			return InputRecorder.readVarLong(this.in);
+		} catch (EOFException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the recorded scene.
+	 * @return {@link ExampleScene}
+	 */
+	public ExampleScene getScene() {
+		return this.scene;
+	}
+
+	/**
+	 * Returns the recorded step size in seconds.
+	 * @return double
+	 */
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Entry point for the replayer.
+	 * @param args command line arguments
+	 * @throws IOException if a log could not be read
+	 */
+	public static void main(String[] args) throws IOException {
+		BasicConfigurator.configure();
+		for (String file : args) {
+			InputReplayer replayer = new InputReplayer(new FileInputStream(file));
+			HeadlessRunner.Result result = replayer.replay();
+			log.info("{} ({}): {}", file, replayer.getScene(), result);
+		}
+	}
+}
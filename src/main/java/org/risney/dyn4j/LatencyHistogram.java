@@ -0,0 +1,188 @@
+package org.risney.dyn4j;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of latencies in nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets: each power of two range is split
+ * into 16 buckets, so a percentile is reported with a relative error of at
+ * most 1/16th. Recording is three atomic additions (the bucket, the count and
+ * the sum) plus, for a new maximum, a compare and set loop; it never
+ * allocates and never blocks, so it is safe to call from the render and
+ * simulation loops.
+ * <p>
+ * Reads are not atomic across buckets; a percentile read while values are
+ * being recorded may be off by the values recorded during the read.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	/** The number of bits of the value kept below the leading bit */
+	private static final int SUB_BUCKET_BITS = 4;
+
+	/** The number of buckets per power of two */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The total number of buckets */
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	/** The number of values per bucket */
+	private final AtomicLongArray buckets;
+
+	/** The number of values */
+	private final AtomicLong count;
+
+	/** The sum of the values */
+	private final AtomicLong sum;
+
+	/** The largest value */
+	private final AtomicLong max;
+
+	/**
+	 * Default constructor.
+	 */
+	public LatencyHistogram() {
+		this.buckets = new AtomicLongArray(BUCKETS);
+		this.count = new AtomicLong();
+		this.sum = new AtomicLong();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * Records the given latency.
+	 * @param nanos the latency in nanoseconds; negative values are recorded as zero
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		this.buckets.incrementAndGet(getBucket(nanos));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(nanos);
+		long max = this.max.get();
+		while (nanos > max && !this.max.compareAndSet(max, nanos)) {
+			max = this.max.get();
+		}
+	}
+
+	/**
+	 * Returns the bucket index of the given value.
+	 * @param value the non-negative value
+	 * @return int
+	 */
+	static final int getBucket(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int)value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int sub = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Returns the largest value counted in the given bucket.
+	 * @param bucket the bucket index
+	 * @return long
+	 */
+	static final long getUpperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lower = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	/**
+	 * Returns the value below or at which the given percentage of the
+	 * recorded values are.
+	 * @param percentile the percentile in the range [0, 100]
+	 * @return long the latency in nanoseconds; zero if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = this.count.get();
+		if (total == 0) return 0;
+		long rank = (long)Math.ceil(percentile / 100.0 * total);
+		if (rank < 1) rank = 1;
+		long max = this.max.get();
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(getUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#getCount()
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#getMean()
+	 */
+	public double getMean() {
+		long count = this.count.get();
+		return count == 0 ? 0.0 : (double)this.sum.get() / count;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#getP50()
+	 */
+	public long getP50() {
+		return this.getValueAtPercentile(50.0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#getP99()
+	 */
+	public long getP99() {
+		return this.getValueAtPercentile(99.0);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#getP999()
+	 */
+	public long getP999() {
+		return this.getValueAtPercentile(99.9);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#getMax()
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.risney.dyn4j.LatencyHistogramMBean#reset()
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets.set(i, 0);
+		}
+		this.count.set(0);
+		this.sum.set(0);
+		this.max.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "n=%d p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms",
+				this.getCount(),
+				this.getP50() / 1.0e6,
+				this.getP99() / 1.0e6,
+				this.getP999() / 1.0e6,
+				this.getMax() / 1.0e6);
+	}
+}
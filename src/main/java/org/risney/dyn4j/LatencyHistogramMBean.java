@@ -0,0 +1,52 @@
+package org.risney.dyn4j;
+
+/**
+ * The JMX management interface of a {@link LatencyHistogram}.
+ * <p>
+ * All latencies are in nanoseconds.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public interface LatencyHistogramMBean {
+	/**
+	 * Returns the number of recorded values.
+	 * @return long
+	 */
+	public long getCount();
+
+	/**
+	 * Returns the mean of the recorded values.
+	 * @return double
+	 */
+	public double getMean();
+
+	/**
+	 * Returns the median.
+	 * @return long
+	 */
+	public long getP50();
+
+	/**
+	 * Returns the 99th percentile.
+	 * @return long
+	 */
+	public long getP99();
+
+	/**
+	 * Returns the 99.9th percentile.
+	 * @return long
+	 */
+	public long getP999();
+
+	/**
+	 * Returns the largest recorded value.
+	 * @return long
+	 */
+	public long getMax();
+
+	/**
+	 * Clears all recorded values.
+	 */
+	public void reset();
+}
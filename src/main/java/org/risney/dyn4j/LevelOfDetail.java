@@ -0,0 +1,70 @@
+package org.risney.dyn4j;
+
+/**
+ * How much of a body is drawn given its size on screen.
+ * <p>
+ * The size of a body is the radius of its rotation disc in pixels. A body
+ * smaller than a pixel is drawn as a {@link #POINT} in its fill color, a body
+ * a few pixels across is only filled since its outline and rotation indicator
+ * would cover it anyway, and every other body is drawn in {@link #FULL}.
+ * Crowds of small bodies then cost a fill, or a pixel, per body.
+ * <p>
+ * Arcs are simplified independently of the level: see
+ * {@link Graphics2DRenderer#appendArc}, which approximates small arcs with
+ * a few lines instead of curves.
+ * <p>
+ * The levels apply to every body unless turned off with
+ * {@link #setEnabled(boolean)}.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public enum LevelOfDetail {
+	/** A single pixel at the center of mass */
+	POINT,
+
+	/** The filled shapes without outlines or rotation indicators */
+	FILL,
+
+	/** The filled and outlined shapes */
+	FULL;
+
+	/** The radius in pixels below which a body is drawn as a point */
+	public static final double POINT_RADIUS = 0.5;
+
+	/** The radius in pixels below which a body is only filled */
+	public static final double FILL_RADIUS = 3.0;
+
+	/** True if the level depends on the size */
+	private static volatile boolean enabled = true;
+
+	/**
+	 * Returns the level of a body of the given radius.
+	 * @param radius the rotation disc radius in pixels; zero or infinite if it is unknown
+	 * @return {@link LevelOfDetail}
+	 */
+	public static LevelOfDetail select(double radius) {
+		// the disc radius isn't known until the mass is set
+		if (!enabled || radius <= 0.0) return FULL;
+		if (radius < POINT_RADIUS) return POINT;
+		if (radius < FILL_RADIUS) return FILL;
+		return FULL;
+	}
+
+	/**
+	 * Returns true if the level depends on the size.
+	 * @return boolean
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Sets whether the level depends on the size; otherwise every body is
+	 * drawn in {@link #FULL}.
+	 * @param flag true to draw small bodies with less detail
+	 */
+	public static void setEnabled(boolean flag) {
+		enabled = flag;
+	}
+}
@@ -0,0 +1,420 @@
+package org.risney.dyn4j;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.dyn4j.dynamics.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Steps many independent worlds in parallel on a work stealing pool.
+ * <p>
+ * Every tick each world is stepped once by the fixed step of 1 / tick rate.
+ * The worlds of a tick are split recursively into fork/join tasks so idle
+ * workers steal the remaining worlds; the tick ends when every world has been
+ * stepped. Between ticks the engine thread waits for the next tick deadline
+ * using a {@link FrameScheduler}.
+ * <p>
+ * A world must not be modified by other threads while the engine runs; submit
+ * the change with {@link Slot#submit(Runnable)} instead, it is run on the
+ * stepping thread before the world's next step.
+ * <p>
+ * A world whose step or action throws is marked failed and no longer stepped;
+ * the other worlds keep ticking.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class MultiWorldEngine {
+	private static final Logger log = LoggerFactory.getLogger(MultiWorldEngine.class);
+
+	/** The default number of ticks per second */
+	public static final double DEFAULT_TICK_RATE = 60.0;
+
+	/**
+	 * A world owned by the engine and its step accounting.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static final class Slot {
+		/** The world */
+		private final World world;
+
+		/** The actions to run before the next step */
+		private final Queue<Runnable> actions;
+
+		/** The number of steps taken */
+		private volatile long stepCount;
+
+		/** The total time spent stepping in nanoseconds */
+		private volatile long stepTime;
+
+		/** The time of the last step in nanoseconds */
+		private volatile long lastStepTime;
+
+		/** The exception that stopped the world, if any */
+		private volatile RuntimeException failure;
+
+		/**
+		 * Full constructor.
+		 * @param world the world
+		 */
+		private Slot(World world) {
+			this.world = world;
+			this.actions = new ConcurrentLinkedQueue<Runnable>();
+		}
+
+		/**
+		 * Runs the pending actions and steps the world once, unless it failed.
+		 * @param step the step size in seconds
+		 */
+		private void step(double step) {
+			if (this.failure != null) return;
+			long start = System.nanoTime();
+			try {
+				Runnable action;
+				while ((action = this.actions.poll()) != null) {
+					action.run();
+				}
+				this.world.step(1, step);
+			} catch (RuntimeException e) {
+				log.error("Stepping a world failed; it is no longer stepped", e);
+				this.failure = e;
+				return;
+			}
+			long time = System.nanoTime() - start;
+			// only the stepping thread writes these
+			this.stepCount++;
+			this.stepTime += time;
+			this.lastStepTime = time;
+		}
+
+		/**
+		 * Queues the given action to be run on the stepping thread before
+		 * the next step of the world.
+		 * @param action the action
+		 */
+		public void submit(Runnable action) {
+			this.actions.add(action);
+		}
+
+		/**
+		 * Returns the world.
+		 * <p>
+		 * The world must not be modified while the engine runs.
+		 * @return {@link World}
+		 */
+		public World getWorld() {
+			return this.world;
+		}
+
+		/**
+		 * Returns true if a step or an action of the world threw, in which
+		 * case the world is no longer stepped.
+		 * @return boolean
+		 */
+		public boolean isFailed() {
+			return this.failure != null;
+		}
+
+		/**
+		 * Returns the exception that stopped the world.
+		 * @return RuntimeException; null if the world has not failed
+		 */
+		public RuntimeException getFailure() {
+			return this.failure;
+		}
+
+		/**
+		 * Returns the number of steps taken.
+		 * @return long
+		 */
+		public long getStepCount() {
+			return this.stepCount;
+		}
+
+		/**
+		 * Returns the total time spent stepping, including the submitted actions,
+		 * in nanoseconds.
+		 * @return long
+		 */
+		public long getStepTime() {
+			return this.stepTime;
+		}
+
+		/**
+		 * Returns the time the last step took in nanoseconds.
+		 * @return long
+		 */
+		public long getLastStepTime() {
+			return this.lastStepTime;
+		}
+	}
+
+	/**
+	 * Steps a range of slots, splitting it in half until one slot is left.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private static final class StepTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		/** The slots */
+		private final Slot[] slots;
+
+		/** The first slot of the range */
+		private final int from;
+
+		/** The end of the range (exclusive) */
+		private final int to;
+
+		/** The step size in seconds */
+		private final double step;
+
+		/**
+		 * Full constructor.
+		 * @param slots the slots
+		 * @param from the first slot of the range
+		 * @param to the end of the range (exclusive)
+		 * @param step the step size in seconds
+		 */
+		private StepTask(Slot[] slots, int from, int to, double step) {
+			this.slots = slots;
+			this.from = from;
+			this.to = to;
+			this.step = step;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (this.to - this.from == 1) {
+				this.slots[this.from].step(this.step);
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new StepTask(this.slots, this.from, middle, this.step),
+						new StepTask(this.slots, middle, this.to, this.step));
+			}
+		}
+	}
+
+	/** The pool to step the worlds on */
+	private final ForkJoinPool pool;
+
+	/** The ticks per second */
+	private final double tickRate;
+
+	/** The step size in seconds */
+	private final double step;
+
+	/** The worlds; replaced on modification */
+	private volatile Slot[] slots;
+
+	/** The number of ticks */
+	private volatile long tickCount;
+
+	/** The duration histogram of the ticks */
+	private final LatencyHistogram tickTimes;
+
+	/** The engine thread while running */
+	private Thread thread;
+
+	/** Whether the engine should stop */
+	private volatile boolean stopped;
+
+	/**
+	 * Minimal constructor; steps on the common pool.
+	 * @param tickRate the ticks per second
+	 */
+	public MultiWorldEngine(double tickRate) {
+		this(tickRate, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Full constructor.
+	 * @param tickRate the ticks per second
+	 * @param pool the pool to step the worlds on
+	 * @throws IllegalArgumentException if tickRate is not positive
+	 * @throws NullPointerException if pool is null
+	 */
+	public MultiWorldEngine(double tickRate, ForkJoinPool pool) {
+		if (!(tickRate > 0.0)) throw new IllegalArgumentException("The tick rate must be positive.");
+		if (pool == null) throw new NullPointerException("The pool cannot be null.");
+		this.pool = pool;
+		this.tickRate = tickRate;
+		this.step = 1.0 / tickRate;
+		this.slots = new Slot[0];
+		this.tickTimes = new LatencyHistogram();
+	}
+
+	/**
+	 * Adds the given world to the engine.
+	 * <p>
+	 * The world is stepped from the next tick on.
+	 * @param world the world
+	 * @return {@link Slot} the slot of the world
+	 */
+	public synchronized Slot add(World world) {
+		if (world == null) throw new NullPointerException("The world cannot be null.");
+		Slot slot = new Slot(world);
+		Slot[] slots = Arrays.copyOf(this.slots, this.slots.length + 1);
+		slots[slots.length - 1] = slot;
+		this.slots = slots;
+		return slot;
+	}
+
+	/**
+	 * Removes the given slot from the engine.
+	 * <p>
+	 * A tick in progress may still step the world.
+	 * @param slot the slot
+	 * @return boolean true if the slot was removed
+	 */
+	public synchronized boolean remove(Slot slot) {
+		Slot[] slots = this.slots;
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] == slot) {
+				Slot[] copy = new Slot[slots.length - 1];
+				System.arraycopy(slots, 0, copy, 0, i);
+				System.arraycopy(slots, i + 1, copy, i, slots.length - i - 1);
+				this.slots = copy;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Steps every world once and waits for all of them.
+	 * <p>
+	 * This is called by the engine thread; call it directly only when the
+	 * engine is not started.
+	 */
+	public void tick() {
+		long start = System.nanoTime();
+		Slot[] slots = this.slots;
+		if (slots.length > 0) {
+			this.pool.invoke(new StepTask(slots, 0, slots.length, this.step));
+		}
+		this.tickCount++;
+		this.tickTimes.record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Starts ticking at the tick rate on a new daemon thread, unless it is
+	 * already ticking.
+	 */
+	public synchronized void start() {
+		// a thread that stopped on its own is replaced
+		if (this.thread != null && !this.stopped) return;
+		this.stopped = false;
+		this.thread = new Thread("multi-world-engine") {
+			@Override
+			public void run() {
+				FrameScheduler scheduler = new FrameScheduler(tickRate);
+				try {
+					while (!stopped) {
+						tick();
+						if (!scheduler.sync()) {
+							log.info("The engine thread was interrupted; the engine is stopped");
+							stopped = true;
+						}
+					}
+				} catch (RuntimeException e) {
+					log.error("Stepping failed; the engine is stopped", e);
+					stopped = true;
+				}
+			}
+		};
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Stops ticking and waits for the current tick to finish.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void stop() throws InterruptedException {
+		Thread thread;
+		synchronized (this) {
+			thread = this.thread;
+			this.thread = null;
+			this.stopped = true;
+		}
+		if (thread != null) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Returns true if the engine is ticking.
+	 * @return boolean
+	 */
+	public boolean isRunning() {
+		return !this.stopped && this.thread != null;
+	}
+
+	/**
+	 * Returns the slots of the worlds.
+	 * @return {@link Slot}[] a copy of the slots
+	 */
+	public Slot[] getSlots() {
+		return this.slots.clone();
+	}
+
+	/**
+	 * Returns the number of worlds.
+	 * @return int
+	 */
+	public int getWorldCount() {
+		return this.slots.length;
+	}
+
+	/**
+	 * Returns the number of ticks.
+	 * @return long
+	 */
+	public long getTickCount() {
+		return this.tickCount;
+	}
+
+	/**
+	 * Returns the duration histogram of the ticks.
+	 * @return {@link LatencyHistogram}
+	 */
+	public LatencyHistogram getTickTimes() {
+		return this.tickTimes;
+	}
+
+	/**
+	 * Returns the ticks per second.
+	 * @return double
+	 */
+	public double getTickRate() {
+		return this.tickRate;
+	}
+
+	/**
+	 * Returns the step size in seconds.
+	 * @return double
+	 */
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Returns the pool the worlds are stepped on.
+	 * @return ForkJoinPool
+	 */
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+}
@@ -0,0 +1,259 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.log4j.BasicConfigurator;
+import org.dyn4j.dynamics.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Draws {@link RenderSnapshot}s into the images of a {@link FrameRecorder}
+ * instead of a window, the same way {@link SimulationFrame} draws them to
+ * its canvas.
+ * <p>
+ * This records a running example from its render thread and, without any
+ * window, records a scene stepped on a headless server.
+ * <p>
+ * Usage:
+ * <pre>
+ * OffscreenRenderer scene (-png directory | -raw file) [-steps n] [-every k]
+ * </pre>
+ * The scene is drawn at the scale of its example. By default 600 steps are
+ * run and every step is recorded.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class OffscreenRenderer {
+	private static final Logger log = LoggerFactory.getLogger(OffscreenRenderer.class);
+
+	/** The default frame width */
+	public static final int DEFAULT_WIDTH = 800;
+
+	/** The default frame height */
+	public static final int DEFAULT_HEIGHT = 600;
+
+	/** The default number of steps recorded headless */
+	private static final long DEFAULT_STEPS = 600;
+
+	/** Keeps the body color */
+	static final SnapshotBuffer.ColorProvider BODY_COLOR = new SnapshotBuffer.ColorProvider() {
+		@Override
+		public Color getColor(SimulationBody body) {
+			return body.getColor();
+		}
+	};
+
+	/** The frame width in pixels */
+	private final int width;
+
+	/** The frame height in pixels */
+	private final int height;
+
+	/** The scale in pixels per meter */
+	private final double scale;
+
+	/** The world to image transform */
+	private final AffineTransform view;
+
+	/** The background and the static bodies */
+	private final StaticLayer staticLayer;
+
+	/** The visible region of the world */
+	private final Viewport viewport;
+
+	/** The rendering quality settings */
+	private RenderPreset renderPreset;
+
+	/**
+	 * Full constructor.
+	 * @param width the frame width in pixels
+	 * @param height the frame height in pixels
+	 * @param scale the pixels per meter scale factor
+	 */
+	public OffscreenRenderer(int width, int height, double scale) {
+		this.width = width;
+		this.height = height;
+		this.scale = scale;
+		// flip the y axis and move the origin to the center
+		this.view = AffineTransform.getScaleInstance(1, -1);
+		this.view.translate(width / 2, -height / 2);
+		this.staticLayer = new StaticLayer(width, height, this.view, Color.WHITE);
+		this.viewport = Viewport.centered(width, height, scale);
+		this.renderPreset = RenderPreset.getDefault();
+	}
+
+	/**
+	 * Draws the given snapshot to the given graphics context.
+	 * @param g the graphics context of an image of the frame size
+	 * @param snapshot the snapshot
+	 * @param alpha the interpolation factor between the last two steps
+	 */
+	public void render(Graphics2D g, RenderSnapshot snapshot, double alpha) {
+		this.renderPreset.apply(g);
+		g.transform(this.view);
+		this.staticLayer.render(g, snapshot, this.scale);
+		snapshot.renderDynamic(g, this.scale, alpha, this.viewport);
+	}
+
+	/**
+	 * Draws the given snapshot into a free frame of the given recorder and
+	 * queues it for writing.
+	 * <p>
+	 * Never waits; the frame is dropped if the recorder has no free image.
+	 * @param snapshot the snapshot
+	 * @param alpha the interpolation factor between the last two steps
+	 * @param recorder the recorder
+	 * @param number the frame number
+	 * @return boolean true if the frame was queued
+	 */
+	public boolean capture(RenderSnapshot snapshot, double alpha, FrameRecorder recorder, long number) {
+		FrameRecorder.Frame frame = recorder.acquire();
+		if (frame == null) return false;
+		this.capture(frame, snapshot, alpha, recorder, number);
+		return true;
+	}
+
+	/**
+	 * Draws the given snapshot into the given frame and queues it for writing.
+	 * @param frame the free frame
+	 * @param snapshot the snapshot
+	 * @param alpha the interpolation factor between the last two steps
+	 * @param recorder the recorder
+	 * @param number the frame number
+	 */
+	private void capture(FrameRecorder.Frame frame, RenderSnapshot snapshot, double alpha, FrameRecorder recorder, long number) {
+		Graphics2D g = frame.getImage().createGraphics();
+		try {
+			this.render(g, snapshot, alpha);
+		} finally {
+			g.dispose();
+		}
+		recorder.submit(frame, number);
+	}
+
+	/**
+	 * Steps the given world headless and records every given number of steps.
+	 * <p>
+	 * Nothing is drawn in real time, so rather than dropping frames the
+	 * stepping waits for the encoder whenever it has no free image.
+	 * @param world the world
+	 * @param step the step size in seconds
+	 * @param steps the number of steps
+	 * @param every the number of steps per frame
+	 * @param recorder the recorder
+	 * @return long the number of frames queued
+	 * @throws InterruptedException if interrupted while waiting for the encoder
+	 */
+	public long record(World world, double step, long steps, int every, FrameRecorder recorder) throws InterruptedException {
+		SnapshotBuffer snapshots = new SnapshotBuffer(world.getBodyCount());
+		long frames = 0;
+		for (long i = 1; i <= steps; i++) {
+			world.step(1, step);
+			if (i % every == 0) {
+				FrameRecorder.Frame frame = recorder.take();
+				// closed or failed
+				if (frame == null) break;
+				snapshots.capture(world, i, 1.0, BODY_COLOR);
+				this.capture(frame, snapshots.acquire(), 1.0, recorder, i / every);
+				frames++;
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * Returns the frame width in pixels.
+	 * @return int
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Returns the frame height in pixels.
+	 * @return int
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Returns the rendering quality settings.
+	 * @return {@link RenderPreset}
+	 */
+	public RenderPreset getRenderPreset() {
+		return this.renderPreset;
+	}
+
+	/**
+	 * Sets the rendering quality settings; only the hints apply.
+	 * @param preset the preset
+	 */
+	public void setRenderPreset(RenderPreset preset) {
+		this.renderPreset = preset;
+	}
+
+	/**
+	 * Returns the visible region with the counts of the bodies drawn and culled.
+	 * @return {@link Viewport}
+	 */
+	public Viewport getViewport() {
+		return this.viewport;
+	}
+
+	/**
+	 * Entry point for recording a scene headless.
+	 * @param args command line arguments
+	 * @throws IOException if the output could not be created
+	 * @throws InterruptedException if interrupted while finishing the recording
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		BasicConfigurator.configure();
+		System.setProperty("java.awt.headless", "true");
+
+		ExampleScene scene = null;
+		File png = null;
+		File raw = null;
+		long steps = DEFAULT_STEPS;
+		int every = 1;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ("-png".equals(arg)) {
+				png = new File(args[++i]);
+			} else if ("-raw".equals(arg)) {
+				raw = new File(args[++i]);
+			} else if ("-steps".equals(arg)) {
+				steps = Long.parseLong(args[++i]);
+			} else if ("-every".equals(arg)) {
+				every = Integer.parseInt(args[++i]);
+			} else {
+				scene = ExampleScene.valueOf(arg.trim().toUpperCase(Locale.ROOT));
+			}
+		}
+		if (scene == null || (png == null) == (raw == null)) {
+			System.err.println("Usage: OffscreenRenderer scene (-png directory | -raw file) [-steps n] [-every k]");
+			return;
+		}
+
+		FrameRecorder.FrameWriter writer = png != null
+				? new FrameRecorder.PngSequence(png, scene.name().toLowerCase(Locale.ROOT) + "-")
+				: new FrameRecorder.RawFrames(new FileOutputStream(raw), DEFAULT_WIDTH, DEFAULT_HEIGHT);
+		FrameRecorder recorder = new FrameRecorder(DEFAULT_WIDTH, DEFAULT_HEIGHT, writer);
+		OffscreenRenderer renderer = new OffscreenRenderer(DEFAULT_WIDTH, DEFAULT_HEIGHT, scene.getScale());
+
+		long start = System.nanoTime();
+		renderer.record(scene.createWorld(), FixedTimestep.DEFAULT_STEP, steps, every, recorder);
+		recorder.close();
+		log.info("{}: {} frames written, {} dropped in {} s", scene,
+				recorder.getWrittenCount(), recorder.getDroppedCount(),
+				String.format(Locale.ROOT, "%.3f", (System.nanoTime() - start) / SimulationFrame.NANO_TO_BASE));
+	}
+}
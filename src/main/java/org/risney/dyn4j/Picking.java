@@ -1,35 +1,21 @@
 package org.risney.dyn4j;
 
-import java.awt.BorderLayout;
-import java.awt.Canvas;
 import java.awt.Color;
-import java.awt.Container;
-import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.Toolkit;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
 import java.awt.geom.AffineTransform;
-import java.awt.image.BufferStrategy;
-import java.util.ArrayList;
-import java.util.List;
 
-import javax.swing.JFrame;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
-import org.dyn4j.dynamics.Body;
 import org.dyn4j.dynamics.BodyFixture;
-import org.dyn4j.dynamics.DetectResult;
 import org.dyn4j.dynamics.World;
 
 import org.dyn4j.geometry.Convex;
 import org.dyn4j.geometry.Geometry;
 import org.dyn4j.geometry.Mass;
-import org.dyn4j.geometry.Transform;
 import org.dyn4j.geometry.Vector2;
 
 /**
@@ -39,17 +25,21 @@ import org.dyn4j.geometry.Vector2;
  * @version 3.2.0
  * @since 3.2.0
  */
-public class Picking extends JFrame {
+public class Picking extends SimulationFrame {
 	/** The serial version id */
 	private static final long serialVersionUID = 5663760293144882635L;
 	
 	/** The scale 45 pixels per meter */
 	public static final double SCALE = 32.0;
+
+	/** The mouse position in panel space; written by the EDT */
+	private volatile Point point;
 	
-	/** The conversion factor from nano to base */
-	public static final double NANO_TO_BASE = 1.0e9;
+	/** The bodies under the mouse pointer; simulation thread only */
+	private final PickingService picking = new PickingService(0.1, false);
 
-	private Point point = null;
+	/** The pointer marker, shared by every frame */
+	private static final Convex MARKER = Geometry.createCircle(0.1);
 	
 	private final class CustomMouseAdapter extends MouseAdapter {
 		@Override
@@ -70,21 +60,7 @@ public class Picking extends JFrame {
 	 * @version 3.0.2
 	 * @since 3.0.0
 	 */
-	public static class GameObject extends Body {
-		/** The color of the object */
-		protected Color color;
-		
-		/**
-		 * Default constructor.
-		 */
-		public GameObject() {
-			// randomly generate the color
-			this.color = new Color(
-					(float)Math.random() * 0.5f + 0.5f,
-					(float)Math.random() * 0.5f + 0.5f,
-					(float)Math.random() * 0.5f + 0.5f);
-		}
-		
+	public static class GameObject extends SimulationBody {
 		/**
 		 * Draws the body.
 		 * <p>
@@ -92,90 +68,18 @@ public class Picking extends JFrame {
 		 * @param g the graphics object to render to
 		 */
 		public void render(Graphics2D g) {
-			// save the original transform
-			AffineTransform ot = g.getTransform();
-			
-			// transform the coordinate system from world coordinates to local coordinates
-			AffineTransform lt = new AffineTransform();
-			lt.translate(this.transform.getTranslationX() * SCALE, this.transform.getTranslationY() * SCALE);
-			lt.rotate(this.transform.getRotation());
-			
-			// apply the transform
-			g.transform(lt);
-			
-			// loop over all the body fixtures for this body
-			for (BodyFixture fixture : this.fixtures) {
-				// get the shape on the fixture
-				Convex convex = fixture.getShape();
-				Graphics2DRenderer.render(g, convex, SCALE, this.color);
-			}
-			
-			g.setTransform(ot);
+			this.render(g, SCALE);
 		}
 	}
 	
-	/** The canvas to draw to */
-	protected Canvas canvas;
-	
-	/** The dynamics engine */
-	protected World world;
-	
-	/** Wether the example is stopped or not */
-	protected boolean stopped;
-	
-	/** The time stamp for the last iteration */
-	protected long last;
-	
 	/**
 	 * Default constructor for the window
 	 */
 	public Picking() {
-		super("Graphics2D Example");
-		// setup the JFrame
-		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		
-		// add a window listener
-		this.addWindowListener(new WindowAdapter() {
-			/* (non-Javadoc)
-			 * @see java.awt.event.WindowAdapter#windowClosing(java.awt.event.WindowEvent)
-			 */
-			@Override
-			public void windowClosing(WindowEvent e) {
-				// before we stop the JVM stop the example
-				stop();
-				super.windowClosing(e);
-			}
-		});
-		
-		// create the size of the window
-		Dimension size = new Dimension(800, 600);
-		
-		// create a canvas to paint to 
-		this.canvas = new Canvas();
-		this.canvas.setPreferredSize(size);
-		this.canvas.setMinimumSize(size);
-		this.canvas.setMaximumSize(size);
-		
-		// add the canvas to the JFrame
-		Container container = this.getContentPane();
-		container.setLayout(new BorderLayout());
-		this.add(this.canvas, BorderLayout.CENTER);
-		
-		// make the JFrame not resizable
-		// (this way I dont have to worry about resize events)
-		this.setResizable(false);
+		super("Graphics2D Example", SCALE);
 		
 		MouseAdapter ml = new CustomMouseAdapter();
 		this.canvas.addMouseListener(ml);
-		
-		// size everything
-		this.pack();
-		
-		// make sure we are not stopped
-		this.stopped = false;
-		
-		// setup the world
-		this.initializeWorld();
 	}
 	
 	/**
@@ -185,13 +89,24 @@ public class Picking extends JFrame {
 	 * the TestBed.
 	 */
 	protected void initializeWorld() {
+		this.world = createWorld();
+	}
+
+	/**
+	 * Creates the world of this example.
+	 * <p>
+	 * This does not need a window so the scene can also be stepped
+	 * headless, see {@link HeadlessRunner}.
+	 * @return {@link World}
+	 */
+	public static World createWorld() {
 		// create the world
-		this.world = new World();
+		World world = new World();
 		
 	    GameObject floor = new GameObject();
 	    floor.addFixture(Geometry.createRectangle(20, 1));
 	    floor.setMass(Mass.Type.INFINITE);
-	    this.world.addBody(floor);
+	    world.addBody(floor);
 	    
 	 // Triangle
 	    GameObject body2 = new GameObject();
@@ -322,182 +237,95 @@ public class Picking extends JFrame {
 	    body11.translate(new Vector2(4.0, 3.0));
 	    body11.setMass(Mass.Type.NORMAL);
 	    world.addBody(body11);
+		return world;
 	}
 	
 	/**
-	 * Start active rendering the example.
-	 * <p>
-	 * This should be called after the JFrame has been shown.
+	 * Takes the mouse position as the pointer of the next step while
+	 * the button is held down.
 	 */
-	public void start() {
-		// initialize the last update time
-		this.last = System.nanoTime();
-		// don't allow AWT to paint the canvas since we are
-		this.canvas.setIgnoreRepaint(true);
-		// enable double buffering (the JFrame has to be
-		// visible before this can be done)
-		this.canvas.createBufferStrategy(2);
-		// run a separate thread to do active rendering
-		// because we don't want to do it on the EDT
-		Thread thread = new Thread() {
-			public void run() {
-				// perform an infinite loop stopped
-				// render as fast as possible
-				while (!isStopped()) {
-					gameLoop();
-					// you could add a Thread.yield(); or
-					// Thread.sleep(long) here to give the
-					// CPU some breathing room
-				}
-			}
-		};
-		// set the game loop thread to a daemon thread so that
-		// it cannot stop the JVM from exiting
-		thread.setDaemon(true);
-		// start the game loop
-		thread.start();
+	@Override
+	protected void pollInput(StepInput input) {
+		Point point = this.point;
+		if (point != null) {
+			// convert the point from panel space to world space
+			double x =  (point.getX() - 400.0) / SCALE;
+			double y = -(point.getY() - 300.0) / SCALE;
+			input.setPointer(x, y);
+		}
 	}
 	
 	/**
-	 * The method calling the necessary methods to update
-	 * the game, graphics, and poll for input.
+	 * Detects the bodies under the mouse pointer, if the pointer or the
+	 * bodies around it moved.
 	 */
-	protected void gameLoop() {
-		// get the graphics object to render to
-		Graphics2D g = (Graphics2D)this.canvas.getBufferStrategy().getDrawGraphics();
-		
-		// before we render everything im going to flip the y axis and move the
-		// origin to the center (instead of it being in the top left corner)
-		AffineTransform yFlip = AffineTransform.getScaleInstance(1, -1);
-		AffineTransform move = AffineTransform.getTranslateInstance(400, -300);
-		g.transform(yFlip);
-		g.transform(move);
-		
-		// now (0, 0) is in the center of the screen with the positive x axis
-		// pointing right and the positive y axis pointing up
+	@Override
+	protected void handleEvents() {
+		// detect bodies under the mouse pointer (we'll radially expand it 
+		// so it works a little better by using a circle)
+		this.picking.update(this.world, this.input, this.stepCount);
 		
-		// render anything about the Example (will render the World objects)
-		this.render(g);
-		
-		// dispose of the graphics object
-		g.dispose();
-		
-		// blit/flip the buffer
-		BufferStrategy strategy = this.canvas.getBufferStrategy();
-		if (!strategy.contentsLost()) {
-			strategy.show();
+		// you could also iterate over the bodys and do a point in body test
+//		for (int i = 0; i < this.world.getBodyCount(); i++) {
+//			Body b = this.world.getBody(i);
+//			if (b.contains(new Vector2(x, y))) {
+//				// record this body
+//			}
+//		}
+	}
+	
+	/**
+	 * Returns the scene of this example.
+	 * @return {@link ExampleScene}
+	 */
+	@Override
+	protected ExampleScene getScene() {
+		return ExampleScene.PICKING;
+	}
+	
+	/**
+	 * Returns red for the bodies under the mouse pointer.
+	 * @param body the body
+	 * @return Color
+	 */
+	@Override
+	public Color getColor(SimulationBody body) {
+		// render that we found any
+		if (this.picking.isHit(body)) {
+			return Color.RED;
 		}
-		
-		// Sync the display on some systems.
-        // (on Linux, this fixes event queue problems)
-        Toolkit.getDefaultToolkit().sync();
-        
-        // update the World
-        
-        // get the current time
-        long time = System.nanoTime();
-        // get the elapsed time from the last iteration
-        long diff = time - this.last;
-        // set the last time
-        this.last = time;
-    	// convert from nanoseconds to seconds
-    	double elapsedTime = (double)diff / NANO_TO_BASE;
-        // update the world with the elapsed time
-        this.world.update(elapsedTime);
+		return body.getColor();
 	}
 	
 	/**
 	 * Renders the example.
 	 * @param g the graphics object to render to
+	 * @param snapshot the latest state of the bodies
+	 * @param alpha the interpolation factor between the last two steps
 	 */
-	protected void render(Graphics2D g) {
-		// lets draw over everything with a white background
-		g.setColor(Color.WHITE);
-		g.fillRect(-400, -300, 800, 600);
-		
-		Convex convex = Geometry.createCircle(0.1);
-		Transform transform = new Transform();
-		List<DetectResult> results = new ArrayList<DetectResult>();
-		double x = 0;
-		double y = 0;
-		
-		// convert the point from panel space to world space
-		if (this.point != null) {
-			x =  (this.point.getX() - 400.0) / SCALE;
-			y = -(this.point.getY() - 300.0) / SCALE;
-			transform.translate(x, y);
-			// detect bodies under the mouse pointer (we'll radially expand it 
-			// so it works a little better by using a circle)
-			this.world.detect(
-					convex, 
-					transform,
-					null,			// no filter needed 
-					false,			// include sensor fixtures 
-					false,			// include inactive bodies
-					false,			// we don't need collision info 
-					results);
-			
-			// you could also iterate over the bodys and do a point in body test
-//			for (int i = 0; i < this.world.getBodyCount(); i++) {
-//				Body b = this.world.getBody(i);
-//				if (b.contains(new Vector2(x, y))) {
-//					// record this body
-//				}
-//			}
-		}
-
+	@Override
+	protected void render(Graphics2D g, RenderSnapshot snapshot, double alpha) {
 		// draw all the objects in the world
-		for (int i = 0; i < this.world.getBodyCount(); i++) {
-			// get the object
-			GameObject go = (GameObject) this.world.getBody(i);
-			
-			// render that we found any
-			boolean changeColor = false;
-			for (DetectResult r : results) {
-				GameObject gor = (GameObject) r.getBody();
-				if (gor == go) {
-					changeColor = true;
-					break;
-				}
-			}
-			
-			Color c = go.color;
-			if (changeColor) {
-				go.color = Color.RED;
-			}
-			// draw the object
-			go.render(g);
-			go.color = c;
-		}
+		super.render(g, snapshot, alpha);
 		
-		if (this.point != null) {
+		Point point = this.point;
+		if (point != null) {
+			double x =  (point.getX() - 400.0) / SCALE;
+			double y = -(point.getY() - 300.0) / SCALE;
 			AffineTransform tx = g.getTransform();
 			g.translate(x * SCALE, y * SCALE);
-			Graphics2DRenderer.render(g, convex, SCALE, Color.GREEN);
+			Graphics2DRenderer.render(g, MARKER, SCALE, Color.GREEN);
 			g.setTransform(tx);
 		}
 	}
 	
-	/**
-	 * Stops the example.
-	 */
-	public synchronized void stop() {
-		this.stopped = true;
-	}
-	
-	/**
-	 * Returns true if the example is stopped.
-	 * @return boolean true if stopped
-	 */
-	public synchronized boolean isStopped() {
-		return this.stopped;
-	}
-	
 	/**
 	 * Entry point for the example application.
 	 * @param args command line arguments
 	 */
 	public static void main(String[] args) {
+		// choose the Java2D pipeline before AWT starts
+		RenderPreset.selectPipeline();
 		// set the look and feel to the system look and feel
 		try {
 			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
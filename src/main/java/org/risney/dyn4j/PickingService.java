@@ -0,0 +1,270 @@
+package org.risney.dyn4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Finds the bodies under the pointer, querying the world only when the
+ * answer may have changed.
+ * <p>
+ * The bodies under a circular probe at the pointer are detected with a
+ * {@link QueryContext}, which recycles its results, and kept along with the
+ * transforms of all bodies at that step. The candidates are found in a
+ * {@link SpatialGrid} of the service, brought up to date before each query,
+ * so that picking allocates nothing once the grid and the results have grown
+ * to the scene. On the following
+ * steps the query is run again only if the pointer moved, bodies were added
+ * or removed, or a body that moved was under the pointer or now overlaps it
+ * with its rotation disc; otherwise the cached results are kept.
+ * Checking costs a comparison of the body transforms, without any collision
+ * detection, so hovering over a resting scene is close to free.
+ * <p>
+ * The results are stamped with the step they were detected at, see
+ * {@link #getVersion()}. The bodies hit are also kept in an identity set so
+ * that {@link #isHit(Body)} costs the same however many bodies overlap the
+ * probe; a renderer asking for every body is linear in the bodies rather
+ * than in the bodies times the hits.
+ * <p>
+ * Must only be used by the thread stepping the world.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class PickingService {
+	/** The number of values kept per body */
+	private static final int STRIDE = 3;
+
+	/** The query of the bodies under the probe */
+	private final QueryContext context;
+
+	/** The index of the bodies the query finds its candidates in */
+	private final SpatialGrid grid;
+
+	/** The bodies of the results */
+	private final Set<Body> hits;
+
+	/** The probe radius */
+	private final double radius;
+
+	/** True if the penetration of each result is computed */
+	private final boolean penetration;
+
+	/** The world center of a body being checked */
+	private final Vector2 center;
+
+	/** The world queried last */
+	private World world;
+
+	/** The bodies at the last query */
+	private Body[] bodies;
+
+	/** The transforms of the bodies at the last query (x, y, r) */
+	private double[] transforms;
+
+	/** The number of bodies at the last query */
+	private int size;
+
+	/** True if there was a pointer at the last update */
+	private boolean hasPointer;
+
+	/** The pointer x coordinate at the last query */
+	private double x;
+
+	/** The pointer y coordinate at the last query */
+	private double y;
+
+	/** The step the results were detected at */
+	private long version;
+
+	/** The number of queries run */
+	private long queryCount;
+
+	/** The number of queries saved */
+	private long skipCount;
+
+	/**
+	 * Full constructor.
+	 * @param radius the radius of the probe in world space
+	 * @param penetration true to compute the penetration of each result
+	 */
+	public PickingService(double radius, boolean penetration) {
+		this.context = new QueryContext(radius);
+		this.grid = new SpatialGrid();
+		this.context.setGrid(this.grid);
+		this.hits = Collections.newSetFromMap(new IdentityHashMap<Body, Boolean>());
+		this.radius = radius;
+		this.penetration = penetration;
+		this.center = new Vector2();
+		this.bodies = new Body[16];
+		this.transforms = new double[16 * STRIDE];
+		this.version = -1;
+	}
+
+	/**
+	 * Updates the bodies under the pointer of the given input.
+	 * @param world the world
+	 * @param input the input of the step
+	 * @param step the number of the step
+	 * @return boolean true if the world was queried
+	 */
+	public boolean update(World world, StepInput input, long step) {
+		if (!input.hasPointer()) {
+			if (this.hasPointer || this.world != world) {
+				this.context.clear();
+				this.hits.clear();
+				this.hasPointer = false;
+				this.world = world;
+				this.version = step;
+			}
+			return false;
+		}
+
+		double x = input.getX();
+		double y = input.getY();
+		if (this.hasPointer && this.world == world && x == this.x && y == this.y && !this.changed(world)) {
+			this.skipCount++;
+			return false;
+		}
+
+		// only the bodies that moved since the last query are placed again
+		this.grid.update(world);
+		this.context.detect(world, x, y, this.penetration);
+		this.hits.clear();
+		List<DetectResult> results = this.context.getResults();
+		int n = results.size();
+		for (int i = 0; i < n; i++) {
+			this.hits.add(results.get(i).getBody());
+		}
+		this.record(world);
+		this.world = world;
+		this.hasPointer = true;
+		this.x = x;
+		this.y = y;
+		this.version = step;
+		this.queryCount++;
+		return true;
+	}
+
+	/**
+	 * Returns true if the bodies under the pointer may have changed since
+	 * the last query.
+	 * @param world the world
+	 * @return boolean
+	 */
+	private boolean changed(World world) {
+		int n = world.getBodyCount();
+		if (n != this.size) return true;
+		for (int i = 0; i < n; i++) {
+			Body body = world.getBody(i);
+			if (body != this.bodies[i]) return true;
+			Transform tx = body.getTransform();
+			int o = i * STRIDE;
+			if (tx.getTranslationX() == this.transforms[o]
+			 && tx.getTranslationY() == this.transforms[o + 1]
+			 && tx.getRotation() == this.transforms[o + 2]) {
+				continue;
+			}
+			// it moved; did it leave or enter the probe?
+			if (this.isHit(body)) return true;
+			double r = body.getRotationDiscRadius();
+			// not known until the mass is set
+			if (r == 0.0) return true;
+			tx.getTransformed(body.getLocalCenter(), this.center);
+			double d = r + this.radius;
+			if (this.center.distanceSquared(this.x, this.y) <= d * d) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Records the bodies and their transforms.
+	 * @param world the world
+	 */
+	private void record(World world) {
+		int n = world.getBodyCount();
+		if (n > this.bodies.length) {
+			this.bodies = new Body[n * 2];
+			this.transforms = new double[n * 2 * STRIDE];
+		}
+		for (int i = 0; i < n; i++) {
+			Body body = world.getBody(i);
+			Transform tx = body.getTransform();
+			int o = i * STRIDE;
+			this.bodies[i] = body;
+			this.transforms[o] = tx.getTranslationX();
+			this.transforms[o + 1] = tx.getTranslationY();
+			this.transforms[o + 2] = tx.getRotation();
+		}
+		Arrays.fill(this.bodies, n, Math.max(n, this.size), null);
+		this.size = n;
+	}
+
+	/**
+	 * Forces a query on the next update, for example after bodies were
+	 * moved by hand or their fixtures changed.
+	 */
+	public void invalidate() {
+		this.world = null;
+		this.grid.invalidate();
+	}
+
+	/**
+	 * Returns true if the given body was under the pointer.
+	 * @param body the body
+	 * @return boolean
+	 */
+	public boolean isHit(Body body) {
+		return this.hits.contains(body);
+	}
+
+	/**
+	 * Returns the number of bodies under the pointer; less than the number
+	 * of results when several fixtures of a body were hit.
+	 * @return int
+	 */
+	public int getHitCount() {
+		return this.hits.size();
+	}
+
+	/**
+	 * Returns the bodies under the pointer.
+	 * @return List&lt;{@link DetectResult}&gt;; read only, reused by the next query
+	 */
+	public List<DetectResult> getResults() {
+		return this.context.getResults();
+	}
+
+	/**
+	 * Returns the step the results were detected at; the same as long as
+	 * the results are.
+	 * @return long
+	 */
+	public long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the number of queries run.
+	 * @return long
+	 */
+	public long getQueryCount() {
+		return this.queryCount;
+	}
+
+	/**
+	 * Returns the number of updates answered from the cached results.
+	 * @return long
+	 */
+	public long getSkipCount() {
+		return this.skipCount;
+	}
+}
@@ -0,0 +1,468 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.dyn4j.collision.Filter;
+import org.dyn4j.collision.broadphase.BroadphaseDetector;
+import org.dyn4j.collision.narrowphase.NarrowphaseDetector;
+import org.dyn4j.collision.narrowphase.Penetration;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.AABB;
+import org.dyn4j.geometry.Circle;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Segment;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+import org.dyn4j.geometry.Wound;
+
+/**
+ * A reusable query for the bodies under a circular probe.
+ * <p>
+ * Answers the same question as
+ * {@link World#detect(Convex, Transform, Filter, boolean, boolean, boolean, List)}
+ * with a circle, but without its garbage: the world version creates the AABB
+ * of the probe, the list of broadphase candidates, and a {@link DetectResult}
+ * and {@link Penetration} for every hit. Here the probe, its transform and
+ * the results are owned by the context; the results are recycled from a pool
+ * and the list holding them is cleared rather than reallocated.
+ * <p>
+ * The candidates are the bodies whose AABB in the world's
+ * {@link BroadphaseDetector} overlaps the probe, so a query costs about as
+ * much as a broadphase lookup however many bodies the world has. The
+ * broadphase returns the candidates in a new list, the only garbage of a
+ * query once the pool is as large as the largest number of hits. When given
+ * a {@link SpatialGrid} kept up to date with the world, the candidates are
+ * the bodies in the cells around the probe instead and a query allocates
+ * nothing. The probe is tested against circles, polygons and segments
+ * directly; any other shape is handed to the world's
+ * {@link NarrowphaseDetector}, which may allocate.
+ * {@link org.dyn4j.dynamics.DetectListener}s are not notified.
+ * <p>
+ * The results are reused by the next query. Must only be used by the thread
+ * stepping the world.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class QueryContext {
+	/** The probe */
+	private final Circle probe;
+
+	/** The probe radius */
+	private final double radius;
+
+	/** The probe transform */
+	private final Transform transform;
+
+	/** The bodies under the probe */
+	private final List<DetectResult> results;
+
+	/** The read only view of the results */
+	private final List<DetectResult> view;
+
+	/** The recycled results; the first {@link #results} are in use */
+	private final List<DetectResult> pool;
+
+	/** The recycled penetrations, one per pooled result */
+	private final List<Penetration> penetrations;
+
+	/** The recycled penetration normals; the narrowphase may replace or clear them */
+	private final List<Vector2> normals;
+
+	/** The probe center in the local space of a body */
+	private final Vector2 local;
+
+	/** The closest point or normal being computed */
+	private final Vector2 point;
+
+	/** The bounds of the probe given to the broadphase; holds {@link #min} and {@link #max} */
+	private final AABB bounds;
+
+	/** The minimum of the bounds of the probe */
+	private final Vector2 min;
+
+	/** The maximum of the bounds of the probe */
+	private final Vector2 max;
+
+	/** The index of the bodies; null to use the world's broadphase */
+	private SpatialGrid grid;
+
+	/**
+	 * Full constructor.
+	 * @param radius the radius of the probe in world space
+	 */
+	public QueryContext(double radius) {
+		this.probe = Geometry.createCircle(radius);
+		this.radius = radius;
+		this.transform = new Transform();
+		this.results = new ArrayList<DetectResult>();
+		this.view = Collections.unmodifiableList(this.results);
+		this.pool = new ArrayList<DetectResult>();
+		this.penetrations = new ArrayList<Penetration>();
+		this.normals = new ArrayList<Vector2>();
+		this.local = new Vector2();
+		this.point = new Vector2();
+		this.min = new Vector2();
+		this.max = new Vector2();
+		// the AABB keeps the given vectors, so moving them moves the bounds
+		this.bounds = new AABB(this.min, this.max);
+	}
+
+	/**
+	 * Detects the active bodies under the probe at the given point, ignoring
+	 * sensor fixtures.
+	 * @param world the world
+	 * @param x the x coordinate of the probe in world space
+	 * @param y the y coordinate of the probe in world space
+	 * @param penetration true to compute the penetration of each result
+	 * @return int the number of results
+	 */
+	public int detect(World world, double x, double y, boolean penetration) {
+		return this.detect(world, x, y, null, false, false, penetration);
+	}
+
+	/**
+	 * Detects the bodies under the probe at the given point.
+	 * <p>
+	 * The arguments have the same meaning as those of
+	 * {@link World#detect(Convex, Transform, Filter, boolean, boolean, boolean, List)}.
+	 * @param world the world
+	 * @param x the x coordinate of the probe in world space
+	 * @param y the y coordinate of the probe in world space
+	 * @param filter the fixture filter; null to allow all fixtures
+	 * @param sensors true to include sensor fixtures
+	 * @param inactive true to include inactive bodies
+	 * @param penetration true to compute the penetration of each result
+	 * @return int the number of results
+	 */
+	public int detect(World world, double x, double y, Filter filter, boolean sensors, boolean inactive, boolean penetration) {
+		this.results.clear();
+		this.transform.identity();
+		this.transform.translate(x, y);
+
+		double r = this.radius;
+		SpatialGrid grid = this.grid;
+		if (grid != null) {
+			int n = grid.queryBounds(x - r, y - r, x + r, y + r, inactive);
+			for (int i = 0; i < n; i++) {
+				this.detect(world, grid.getBody(i), filter, sensors, penetration);
+			}
+			return this.results.size();
+		}
+
+		this.min.set(x - r, y - r);
+		this.max.set(x + r, y + r);
+		List<Body> candidates = world.getBroadphaseDetector().detect(this.bounds);
+		int n = candidates.size();
+		for (int i = 0; i < n; i++) {
+			Body body = candidates.get(i);
+			if (!inactive && !body.isActive()) continue;
+			this.detect(world, body, filter, sensors, penetration);
+		}
+		return this.results.size();
+	}
+
+	/**
+	 * Adds the fixtures of the given body under the probe to the results.
+	 * @param world the world
+	 * @param body the body
+	 * @param filter the fixture filter; null to allow all fixtures
+	 * @param sensors true to include sensor fixtures
+	 * @param penetration true to compute the penetration of each result
+	 */
+	private void detect(World world, Body body, Filter filter, boolean sensors, boolean penetration) {
+		Transform tx = body.getTransform();
+		int fixtures = body.getFixtureCount();
+		for (int j = 0; j < fixtures; j++) {
+			BodyFixture fixture = body.getFixture(j);
+			if (!sensors && fixture.isSensor()) continue;
+			if (filter != null && !filter.isAllowed(fixture.getFilter())) continue;
+			DetectResult result = this.next(penetration);
+			if (this.detect(world, fixture.getShape(), tx, result.getPenetration())) {
+				result.setBody(body);
+				result.setFixture(fixture);
+				this.results.add(result);
+			}
+		}
+	}
+
+	/**
+	 * Returns the next pooled result, without adding it to the results.
+	 * @param penetration true if the result has a penetration
+	 * @return {@link DetectResult}
+	 */
+	private DetectResult next(boolean penetration) {
+		int i = this.results.size();
+		if (i == this.pool.size()) {
+			this.pool.add(new DetectResult());
+			this.penetrations.add(new Penetration());
+			this.normals.add(new Vector2());
+		}
+		DetectResult result = this.pool.get(i);
+		if (penetration) {
+			Penetration p = this.penetrations.get(i);
+			p.setNormal(this.normals.get(i));
+			result.setPenetration(p);
+		} else {
+			result.setPenetration(null);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if the given shape has a closed form test here.
+	 * @param shape the shape
+	 * @return boolean
+	 */
+	static boolean isClosedForm(Convex shape) {
+		return shape instanceof Circle || shape instanceof Polygon || shape instanceof Segment;
+	}
+
+	/**
+	 * Returns true if a circle overlaps the given shape; touching is not
+	 * overlapping, so a circle of radius zero overlaps only the inside of a
+	 * shape and never a segment.
+	 * @param shape a shape for which {@link #isClosedForm(Convex)} is true
+	 * @param x the x coordinate of the circle center in the local space of the shape
+	 * @param y the y coordinate of the circle center in the local space of the shape
+	 * @param r the circle radius
+	 * @return boolean
+	 */
+	static boolean overlaps(Convex shape, double x, double y, double r) {
+		if (shape instanceof Circle) {
+			Vector2 center = shape.getCenter();
+			double sum = r + ((Circle) shape).getRadius();
+			return center.distanceSquared(x, y) < sum * sum;
+		}
+		Vector2[] vertices = ((Wound) shape).getVertices();
+		int edge = 0;
+		if (shape instanceof Polygon) {
+			Vector2[] normals = ((Polygon) shape).getNormals();
+			int count = vertices.length;
+			double separation = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < count; i++) {
+				double s = normals[i].x * (x - vertices[i].x) + normals[i].y * (y - vertices[i].y);
+				if (s >= r) return false;
+				if (s > separation) {
+					separation = s;
+					edge = i;
+				}
+			}
+			if (separation <= 0.0) return true;
+		}
+		Vector2 v1 = vertices[edge];
+		Vector2 v2 = vertices[edge + 1 == vertices.length ? 0 : edge + 1];
+		double ex = v2.x - v1.x;
+		double ey = v2.y - v1.y;
+		double length = ex * ex + ey * ey;
+		double t = length == 0.0 ? 0.0 : ((x - v1.x) * ex + (y - v1.y) * ey) / length;
+		t = Math.max(0.0, Math.min(1.0, t));
+		double dx = v1.x + ex * t - x;
+		double dy = v1.y + ey * t - y;
+		return dx * dx + dy * dy < r * r;
+	}
+
+	/**
+	 * Returns true if the probe at the given point overlaps the given shape,
+	 * without touching the results.
+	 * @param world the world
+	 * @param x the x coordinate of the probe in world space
+	 * @param y the y coordinate of the probe in world space
+	 * @param shape the shape in the local space of the body
+	 * @param tx the body transform
+	 * @param penetration the penetration to set, with a normal; null if not needed
+	 * @return boolean
+	 */
+	boolean detect(World world, double x, double y, Convex shape, Transform tx, Penetration penetration) {
+		this.transform.identity();
+		this.transform.translate(x, y);
+		return this.detect(world, shape, tx, penetration);
+	}
+
+	/**
+	 * Returns true if the probe overlaps the given shape.
+	 * @param world the world
+	 * @param shape the shape in the local space of the body
+	 * @param tx the body transform
+	 * @param penetration the penetration to set; null if not needed
+	 * @return boolean
+	 */
+	private boolean detect(World world, Convex shape, Transform tx, Penetration penetration) {
+		double r = this.radius;
+		Vector2 c = this.local;
+		c.set(this.transform.getTranslationX(), this.transform.getTranslationY());
+		tx.inverseTransform(c);
+
+		if (penetration == null) {
+			if (isClosedForm(shape)) return overlaps(shape, c.x, c.y, r);
+			return world.getNarrowphaseDetector().detect(this.probe, this.transform, shape, tx);
+		}
+
+		if (shape instanceof Circle) {
+			Vector2 center = shape.getCenter();
+			double dx = center.x - c.x;
+			double dy = center.y - c.y;
+			double d = Math.sqrt(dx * dx + dy * dy);
+			double sum = r + ((Circle) shape).getRadius();
+			if (d >= sum) return false;
+			// concentric circles can be pushed apart in any direction
+			if (d == 0.0) return this.penetrate(tx, 1.0, 0.0, sum, penetration);
+			return this.penetrate(tx, dx / d, dy / d, sum - d, penetration);
+		}
+
+		if (shape instanceof Polygon) {
+			Vector2[] vertices = ((Polygon) shape).getVertices();
+			Vector2[] normals = ((Polygon) shape).getNormals();
+			int count = vertices.length;
+			double separation = Double.NEGATIVE_INFINITY;
+			int edge = 0;
+			for (int i = 0; i < count; i++) {
+				double s = normals[i].x * (c.x - vertices[i].x) + normals[i].y * (c.y - vertices[i].y);
+				if (s >= r) return false;
+				if (s > separation) {
+					separation = s;
+					edge = i;
+				}
+			}
+			// the center is inside, the face is the way out
+			if (separation <= 0.0) {
+				return this.penetrate(tx, -normals[edge].x, -normals[edge].y, r - separation, penetration);
+			}
+			// otherwise the closest point is on the face or one of its vertices
+			Vector2 v1 = vertices[edge];
+			Vector2 v2 = vertices[edge + 1 == count ? 0 : edge + 1];
+			return this.closest(world, shape, tx, v1, v2, penetration);
+		}
+
+		if (shape instanceof Segment) {
+			Vector2[] vertices = ((Segment) shape).getVertices();
+			return this.closest(world, shape, tx, vertices[0], vertices[1], penetration);
+		}
+
+		if (!world.getNarrowphaseDetector().detect(this.probe, this.transform, shape, tx)) return false;
+		return this.narrowphase(world, shape, tx, penetration);
+	}
+
+	/**
+	 * Returns true if the probe overlaps the segment between the given
+	 * points, using the probe center in {@link #local}.
+	 * @param world the world
+	 * @param shape the shape the segment belongs to
+	 * @param tx the body transform
+	 * @param v1 the first point
+	 * @param v2 the second point
+	 * @param penetration the penetration to set
+	 * @return boolean
+	 */
+	private boolean closest(World world, Convex shape, Transform tx, Vector2 v1, Vector2 v2, Penetration penetration) {
+		Vector2 c = this.local;
+		double ex = v2.x - v1.x;
+		double ey = v2.y - v1.y;
+		double length = ex * ex + ey * ey;
+		double t = length == 0.0 ? 0.0 : ((c.x - v1.x) * ex + (c.y - v1.y) * ey) / length;
+		t = Math.max(0.0, Math.min(1.0, t));
+		double dx = v1.x + ex * t - c.x;
+		double dy = v1.y + ey * t - c.y;
+		double d2 = dx * dx + dy * dy;
+		if (d2 >= this.radius * this.radius) return false;
+		double d = Math.sqrt(d2);
+		if (d > 0.0) return this.penetrate(tx, dx / d, dy / d, this.radius - d, penetration);
+		// the center is on the segment, so either side of it is the way out
+		if (length == 0.0) return this.narrowphase(world, shape, tx, penetration);
+		double l = Math.sqrt(length);
+		return this.penetrate(tx, -ey / l, ex / l, this.radius, penetration);
+	}
+
+	/**
+	 * Sets the given penetration from a normal in the local space of a body.
+	 * @param tx the body transform
+	 * @param nx the x component of the local normal from the probe to the shape
+	 * @param ny the y component of the local normal from the probe to the shape
+	 * @param depth the depth
+	 * @param penetration the penetration to set
+	 * @return boolean true
+	 */
+	private boolean penetrate(Transform tx, double nx, double ny, double depth, Penetration penetration) {
+		this.point.set(nx, ny);
+		tx.getTransformedR(this.point, penetration.getNormal());
+		penetration.setDepth(depth);
+		return true;
+	}
+
+	/**
+	 * Sets the given penetration using the world's narrowphase, for shapes and
+	 * degenerate cases without a closed form here.
+	 * @param world the world
+	 * @param shape the shape
+	 * @param tx the body transform
+	 * @param penetration the penetration to set
+	 * @return boolean true if the shapes overlap
+	 */
+	private boolean narrowphase(World world, Convex shape, Transform tx, Penetration penetration) {
+		penetration.clear();
+		return world.getNarrowphaseDetector().detect(this.probe, this.transform, shape, tx, penetration);
+	}
+
+	/**
+	 * Returns the index used to find the candidates.
+	 * @return {@link SpatialGrid}; null if the world's broadphase is used
+	 */
+	public SpatialGrid getGrid() {
+		return this.grid;
+	}
+
+	/**
+	 * Sets the index used to find the candidates; it must be updated after
+	 * every step of the world queried.
+	 * @param grid the index; null to use the world's broadphase
+	 */
+	public void setGrid(SpatialGrid grid) {
+		this.grid = grid;
+	}
+
+	/**
+	 * Returns the probe.
+	 * @return {@link Convex}
+	 */
+	public Convex getProbe() {
+		return this.probe;
+	}
+
+	/**
+	 * Returns the probe radius.
+	 * @return double
+	 */
+	public double getRadius() {
+		return this.radius;
+	}
+
+	/**
+	 * Returns the bodies under the probe at the last query.
+	 * @return List&lt;{@link DetectResult}&gt;; read only, reused by the next query
+	 */
+	public List<DetectResult> getResults() {
+		return this.view;
+	}
+
+	/**
+	 * Returns the number of results of the last query.
+	 * @return int
+	 */
+	public int getResultCount() {
+		return this.results.size();
+	}
+
+	/**
+	 * Clears the results; the pooled results are kept.
+	 */
+	public void clear() {
+		this.results.clear();
+	}
+}
@@ -0,0 +1,359 @@
+package org.risney.dyn4j;
+
+import java.awt.Canvas;
+import java.awt.Dimension;
+import java.awt.Frame;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.log4j.BasicConfigurator;
+import org.dyn4j.dynamics.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the frame rate and the frame time percentiles of each
+ * {@link RenderPreset} on the current machine.
+ * <p>
+ * A scene is stepped and drawn to a window with the buffer count, hints and
+ * pipeline of the preset; without a display it is drawn to an image instead.
+ * Only drawing and showing the frame is timed, not stepping the world. Since
+ * the pipeline can only be chosen once per JVM, each preset is measured in a
+ * JVM of its own and the results are compared at the end.
+ * <p>
+ * Usage:
+ * <pre>
+ * RenderBenchmark [scene | -bodies n] [-preset name] [-frames n] [-warmup n]
+ * </pre>
+ * By default the {@link ExampleScene#PICKING} scene is drawn 600 times after
+ * 120 warm up frames with every preset.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class RenderBenchmark {
+	private static final Logger log = LoggerFactory.getLogger(RenderBenchmark.class);
+
+	/** The default number of frames measured */
+	private static final int DEFAULT_FRAMES = 600;
+
+	/** The default number of warm up frames */
+	private static final int DEFAULT_WARMUP_FRAMES = 120;
+
+	/** The scale the scaled up scene is drawn at */
+	private static final double CROWD_SCALE = 16.0;
+
+	/** The start of the line a forked benchmark reports its result with */
+	private static final String RESULT_PREFIX = "RESULT ";
+
+	/**
+	 * The frame rate and frame times of one preset.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static final class Result {
+		/** The preset */
+		private final RenderPreset preset;
+
+		/** The pipeline drawing to the screen */
+		private final String pipeline;
+
+		/** The frames per second */
+		private final double framesPerSecond;
+
+		/** The median frame time in nanoseconds */
+		private final long p50;
+
+		/** The 90th percentile frame time in nanoseconds */
+		private final long p90;
+
+		/** The 99th percentile frame time in nanoseconds */
+		private final long p99;
+
+		/** The longest frame time in nanoseconds */
+		private final long max;
+
+		/**
+		 * Full constructor.
+		 * @param preset the preset
+		 * @param pipeline the pipeline drawing to the screen
+		 * @param framesPerSecond the frames per second
+		 * @param p50 the median frame time in nanoseconds
+		 * @param p90 the 90th percentile frame time in nanoseconds
+		 * @param p99 the 99th percentile frame time in nanoseconds
+		 * @param max the longest frame time in nanoseconds
+		 */
+		Result(RenderPreset preset, String pipeline, double framesPerSecond, long p50, long p90, long p99, long max) {
+			this.preset = preset;
+			this.pipeline = pipeline;
+			this.framesPerSecond = framesPerSecond;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		/**
+		 * Parses a result reported by {@link #toLine()}.
+		 * @param line the line
+		 * @return {@link Result}
+		 */
+		static Result parse(String line) {
+			String[] parts = line.substring(RESULT_PREFIX.length()).split(" ");
+			return new Result(RenderPreset.valueOf(parts[0]), parts[6], Double.parseDouble(parts[1]),
+					Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4]), Long.parseLong(parts[5]));
+		}
+
+		/**
+		 * Returns this result as one line for the JVM that forked the benchmark.
+		 * @return String
+		 */
+		String toLine() {
+			return String.format(Locale.ROOT, "%s%s %.3f %d %d %d %d %s", RESULT_PREFIX,
+					this.preset, this.framesPerSecond, this.p50, this.p90, this.p99, this.max, this.pipeline);
+		}
+
+		/**
+		 * Returns the preset.
+		 * @return {@link RenderPreset}
+		 */
+		public RenderPreset getPreset() {
+			return this.preset;
+		}
+
+		/**
+		 * Returns the frames drawn per second.
+		 * @return double
+		 */
+		public double getFramesPerSecond() {
+			return this.framesPerSecond;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%s (%s, %d buffers): %.1f fps p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+					this.preset, this.pipeline, this.preset.getBufferCount(), this.framesPerSecond,
+					this.p50 / 1.0e6, this.p90 / 1.0e6, this.p99 / 1.0e6, this.max / 1.0e6);
+		}
+	}
+
+	/** The frame width */
+	private final int width;
+
+	/** The frame height */
+	private final int height;
+
+	/**
+	 * Full constructor.
+	 * @param width the frame width in pixels
+	 * @param height the frame height in pixels
+	 */
+	public RenderBenchmark(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Steps and draws the given world with the given preset in this JVM.
+	 * <p>
+	 * The pipeline is whichever this JVM started with.
+	 * @param preset the preset
+	 * @param world the world
+	 * @param scale the scale in pixels per meter
+	 * @param frames the number of frames measured
+	 * @param warmup the number of frames drawn first
+	 * @return {@link Result}
+	 */
+	public Result run(RenderPreset preset, World world, double scale, int frames, int warmup) {
+		OffscreenRenderer renderer = new OffscreenRenderer(this.width, this.height, scale);
+		renderer.setRenderPreset(preset);
+		SnapshotBuffer snapshots = new SnapshotBuffer(world.getBodyCount());
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		Frame window = null;
+		BufferStrategy strategy = null;
+		BufferedImage image = null;
+		if (GraphicsEnvironment.isHeadless()) {
+			image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+		} else {
+			window = new Frame("Render Benchmark " + preset);
+			Canvas canvas = new Canvas();
+			canvas.setPreferredSize(new Dimension(this.width, this.height));
+			canvas.setIgnoreRepaint(true);
+			window.add(canvas);
+			window.setResizable(false);
+			window.pack();
+			window.setVisible(true);
+			canvas.createBufferStrategy(preset.getBufferCount());
+			strategy = canvas.getBufferStrategy();
+		}
+
+		long total = 0;
+		try {
+			for (int i = 0; i < warmup + frames; i++) {
+				world.step(1, FixedTimestep.DEFAULT_STEP);
+				snapshots.capture(world, i, 1.0, OffscreenRenderer.BODY_COLOR);
+				RenderSnapshot snapshot = snapshots.acquire();
+
+				long start = System.nanoTime();
+				if (strategy != null) {
+					do {
+						do {
+							Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+							renderer.render(g, snapshot, 1.0);
+							g.dispose();
+						} while (strategy.contentsRestored());
+						strategy.show();
+						Toolkit.getDefaultToolkit().sync();
+					} while (strategy.contentsLost());
+				} else {
+					Graphics2D g = image.createGraphics();
+					renderer.render(g, snapshot, 1.0);
+					g.dispose();
+				}
+				long time = System.nanoTime() - start;
+
+				if (i >= warmup) {
+					histogram.record(time);
+					total += time;
+				}
+			}
+		} finally {
+			if (window != null) {
+				window.dispose();
+			}
+		}
+
+		double fps = total == 0 ? 0.0 : frames * SimulationFrame.NANO_TO_BASE / total;
+		return new Result(preset, RenderPreset.getActivePipeline(), fps,
+				histogram.getP50(), histogram.getValueAtPercentile(90.0), histogram.getP99(), histogram.getMax());
+	}
+
+	/**
+	 * Runs the benchmark of the given preset in a new JVM with the same
+	 * class path, passing on the given arguments.
+	 * @param preset the preset
+	 * @param args the benchmark arguments
+	 * @return {@link Result}; null if the JVM didn't report one
+	 * @throws IOException if the JVM could not be started
+	 * @throws InterruptedException if interrupted while waiting for the JVM
+	 */
+	private static Result fork(RenderPreset preset, List<String> args) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		String headless = System.getProperty("java.awt.headless");
+		if (headless != null) {
+			command.add("-Djava.awt.headless=" + headless);
+		}
+		command.add(RenderBenchmark.class.getName());
+		command.addAll(args);
+		command.add("-preset");
+		command.add(preset.name());
+
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		Result result = null;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(RESULT_PREFIX)) {
+					result = Result.parse(line);
+				} else {
+					System.out.println(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		int status = process.waitFor();
+		if (status != 0) {
+			log.warn("The benchmark of {} exited with status {}", preset, status);
+		}
+		return result;
+	}
+
+	/**
+	 * Entry point for the render benchmark.
+	 * @param args command line arguments
+	 * @throws IOException if a benchmark JVM could not be started
+	 * @throws InterruptedException if interrupted while waiting for a benchmark JVM
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		ExampleScene scene = ExampleScene.PICKING;
+		int bodies = 0;
+		RenderPreset preset = null;
+		int frames = DEFAULT_FRAMES;
+		int warmup = DEFAULT_WARMUP_FRAMES;
+		List<String> forwarded = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if ("-preset".equals(arg)) {
+				preset = RenderPreset.valueOf(args[++i].trim().toUpperCase(Locale.ROOT));
+				continue;
+			}
+			forwarded.add(arg);
+			if ("-bodies".equals(arg)) {
+				bodies = Integer.parseInt(args[++i]);
+				forwarded.add(args[i]);
+			} else if ("-frames".equals(arg)) {
+				frames = Integer.parseInt(args[++i]);
+				forwarded.add(args[i]);
+			} else if ("-warmup".equals(arg)) {
+				warmup = Integer.parseInt(args[++i]);
+				forwarded.add(args[i]);
+			} else {
+				scene = ExampleScene.valueOf(arg.trim().toUpperCase(Locale.ROOT));
+			}
+		}
+
+		if (preset != null) {
+			// before anything touches AWT
+			preset.getPipeline().select();
+		}
+		BasicConfigurator.configure();
+
+		if (preset == null) {
+			List<Result> results = new ArrayList<Result>();
+			for (RenderPreset p : RenderPreset.values()) {
+				Result result = fork(p, forwarded);
+				if (result != null) {
+					results.add(result);
+				}
+			}
+			Result fastest = null;
+			for (Result result : results) {
+				log.info("{}", result);
+				if (fastest == null || result.getFramesPerSecond() > fastest.getFramesPerSecond()) {
+					fastest = result;
+				}
+			}
+			if (fastest != null) {
+				log.info("Fastest on this machine: {}", fastest.getPreset());
+			}
+			return;
+		}
+
+		World world = bodies > 0 ? ExampleScene.createWorld(bodies) : scene.createWorld();
+		double scale = bodies > 0 ? CROWD_SCALE : scene.getScale();
+		RenderBenchmark benchmark = new RenderBenchmark(OffscreenRenderer.DEFAULT_WIDTH, OffscreenRenderer.DEFAULT_HEIGHT);
+		Result result = benchmark.run(preset, world, scale, frames, warmup);
+		log.info("{} ({} bodies): {}", bodies > 0 ? "crowd" : scene, world.getBodyCount(), result);
+		System.out.println(result.toLine());
+	}
+}
@@ -0,0 +1,199 @@
+package org.risney.dyn4j;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The rendering quality settings of the examples.
+ * <p>
+ * A preset sets the antialiasing, stroke control and rendering hints of each
+ * frame, the number of buffers of the canvas and the Java2D pipeline. The
+ * pipeline is chosen by the JVM when AWT starts, so it is only applied by
+ * {@link #selectPipeline()} called first thing in <code>main</code>; the
+ * other settings can be changed at any time.
+ * <p>
+ * The preset is chosen with the system property
+ * <code>org.risney.dyn4j.preset</code>; by default {@link #STANDARD}, which
+ * draws like the examples always have. {@link RenderBenchmark} measures each
+ * preset on the current machine.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public enum RenderPreset {
+	/** No hints set, double buffered, on the default pipeline; how the examples always drew */
+	STANDARD(null, null, null, 2, Pipeline.DEFAULT),
+
+	/** Aliased shapes with normalized strokes, double buffered, on XRender */
+	SPEED(RenderingHints.VALUE_ANTIALIAS_OFF, RenderingHints.VALUE_STROKE_NORMALIZE, RenderingHints.VALUE_RENDER_SPEED, 2, Pipeline.XRENDER),
+
+	/** Antialiased shapes with normalized strokes, double buffered, on the software pipeline */
+	BALANCED(RenderingHints.VALUE_ANTIALIAS_ON, RenderingHints.VALUE_STROKE_NORMALIZE, RenderingHints.VALUE_RENDER_DEFAULT, 2, Pipeline.SOFTWARE),
+
+	/** Antialiased shapes with exact strokes, triple buffered, on the default pipeline */
+	QUALITY(RenderingHints.VALUE_ANTIALIAS_ON, RenderingHints.VALUE_STROKE_PURE, RenderingHints.VALUE_RENDER_QUALITY, 3, Pipeline.DEFAULT);
+
+	/**
+	 * The Java2D rendering pipelines.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public static enum Pipeline {
+		/** Whatever the JVM picks for this platform */
+		DEFAULT,
+
+		/** The X11 XRender pipeline; ignored on other platforms */
+		XRENDER,
+
+		/** Drawing in system memory, without any hardware acceleration */
+		SOFTWARE;
+
+		/**
+		 * Sets the system properties choosing this pipeline, unless they were
+		 * set already, for example on the command line.
+		 * <p>
+		 * Has no effect once AWT has started.
+		 */
+		public void select() {
+			switch (this) {
+				case XRENDER:
+					setDefault("sun.java2d.xrender", "true");
+					break;
+				case SOFTWARE:
+					setDefault("sun.java2d.xrender", "false");
+					setDefault("sun.java2d.opengl", "false");
+					setDefault("sun.java2d.pmoffscreen", "false");
+					break;
+				default:
+					break;
+			}
+		}
+
+		/**
+		 * Sets the given system property if it is not set.
+		 * @param key the property name
+		 * @param value the property value
+		 */
+		private static void setDefault(String key, String value) {
+			if (System.getProperty(key) == null) {
+				System.setProperty(key, value);
+			}
+		}
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(RenderPreset.class);
+
+	/** The system property naming the preset */
+	public static final String PRESET_PROPERTY = "org.risney.dyn4j.preset";
+
+	/** The antialiasing hint; null to leave it alone */
+	private final Object antialiasing;
+
+	/** The stroke control hint; null to leave it alone */
+	private final Object strokeControl;
+
+	/** The rendering hint; null to leave it alone */
+	private final Object rendering;
+
+	/** The number of buffers of the canvas */
+	private final int bufferCount;
+
+	/** The pipeline */
+	private final Pipeline pipeline;
+
+	/**
+	 * Full constructor.
+	 * @param antialiasing the antialiasing hint; null to leave it alone
+	 * @param strokeControl the stroke control hint; null to leave it alone
+	 * @param rendering the rendering hint; null to leave it alone
+	 * @param bufferCount the number of buffers of the canvas
+	 * @param pipeline the pipeline
+	 */
+	private RenderPreset(Object antialiasing, Object strokeControl, Object rendering, int bufferCount, Pipeline pipeline) {
+		this.antialiasing = antialiasing;
+		this.strokeControl = strokeControl;
+		this.rendering = rendering;
+		this.bufferCount = bufferCount;
+		this.pipeline = pipeline;
+	}
+
+	/**
+	 * Returns the preset named by the system property, or {@link #STANDARD}.
+	 * @return {@link RenderPreset}
+	 */
+	public static RenderPreset getDefault() {
+		String name = System.getProperty(PRESET_PROPERTY);
+		if (name == null) return STANDARD;
+		try {
+			return RenderPreset.valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			log.warn("Unknown render preset {}; using {}", name, STANDARD);
+			return STANDARD;
+		}
+	}
+
+	/**
+	 * Selects the pipeline of the default preset; must be called before
+	 * anything touches AWT.
+	 * @return {@link RenderPreset} the default preset
+	 */
+	public static RenderPreset selectPipeline() {
+		RenderPreset preset = getDefault();
+		preset.pipeline.select();
+		return preset;
+	}
+
+	/**
+	 * Returns a short name of the pipeline drawing to the screen.
+	 * @return String
+	 */
+	public static String getActivePipeline() {
+		if (GraphicsEnvironment.isHeadless()) return "headless";
+		GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+				.getDefaultScreenDevice().getDefaultConfiguration();
+		return gc.getClass().getSimpleName();
+	}
+
+	/**
+	 * Sets the hints of this preset on the given graphics context; the hints
+	 * the preset leaves alone keep their value.
+	 * @param g the graphics context
+	 */
+	public void apply(Graphics2D g) {
+		if (this.antialiasing != null) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, this.antialiasing);
+		if (this.strokeControl != null) g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, this.strokeControl);
+		if (this.rendering != null) g.setRenderingHint(RenderingHints.KEY_RENDERING, this.rendering);
+	}
+
+	/**
+	 * Returns true if shapes are antialiased; shapes are not antialiased by
+	 * default.
+	 * @return boolean
+	 */
+	public boolean isAntialiased() {
+		return this.antialiasing == RenderingHints.VALUE_ANTIALIAS_ON;
+	}
+
+	/**
+	 * Returns the number of buffers of the canvas.
+	 * @return int
+	 */
+	public int getBufferCount() {
+		return this.bufferCount;
+	}
+
+	/**
+	 * Returns the pipeline.
+	 * @return {@link Pipeline}
+	 */
+	public Pipeline getPipeline() {
+		return this.pipeline;
+	}
+}
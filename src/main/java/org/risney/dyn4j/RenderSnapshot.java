@@ -0,0 +1,515 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * The state of the bodies of a world needed to draw one frame.
+ * <p>
+ * A snapshot is filled by the simulation thread after a step and then
+ * published through a {@link SnapshotBuffer}; once published it is not
+ * modified until the render thread has handed it back, so the render thread
+ * can read it without any locking.
+ * <p>
+ * For each body the transform at the start and at the end of the last step is
+ * stored so that the render thread can interpolate between them.
+ * <p>
+ * Static bodies (of infinite mass and not moving) are flagged so that they
+ * can be drawn once into a {@link StaticLayer}. A body of infinite mass
+ * flagged as {@link SimulationBody#isMovable() movable}, like the controller
+ * of {@link MouseDrag}, is positioned by hand and drawn as a moving body. The
+ * static version of a snapshot changes whenever a static body was added, removed, moved or
+ * recolored since the previous snapshot.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class RenderSnapshot {
+	/** The number of transform values stored per body */
+	private static final int STRIDE = 6;
+
+	/** The number of bounds values stored per body */
+	private static final int BOUNDS_STRIDE = 3;
+
+	/** The number of bodies in the snapshot */
+	private int size;
+
+	/** The bodies; used for their fixtures which do not change in local space */
+	private SimulationBody[] bodies;
+
+	/** The start of step and end of step transforms (x0, y0, r0, x, y, r) per body */
+	private double[] transforms;
+
+	/** The local center of mass and the rotation disc radius (x, y, r) per body */
+	private double[] bounds;
+
+	/** The fill color per body */
+	private Color[] colors;
+
+	/** True per static body */
+	private boolean[] statics;
+
+	/** The number of static bodies */
+	private int staticCount;
+
+	/** The version of the static bodies */
+	private long staticVersion;
+
+	/** The step number the snapshot was taken after */
+	private long step;
+
+	/** The {@link System#nanoTime()} the snapshot was taken at */
+	private long time;
+
+	/** The interpolation factor at the time the snapshot was taken */
+	private double alpha;
+
+	/** True if no body in the snapshot is moving */
+	private boolean asleep;
+
+	/**
+	 * Full constructor.
+	 * @param capacity the initial number of bodies
+	 */
+	public RenderSnapshot(int capacity) {
+		if (capacity < 1) capacity = 1;
+		this.bodies = new SimulationBody[capacity];
+		this.transforms = new double[capacity * STRIDE];
+		this.bounds = new double[capacity * BOUNDS_STRIDE];
+		this.colors = new Color[capacity];
+		this.statics = new boolean[capacity];
+		this.step = -1;
+	}
+
+	/**
+	 * Clears the snapshot to be filled again.
+	 * @param step the step number
+	 * @param time the capture time in nanoseconds
+	 * @param alpha the interpolation factor at the capture time
+	 */
+	void clear(long step, long time, double alpha) {
+		// release the references of the last capture
+		for (int i = 0; i < this.size; i++) {
+			this.bodies[i] = null;
+			this.colors[i] = null;
+		}
+		this.size = 0;
+		this.staticCount = 0;
+		this.step = step;
+		this.time = time;
+		this.alpha = alpha;
+		this.asleep = true;
+	}
+
+	/**
+	 * Appends the given body.
+	 * @param body the body
+	 * @param color the color to draw the body with
+	 */
+	void add(SimulationBody body, Color color) {
+		if (this.size == this.bodies.length) {
+			this.grow();
+		}
+		Transform t0 = body.getInitialTransform();
+		Transform t = body.getTransform();
+		int o = this.size * STRIDE;
+		this.transforms[o] = t0.getTranslationX();
+		this.transforms[o + 1] = t0.getTranslationY();
+		this.transforms[o + 2] = t0.getRotation();
+		this.transforms[o + 3] = t.getTranslationX();
+		this.transforms[o + 4] = t.getTranslationY();
+		this.transforms[o + 5] = t.getRotation();
+		Vector2 c = body.getLocalCenter();
+		double radius = body.getRotationDiscRadius();
+		int b = this.size * BOUNDS_STRIDE;
+		this.bounds[b] = c.x;
+		this.bounds[b + 1] = c.y;
+		// the radius is only set with the mass; never cull a body without one
+		this.bounds[b + 2] = radius > 0.0 ? radius : Double.POSITIVE_INFINITY;
+		this.bodies[this.size] = body;
+		this.colors[this.size] = color;
+		boolean fixed = body.isStatic() && !body.isMovable();
+		this.statics[this.size] = fixed;
+		this.size++;
+		if (fixed) {
+			this.staticCount++;
+		} else if (this.asleep && !body.isAsleep()) {
+			this.asleep = false;
+		}
+	}
+
+	/**
+	 * Returns true if the static bodies of this snapshot are the bodies of
+	 * the given snapshot, in the same order, at the same place and with the
+	 * same color.
+	 * @param reference a snapshot holding only static bodies, see {@link #copyStatics(RenderSnapshot)}
+	 * @return boolean
+	 */
+	boolean equalStatics(RenderSnapshot reference) {
+		if (this.staticCount != reference.size) return false;
+		int j = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (!this.statics[i]) continue;
+			if (this.bodies[i] != reference.bodies[j] || this.colors[i] != reference.colors[j]) return false;
+			int o = i * STRIDE + 3;
+			int p = j * STRIDE + 3;
+			if (this.transforms[o] != reference.transforms[p]
+			 || this.transforms[o + 1] != reference.transforms[p + 1]
+			 || this.transforms[o + 2] != reference.transforms[p + 2]) {
+				return false;
+			}
+			j++;
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces the bodies of the given snapshot with the static bodies of this snapshot.
+	 * @param reference the snapshot to fill
+	 */
+	void copyStatics(RenderSnapshot reference) {
+		reference.clear(this.step, this.time, 1.0);
+		for (int i = 0; i < this.size; i++) {
+			if (!this.statics[i]) continue;
+			if (reference.size == reference.bodies.length) {
+				reference.grow();
+			}
+			int j = reference.size;
+			System.arraycopy(this.transforms, i * STRIDE, reference.transforms, j * STRIDE, STRIDE);
+			System.arraycopy(this.bounds, i * BOUNDS_STRIDE, reference.bounds, j * BOUNDS_STRIDE, BOUNDS_STRIDE);
+			reference.bodies[j] = this.bodies[i];
+			reference.colors[j] = this.colors[i];
+			reference.statics[j] = true;
+			reference.size++;
+			reference.staticCount++;
+		}
+	}
+
+	/**
+	 * Sets the version of the static bodies.
+	 * @param version the version
+	 */
+	void setStaticVersion(long version) {
+		this.staticVersion = version;
+	}
+
+	/**
+	 * Doubles the capacity of the snapshot.
+	 */
+	private void grow() {
+		int capacity = this.bodies.length * 2;
+		SimulationBody[] bodies = new SimulationBody[capacity];
+		double[] transforms = new double[capacity * STRIDE];
+		double[] bounds = new double[capacity * BOUNDS_STRIDE];
+		Color[] colors = new Color[capacity];
+		boolean[] statics = new boolean[capacity];
+		System.arraycopy(this.bodies, 0, bodies, 0, this.size);
+		System.arraycopy(this.transforms, 0, transforms, 0, this.size * STRIDE);
+		System.arraycopy(this.bounds, 0, bounds, 0, this.size * BOUNDS_STRIDE);
+		System.arraycopy(this.colors, 0, colors, 0, this.size);
+		System.arraycopy(this.statics, 0, statics, 0, this.size);
+		this.bodies = bodies;
+		this.transforms = transforms;
+		this.bounds = bounds;
+		this.colors = colors;
+		this.statics = statics;
+	}
+
+	/**
+	 * Draws every body of the snapshot.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the end of step transforms
+	 */
+	public void render(Graphics2D g, double scale, double alpha) {
+		this.render(g, scale, alpha, true, true, null, null);
+	}
+
+	/**
+	 * Draws every body of the snapshot that is in the given viewport.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the end of step transforms
+	 * @param viewport the visible region; null to draw every body
+	 */
+	public void render(Graphics2D g, double scale, double alpha, Viewport viewport) {
+		this.render(g, scale, alpha, true, true, viewport, null);
+	}
+
+	/**
+	 * Draws the static bodies of the snapshot.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 */
+	public void renderStatic(Graphics2D g, double scale) {
+		this.render(g, scale, 1.0, true, false, null, null);
+	}
+
+	/**
+	 * Draws the bodies of the snapshot that are not static.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the end of step transforms
+	 */
+	public void renderDynamic(Graphics2D g, double scale, double alpha) {
+		this.render(g, scale, alpha, false, true, null, null);
+	}
+
+	/**
+	 * Draws the bodies of the snapshot that are not static and are in the given viewport.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the end of step transforms
+	 * @param viewport the visible region; null to draw every body
+	 */
+	public void renderDynamic(Graphics2D g, double scale, double alpha, Viewport viewport) {
+		this.render(g, scale, alpha, false, true, viewport, null);
+	}
+
+	/**
+	 * Draws every body of the snapshot that is in the given viewport, batched by color.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the end of step transforms
+	 * @param viewport the visible region; null to draw every body
+	 * @param batch the batch to gather the bodies in; null to draw each body on its own
+	 */
+	public void render(Graphics2D g, double scale, double alpha, Viewport viewport, ColorBatch batch) {
+		this.render(g, scale, alpha, true, true, viewport, batch);
+	}
+
+	/**
+	 * Draws the bodies of the snapshot that are not static and are in the
+	 * given viewport, batched by color.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the end of step transforms
+	 * @param viewport the visible region; null to draw every body
+	 * @param batch the batch to gather the bodies in; null to draw each body on its own
+	 */
+	public void renderDynamic(Graphics2D g, double scale, double alpha, Viewport viewport, ColorBatch batch) {
+		this.render(g, scale, alpha, false, true, viewport, batch);
+	}
+
+	/**
+	 * Draws the static and/or the other bodies of the snapshot.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]
+	 * @param statics true to draw the static bodies
+	 * @param dynamics true to draw the other bodies
+	 * @param viewport the visible region; null to draw every body
+	 * @param batch the batch to gather the bodies in; null to draw each body on its own
+	 */
+	private void render(Graphics2D g, double scale, double alpha, boolean statics, boolean dynamics, Viewport viewport, ColorBatch batch) {
+		// one copy of the transform for all bodies
+		AffineTransform base = g.getTransform();
+		int drawn = 0;
+		int culled = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (this.statics[i] ? !statics : !dynamics) continue;
+			double x = this.getTranslationX(i, alpha);
+			double y = this.getTranslationY(i, alpha);
+			double r = this.getRotation(i, alpha);
+			// the rotation disc around the world center of mass, as captured
+			int b = i * BOUNDS_STRIDE;
+			double lx = this.bounds[b];
+			double ly = this.bounds[b + 1];
+			double radius = this.bounds[b + 2];
+			double cos = Math.cos(r);
+			double sin = Math.sin(r);
+			double cx = x + cos * lx - sin * ly;
+			double cy = y + sin * lx + cos * ly;
+			if (viewport != null && !viewport.intersects(cx, cy, radius)) {
+				culled++;
+				continue;
+			}
+			if (batch != null) {
+				batch.add(g, this.bodies[i], scale, x, y, r, cx, cy, radius, this.colors[i]);
+			} else {
+				this.bodies[i].render(g, base, scale, x, y, r, cx, cy, radius, this.colors[i]);
+			}
+			drawn++;
+		}
+		if (batch != null) {
+			batch.flush(g);
+		}
+		if (viewport != null) {
+			viewport.count(drawn, culled);
+		}
+	}
+
+	/**
+	 * Returns the interpolated x coordinate of the given body.
+	 * @param index the body index
+	 * @param alpha the interpolation factor
+	 * @return double
+	 */
+	public double getTranslationX(int index, double alpha) {
+		int o = index * STRIDE;
+		double x0 = this.transforms[o];
+		return x0 + (this.transforms[o + 3] - x0) * alpha;
+	}
+
+	/**
+	 * Returns the interpolated y coordinate of the given body.
+	 * @param index the body index
+	 * @param alpha the interpolation factor
+	 * @return double
+	 */
+	public double getTranslationY(int index, double alpha) {
+		int o = index * STRIDE;
+		double y0 = this.transforms[o + 1];
+		return y0 + (this.transforms[o + 4] - y0) * alpha;
+	}
+
+	/**
+	 * Returns the interpolated rotation of the given body.
+	 * @param index the body index
+	 * @param alpha the interpolation factor
+	 * @return double
+	 */
+	public double getRotation(int index, double alpha) {
+		int o = index * STRIDE;
+		double r0 = this.transforms[o + 2];
+		double diff = this.transforms[o + 5] - r0;
+		// take the shortest way around
+		if (diff > Math.PI) diff -= 2.0 * Math.PI;
+		if (diff < -Math.PI) diff += 2.0 * Math.PI;
+		return r0 + diff * alpha;
+	}
+
+	/**
+	 * Returns the interpolated world space x coordinate of the center of mass
+	 * of the given body.
+	 * @param index the body index
+	 * @param alpha the interpolation factor
+	 * @return double
+	 */
+	public double getCenterX(int index, double alpha) {
+		int b = index * BOUNDS_STRIDE;
+		double r = this.getRotation(index, alpha);
+		return this.getTranslationX(index, alpha) + Math.cos(r) * this.bounds[b] - Math.sin(r) * this.bounds[b + 1];
+	}
+
+	/**
+	 * Returns the interpolated world space y coordinate of the center of mass
+	 * of the given body.
+	 * @param index the body index
+	 * @param alpha the interpolation factor
+	 * @return double
+	 */
+	public double getCenterY(int index, double alpha) {
+		int b = index * BOUNDS_STRIDE;
+		double r = this.getRotation(index, alpha);
+		return this.getTranslationY(index, alpha) + Math.sin(r) * this.bounds[b] + Math.cos(r) * this.bounds[b + 1];
+	}
+
+	/**
+	 * Returns the radius of the disc around the center of mass that contains
+	 * the given body at any rotation.
+	 * @param index the body index
+	 * @return double; infinite if unknown
+	 */
+	public double getRadius(int index) {
+		return this.bounds[index * BOUNDS_STRIDE + 2];
+	}
+
+	/**
+	 * Returns the interpolation factor for the given time.
+	 * <p>
+	 * This is the interpolation factor at the capture time advanced by the time
+	 * passed since, clamped to 1.
+	 * @param time the current {@link System#nanoTime()}
+	 * @param step the step size in seconds
+	 * @return double in the range [0, 1]
+	 */
+	public double getAlpha(long time, double step) {
+		if (this.step < 0) return 1.0;
+		double alpha = this.alpha + (time - this.time) / SimulationFrame.NANO_TO_BASE / step;
+		return alpha > 1.0 ? 1.0 : alpha;
+	}
+
+	/**
+	 * Returns the number of bodies.
+	 * @return int
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the body at the given index.
+	 * @param index the body index
+	 * @return {@link SimulationBody}
+	 */
+	public SimulationBody getBody(int index) {
+		return this.bodies[index];
+	}
+
+	/**
+	 * Returns the color of the body at the given index.
+	 * @param index the body index
+	 * @return Color
+	 */
+	public Color getColor(int index) {
+		return this.colors[index];
+	}
+
+	/**
+	 * Returns true if the body at the given index was static, and not
+	 * movable, when the snapshot was taken.
+	 * @param index the body index
+	 * @return boolean
+	 */
+	public boolean isStatic(int index) {
+		return this.statics[index];
+	}
+
+	/**
+	 * Returns the number of static bodies.
+	 * @return int
+	 */
+	public int getStaticCount() {
+		return this.staticCount;
+	}
+
+	/**
+	 * Returns the version of the static bodies; it changes when a static
+	 * body is added, removed, moved or recolored.
+	 * @return long
+	 */
+	public long getStaticVersion() {
+		return this.staticVersion;
+	}
+
+	/**
+	 * Returns the step number the snapshot was taken after or -1 if
+	 * the snapshot has never been filled.
+	 * @return long
+	 */
+	public long getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Returns true if every body was either asleep or static when the
+	 * snapshot was taken.
+	 * @return boolean
+	 */
+	public boolean isAsleep() {
+		return this.asleep;
+	}
+
+	/**
+	 * Returns the {@link System#nanoTime()} the snapshot was taken at.
+	 * @return long
+	 */
+	public long getTime() {
+		return this.time;
+	}
+}
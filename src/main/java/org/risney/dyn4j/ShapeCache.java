@@ -0,0 +1,238 @@
+package org.risney.dyn4j;
+
+import java.awt.geom.Path2D;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.dyn4j.geometry.Capsule;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Ellipse;
+import org.dyn4j.geometry.HalfEllipse;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Slice;
+
+/**
+ * Caches the Java2D outline of {@link Convex} shapes in local space.
+ * <p>
+ * The shapes of fixtures do not change in local space, so the path built for
+ * a shape at a given scale can be filled every frame under the body transform
+ * instead of being rebuilt from the vertices or arcs of the shape. Paths are
+ * kept per shape and scale, for the last few scales each shape was drawn at,
+ * so a window and an offscreen capture at another scale share the cache.
+ * <p>
+ * Shapes are held weakly and compared by identity, so the paths of a shape are
+ * dropped once the shape is garbage collected; {@link SimulationBody} also
+ * removes the paths of the fixtures it removes. A shape that is modified (for
+ * example translated or rotated) after it was drawn must be {@link #remove(Convex) removed}.
+ * <p>
+ * Each drawing thread looks the paths up in a table of its own, without
+ * locking; only the first draw of a shape at a scale by a thread takes the
+ * lock of the shared table. Removing a path empties the tables of every thread.
+ * <p>
+ * Circles and segments are not cached; they are drawn with a reused Java2D
+ * shape that is as cheap to set as to look up. A cached path is never modified
+ * so it can be drawn by several threads.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class ShapeCache {
+	/** The most scales a path is kept at per shape */
+	private static final int MAXIMUM_SCALES = 4;
+
+	/**
+	 * The path of a shape at one scale, and the paths at other scales.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private static final class Entry {
+		/** The scale the path was built at */
+		private final double scale;
+
+		/** The path in local space */
+		private final Path2D.Double path;
+
+		/** The entry of the scale drawn before; null if none */
+		private Entry next;
+
+		/**
+		 * Full constructor.
+		 * @param scale the scale
+		 * @param path the path
+		 * @param next the entry of the scale drawn before
+		 */
+		public Entry(double scale, Path2D.Double path, Entry next) {
+			this.scale = scale;
+			this.path = path;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * The paths looked up by one thread.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private static final class Table {
+		/** The entries per shape */
+		private final Map<Convex, Entry> entries = new WeakHashMap<Convex, Entry>();
+
+		/** The version of the cache the entries are from */
+		private long version;
+	}
+
+	/** The entries per shape of all threads; dyn4j shapes use identity equality */
+	private final Map<Convex, Entry> entries = new WeakHashMap<Convex, Entry>();
+
+	/** The table of each thread */
+	private final ThreadLocal<Table> tables = new ThreadLocal<Table>() {
+		@Override
+		protected Table initialValue() {
+			return new Table();
+		}
+	};
+
+	/** Incremented whenever paths are removed */
+	private volatile long version;
+
+	/** The number of paths built */
+	private long builds;
+
+	/**
+	 * Returns the local space path of the given shape at the given scale.
+	 * <p>
+	 * The path is built on the first call at the scale.
+	 * @param convex the shape
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return Path2D; null if the shape is not drawn as a path
+	 */
+	public Path2D get(Convex convex, double scale) {
+		Table table = this.tables.get();
+		long version = this.version;
+		if (table.version != version) {
+			// paths were removed since
+			table.entries.clear();
+			table.version = version;
+		}
+		Entry entry = table.entries.get(convex);
+		Path2D.Double path = find(entry, scale);
+		if (path != null) {
+			return path;
+		}
+		path = this.share(convex, scale);
+		if (path == null) return null;
+		table.entries.put(convex, push(entry, scale, path));
+		return path;
+	}
+
+	/**
+	 * Returns the path of the given shape at the given scale from the shared
+	 * table, building it if no thread has yet.
+	 * @param convex the shape
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return Path2D.Double; null if the shape is not drawn as a path
+	 */
+	private synchronized Path2D.Double share(Convex convex, double scale) {
+		Entry entry = this.entries.get(convex);
+		Path2D.Double path = find(entry, scale);
+		if (path != null) {
+			return path;
+		}
+		path = build(convex, scale);
+		if (path == null) return null;
+		this.entries.put(convex, push(entry, scale, path));
+		this.builds++;
+		return path;
+	}
+
+	/**
+	 * Returns the path at the given scale of the given entries.
+	 * @param entry the first entry; null if none
+	 * @param scale the scale
+	 * @return Path2D.Double; null if there is no path at the scale
+	 */
+	private static final Path2D.Double find(Entry entry, double scale) {
+		for (Entry e = entry; e != null; e = e.next) {
+			if (e.scale == scale) return e.path;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the given entries with the given path in front, dropping the
+	 * entries of the scales drawn longest ago.
+	 * @param entry the first entry; null if none
+	 * @param scale the scale
+	 * @param path the path
+	 * @return {@link Entry} the new first entry
+	 */
+	private static final Entry push(Entry entry, double scale, Path2D.Double path) {
+		Entry first = new Entry(scale, path, entry);
+		Entry e = first;
+		for (int i = 1; i < MAXIMUM_SCALES && e.next != null; i++) {
+			e = e.next;
+		}
+		e.next = null;
+		return first;
+	}
+
+	/**
+	 * Builds the path of the given shape.
+	 * @param convex the shape
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return Path2D.Double; null if the shape is not drawn as a path
+	 */
+	private static final Path2D.Double build(Convex convex, double scale) {
+		Path2D.Double path = new Path2D.Double();
+		if (convex instanceof Polygon) {
+			Graphics2DRenderer.append(path, (Polygon)convex, scale);
+		} else if (convex instanceof Capsule) {
+			Graphics2DRenderer.append(path, (Capsule)convex, scale);
+		} else if (convex instanceof Ellipse) {
+			Graphics2DRenderer.append(path, (Ellipse)convex, scale);
+		} else if (convex instanceof Slice) {
+			Graphics2DRenderer.append(path, (Slice)convex, scale);
+		} else if (convex instanceof HalfEllipse) {
+			Graphics2DRenderer.append(path, (HalfEllipse)convex, scale);
+		} else {
+			return null;
+		}
+		return path;
+	}
+
+	/**
+	 * Removes the paths of the given shape.
+	 * @param convex the shape
+	 * @return boolean true if the shape had a path
+	 */
+	public synchronized boolean remove(Convex convex) {
+		this.version++;
+		return this.entries.remove(convex) != null;
+	}
+
+	/**
+	 * Removes every path.
+	 */
+	public synchronized void clear() {
+		this.version++;
+		this.entries.clear();
+	}
+
+	/**
+	 * Returns the number of shapes with a path.
+	 * @return int
+	 */
+	public synchronized int getSize() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the number of paths built so far.
+	 * @return long
+	 */
+	public synchronized long getBuildCount() {
+		return this.builds;
+	}
+}
@@ -0,0 +1,315 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+import java.util.List;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Shape;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Custom Body class to add drawing functionality.
+ * <p>
+ * This is the common base of the {@code GameObject} classes of the examples.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public class SimulationBody extends Body {
+	/** The local to device transform of the body being drawn by the current thread */
+	private static final ThreadLocal<AffineTransform> LOCAL_TRANSFORM = new ThreadLocal<AffineTransform>() {
+		@Override
+		protected AffineTransform initialValue() {
+			return new AffineTransform();
+		}
+	};
+
+	/** The color of the object */
+	protected Color color;
+
+	/** True if the body is positioned by hand even though its mass is infinite */
+	protected boolean movable;
+
+	/** The transform used to render the body between two steps */
+	private final Transform renderTransform;
+
+	/** The shape of each fixture when its renderer was resolved; render thread only */
+	private Convex[] renderShapes;
+
+	/** The renderer of each fixture; render thread only */
+	private Graphics2DRenderer.ShapeRenderer<Shape>[] renderers;
+
+	/** The renderer version the renderers were resolved at */
+	private int rendererVersion;
+
+	/**
+	 * Default constructor.
+	 */
+	public SimulationBody() {
+		// randomly generate the color
+		this.color = new Color(
+				(float)Math.random() * 0.5f + 0.5f,
+				(float)Math.random() * 0.5f + 0.5f,
+				(float)Math.random() * 0.5f + 0.5f);
+		this.renderTransform = new Transform();
+		this.renderShapes = new Convex[0];
+		this.renderers = newRenderers(0);
+		this.rendererVersion = -1;
+	}
+
+	/**
+	 * Draws the body at its current transform.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+	 */
+	public void render(Graphics2D g, double scale) {
+		this.render(g, scale, 1.0);
+	}
+
+	/**
+	 * Draws the body interpolated between its transform at the start of the last
+	 * step and its current transform.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+	 * @param alpha the interpolation factor in the range [0, 1]; 1 renders the current transform
+	 */
+	public void render(Graphics2D g, double scale, double alpha) {
+		Transform tx = this.transform;
+		if (alpha < 1.0) {
+			// the initial transform is the transform at the start of the last step
+			this.transform0.lerp(this.transform, alpha, this.renderTransform);
+			tx = this.renderTransform;
+		}
+		this.render(g, scale, tx.getTranslationX(), tx.getTranslationY(), tx.getRotation(), this.color);
+	}
+
+	/**
+	 * Draws the fixtures of the body at the given position and rotation.
+	 * <p>
+	 * This does not read the transform of the body so it can be used with a
+	 * transform captured by another thread, see {@link RenderSnapshot}.
+	 * @param g the graphics object to render to
+	 * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+	 * @param x the world space x coordinate
+	 * @param y the world space y coordinate
+	 * @param rotation the rotation in radians
+	 * @param color the fill color
+	 */
+	public void render(Graphics2D g, double scale, double x, double y, double rotation, Color color) {
+		// save the original transform
+		AffineTransform ot = g.getTransform();
+		this.render(g, ot, scale, x, y, rotation, color);
+	}
+
+	/**
+	 * Draws the fixtures of the body at the given position and rotation relative
+	 * to the given transform.
+	 * <p>
+	 * The level of detail and the center of mass are taken from the mass of
+	 * the body, so this must only be called by the thread changing it.
+	 * @param g the graphics object to render to
+	 * @param base the world to device transform; the current transform of g
+	 * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+	 * @param x the world space x coordinate
+	 * @param y the world space y coordinate
+	 * @param rotation the rotation in radians
+	 * @param color the fill color
+	 */
+	public void render(Graphics2D g, AffineTransform base, double scale, double x, double y, double rotation, Color color) {
+		Vector2 c = this.getLocalCenter();
+		double cos = Math.cos(rotation);
+		double sin = Math.sin(rotation);
+		this.render(g, base, scale, x, y, rotation,
+				x + cos * c.x - sin * c.y,
+				y + sin * c.x + cos * c.y,
+				this.getRotationDiscRadius(), color);
+	}
+
+	/**
+	 * Draws the fixtures of the body at the given position and rotation relative
+	 * to the given transform.
+	 * <p>
+	 * The graphics transform is set to the given transform on return. Passing the
+	 * transform of the graphics context, obtained once for all bodies, draws
+	 * without allocating.
+	 * <p>
+	 * Bodies a few pixels across are drawn with less detail, see {@link LevelOfDetail}.
+	 * The size and center of mass are given rather than read from the body so
+	 * that they can be captured with the transform, see {@link RenderSnapshot}.
+	 * @param g the graphics object to render to
+	 * @param base the world to device transform; the current transform of g
+	 * @param scale the scale to render the body (pixels per dyn4j unit (typically meter))
+	 * @param x the world space x coordinate
+	 * @param y the world space y coordinate
+	 * @param rotation the rotation in radians
+	 * @param centerX the world space x coordinate of the center of mass
+	 * @param centerY the world space y coordinate of the center of mass
+	 * @param radius the rotation disc radius; zero or infinite if unknown
+	 * @param color the fill color
+	 */
+	public void render(Graphics2D g, AffineTransform base, double scale, double x, double y, double rotation, double centerX, double centerY, double radius, Color color) {
+		if (color == null) color = Color.ORANGE;
+		LevelOfDetail level = LevelOfDetail.select(radius * scale);
+		if (level == LevelOfDetail.POINT) {
+			// one pixel at the center of mass
+			g.setTransform(base);
+			g.setColor(color);
+			g.fillRect((int)Math.floor(centerX * scale), (int)Math.floor(centerY * scale), 1, 1);
+			return;
+		}
+
+		// transform the coordinate system from world coordinates to local coordinates
+		AffineTransform lt = LOCAL_TRANSFORM.get();
+		lt.setTransform(base);
+		lt.translate(x * scale, y * scale);
+		lt.rotate(rotation);
+
+		// apply the transform
+		g.setTransform(lt);
+
+		// loop over all the body fixtures for this body
+		// small bodies are only filled
+		Color outline = level == LevelOfDetail.FULL ? Graphics2DRenderer.getOutlineColor(color) : null;
+		int n = this.fixtures.size();
+		if (n > this.renderers.length) {
+			this.renderShapes = new Convex[n];
+			this.renderers = newRenderers(n);
+		}
+		int version = Graphics2DRenderer.getRendererVersion();
+		if (version != this.rendererVersion) {
+			// a renderer was registered; resolve them all again
+			Arrays.fill(this.renderShapes, null);
+			this.rendererVersion = version;
+		}
+		for (int i = 0; i < n; i++) {
+			// get the shape on the fixture
+			Convex convex = this.fixtures.get(i).getShape();
+			if (convex != this.renderShapes[i]) {
+				this.renderers[i] = Graphics2DRenderer.getRenderer(convex.getClass());
+				this.renderShapes[i] = convex;
+			}
+			this.renderers[i].render(g, convex, scale, color, outline);
+		}
+
+		// set the original transform
+		g.setTransform(base);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixture(org.dyn4j.dynamics.BodyFixture)
+	 */
+	@Override
+	public boolean removeFixture(BodyFixture fixture) {
+		boolean removed = super.removeFixture(fixture);
+		if (removed) evict(fixture);
+		return removed;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixture(int)
+	 */
+	@Override
+	public BodyFixture removeFixture(int index) {
+		return evict(super.removeFixture(index));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixture(org.dyn4j.geometry.Vector2)
+	 */
+	@Override
+	public BodyFixture removeFixture(Vector2 point) {
+		return evict(super.removeFixture(point));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeFixtures(org.dyn4j.geometry.Vector2)
+	 */
+	@Override
+	public List<BodyFixture> removeFixtures(Vector2 point) {
+		return evict(super.removeFixtures(point));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.dyn4j.dynamics.Body#removeAllFixtures()
+	 */
+	@Override
+	public List<BodyFixture> removeAllFixtures() {
+		return evict(super.removeAllFixtures());
+	}
+
+	/**
+	 * Removes the cached path of the shape of the given removed fixture.
+	 * @param fixture the fixture; can be null
+	 * @return {@link BodyFixture} the given fixture
+	 */
+	private static final BodyFixture evict(BodyFixture fixture) {
+		if (fixture != null) {
+			Graphics2DRenderer.getShapeCache().remove(fixture.getShape());
+		}
+		return fixture;
+	}
+
+	/**
+	 * Removes the cached paths of the shapes of the given removed fixtures.
+	 * @param fixtures the fixtures; can be null
+	 * @return List&lt;{@link BodyFixture}&gt; the given fixtures
+	 */
+	private static final List<BodyFixture> evict(List<BodyFixture> fixtures) {
+		if (fixtures != null) {
+			for (BodyFixture fixture : fixtures) {
+				evict(fixture);
+			}
+		}
+		return fixtures;
+	}
+
+	/**
+	 * Returns a new array of shape renderers.
+	 * @param length the length
+	 * @return {@link Graphics2DRenderer.ShapeRenderer}[]
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final Graphics2DRenderer.ShapeRenderer<Shape>[] newRenderers(int length) {
+		return new Graphics2DRenderer.ShapeRenderer[length];
+	}
+
+	/**
+	 * Returns the color of the body.
+	 * @return Color
+	 */
+	public Color getColor() {
+		return this.color;
+	}
+
+	/**
+	 * Sets the color of the body.
+	 * @param color the color
+	 */
+	public void setColor(Color color) {
+		this.color = color;
+	}
+
+	/**
+	 * Returns true if the body is moved by the program even though its mass
+	 * is infinite, so it is never drawn with the static bodies.
+	 * @return boolean
+	 */
+	public boolean isMovable() {
+		return this.movable;
+	}
+
+	/**
+	 * Sets whether the body is moved by the program even though its mass is
+	 * infinite, like the controller of {@link MouseDrag}.
+	 * @param flag true if the body is positioned by hand
+	 */
+	public void setMovable(boolean flag) {
+		this.movable = flag;
+	}
+}
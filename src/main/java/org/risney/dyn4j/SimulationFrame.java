@@ -0,0 +1,935 @@
+package org.risney.dyn4j;
+
+import java.awt.BorderLayout;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Toolkit;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferStrategy;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.JFrame;
+
+import org.dyn4j.dynamics.World;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base class of the examples that sets up the window, the canvas and the
+ * active rendering loop.
+ * <p>
+ * By default the world is advanced with a {@link FixedTimestep}: the elapsed
+ * time of each frame is accumulated and consumed in fixed size steps, and the
+ * bodies are rendered interpolated between the last two steps. The previous
+ * behavior of passing the elapsed time directly to {@link World#update(double)}
+ * can be restored with {@link #setFixedTimestepEnabled(boolean)}.
+ * <p>
+ * By default the world is stepped on its own simulation thread which publishes
+ * a {@link RenderSnapshot} of the bodies after each step; the render thread only
+ * draws the latest snapshot so slow blits do not throttle the simulation. Both
+ * can run on one thread with {@link #setMultithreaded(boolean)}. Subclasses
+ * must only touch the world from {@link #pollInput(StepInput)},
+ * {@link #handleEvents()} and {@link #getColor(SimulationBody)} which run on
+ * the simulation thread.
+ * <p>
+ * The background and the static bodies are drawn from a {@link StaticLayer}
+ * that is only rasterized again when a static body changes; this can be turned
+ * off with {@link #setStaticLayerEnabled(boolean)}. Examples where few bodies
+ * move can also repaint only the regions that changed, see
+ * {@link #setDirtyRegionsEnabled(boolean)}.
+ * <p>
+ * The rendering hints and the number of buffers come from a
+ * {@link RenderPreset}, chosen with the system property
+ * <code>org.risney.dyn4j.preset</code>.
+ * <p>
+ * Setting the system property <code>org.risney.dyn4j.record</code> to a file
+ * name records the input of a fixed timestep session to that file, see
+ * {@link InputRecorder}. Setting <code>org.risney.dyn4j.capture</code> to a
+ * directory captures the rendered frames there as PNG files, see
+ * {@link FrameRecorder}.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public abstract class SimulationFrame extends JFrame implements SnapshotBuffer.ColorProvider {
+	/** The serial version id */
+	private static final long serialVersionUID = -3302937420435399532L;
+
+	private static final Logger log = LoggerFactory.getLogger(SimulationFrame.class);
+
+	/** The conversion factor from nano to base */
+	public static final double NANO_TO_BASE = 1.0e9;
+
+	/** The canvas to draw to */
+	protected Canvas canvas;
+
+	/** The dynamics engine */
+	protected World world;
+
+	/** The default target frame rate */
+	public static final double DEFAULT_FRAME_RATE = 60.0;
+
+	/** The default frame rate while the world is asleep and there is no input */
+	public static final double DEFAULT_IDLE_FRAME_RATE = 15.0;
+
+	/** The system property naming the file to record the input to */
+	public static final String RECORD_PROPERTY = "org.risney.dyn4j.record";
+
+	/** The system property naming the directory to capture the frames to */
+	public static final String CAPTURE_PROPERTY = "org.risney.dyn4j.capture";
+
+	/** The width of the canvas in pixels */
+	private static final int WIDTH = 800;
+
+	/** The height of the canvas in pixels */
+	private static final int HEIGHT = 600;
+
+	/** The time between logging the frame timings in seconds */
+	private static final long TIMINGS_LOG_PERIOD = 10;
+
+	/** The time without input before the frame rate may drop to the idle rate */
+	private static final long IDLE_INPUT_NANOS = 1000000000L;
+
+	/** Wether the example is stopped or not */
+	protected volatile boolean stopped;
+
+	/** The time stamp for the last iteration */
+	protected long last;
+
+	/** The scale in pixels per meter */
+	protected final double scale;
+
+	/** The fixed timestep accumulator */
+	protected final FixedTimestep timestep;
+
+	/** True if the world is advanced in fixed steps */
+	protected volatile boolean fixedTimestepEnabled;
+
+	/** The timestep mode to switch to before the next update; null if unchanged */
+	private final AtomicReference<Boolean> requestedFixedTimestep;
+
+	/** True if the world is stepped on its own thread */
+	protected volatile boolean multithreaded;
+
+	/** The hand over of body snapshots to the render thread */
+	protected final SnapshotBuffer snapshots;
+
+	/** The number of steps taken */
+	protected long stepCount;
+
+	/** Paces the render loop */
+	protected FrameScheduler scheduler;
+
+	/** Paces the simulation loop to the step rate */
+	protected FrameScheduler simulationScheduler;
+
+	/** The duration histograms of the phases of a frame */
+	protected final FrameTimings timings;
+
+	/** The input of the current step */
+	protected final StepInput input;
+
+	/** The world to screen transform; the y axis up and the origin in the center */
+	protected final AffineTransform view;
+
+	/** The visible region of the world; bodies outside are not drawn */
+	protected final Viewport viewport;
+
+	/** Gathers the bodies per color when batching */
+	protected final ColorBatch colorBatch;
+
+	/** True if the bodies are drawn batched by color */
+	protected volatile boolean batchingEnabled;
+
+	/** The rendering quality settings */
+	protected volatile RenderPreset renderPreset;
+
+	/** The regions changed since the last frame */
+	protected final DirtyRegions dirtyRegions;
+
+	/** True if only the changed regions are repainted */
+	protected volatile boolean dirtyRegionsEnabled;
+
+	/** True if the back buffer keeps its contents after being shown */
+	private boolean backBufferRetained;
+
+	/** The background and the static bodies */
+	protected final StaticLayer staticLayer;
+
+	/** True if the static bodies are drawn from the static layer */
+	protected volatile boolean staticLayerEnabled;
+
+	/** The frame recorder, if capturing frames */
+	private volatile FrameRecorder frameRecorder;
+
+	/** Draws the captured frames; render thread only */
+	private OffscreenRenderer offscreen;
+
+	/** The number of the next captured frame; render thread only */
+	private long frameNumber;
+
+	/** The input recorder, if recording */
+	private volatile InputRecorder recorder;
+
+	/** The {@link System#nanoTime()} of the last mouse or key input */
+	private volatile long lastInputTime;
+
+	/**
+	 * Minimal constructor.
+	 * @param name the frame title
+	 * @param scale the pixels per meter scale factor
+	 */
+	public SimulationFrame(String name, double scale) {
+		this(name, scale, new FixedTimestep());
+	}
+
+	/**
+	 * Full constructor.
+	 * @param name the frame title
+	 * @param scale the pixels per meter scale factor
+	 * @param timestep the fixed timestep settings
+	 */
+	public SimulationFrame(String name, double scale, FixedTimestep timestep) {
+		super(name);
+
+		this.scale = scale;
+		this.timestep = timestep;
+		this.fixedTimestepEnabled = true;
+		this.requestedFixedTimestep = new AtomicReference<Boolean>();
+		this.multithreaded = true;
+		this.snapshots = new SnapshotBuffer(16);
+		this.scheduler = new FrameScheduler(DEFAULT_FRAME_RATE, DEFAULT_IDLE_FRAME_RATE);
+		this.simulationScheduler = new FrameScheduler(1.0 / timestep.getStep(), DEFAULT_IDLE_FRAME_RATE);
+		this.timings = new FrameTimings(name);
+		this.input = new StepInput();
+
+		// flip the y axis and move the origin to the center
+		// (instead of it being in the top left corner)
+		this.view = AffineTransform.getScaleInstance(1, -1);
+		this.view.translate(WIDTH / 2, -HEIGHT / 2);
+		this.staticLayer = new StaticLayer(WIDTH, HEIGHT, this.view, Color.WHITE);
+		this.staticLayerEnabled = true;
+		this.viewport = Viewport.centered(WIDTH, HEIGHT, scale);
+		this.dirtyRegions = new DirtyRegions(this.viewport);
+		this.renderPreset = RenderPreset.getDefault();
+		this.colorBatch = new ColorBatch();
+
+		// setup the JFrame
+		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+
+		// add a window listener
+		this.addWindowListener(new WindowAdapter() {
+			/* (non-Javadoc)
+			 * @see java.awt.event.WindowAdapter#windowClosing(java.awt.event.WindowEvent)
+			 */
+			@Override
+			public void windowClosing(WindowEvent e) {
+				// before we stop the JVM stop the example
+				stop();
+				super.windowClosing(e);
+			}
+		});
+
+		// create the size of the window
+		Dimension size = new Dimension(WIDTH, HEIGHT);
+
+		// create a canvas to paint to
+		this.canvas = new Canvas();
+		this.canvas.setPreferredSize(size);
+		this.canvas.setMinimumSize(size);
+		this.canvas.setMaximumSize(size);
+
+		// any input leaves the idle frame rate
+		InputTracker tracker = new InputTracker();
+		this.canvas.addMouseListener(tracker);
+		this.canvas.addMouseMotionListener(tracker);
+		this.canvas.addKeyListener(tracker);
+
+		// add the canvas to the JFrame
+		Container container = this.getContentPane();
+		container.setLayout(new BorderLayout());
+		this.add(this.canvas, BorderLayout.CENTER);
+
+		// make the JFrame not resizable
+		// (this way I dont have to worry about resize events)
+		this.setResizable(false);
+
+		// size everything
+		this.pack();
+
+		// make sure we are not stopped
+		this.stopped = false;
+
+		// setup the world
+		this.initializeWorld();
+	}
+
+	/**
+	 * Records the time of the last mouse or key input.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private final class InputTracker extends MouseAdapter implements KeyListener {
+		@Override
+		public void mousePressed(MouseEvent e) {
+			lastInputTime = System.nanoTime();
+		}
+
+		@Override
+		public void mouseReleased(MouseEvent e) {
+			lastInputTime = System.nanoTime();
+		}
+
+		@Override
+		public void mouseDragged(MouseEvent e) {
+			lastInputTime = System.nanoTime();
+		}
+
+		@Override
+		public void mouseMoved(MouseEvent e) {
+			lastInputTime = System.nanoTime();
+		}
+
+		public void keyPressed(KeyEvent e) {
+			lastInputTime = System.nanoTime();
+		}
+
+		public void keyReleased(KeyEvent e) {
+			lastInputTime = System.nanoTime();
+		}
+
+		public void keyTyped(KeyEvent e) {}
+	}
+
+	/**
+	 * Creates game objects and adds them to the world.
+	 */
+	protected abstract void initializeWorld();
+
+	/**
+	 * Start active rendering the example.
+	 * <p>
+	 * This should be called after the JFrame has been shown.
+	 */
+	public void start() {
+		// initialize the last update time
+		this.last = System.nanoTime();
+		// record the input if asked to
+		String file = System.getProperty(RECORD_PROPERTY);
+		if (file != null) {
+			this.startRecording(file);
+		}
+		// and the frames
+		String directory = System.getProperty(CAPTURE_PROPERTY);
+		if (directory != null) {
+			this.startCapture(directory);
+		}
+		// publish the initial state of the world
+		this.capture();
+		// expose the frame timings
+		this.timings.register();
+		this.timings.startLogging(TIMINGS_LOG_PERIOD, TimeUnit.SECONDS);
+		// don't allow AWT to paint the canvas since we are
+		this.canvas.setIgnoreRepaint(true);
+		// enable double (or triple) buffering (the JFrame has to be
+		// visible before this can be done)
+		this.canvas.createBufferStrategy(this.renderPreset.getBufferCount());
+		// repainting only the changed regions needs the last frame in the back buffer
+		BufferCapabilities capabilities = this.canvas.getBufferStrategy().getCapabilities();
+		this.backBufferRetained = !capabilities.isPageFlipping()
+				|| capabilities.getFlipContents() == BufferCapabilities.FlipContents.COPIED;
+		// run a separate thread to do active rendering
+		// because we don't want to do it on the EDT
+		Thread thread = new Thread("render") {
+			@Override
+			public void run() {
+				// perform an infinite loop stopped
+				// render at the target frame rate
+				while (!isStopped()) {
+					gameLoop();
+					if (!scheduler.sync()) break;
+				}
+			}
+		};
+		// set the game loop thread to a daemon thread so that
+		// it cannot stop the JVM from exiting
+		thread.setDaemon(true);
+
+		if (this.multithreaded) {
+			// step the world on its own thread
+			Thread simulation = new Thread("simulation") {
+				@Override
+				public void run() {
+					while (!isStopped()) {
+						simulationLoop();
+						// an asleep world is stepped in batches at the idle rate
+						simulationScheduler.setIdle(isIdle(snapshots.isAsleep()));
+						if (!simulationScheduler.sync()) break;
+					}
+				}
+			};
+			simulation.setDaemon(true);
+			simulation.start();
+		}
+
+		// start the game loop
+		thread.start();
+	}
+
+	/**
+	 * The method calling the necessary methods to update
+	 * the game, graphics, and poll for input.
+	 * <p>
+	 * When multithreaded this only renders; the world is
+	 * updated by {@link #simulationLoop()}.
+	 */
+	protected void gameLoop() {
+		long t0 = System.nanoTime();
+		// get the graphics object to render to
+		BufferStrategy strategy = this.canvas.getBufferStrategy();
+		Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+		if (!this.backBufferRetained || strategy.contentsRestored()) {
+			// the back buffer does not hold the last frame
+			this.dirtyRegions.invalidate();
+		}
+		RenderPreset preset = this.renderPreset;
+		preset.apply(g);
+
+		// before we render everything im going to flip the y axis and move the
+		// origin to the center (instead of it being in the top left corner)
+		g.transform(this.view);
+
+		// now (0, 0) is in the center of the screen with the positive x axis
+		// pointing right and the positive y axis pointing up
+
+		// render the latest published state of the world
+		RenderSnapshot snapshot = this.snapshots.acquire();
+		double alpha = this.getAlpha(snapshot);
+		this.render(g, snapshot, alpha);
+		this.scheduler.setIdle(this.isIdle(snapshot));
+
+		// copy the frame for the recorder, if any; dropped if it is behind
+		FrameRecorder frameRecorder = this.frameRecorder;
+		if (frameRecorder != null) {
+			if (this.offscreen == null
+					|| this.offscreen.getWidth() != frameRecorder.getWidth()
+					|| this.offscreen.getHeight() != frameRecorder.getHeight()) {
+				this.offscreen = new OffscreenRenderer(frameRecorder.getWidth(), frameRecorder.getHeight(), this.scale);
+			}
+			this.offscreen.setRenderPreset(preset);
+			this.offscreen.capture(snapshot, alpha, frameRecorder, this.frameNumber++);
+		}
+
+		// dispose of the graphics object
+		g.dispose();
+		long t1 = System.nanoTime();
+
+		// blit/flip the buffer
+		if (!strategy.contentsLost()) {
+			strategy.show();
+		} else {
+			this.dirtyRegions.invalidate();
+		}
+		long t2 = System.nanoTime();
+
+		// Sync the display on some systems.
+		// (on Linux, this fixes event queue problems)
+		Toolkit.getDefaultToolkit().sync();
+		long t3 = System.nanoTime();
+
+		this.timings.record(FrameTimings.Phase.RENDER, t1 - t0);
+		this.timings.record(FrameTimings.Phase.SHOW, t2 - t1);
+		this.timings.record(FrameTimings.Phase.SYNC, t3 - t2);
+
+		if (!this.multithreaded) {
+			this.simulationLoop();
+		}
+	}
+
+	/**
+	 * Updates the world with the time elapsed since the last call and
+	 * publishes a snapshot of the bodies if the world was stepped.
+	 */
+	protected void simulationLoop() {
+		// switch the timestep mode between updates, never during one
+		Boolean fixed = this.requestedFixedTimestep.getAndSet(null);
+		if (fixed != null) {
+			this.fixedTimestepEnabled = fixed;
+			this.timestep.reset();
+		}
+		// get the current time
+		long time = System.nanoTime();
+		// get the elapsed time from the last iteration
+		long diff = time - this.last;
+		// set the last time
+		this.last = time;
+		// convert from nanoseconds to seconds
+		double elapsedTime = (double)diff / NANO_TO_BASE;
+		// update the world with the elapsed time
+		long steps = this.stepCount;
+		this.update(elapsedTime);
+		if (this.stepCount != steps) {
+			this.timings.record(FrameTimings.Phase.UPDATE, System.nanoTime() - time);
+			this.capture();
+		}
+	}
+
+	/**
+	 * Publishes a snapshot of the bodies for the render thread.
+	 */
+	protected void capture() {
+		double alpha = this.fixedTimestepEnabled && this.stepCount > 0 ? this.timestep.getAlpha() : 1.0;
+		this.snapshots.capture(this.world, this.stepCount, alpha, this);
+	}
+
+	/**
+	 * Advances the world by the given elapsed time.
+	 * <p>
+	 * In fixed timestep mode the world is stepped zero or more times with
+	 * the fixed step size, polling the input and calling {@link #handleEvents()}
+	 * before each step. Otherwise this is done once and the elapsed time
+	 * is passed to {@link World#update(double)}.
+	 * <p>
+	 * Only the input of fixed steps is recorded.
+	 * @param elapsedTime the elapsed time in seconds
+	 */
+	protected void update(double elapsedTime) {
+		if (this.fixedTimestepEnabled) {
+			int steps = this.timestep.advance(elapsedTime);
+			for (int i = 0; i < steps; i++) {
+				this.input.clear();
+				this.pollInput(this.input);
+				this.record();
+				this.handleEvents();
+				this.world.step(1, this.timestep.getStep());
+				this.stepCount++;
+			}
+		} else {
+			this.input.clear();
+			this.pollInput(this.input);
+			this.handleEvents();
+			if (this.world.update(elapsedTime)) {
+				this.stepCount++;
+			}
+		}
+	}
+
+	/**
+	 * Reads the pending mouse and key input into the given input.
+	 * <p>
+	 * Called on the simulation thread before each step of the world; the
+	 * input is cleared beforehand.
+	 * @param input the input of the next step
+	 */
+	protected void pollInput(StepInput input) {}
+
+	/**
+	 * Applies the input of the step, {@link #input}, to the world.
+	 * <p>
+	 * Called before each step of the world. To replay exactly, everything
+	 * done to the world here must depend only on the world and the input.
+	 */
+	protected void handleEvents() {}
+
+	/**
+	 * Returns the scene of this example or null if it has none.
+	 * <p>
+	 * Only the input of an example with a scene can be recorded.
+	 * @return {@link ExampleScene}
+	 */
+	protected ExampleScene getScene() {
+		return null;
+	}
+
+	/**
+	 * Starts recording the input of every fixed step to the given file.
+	 * <p>
+	 * Must be called before {@link #start()}; failures are logged.
+	 * @param file the file name
+	 */
+	public void startRecording(String file) {
+		ExampleScene scene = this.getScene();
+		if (scene == null) {
+			log.warn("{} has no scene; its input cannot be recorded", this.getTitle());
+			return;
+		}
+		try {
+			this.recorder = new InputRecorder(new FileOutputStream(file), scene, this.timestep.getStep());
+			log.info("Recording the input of {} to {}", scene, file);
+		} catch (IOException e) {
+			log.warn("Unable to record the input to " + file, e);
+		}
+	}
+
+	/**
+	 * Stops recording the input and closes the log.
+	 */
+	public void stopRecording() {
+		InputRecorder recorder = this.recorder;
+		this.recorder = null;
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException e) {
+				log.warn("Unable to close the input log", e);
+			}
+		}
+	}
+
+	/**
+	 * Records the input of the current step, if recording.
+	 */
+	private void record() {
+		InputRecorder recorder = this.recorder;
+		if (recorder != null) {
+			try {
+				recorder.record(this.stepCount, this.input);
+			} catch (IOException e) {
+				log.warn("Unable to record the input; recording is stopped", e);
+				this.stopRecording();
+			}
+		}
+	}
+
+	/**
+	 * Returns the factor used to interpolate the bodies of the given
+	 * snapshot between their last two steps.
+	 * @param snapshot the snapshot to render
+	 * @return double in the range [0, 1]
+	 */
+	protected double getAlpha(RenderSnapshot snapshot) {
+		// the start of step transforms are not valid until the first step
+		if (this.fixedTimestepEnabled && snapshot.getStep() > 0) {
+			return snapshot.getAlpha(System.nanoTime(), this.timestep.getStep());
+		}
+		return 1.0;
+	}
+
+	/**
+	 * Returns true if the render loop may drop to the idle frame rate.
+	 * <p>
+	 * This is the case when no body of the given snapshot is moving and
+	 * there was no input for a second.
+	 * @param snapshot the snapshot just rendered
+	 * @return boolean
+	 */
+	protected boolean isIdle(RenderSnapshot snapshot) {
+		return this.isIdle(snapshot.isAsleep());
+	}
+
+	/**
+	 * Returns true if the loops may slow down to the idle rate given whether
+	 * the world is asleep.
+	 * @param asleep true if every body of the world is asleep or static
+	 * @return boolean
+	 */
+	private boolean isIdle(boolean asleep) {
+		return asleep && System.nanoTime() - this.lastInputTime > IDLE_INPUT_NANOS;
+	}
+
+	/**
+	 * Returns the color to draw the given body with.
+	 * <p>
+	 * Called on the simulation thread when a snapshot is taken.
+	 * @param body the body
+	 * @return Color
+	 */
+	@Override
+	public Color getColor(SimulationBody body) {
+		return body.getColor();
+	}
+
+	/**
+	 * Renders the example.
+	 * <p>
+	 * Called on the render thread; the world must not be accessed.
+	 * @param g the graphics object to render to
+	 * @param snapshot the latest state of the bodies
+	 * @param alpha the interpolation factor between the last two steps
+	 */
+	protected void render(Graphics2D g, RenderSnapshot snapshot, double alpha) {
+		if (this.dirtyRegionsEnabled && this.dirtyRegions.update(snapshot, alpha, this.scale)) {
+			// repaint only what changed since the last frame
+			Shape clip = g.getClip();
+			int n = this.dirtyRegions.getRegionCount();
+			for (int i = 0; i < n; i++) {
+				Viewport region = this.dirtyRegions.getRegion(i);
+				int x0 = (int)Math.floor(region.getMinX() * this.scale);
+				int y0 = (int)Math.floor(region.getMinY() * this.scale);
+				int x1 = (int)Math.ceil(region.getMaxX() * this.scale);
+				int y1 = (int)Math.ceil(region.getMaxY() * this.scale);
+				g.setClip(x0, y0, x1 - x0, y1 - y0);
+				this.renderBodies(g, snapshot, alpha, region);
+			}
+			g.setClip(clip);
+		} else {
+			this.renderBodies(g, snapshot, alpha, this.viewport);
+		}
+	}
+
+	/**
+	 * Draws the background and the bodies in the given region.
+	 * @param g the graphics object to render to
+	 * @param snapshot the latest state of the bodies
+	 * @param alpha the interpolation factor between the last two steps
+	 * @param region the region to draw the bodies of
+	 */
+	private void renderBodies(Graphics2D g, RenderSnapshot snapshot, double alpha, Viewport region) {
+		ColorBatch batch = this.batchingEnabled ? this.colorBatch : null;
+		if (this.staticLayerEnabled) {
+			// draw the background and the static bodies in one blit
+			this.staticLayer.render(g, snapshot, this.scale);
+
+			// draw the moving objects on top
+			snapshot.renderDynamic(g, this.scale, alpha, region, batch);
+		} else {
+			// lets draw over everything with a white background
+			g.setColor(Color.WHITE);
+			g.fillRect(-WIDTH / 2, -HEIGHT / 2, WIDTH, HEIGHT);
+
+			// draw all the objects in the world
+			snapshot.render(g, this.scale, alpha, region, batch);
+		}
+	}
+
+	/**
+	 * Stops the example.
+	 */
+	public void stop() {
+		this.stopped = true;
+		this.stopRecording();
+		this.stopCapture();
+		this.timings.stopLogging();
+		this.timings.unregister();
+	}
+
+	/**
+	 * Returns true if the example is stopped.
+	 * @return boolean true if stopped
+	 */
+	public boolean isStopped() {
+		return this.stopped;
+	}
+
+	/**
+	 * Returns true if the world is advanced in fixed steps, or will be from
+	 * its next update.
+	 * @return boolean
+	 */
+	public boolean isFixedTimestepEnabled() {
+		Boolean requested = this.requestedFixedTimestep.get();
+		return requested != null ? requested : this.fixedTimestepEnabled;
+	}
+
+	/**
+	 * Returns true if the world is stepped on its own thread.
+	 * @return boolean
+	 */
+	public boolean isMultithreaded() {
+		return this.multithreaded;
+	}
+
+	/**
+	 * Sets whether the world is stepped on its own thread or on the render
+	 * thread between frames.
+	 * <p>
+	 * Must be called before {@link #start()}.
+	 * @param flag true to step the world on its own thread
+	 */
+	public void setMultithreaded(boolean flag) {
+		this.multithreaded = flag;
+	}
+
+	/**
+	 * Returns the duration histograms of the phases of a frame.
+	 * @return {@link FrameTimings}
+	 */
+	public FrameTimings getTimings() {
+		return this.timings;
+	}
+
+	/**
+	 * Returns the visible region of the world with the counts of the bodies
+	 * drawn and culled.
+	 * @return {@link Viewport}
+	 */
+	public Viewport getViewport() {
+		return this.viewport;
+	}
+
+	/**
+	 * Starts capturing every rendered frame to the given recorder.
+	 * <p>
+	 * The frames are drawn offscreen by the render thread from the same
+	 * snapshot as the canvas, without anything a subclass draws on top.
+	 * Frames the recorder has no room for are dropped. Frames of another size
+	 * than the canvas show the same scale around the same center.
+	 * @param recorder the recorder
+	 */
+	public void startCapture(FrameRecorder recorder) {
+		this.frameRecorder = recorder;
+	}
+
+	/**
+	 * Starts capturing every rendered frame, the size of the canvas, to PNG
+	 * files in the given directory.
+	 * @param directory the directory; created if it does not exist
+	 * @see #startCapture(FrameRecorder)
+	 */
+	public void startCapture(String directory) {
+		ExampleScene scene = this.getScene();
+		String prefix = scene != null ? scene.name().toLowerCase(Locale.ROOT) + "-" : "frame-";
+		try {
+			FrameRecorder.PngSequence png = new FrameRecorder.PngSequence(new File(directory), prefix);
+			this.startCapture(new FrameRecorder(WIDTH, HEIGHT, png));
+			log.info("Capturing the frames of {} to {}", this.getTitle(), directory);
+		} catch (IOException e) {
+			log.warn("Unable to capture the frames to " + directory, e);
+		}
+	}
+
+	/**
+	 * Stops capturing frames and closes the recorder, if capturing.
+	 */
+	public void stopCapture() {
+		FrameRecorder recorder = this.frameRecorder;
+		this.frameRecorder = null;
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Returns the rendering quality settings.
+	 * @return {@link RenderPreset}
+	 */
+	public RenderPreset getRenderPreset() {
+		return this.renderPreset;
+	}
+
+	/**
+	 * Sets the rendering quality settings.
+	 * <p>
+	 * The hints apply from the next frame. The number of buffers only applies
+	 * when set before {@link #start()} and the pipeline only when chosen with
+	 * {@link RenderPreset#selectPipeline()} before the window is created.
+	 * @param preset the preset
+	 */
+	public void setRenderPreset(RenderPreset preset) {
+		this.dirtyRegions.invalidate();
+		this.renderPreset = preset;
+	}
+
+	/**
+	 * Returns true if only the regions changed since the last frame are repainted.
+	 * @return boolean
+	 */
+	public boolean isDirtyRegionsEnabled() {
+		return this.dirtyRegionsEnabled;
+	}
+
+	/**
+	 * Sets whether only the regions changed since the last frame are
+	 * repainted, see {@link DirtyRegions}.
+	 * <p>
+	 * Subclasses drawing on top of the bodies must report what they draw with
+	 * {@link DirtyRegions#addOverlay(double, double, double)}. The whole frame
+	 * is repainted when the back buffer does not keep its contents.
+	 * @param flag true to repaint only the changed regions
+	 */
+	public void setDirtyRegionsEnabled(boolean flag) {
+		this.dirtyRegions.invalidate();
+		this.dirtyRegionsEnabled = flag;
+	}
+
+	/**
+	 * Returns true if the bodies are drawn batched by color.
+	 * @return boolean
+	 */
+	public boolean isBatchingEnabled() {
+		return this.batchingEnabled;
+	}
+
+	/**
+	 * Sets whether the bodies are drawn with one fill and one outline per
+	 * color, see {@link ColorBatch}.
+	 * <p>
+	 * This is off by default since it changes which bodies are drawn on top.
+	 * @param flag true to batch the bodies by color
+	 */
+	public void setBatchingEnabled(boolean flag) {
+		this.batchingEnabled = flag;
+	}
+
+	/**
+	 * Returns true if the background and the static bodies are drawn from
+	 * the {@link StaticLayer}.
+	 * @return boolean
+	 */
+	public boolean isStaticLayerEnabled() {
+		return this.staticLayerEnabled;
+	}
+
+	/**
+	 * Sets whether the background and the static bodies are drawn from the
+	 * {@link StaticLayer} or every body is drawn every frame.
+	 * <p>
+	 * With the layer the static bodies are always drawn below the others.
+	 * @param flag true to use the static layer
+	 */
+	public void setStaticLayerEnabled(boolean flag) {
+		this.staticLayerEnabled = flag;
+	}
+
+	/**
+	 * Sets the target frame rates of the render loop.
+	 * <p>
+	 * Must be called before {@link #start()}.
+	 * @param frameRate the target frames per second; zero or less to render as fast as possible
+	 * @param idleFrameRate the frames per second while the world is asleep; zero or less to render as fast as possible
+	 */
+	public void setFrameRate(double frameRate, double idleFrameRate) {
+		this.scheduler = new FrameScheduler(frameRate, idleFrameRate);
+	}
+
+	/**
+	 * Toggles between fixed steps with interpolated rendering and
+	 * passing the raw elapsed time to {@link World#update(double)}.
+	 * <p>
+	 * May be called from any thread; the thread stepping the world switches
+	 * before its next update.
+	 * @param flag true to enable fixed steps
+	 */
+	public void setFixedTimestepEnabled(boolean flag) {
+		this.requestedFixedTimestep.set(flag);
+	}
+
+	/**
+	 * Returns the fixed timestep accumulator.
+	 * @return {@link FixedTimestep}
+	 */
+	public FixedTimestep getTimestep() {
+		return this.timestep;
+	}
+}
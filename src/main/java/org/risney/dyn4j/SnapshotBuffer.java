@@ -0,0 +1,127 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+
+/**
+ * Lock free hand over of {@link RenderSnapshot}s from the simulation thread to
+ * the render thread.
+ * <p>
+ * Three snapshots are rotated: the back snapshot owned by the writer, the front
+ * snapshot owned by the reader and the latest published snapshot in between.
+ * Publishing and acquiring are a single atomic swap each, so neither thread
+ * ever waits for the other and a snapshot is never written while it is read.
+ * <p>
+ * The writer also keeps the static bodies of the last capture to stamp each
+ * snapshot with a static version that only changes when they change.
+ * <p>
+ * Only one thread may call {@link #capture(World, long, double, ColorProvider)}
+ * and only one thread may call {@link #acquire()}.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class SnapshotBuffer {
+	/**
+	 * Chooses the color a body is drawn with.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	public interface ColorProvider {
+		/**
+		 * Returns the color to draw the given body with.
+		 * @param body the body
+		 * @return Color
+		 */
+		public Color getColor(SimulationBody body);
+	}
+
+	/** The snapshot being written by the simulation thread */
+	private RenderSnapshot back;
+
+	/** The latest published snapshot */
+	private final AtomicReference<RenderSnapshot> latest;
+
+	/** The snapshot being read by the render thread */
+	private RenderSnapshot front;
+
+	/** The static bodies of the last capture; owned by the writer */
+	private final RenderSnapshot statics;
+
+	/** The current version of the static bodies */
+	private long staticVersion;
+
+	/** True if every body was asleep or static at the last capture; owned by the writer */
+	private boolean asleep;
+
+	/**
+	 * Full constructor.
+	 * @param capacity the initial number of bodies per snapshot
+	 */
+	public SnapshotBuffer(int capacity) {
+		this.back = new RenderSnapshot(capacity);
+		this.latest = new AtomicReference<RenderSnapshot>(new RenderSnapshot(capacity));
+		this.front = new RenderSnapshot(capacity);
+		this.statics = new RenderSnapshot(capacity);
+	}
+
+	/**
+	 * Captures the bodies of the given world and publishes the snapshot.
+	 * <p>
+	 * Must be called by the simulation thread.
+	 * @param world the world
+	 * @param step the number of the last step
+	 * @param alpha the interpolation factor at this time
+	 * @param colors the body color provider
+	 */
+	public void capture(World world, long step, double alpha, ColorProvider colors) {
+		RenderSnapshot snapshot = this.back;
+		snapshot.clear(step, System.nanoTime(), alpha);
+		int n = world.getBodyCount();
+		for (int i = 0; i < n; i++) {
+			Body body = world.getBody(i);
+			if (body instanceof SimulationBody) {
+				SimulationBody sb = (SimulationBody)body;
+				snapshot.add(sb, colors.getColor(sb));
+			}
+		}
+		if (!snapshot.equalStatics(this.statics)) {
+			snapshot.copyStatics(this.statics);
+			this.staticVersion++;
+		}
+		snapshot.setStaticVersion(this.staticVersion);
+		this.asleep = snapshot.isAsleep();
+		// publish and take the previous latest as the new back snapshot
+		this.back = this.latest.getAndSet(snapshot);
+	}
+
+	/**
+	 * Returns true if every body was either asleep or static at the last
+	 * capture.
+	 * <p>
+	 * Must be called by the simulation thread.
+	 * @return boolean
+	 */
+	public boolean isAsleep() {
+		return this.asleep;
+	}
+
+	/**
+	 * Returns the most recently published snapshot.
+	 * <p>
+	 * Must be called by the render thread. The returned snapshot remains valid
+	 * until the next call.
+	 * @return {@link RenderSnapshot}
+	 */
+	public RenderSnapshot acquire() {
+		if (this.latest.get().getStep() > this.front.getStep()) {
+			// hand back the old front snapshot
+			this.front = this.latest.getAndSet(this.front);
+		}
+		return this.front;
+	}
+}
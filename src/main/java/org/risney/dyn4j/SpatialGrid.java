@@ -0,0 +1,649 @@
+package org.risney.dyn4j;
+
+import java.util.Arrays;
+
+import org.dyn4j.collision.narrowphase.NarrowphaseDetector;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.AABB;
+import org.dyn4j.geometry.Circle;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+import org.dyn4j.geometry.Wound;
+
+/**
+ * A uniform grid of the bounds of the bodies of a world, for point, radius
+ * and rectangle queries that skip the general detection path.
+ * <p>
+ * Each body is kept in the cells its AABB covers, in a hash of the cell
+ * coordinates so the grid needs no bounds. {@link #update(World)} is called
+ * after each step and only does work for the bodies that moved: their AABB
+ * is recomputed, and they are moved between cells only if the cells they
+ * cover changed. A resting scene costs a comparison of transforms.
+ * <p>
+ * The queries find the candidates in the cells the query covers, then test
+ * them exactly: points and circles against the shapes of the fixtures of
+ * the body, rectangles against the AABB of the body. Inactive bodies and
+ * sensor fixtures are skipped, like the pickers of the examples skip them.
+ * Circles, polygons and segments are tested in closed form; the other
+ * shapes with {@link Convex#contains(Vector2)} for points and with the
+ * world's {@link NarrowphaseDetector} for circles, like {@link QueryContext}
+ * does, which may allocate.
+ * <p>
+ * The results are the indices of the bodies in the world at the last update,
+ * in no particular order, and are reused by the next query. Once the grid
+ * has seen the largest cells and results, updates and queries allocate
+ * nothing for circles, polygons and segments.
+ * <p>
+ * Must only be used by the thread stepping the world.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class SpatialGrid {
+	/** The default cell size in world units */
+	public static final double DEFAULT_CELL_SIZE = 2.0;
+
+	/** The key of a free cell in the hash */
+	private static final long FREE = Long.MIN_VALUE;
+
+	/** The size of a cell */
+	private final double cellSize;
+
+	/** The inverse of the size of a cell */
+	private final double inverseCellSize;
+
+	/** The bodies by their index in the world */
+	private Body[] bodies;
+
+	/** The transforms of the bodies at the last update (x, y, cos, sin) */
+	private double[] transforms;
+
+	/** The AABBs of the bodies (min x, min y, max x, max y) */
+	private double[] bounds;
+
+	/** The cells covered by the bodies (min x, min y, max x, max y) */
+	private int[] ranges;
+
+	/** True for the bodies in the cells of their range */
+	private boolean[] placed;
+
+	/** The query each body was last seen by */
+	private int[] stamps;
+
+	/** The number of bodies */
+	private int size;
+
+	/** The cell keys of the hash */
+	private long[] keys;
+
+	/** The indices of the bodies in each cell of the hash */
+	private int[][] cells;
+
+	/** The number of bodies in each cell of the hash */
+	private int[] counts;
+
+	/** The number of keys used in the hash */
+	private int used;
+
+	/** The results of the last query */
+	private int[] results;
+
+	/** The number of results of the last query */
+	private int resultCount;
+
+	/** The number of the current query */
+	private int stamp;
+
+	/** True if every body is placed again at the next update */
+	private boolean invalid;
+
+	/** The number of bodies moved between cells */
+	private long moveCount;
+
+	/** The point being tested in the local space of a body */
+	private final Vector2 local;
+
+	/** The x axis, rotated by a body transform to read its cosine and sine */
+	private final Vector2 axis;
+
+	/** The rotated x axis of the body being updated */
+	private final Vector2 rotation;
+
+	/** The narrowphase of the world at the last update */
+	private NarrowphaseDetector narrowphase;
+
+	/** The circle of the last radius query handed to the narrowphase */
+	private Circle probe;
+
+	/** The transform of the circle handed to the narrowphase */
+	private final Transform transform;
+
+	/**
+	 * Default constructor.
+	 */
+	public SpatialGrid() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * Full constructor.
+	 * <p>
+	 * A cell a little larger than the typical body keeps most bodies in one
+	 * to four cells.
+	 * @param cellSize the size of a cell in world units
+	 * @throws IllegalArgumentException if cellSize is not positive
+	 */
+	public SpatialGrid(double cellSize) {
+		if (!(cellSize > 0.0)) throw new IllegalArgumentException("The cell size must be positive.");
+		this.cellSize = cellSize;
+		this.inverseCellSize = 1.0 / cellSize;
+		this.bodies = new Body[16];
+		this.transforms = new double[16 * 4];
+		this.bounds = new double[16 * 4];
+		this.ranges = new int[16 * 4];
+		this.placed = new boolean[16];
+		this.stamps = new int[16];
+		this.keys = new long[64];
+		Arrays.fill(this.keys, FREE);
+		this.cells = new int[64][];
+		this.counts = new int[64];
+		this.results = new int[16];
+		this.local = new Vector2();
+		this.axis = new Vector2(1.0, 0.0);
+		this.rotation = new Vector2();
+		this.transform = new Transform();
+	}
+
+	/**
+	 * Brings the grid up to date with the given world.
+	 * <p>
+	 * Bodies are tracked by their index; a different body at an index is
+	 * treated as a removal and an addition.
+	 * @param world the world
+	 */
+	public void update(World world) {
+		this.narrowphase = world.getNarrowphaseDetector();
+		int n = world.getBodyCount();
+		if (n > this.bodies.length) this.grow(n * 2);
+		for (int i = 0; i < n; i++) {
+			Body body = world.getBody(i);
+			Transform tx = body.getTransform();
+			int o = i * 4;
+			boolean same = body == this.bodies[i];
+			// the cosine and sine rather than the angle, which costs an atan2
+			Vector2 r = this.rotation;
+			tx.getTransformedR(this.axis, r);
+			if (same && !this.invalid
+			 && tx.getTranslationX() == this.transforms[o]
+			 && tx.getTranslationY() == this.transforms[o + 1]
+			 && r.x == this.transforms[o + 2]
+			 && r.y == this.transforms[o + 3]) {
+				continue;
+			}
+			this.bodies[i] = body;
+			this.transforms[o] = tx.getTranslationX();
+			this.transforms[o + 1] = tx.getTranslationY();
+			this.transforms[o + 2] = r.x;
+			this.transforms[o + 3] = r.y;
+			this.place(i, same);
+		}
+		for (int i = n; i < this.size; i++) {
+			if (this.placed[i]) this.removeFromCells(i);
+			this.bodies[i] = null;
+		}
+		this.size = n;
+		this.invalid = false;
+	}
+
+	/**
+	 * Places every body again at the next update, for example after
+	 * fixtures were added to or removed from bodies.
+	 */
+	public void invalidate() {
+		this.invalid = true;
+	}
+
+	/**
+	 * Grows the per body arrays to the given capacity.
+	 * @param capacity the new capacity
+	 */
+	private void grow(int capacity) {
+		this.bodies = Arrays.copyOf(this.bodies, capacity);
+		this.transforms = Arrays.copyOf(this.transforms, capacity * 4);
+		this.bounds = Arrays.copyOf(this.bounds, capacity * 4);
+		this.ranges = Arrays.copyOf(this.ranges, capacity * 4);
+		this.placed = Arrays.copyOf(this.placed, capacity);
+		this.stamps = Arrays.copyOf(this.stamps, capacity);
+	}
+
+	/**
+	 * Computes the bounds of the body at the given index and moves it to
+	 * the cells they cover.
+	 * @param index the index of the body
+	 * @param same true if the body was already at this index
+	 */
+	private void place(int index, boolean same) {
+		int o = index * 4;
+		this.computeBounds(this.bodies[index], o);
+		int minX = this.cell(this.bounds[o]);
+		int minY = this.cell(this.bounds[o + 1]);
+		int maxX = this.cell(this.bounds[o + 2]);
+		int maxY = this.cell(this.bounds[o + 3]);
+		int[] r = this.ranges;
+		if (same && this.placed[index]
+		 && r[o] == minX && r[o + 1] == minY && r[o + 2] == maxX && r[o + 3] == maxY) {
+			return;
+		}
+		if (this.placed[index]) this.removeFromCells(index);
+		r[o] = minX;
+		r[o + 1] = minY;
+		r[o + 2] = maxX;
+		r[o + 3] = maxY;
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				this.add(x, y, index);
+			}
+		}
+		this.placed[index] = true;
+		this.moveCount++;
+	}
+
+	/**
+	 * Removes the body at the given index from the cells of its range.
+	 * @param index the index of the body
+	 */
+	private void removeFromCells(int index) {
+		int o = index * 4;
+		int[] r = this.ranges;
+		for (int x = r[o]; x <= r[o + 2]; x++) {
+			for (int y = r[o + 1]; y <= r[o + 3]; y++) {
+				this.remove(x, y, index);
+			}
+		}
+		this.placed[index] = false;
+	}
+
+	/**
+	 * Computes the AABB of the given body into {@link #bounds}.
+	 * @param body the body
+	 * @param o the offset in the bounds
+	 */
+	private void computeBounds(Body body, int o) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		Transform tx = body.getTransform();
+		Vector2 p = this.local;
+		int n = body.getFixtureCount();
+		for (int i = 0; i < n; i++) {
+			Convex shape = body.getFixture(i).getShape();
+			if (shape instanceof Circle) {
+				double radius = ((Circle) shape).getRadius();
+				tx.getTransformed(shape.getCenter(), p);
+				minX = Math.min(minX, p.x - radius);
+				minY = Math.min(minY, p.y - radius);
+				maxX = Math.max(maxX, p.x + radius);
+				maxY = Math.max(maxY, p.y + radius);
+			} else if (shape instanceof Wound) {
+				for (Vector2 v : ((Wound) shape).getVertices()) {
+					tx.getTransformed(v, p);
+					minX = Math.min(minX, p.x);
+					minY = Math.min(minY, p.y);
+					maxX = Math.max(maxX, p.x);
+					maxY = Math.max(maxY, p.y);
+				}
+			} else {
+				AABB aabb = shape.createAABB(tx);
+				minX = Math.min(minX, aabb.getMinX());
+				minY = Math.min(minY, aabb.getMinY());
+				maxX = Math.max(maxX, aabb.getMaxX());
+				maxY = Math.max(maxY, aabb.getMaxY());
+			}
+		}
+		// a body without fixtures is a point
+		if (n == 0) {
+			minX = maxX = tx.getTranslationX();
+			minY = maxY = tx.getTranslationY();
+		}
+		this.bounds[o] = minX;
+		this.bounds[o + 1] = minY;
+		this.bounds[o + 2] = maxX;
+		this.bounds[o + 3] = maxY;
+	}
+
+	/**
+	 * Returns the cell coordinate of the given world coordinate.
+	 * @param value the world coordinate
+	 * @return int
+	 */
+	private int cell(double value) {
+		return (int)Math.floor(value * this.inverseCellSize);
+	}
+
+	/**
+	 * Returns the key of the given cell.
+	 * @param x the cell x coordinate
+	 * @param y the cell y coordinate
+	 * @return long
+	 */
+	private static long key(int x, int y) {
+		return ((long)x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the slot of the given key in the hash, or the free slot it
+	 * would take.
+	 * @param keys the keys of the hash
+	 * @param key the key
+	 * @return int
+	 */
+	private static int slot(long[] keys, long key) {
+		int mask = keys.length - 1;
+		long h = key * 0x9E3779B97F4A7C15L;
+		int i = (int)(h ^ (h >>> 32)) & mask;
+		while (keys[i] != FREE && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Adds a body to a cell.
+	 * @param x the cell x coordinate
+	 * @param y the cell y coordinate
+	 * @param index the index of the body
+	 */
+	private void add(int x, int y, int index) {
+		long key = key(x, y);
+		int i = slot(this.keys, key);
+		if (this.keys[i] == FREE) {
+			if ((this.used + 1) * 2 > this.keys.length) {
+				this.rehash();
+				i = slot(this.keys, key);
+			}
+			this.keys[i] = key;
+			this.used++;
+		}
+		int[] cell = this.cells[i];
+		int count = this.counts[i];
+		if (cell == null) {
+			cell = new int[4];
+			this.cells[i] = cell;
+		} else if (count == cell.length) {
+			cell = Arrays.copyOf(cell, count * 2);
+			this.cells[i] = cell;
+		}
+		cell[count] = index;
+		this.counts[i] = count + 1;
+	}
+
+	/**
+	 * Removes a body from a cell; the cell is kept, empty, until the next
+	 * rehash.
+	 * @param x the cell x coordinate
+	 * @param y the cell y coordinate
+	 * @param index the index of the body
+	 */
+	private void remove(int x, int y, int index) {
+		int i = slot(this.keys, key(x, y));
+		if (this.keys[i] == FREE) return;
+		int[] cell = this.cells[i];
+		int count = this.counts[i];
+		for (int j = 0; j < count; j++) {
+			if (cell[j] == index) {
+				cell[j] = cell[count - 1];
+				this.counts[i] = count - 1;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the hash without the empty cells, doubling it if more than a
+	 * quarter of it is still in use.
+	 */
+	private void rehash() {
+		long[] keys = this.keys;
+		int[][] cells = this.cells;
+		int[] counts = this.counts;
+		int used = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE && counts[i] > 0) used++;
+		}
+		int capacity = keys.length;
+		while (used * 4 > capacity) capacity *= 2;
+		this.keys = new long[capacity];
+		Arrays.fill(this.keys, FREE);
+		this.cells = new int[capacity][];
+		this.counts = new int[capacity];
+		this.used = used;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == FREE || counts[i] == 0) continue;
+			int j = slot(this.keys, keys[i]);
+			this.keys[j] = keys[i];
+			this.cells[j] = cells[i];
+			this.counts[j] = counts[i];
+		}
+	}
+
+	/**
+	 * Finds the bodies containing the given point.
+	 * @param x the x coordinate in world space
+	 * @param y the y coordinate in world space
+	 * @return int the number of results
+	 */
+	public int queryPoint(double x, double y) {
+		return this.queryRadius(x, y, 0.0);
+	}
+
+	/**
+	 * Finds the bodies overlapping the circle of the given center and radius.
+	 * @param x the x coordinate of the center in world space
+	 * @param y the y coordinate of the center in world space
+	 * @param radius the radius; zero for a point
+	 * @return int the number of results
+	 */
+	public int queryRadius(double x, double y, double radius) {
+		this.begin();
+		int minX = this.cell(x - radius);
+		int minY = this.cell(y - radius);
+		int maxX = this.cell(x + radius);
+		int maxY = this.cell(y + radius);
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				int i = slot(this.keys, key(cx, cy));
+				if (this.keys[i] == FREE) continue;
+				int[] cell = this.cells[i];
+				int count = this.counts[i];
+				for (int j = 0; j < count; j++) {
+					int index = cell[j];
+					if (this.stamps[index] == this.stamp) continue;
+					this.stamps[index] = this.stamp;
+					int o = index * 4;
+					if (this.bounds[o] > x + radius || this.bounds[o + 2] < x - radius
+					 || this.bounds[o + 1] > y + radius || this.bounds[o + 3] < y - radius) {
+						continue;
+					}
+					if (this.overlaps(this.bodies[index], x, y, radius)) this.addResult(index);
+				}
+			}
+		}
+		return this.resultCount;
+	}
+
+	/**
+	 * Finds the active bodies whose AABB overlaps the given rectangle.
+	 * @param minX the minimum x coordinate in world space
+	 * @param minY the minimum y coordinate in world space
+	 * @param maxX the maximum x coordinate in world space
+	 * @param maxY the maximum y coordinate in world space
+	 * @return int the number of results
+	 */
+	public int queryRectangle(double minX, double minY, double maxX, double maxY) {
+		return this.queryBounds(minX, minY, maxX, maxY, false);
+	}
+
+	/**
+	 * Finds the bodies whose AABB overlaps the given rectangle.
+	 * @param minX the minimum x coordinate in world space
+	 * @param minY the minimum y coordinate in world space
+	 * @param maxX the maximum x coordinate in world space
+	 * @param maxY the maximum y coordinate in world space
+	 * @param inactive true to include inactive bodies
+	 * @return int the number of results
+	 */
+	int queryBounds(double minX, double minY, double maxX, double maxY, boolean inactive) {
+		this.begin();
+		int cminX = this.cell(minX);
+		int cminY = this.cell(minY);
+		int cmaxX = this.cell(maxX);
+		int cmaxY = this.cell(maxY);
+		for (int cx = cminX; cx <= cmaxX; cx++) {
+			for (int cy = cminY; cy <= cmaxY; cy++) {
+				int i = slot(this.keys, key(cx, cy));
+				if (this.keys[i] == FREE) continue;
+				int[] cell = this.cells[i];
+				int count = this.counts[i];
+				for (int j = 0; j < count; j++) {
+					int index = cell[j];
+					if (this.stamps[index] == this.stamp) continue;
+					this.stamps[index] = this.stamp;
+					int o = index * 4;
+					if (this.bounds[o] > maxX || this.bounds[o + 2] < minX
+					 || this.bounds[o + 1] > maxY || this.bounds[o + 3] < minY) {
+						continue;
+					}
+					if (inactive || this.bodies[index].isActive()) this.addResult(index);
+				}
+			}
+		}
+		return this.resultCount;
+	}
+
+	/**
+	 * Starts a query.
+	 */
+	private void begin() {
+		this.resultCount = 0;
+		this.stamp++;
+		if (this.stamp == 0) {
+			Arrays.fill(this.stamps, 0);
+			this.stamp = 1;
+		}
+	}
+
+	/**
+	 * Adds a result.
+	 * @param index the index of the body
+	 */
+	private void addResult(int index) {
+		if (this.resultCount == this.results.length) {
+			this.results = Arrays.copyOf(this.results, this.resultCount * 2);
+		}
+		this.results[this.resultCount++] = index;
+	}
+
+	/**
+	 * Returns true if a circle overlaps a fixture of the given body.
+	 * @param body the body
+	 * @param x the x coordinate of the center in world space
+	 * @param y the y coordinate of the center in world space
+	 * @param radius the radius
+	 * @return boolean
+	 */
+	private boolean overlaps(Body body, double x, double y, double radius) {
+		if (!body.isActive()) return false;
+		Vector2 p = this.local;
+		p.set(x, y);
+		body.getTransform().inverseTransform(p);
+		int n = body.getFixtureCount();
+		for (int i = 0; i < n; i++) {
+			BodyFixture fixture = body.getFixture(i);
+			if (fixture.isSensor()) continue;
+			Convex shape = fixture.getShape();
+			if (QueryContext.isClosedForm(shape)) {
+				if (QueryContext.overlaps(shape, p.x, p.y, radius)) return true;
+			} else if (radius == 0.0) {
+				if (shape.contains(p)) return true;
+			} else if (this.narrowphase(shape, body.getTransform(), x, y, radius)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if a circle overlaps the given shape, using the world's
+	 * narrowphase for the shapes without a closed form here.
+	 * @param shape the shape
+	 * @param tx the transform of its body
+	 * @param x the x coordinate of the center in world space
+	 * @param y the y coordinate of the center in world space
+	 * @param radius the radius
+	 * @return boolean
+	 */
+	private boolean narrowphase(Convex shape, Transform tx, double x, double y, double radius) {
+		// a new circle only when the radius changes
+		if (this.probe == null || this.probe.getRadius() != radius) {
+			this.probe = Geometry.createCircle(radius);
+		}
+		this.transform.identity();
+		this.transform.translate(x, y);
+		return this.narrowphase.detect(this.probe, this.transform, shape, tx);
+	}
+
+	/**
+	 * Returns the number of results of the last query.
+	 * @return int
+	 */
+	public int getResultCount() {
+		return this.resultCount;
+	}
+
+	/**
+	 * Returns the index in the world of a result of the last query.
+	 * @param i the index of the result
+	 * @return int
+	 */
+	public int getResult(int i) {
+		return this.results[i];
+	}
+
+	/**
+	 * Returns the body of a result of the last query.
+	 * @param i the index of the result
+	 * @return {@link Body}
+	 */
+	public Body getBody(int i) {
+		return this.bodies[this.results[i]];
+	}
+
+	/**
+	 * Returns the number of bodies in the grid.
+	 * @return int
+	 */
+	public int getBodyCount() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the size of a cell.
+	 * @return double
+	 */
+	public double getCellSize() {
+		return this.cellSize;
+	}
+
+	/**
+	 * Returns the number of times a body was moved between cells.
+	 * @return long
+	 */
+	public long getMoveCount() {
+		return this.moveCount;
+	}
+}
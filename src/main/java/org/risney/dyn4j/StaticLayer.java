@@ -0,0 +1,225 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+
+/**
+ * The background and the static bodies of a {@link RenderSnapshot} rasterized
+ * once and drawn as one image every frame.
+ * <p>
+ * The layer is drawn again only when the static version of the snapshot
+ * changes, that is when a static body is added, removed, moved or recolored,
+ * when the scale changes or when the contents of the image were lost. Bodies
+ * that are not static are then drawn on top of it.
+ * <p>
+ * The image is a {@link VolatileImage} of the graphics configuration drawn
+ * to, so that it can stay in video memory. If one can't be created, for
+ * example when rendering headless, a {@link BufferedImage} is used instead.
+ * <p>
+ * A layer must only be used by the render thread.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class StaticLayer {
+	/** The width of the layer in pixels */
+	private final int width;
+
+	/** The height of the layer in pixels */
+	private final int height;
+
+	/** The world to screen transform the bodies are drawn with */
+	private final AffineTransform view;
+
+	/** The screen to world transform; the inverse of the view */
+	private final AffineTransform inverseView;
+
+	/** The background color */
+	private final Color background;
+
+	/** The screen transform of the graphics context drawn to */
+	private final AffineTransform screen;
+
+	/** The layer when in video memory */
+	private VolatileImage volatileImage;
+
+	/** The layer when not in video memory */
+	private BufferedImage bufferedImage;
+
+	/** The static version the layer was drawn for; -1 if not drawn */
+	private long version;
+
+	/** The scale the layer was drawn at */
+	private double scale;
+
+	/** The number of times the layer was drawn */
+	private long buildCount;
+
+	/**
+	 * Full constructor.
+	 * @param width the width of the layer in pixels
+	 * @param height the height of the layer in pixels
+	 * @param view the transform from world to screen coordinates the bodies are drawn with
+	 * @param background the background color
+	 */
+	public StaticLayer(int width, int height, AffineTransform view, Color background) {
+		this.width = width;
+		this.height = height;
+		this.view = new AffineTransform(view);
+		try {
+			this.inverseView = view.createInverse();
+		} catch (NoninvertibleTransformException e) {
+			throw new IllegalArgumentException(e);
+		}
+		this.background = background;
+		this.screen = new AffineTransform();
+		this.version = -1;
+	}
+
+	/**
+	 * Draws the background and the static bodies of the given snapshot,
+	 * rasterizing them first if they changed.
+	 * @param g the graphics context in world coordinates, that is with the view transform applied
+	 * @param snapshot the snapshot
+	 * @param scale the scale to render the bodies (pixels per dyn4j unit (typically meter))
+	 */
+	public void render(Graphics2D g, RenderSnapshot snapshot, double scale) {
+		Image image = this.validate(g, snapshot, scale);
+
+		// blit in screen coordinates
+		AffineTransform world = g.getTransform();
+		this.screen.setTransform(world);
+		this.screen.concatenate(this.inverseView);
+		g.setTransform(this.screen);
+		g.drawImage(image, 0, 0, null);
+		g.setTransform(world);
+
+		if (this.volatileImage != null && this.volatileImage.contentsLost()) {
+			// draw it again next frame
+			this.version = -1;
+		}
+	}
+
+	/**
+	 * Returns the layer image, drawing it if it is not up to date.
+	 * @param g the graphics context drawn to
+	 * @param snapshot the snapshot
+	 * @param scale the scale
+	 * @return Image
+	 */
+	private Image validate(Graphics2D g, RenderSnapshot snapshot, double scale) {
+		GraphicsConfiguration gc = g.getDeviceConfiguration();
+		boolean stale = this.version != snapshot.getStaticVersion() || this.scale != scale;
+
+		if (gc != null && this.bufferedImage == null) {
+			if (this.volatileImage == null) {
+				this.volatileImage = this.createVolatileImage(gc);
+				stale = true;
+			}
+			if (this.volatileImage != null) {
+				int status = this.volatileImage.validate(gc);
+				if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+					this.volatileImage.flush();
+					this.volatileImage = this.createVolatileImage(gc);
+					stale = true;
+				} else if (status == VolatileImage.IMAGE_RESTORED) {
+					stale = true;
+				}
+			}
+		}
+
+		Image image = this.volatileImage;
+		if (image == null) {
+			if (this.bufferedImage == null) {
+				this.bufferedImage = gc != null
+						? gc.createCompatibleImage(this.width, this.height)
+						: new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+				stale = true;
+			}
+			image = this.bufferedImage;
+		}
+
+		if (stale) {
+			Graphics2D ig = (Graphics2D)image.getGraphics();
+			// the same quality as the bodies drawn on top
+			ig.setRenderingHints(g.getRenderingHints());
+			this.draw(ig, snapshot, scale);
+			ig.dispose();
+			this.version = snapshot.getStaticVersion();
+			this.scale = scale;
+			this.buildCount++;
+		}
+		return image;
+	}
+
+	/**
+	 * Returns a new volatile image of the size of the layer.
+	 * @param gc the graphics configuration
+	 * @return VolatileImage; null if one can't be created
+	 */
+	private VolatileImage createVolatileImage(GraphicsConfiguration gc) {
+		try {
+			return gc.createCompatibleVolatileImage(this.width, this.height);
+		} catch (RuntimeException e) {
+			// not supported by this configuration
+			return null;
+		}
+	}
+
+	/**
+	 * Draws the background and the static bodies.
+	 * @param g the graphics context of the layer image
+	 * @param snapshot the snapshot
+	 * @param scale the scale
+	 */
+	private void draw(Graphics2D g, RenderSnapshot snapshot, double scale) {
+		g.setColor(this.background);
+		g.fillRect(0, 0, this.width, this.height);
+		g.transform(this.view);
+		snapshot.renderStatic(g, scale);
+	}
+
+	/**
+	 * Forces the layer to be drawn again on the next frame.
+	 */
+	public void invalidate() {
+		this.version = -1;
+	}
+
+	/**
+	 * Releases the layer image.
+	 */
+	public void flush() {
+		if (this.volatileImage != null) {
+			this.volatileImage.flush();
+			this.volatileImage = null;
+		}
+		if (this.bufferedImage != null) {
+			this.bufferedImage.flush();
+			this.bufferedImage = null;
+		}
+		this.version = -1;
+	}
+
+	/**
+	 * Returns true if the layer is held in a {@link VolatileImage}.
+	 * @return boolean
+	 */
+	public boolean isVolatile() {
+		return this.volatileImage != null;
+	}
+
+	/**
+	 * Returns the number of times the layer was drawn.
+	 * @return long
+	 */
+	public long getBuildCount() {
+		return this.buildCount;
+	}
+}
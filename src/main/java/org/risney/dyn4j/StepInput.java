@@ -0,0 +1,140 @@
+package org.risney.dyn4j;
+
+/**
+ * The user input applied before one fixed step.
+ * <p>
+ * The examples have at most a pointer, in world coordinates, and a key that
+ * is held down. The input of a step is gathered on the simulation thread from
+ * the values written by the event dispatch thread, so it can be recorded and
+ * replayed exactly, see {@link InputRecorder} and {@link InputReplayer}.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class StepInput {
+	/** True if there is a pointer */
+	private boolean pointer;
+
+	/** The pointer x coordinate in world space */
+	private double x;
+
+	/** The pointer y coordinate in world space */
+	private double y;
+
+	/** True if the key is held down */
+	private boolean keyDown;
+
+	/**
+	 * Clears the input.
+	 */
+	public void clear() {
+		this.pointer = false;
+		this.x = 0.0;
+		this.y = 0.0;
+		this.keyDown = false;
+	}
+
+	/**
+	 * Copies the given input.
+	 * @param input the input to copy
+	 */
+	public void set(StepInput input) {
+		this.pointer = input.pointer;
+		this.x = input.x;
+		this.y = input.y;
+		this.keyDown = input.keyDown;
+	}
+
+	/**
+	 * Sets the pointer.
+	 * @param x the x coordinate in world space
+	 * @param y the y coordinate in world space
+	 */
+	public void setPointer(double x, double y) {
+		this.pointer = true;
+		this.x = x;
+		this.y = y;
+	}
+
+	/**
+	 * Removes the pointer.
+	 */
+	public void clearPointer() {
+		this.pointer = false;
+		this.x = 0.0;
+		this.y = 0.0;
+	}
+
+	/**
+	 * Returns true if there is a pointer.
+	 * @return boolean
+	 */
+	public boolean hasPointer() {
+		return this.pointer;
+	}
+
+	/**
+	 * Returns the pointer x coordinate in world space.
+	 * @return double
+	 */
+	public double getX() {
+		return this.x;
+	}
+
+	/**
+	 * Returns the pointer y coordinate in world space.
+	 * @return double
+	 */
+	public double getY() {
+		return this.y;
+	}
+
+	/**
+	 * Returns true if the key is held down.
+	 * @return boolean
+	 */
+	public boolean isKeyDown() {
+		return this.keyDown;
+	}
+
+	/**
+	 * Sets whether the key is held down.
+	 * @param flag true if the key is held down
+	 */
+	public void setKeyDown(boolean flag) {
+		this.keyDown = flag;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) return true;
+		if (!(obj instanceof StepInput)) return false;
+		StepInput other = (StepInput)obj;
+		return this.pointer == other.pointer
+			&& Double.doubleToLongBits(this.x) == Double.doubleToLongBits(other.x)
+			&& Double.doubleToLongBits(this.y) == Double.doubleToLongBits(other.y)
+			&& this.keyDown == other.keyDown;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		long bits = Double.doubleToLongBits(this.x) * 31 + Double.doubleToLongBits(this.y);
+		int hash = (int)(bits ^ (bits >>> 32));
+		return hash * 4 + (this.pointer ? 2 : 0) + (this.keyDown ? 1 : 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "StepInput[Pointer=" + (this.pointer ? "(" + this.x + ", " + this.y + ")" : "none")
+			+ "|KeyDown=" + this.keyDown + "]";
+	}
+}
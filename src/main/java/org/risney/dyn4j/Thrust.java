@@ -1,27 +1,16 @@
 package org.risney.dyn4j;
 
-import java.awt.Canvas;
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Graphics2D;
-import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.awt.event.WindowAdapter;
-import java.awt.event.WindowEvent;
-import java.awt.geom.AffineTransform;
-import java.awt.image.BufferStrategy;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-import javax.swing.JFrame;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
-import org.dyn4j.dynamics.Body;
-import org.dyn4j.dynamics.BodyFixture;
 import org.dyn4j.dynamics.World;
 
-import org.dyn4j.geometry.Convex;
 import org.dyn4j.geometry.Geometry;
 import org.dyn4j.geometry.Mass;
 import org.dyn4j.geometry.Vector2;
@@ -31,15 +20,16 @@ import org.dyn4j.geometry.Vector2;
  * @author William Bittle
  * @version 3.1.11
  */
-public class Thrust extends JFrame implements KeyListener {
+public class Thrust extends SimulationFrame implements KeyListener {
 	/** The serial version id */
 	private static final long serialVersionUID = 5663760293144882635L;
 	
+	/** The index of the ship in the world */
+	private static final int SHIP_INDEX = 1;
+
 	/** The scale 45 pixels per meter */
 	public static final double SCALE = 100.0;
 	
-	/** The conversion factor from nano to base */
-	public static final double NANO_TO_BASE = 1.0e9;
 	
 	/**
 	 * Custom Body class to add drawing functionality.
@@ -47,21 +37,7 @@ public class Thrust extends JFrame implements KeyListener {
 	 * @version 3.0.2
 	 * @since 3.0.0
 	 */
-	public static class GameObject extends Body {
-		/** The color of the object */
-		protected Color color;
-		
-		/**
-		 * Default constructor.
-		 */
-		public GameObject() {
-			// randomly generate the color
-			this.color = new Color(
-					(float)Math.random() * 0.5f + 0.5f,
-					(float)Math.random() * 0.5f + 0.5f,
-					(float)Math.random() * 0.5f + 0.5f);
-		}
-		
+	public static class GameObject extends SimulationBody {
 		/**
 		 * Draws the body.
 		 * <p>
@@ -69,87 +45,17 @@ public class Thrust extends JFrame implements KeyListener {
 		 * @param g the graphics object to render to
 		 */
 		public void render(Graphics2D g) {
-			// save the original transform
-			AffineTransform ot = g.getTransform();
-			
-			// transform the coordinate system from world coordinates to local coordinates
-			AffineTransform lt = new AffineTransform();
-			lt.translate(this.transform.getTranslationX() * SCALE, this.transform.getTranslationY() * SCALE);
-			lt.rotate(this.transform.getRotation());
-			
-			// apply the transform
-			g.transform(lt);
-			
-			// loop over all the body fixtures for this body
-			for (BodyFixture fixture : this.fixtures) {
-				// get the shape on the fixture
-				Convex convex = fixture.getShape();
-				Graphics2DRenderer.render(g, convex, SCALE, color);
-			}
-			
-			// set the original transform
-			g.setTransform(ot);
+			this.render(g, SCALE);
 		}
 	}
 	
-	/** The canvas to draw to */
-	protected Canvas canvas;
-	
-	/** The dynamics engine */
-	protected World world;
-	
-	/** Wether the example is stopped or not */
-	protected boolean stopped;
-	
-	/** The time stamp for the last iteration */
-	protected long last;
-	
 	/**
 	 * Default constructor for the window
 	 */
 	public Thrust() {
-		super("Thrust");
-		// setup the JFrame
-		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		
-		// add a window listener
-		this.addWindowListener(new WindowAdapter() {
-			/* (non-Javadoc)
-			 * @see java.awt.event.WindowAdapter#windowClosing(java.awt.event.WindowEvent)
-			 */
-			@Override
-			public void windowClosing(WindowEvent e) {
-				// before we stop the JVM stop the example
-				stop();
-				super.windowClosing(e);
-			}
-		});
-		
-		// create the size of the window
-		Dimension size = new Dimension(800, 600);
+		super("Thrust", SCALE);
 		
-		// create a canvas to paint to 
-		this.canvas = new Canvas();
-		this.canvas.setPreferredSize(size);
-		this.canvas.setMinimumSize(size);
-		this.canvas.setMaximumSize(size);
 		this.canvas.addKeyListener(this);
-		
-		// add the canvas to the JFrame
-		this.add(this.canvas);
-		
-		// make the JFrame not resizable
-		// (this way I dont have to worry about resize events)
-		this.setResizable(false);
-		
-		// size everything
-		this.pack();
-		
-		// make sure we are not stopped
-		this.stopped = false;
-		
-		// setup the world
-		this.initializeWorld();
 	}
 	
 	/**
@@ -159,10 +65,22 @@ public class Thrust extends JFrame implements KeyListener {
 	 * the TestBed.
 	 */
 	protected void initializeWorld() {
+		this.world = createWorld();
+		this.ship = (GameObject)this.world.getBody(SHIP_INDEX);
+	}
+
+	/**
+	 * Creates the world of this example.
+	 * <p>
+	 * This does not need a window so the scene can also be stepped
+	 * headless, see {@link HeadlessRunner}.
+	 * @return {@link World}
+	 */
+	public static World createWorld() {
 		// create the world
-		this.world = new World();
+		World world = new World();
 		
-		//this.world.setGravity(World.ZERO_GRAVITY);
+		//world.setGravity(World.ZERO_GRAVITY);
 		
 		// create all your bodies/joints
 		
@@ -172,14 +90,15 @@ public class Thrust extends JFrame implements KeyListener {
 		floor.setMass(Mass.Type.INFINITE);
 		world.addBody(floor);
 		
-		ship = new GameObject();
+		GameObject ship = new GameObject();
 		ship.addFixture(Geometry.createRectangle(0.5, 1.5));
 		ship.translate(0.0, 2.0);
 		ship.setMass(Mass.Type.NORMAL);
-		this.world.addBody(ship);
+		world.addBody(ship);
+		return world;
 	}
 	
-	private GameObject ship = null;
+	private GameObject ship;
 	private AtomicBoolean thrustOn = new AtomicBoolean(false);
 	
 
@@ -199,96 +118,49 @@ public class Thrust extends JFrame implements KeyListener {
 	}
 	
 	/**
-	 * Start active rendering the example.
-	 * <p>
-	 * This should be called after the JFrame has been shown.
+	 * Takes the key state as the input of the next step.
 	 */
-	public void start() {
-		// initialize the last update time
-		this.last = System.nanoTime();
-		// don't allow AWT to paint the canvas since we are
-		this.canvas.setIgnoreRepaint(true);
-		// enable double buffering (the JFrame has to be
-		// visible before this can be done)
-		this.canvas.createBufferStrategy(2);
-		// run a separate thread to do active rendering
-		// because we don't want to do it on the EDT
-		Thread thread = new Thread() {
-			public void run() {
-				// perform an infinite loop stopped
-				// render as fast as possible
-				while (!isStopped()) {
-					gameLoop();
-					// you could add a Thread.yield(); or
-					// Thread.sleep(long) here to give the
-					// CPU some breathing room
-				}
-			}
-		};
-		// set the game loop thread to a daemon thread so that
-		// it cannot stop the JVM from exiting
-		thread.setDaemon(true);
-		// start the game loop
-		thread.start();
+	@Override
+	protected void pollInput(StepInput input) {
+		input.setKeyDown(this.thrustOn.get());
 	}
 	
 	/**
-	 * The method calling the necessary methods to update
-	 * the game, graphics, and poll for input.
+	 * Applies the thrust while a key is held down.
 	 */
-	protected void gameLoop() {
-		// get the graphics object to render to
-		Graphics2D g = (Graphics2D)this.canvas.getBufferStrategy().getDrawGraphics();
-		
-		// before we render everything im going to flip the y axis and move the
-		// origin to the center (instead of it being in the top left corner)
-		AffineTransform yFlip = AffineTransform.getScaleInstance(1, -1);
-		AffineTransform move = AffineTransform.getTranslateInstance(400, -300);
-		g.transform(yFlip);
-		g.transform(move);
-		
-		// now (0, 0) is in the center of the screen with the positive x axis
-		// pointing right and the positive y axis pointing up
-		
-		// render anything about the Example (will render the World objects)
-		this.render(g);
-		
-		// dispose of the graphics object
-		g.dispose();
-		
-		// blit/flip the buffer
-		BufferStrategy strategy = this.canvas.getBufferStrategy();
-		if (!strategy.contentsLost()) {
-			strategy.show();
+	@Override
+	protected void handleEvents() {
+		applyInput(this.world, this.input);
+	}
+	
+	/**
+	 * Applies the thrust to the ship of the given world while a key is held down.
+	 * @param world a world created by {@link #createWorld()}
+	 * @param input the input of the step
+	 */
+	public static void applyInput(World world, StepInput input) {
+		if (input.isKeyDown()) {
+			world.getBody(SHIP_INDEX).applyForce(new Vector2(0, 1));
 		}
-		
-		// Sync the display on some systems.
-        // (on Linux, this fixes event queue problems)
-        Toolkit.getDefaultToolkit().sync();
-        
-        // update the World
-        
-        // get the current time
-        long time = System.nanoTime();
-        // get the elapsed time from the last iteration
-        long diff = time - this.last;
-        // set the last time
-        this.last = time;
-    	// convert from nanoseconds to seconds
-    	double elapsedTime = (double)diff / NANO_TO_BASE;
-        // update the world with the elapsed time
-        this.world.update(elapsedTime);
-        
-        if (this.thrustOn.get()) {
-        	ship.applyForce(new Vector2(0, 1));
-        }
 	}
-
+	
+	/**
+	 * Returns the scene of this example.
+	 * @return {@link ExampleScene}
+	 */
+	@Override
+	protected ExampleScene getScene() {
+		return ExampleScene.THRUST;
+	}
+	
 	/**
 	 * Renders the example.
 	 * @param g the graphics object to render to
+	 * @param snapshot the latest state of the bodies
+	 * @param alpha the interpolation factor between the last two steps
 	 */
-	protected void render(Graphics2D g) {
+	@Override
+	protected void render(Graphics2D g, RenderSnapshot snapshot, double alpha) {
 		// lets draw over everything with a white background
 		g.setColor(Color.WHITE);
 		g.fillRect(-400, -300, 800, 600);
@@ -297,27 +169,7 @@ public class Thrust extends JFrame implements KeyListener {
 		g.translate(0.0, -1.0 * SCALE);
 		
 		// draw all the objects in the world
-		for (int i = 0; i < this.world.getBodyCount(); i++) {
-			// get the object
-			GameObject go = (GameObject) this.world.getBody(i);
-			// draw the object
-			go.render(g);
-		}
-	}
-	
-	/**
-	 * Stops the example.
-	 */
-	public synchronized void stop() {
-		this.stopped = true;
-	}
-	
-	/**
-	 * Returns true if the example is stopped.
-	 * @return boolean true if stopped
-	 */
-	public synchronized boolean isStopped() {
-		return this.stopped;
+		snapshot.render(g, SCALE, alpha);
 	}
 	
 	/**
@@ -325,6 +177,8 @@ public class Thrust extends JFrame implements KeyListener {
 	 * @param args command line arguments
 	 */
 	public static void main(String[] args) {
+		// choose the Java2D pipeline before AWT starts
+		RenderPreset.selectPipeline();
 		// set the look and feel to the system look and feel
 		try {
 			UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -0,0 +1,169 @@
+package org.risney.dyn4j;
+
+/**
+ * The visible region of the world used to skip drawing bodies that are
+ * off screen.
+ * <p>
+ * A body is drawn if the world space bounds of its rotation disc (a square
+ * around its center of mass that contains it at any rotation) overlap the
+ * viewport, so no Java2D call is made for a body that can't be seen. The
+ * number of bodies drawn and culled is counted per render call and in total.
+ * <p>
+ * A viewport must only be used by the render thread; the counters can be
+ * read by any thread.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class Viewport {
+	/** The minimum x coordinate in world space */
+	private double minX;
+
+	/** The minimum y coordinate in world space */
+	private double minY;
+
+	/** The maximum x coordinate in world space */
+	private double maxX;
+
+	/** The maximum y coordinate in world space */
+	private double maxY;
+
+	/** The bodies drawn by the last render call */
+	private volatile int drawn;
+
+	/** The bodies culled by the last render call */
+	private volatile int culled;
+
+	/** The bodies drawn in total */
+	private volatile long drawnTotal;
+
+	/** The bodies culled in total */
+	private volatile long culledTotal;
+
+	/**
+	 * Full constructor.
+	 * @param minX the minimum x coordinate in world space
+	 * @param minY the minimum y coordinate in world space
+	 * @param maxX the maximum x coordinate in world space
+	 * @param maxY the maximum y coordinate in world space
+	 */
+	public Viewport(double minX, double minY, double maxX, double maxY) {
+		this.set(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Returns the viewport of a canvas centered on the world origin.
+	 * @param width the canvas width in pixels
+	 * @param height the canvas height in pixels
+	 * @param scale the scale (pixels per dyn4j unit (typically meter))
+	 * @return {@link Viewport}
+	 */
+	public static Viewport centered(int width, int height, double scale) {
+		double hw = width * 0.5 / scale;
+		double hh = height * 0.5 / scale;
+		return new Viewport(-hw, -hh, hw, hh);
+	}
+
+	/**
+	 * Sets the visible region, for example when the view pans or zooms.
+	 * @param minX the minimum x coordinate in world space
+	 * @param minY the minimum y coordinate in world space
+	 * @param maxX the maximum x coordinate in world space
+	 * @param maxY the maximum y coordinate in world space
+	 */
+	public void set(double minX, double minY, double maxX, double maxY) {
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+	}
+
+	/**
+	 * Returns true if the square of the given half size around the given
+	 * point overlaps the viewport.
+	 * @param x the world space x coordinate of the center
+	 * @param y the world space y coordinate of the center
+	 * @param radius the half size
+	 * @return boolean
+	 */
+	public boolean intersects(double x, double y, double radius) {
+		return x + radius >= this.minX && x - radius <= this.maxX
+			&& y + radius >= this.minY && y - radius <= this.maxY;
+	}
+
+	/**
+	 * Records the counts of one render call.
+	 * @param drawn the number of bodies drawn
+	 * @param culled the number of bodies culled
+	 */
+	void count(int drawn, int culled) {
+		this.drawn = drawn;
+		this.culled = culled;
+		this.drawnTotal += drawn;
+		this.culledTotal += culled;
+	}
+
+	/**
+	 * Returns the number of bodies drawn by the last render call.
+	 * @return int
+	 */
+	public int getDrawnCount() {
+		return this.drawn;
+	}
+
+	/**
+	 * Returns the number of bodies culled by the last render call.
+	 * @return int
+	 */
+	public int getCulledCount() {
+		return this.culled;
+	}
+
+	/**
+	 * Returns the number of bodies drawn in total.
+	 * @return long
+	 */
+	public long getDrawnTotal() {
+		return this.drawnTotal;
+	}
+
+	/**
+	 * Returns the number of bodies culled in total.
+	 * @return long
+	 */
+	public long getCulledTotal() {
+		return this.culledTotal;
+	}
+
+	/**
+	 * Returns the minimum x coordinate in world space.
+	 * @return double
+	 */
+	public double getMinX() {
+		return this.minX;
+	}
+
+	/**
+	 * Returns the minimum y coordinate in world space.
+	 * @return double
+	 */
+	public double getMinY() {
+		return this.minY;
+	}
+
+	/**
+	 * Returns the maximum x coordinate in world space.
+	 * @return double
+	 */
+	public double getMaxX() {
+		return this.maxX;
+	}
+
+	/**
+	 * Returns the maximum y coordinate in world space.
+	 * @return double
+	 */
+	public double getMaxY() {
+		return this.maxY;
+	}
+}
@@ -0,0 +1,309 @@
+package org.risney.dyn4j;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+import org.dyn4j.collision.broadphase.BroadphaseDetector;
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.joint.Joint;
+import org.dyn4j.dynamics.joint.MotorJoint;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+/**
+ * Saves the dynamic state of a {@link World} into a {@link ByteBuffer} and
+ * restores it in place.
+ * <p>
+ * Per body the current and the start of step transform (as their exact
+ * matrices), the linear and angular velocity, the state flags (asleep, active,
+ * bullet, ...) and the sleep time are stored. Per {@link MotorJoint} the
+ * accumulated impulses used for warm starting and the targets are stored;
+ * worlds with other joint types are refused, since their warm starting would
+ * be lost. The world's accumulated update time is stored too.
+ * <p>
+ * The structure of the world, its bodies, fixtures and joints, is not part of
+ * the snapshot: it can only be restored into the world it was saved from, or an
+ * identically built one, while no bodies or joints were added or removed.
+ * Neither are the contact constraints cached for warm starting nor forces
+ * applied but not yet stepped. Restoring drops the world's contacts, which
+ * belong to the discarded future, and updates the broadphase proxies of the
+ * bodies in place; the next step detects the contacts again from the restored
+ * bodies without warm starting. Where bodies are in contact the broadphase,
+ * whose shape was decided by the discarded future too, orders the contacts
+ * and so the result of the next steps differs slightly from run to run.
+ * {@link #setRepeatable(boolean) Repeatable} snapshots rebuild the broadphase
+ * instead, so that stepping from a snapshot gives the same result every time,
+ * whatever the world did in between.
+ * <p>
+ * Saving does not allocate; restoring allocates the bounds dyn4j computes to
+ * update the broadphase, and for repeatable snapshots the rebuilt broadphase.
+ * A snapshot is not thread safe; use one per thread.
+ * @author Marc Risney
+ * @version 3.2.0
+ * @since 3.2.0
+ */
+public final class WorldSnapshot {
+	/** The snapshot magic number "D4JW" */
+	private static final int MAGIC = 0x44344A57;
+
+	/** The bytes of the header: magic, body count, joint count, accumulated time */
+	private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+
+	/** The bytes per body: two transforms, velocity, angular velocity, state and sleep time */
+	private static final int BODY_BYTES = 2 * 6 * 8 + 2 * 8 + 8 + 4 + 8;
+
+	/** The bytes per motor joint: linear and angular impulse and target */
+	private static final int MOTOR_JOINT_BYTES = 2 * 8 + 8 + 2 * 8 + 8;
+
+	/** {@link Body}'s state flags */
+	private static final Field BODY_STATE = getField(Body.class, "state");
+
+	/** {@link Body}'s sleep time */
+	private static final Field BODY_SLEEP_TIME = getField(Body.class, "sleepTime");
+
+	/** {@link MotorJoint}'s accumulated linear impulse */
+	private static final Field MOTOR_LINEAR_IMPULSE = getField(MotorJoint.class, "linearImpulse");
+
+	/** {@link MotorJoint}'s accumulated angular impulse */
+	private static final Field MOTOR_ANGULAR_IMPULSE = getField(MotorJoint.class, "angularImpulse");
+
+	/** {@link MotorJoint}'s linear target */
+	private static final Field MOTOR_LINEAR_TARGET = getField(MotorJoint.class, "linearTarget");
+
+	/** {@link MotorJoint}'s angular target; set directly since its setter wakes the bodies */
+	private static final Field MOTOR_ANGULAR_TARGET = getField(MotorJoint.class, "angularTarget");
+
+	/**
+	 * A transform whose matrix can be read and written exactly.
+	 * @author Marc Risney
+	 * @version 3.2.0
+	 * @since 3.2.0
+	 */
+	private static final class ExactTransform extends Transform {
+		/**
+		 * Writes the given transform to the given buffer.
+		 * @param transform the transform
+		 * @param buffer the buffer
+		 */
+		void write(Transform transform, ByteBuffer buffer) {
+			this.set(transform);
+			buffer.putDouble(this.m00);
+			buffer.putDouble(this.m01);
+			buffer.putDouble(this.m10);
+			buffer.putDouble(this.m11);
+			buffer.putDouble(this.x);
+			buffer.putDouble(this.y);
+		}
+
+		/**
+		 * Reads the given transform from the given buffer.
+		 * @param buffer the buffer
+		 * @param transform the transform to set
+		 */
+		void read(ByteBuffer buffer, Transform transform) {
+			this.m00 = buffer.getDouble();
+			this.m01 = buffer.getDouble();
+			this.m10 = buffer.getDouble();
+			this.m11 = buffer.getDouble();
+			this.x = buffer.getDouble();
+			this.y = buffer.getDouble();
+			transform.set(this);
+		}
+	}
+
+	/** The transform used to copy matrices */
+	private final ExactTransform transform = new ExactTransform();
+
+	/** True if restoring rebuilds the broadphase */
+	private boolean repeatable;
+
+	/**
+	 * Returns the accessible declared field of the given class.
+	 * @param type the class
+	 * @param name the field name
+	 * @return Field
+	 */
+	private static final Field getField(Class<?> type, String name) {
+		try {
+			Field field = type.getDeclaredField(name);
+			field.setAccessible(true);
+			return field;
+		} catch (NoSuchFieldException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Returns the given joint as a motor joint.
+	 * @param joint the joint
+	 * @return {@link MotorJoint}
+	 * @throws IllegalArgumentException if the joint is not a motor joint
+	 */
+	private static final MotorJoint getMotorJoint(Joint joint) {
+		if (joint instanceof MotorJoint) {
+			return (MotorJoint)joint;
+		}
+		throw new IllegalArgumentException("The state of " + joint.getClass().getSimpleName() + "s can't be saved.");
+	}
+
+	/**
+	 * Returns the number of bytes needed to save the given world.
+	 * @param world the world
+	 * @return int
+	 * @throws IllegalArgumentException if the world has joints other than motor joints
+	 */
+	public static int getSize(World world) {
+		int n = world.getJointCount();
+		for (int i = 0; i < n; i++) {
+			getMotorJoint(world.getJoint(i));
+		}
+		return HEADER_BYTES + world.getBodyCount() * BODY_BYTES + n * MOTOR_JOINT_BYTES;
+	}
+
+	/**
+	 * Allocates a buffer big enough to save the given world.
+	 * @param world the world
+	 * @return ByteBuffer
+	 * @throws IllegalArgumentException if the world has joints other than motor joints
+	 */
+	public static ByteBuffer allocate(World world) {
+		return ByteBuffer.allocate(getSize(world));
+	}
+
+	/**
+	 * Saves the state of the given world into the given buffer, starting at
+	 * its position.
+	 * <p>
+	 * On return the position is after the snapshot.
+	 * @param world the world
+	 * @param buffer the buffer; must have {@link #getSize(World)} bytes remaining
+	 * @throws java.nio.BufferOverflowException if the buffer is too small
+	 * @throws IllegalArgumentException if the world has joints other than motor joints
+	 */
+	public void save(World world, ByteBuffer buffer) {
+		int bodies = world.getBodyCount();
+		int joints = world.getJointCount();
+		buffer.putInt(MAGIC);
+		buffer.putInt(bodies);
+		buffer.putInt(joints);
+		buffer.putDouble(world.getAccumulatedTime());
+
+		try {
+			for (int i = 0; i < bodies; i++) {
+				Body body = world.getBody(i);
+				this.transform.write(body.getTransform(), buffer);
+				this.transform.write(body.getInitialTransform(), buffer);
+				Vector2 v = body.getLinearVelocity();
+				buffer.putDouble(v.x);
+				buffer.putDouble(v.y);
+				buffer.putDouble(body.getAngularVelocity());
+				buffer.putInt(BODY_STATE.getInt(body));
+				buffer.putDouble(BODY_SLEEP_TIME.getDouble(body));
+			}
+			for (int i = 0; i < joints; i++) {
+				MotorJoint motor = getMotorJoint(world.getJoint(i));
+				Vector2 impulse = (Vector2)MOTOR_LINEAR_IMPULSE.get(motor);
+				buffer.putDouble(impulse.x);
+				buffer.putDouble(impulse.y);
+				buffer.putDouble(MOTOR_ANGULAR_IMPULSE.getDouble(motor));
+				Vector2 target = (Vector2)MOTOR_LINEAR_TARGET.get(motor);
+				buffer.putDouble(target.x);
+				buffer.putDouble(target.y);
+				buffer.putDouble(motor.getAngularTarget());
+			}
+		} catch (IllegalAccessException e) {
+			// the fields were made accessible
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Restores the state of the given world from the given buffer, starting
+	 * at its position.
+	 * <p>
+	 * On return the position is after the snapshot. The contacts of the world
+	 * are cleared, the broadphase proxies of its bodies are updated (or, for
+	 * a repeatable snapshot, the broadphase is rebuilt with the bodies in
+	 * order), and the contacts are detected again on the next step.
+	 * @param buffer the buffer holding a snapshot saved by {@link #save(World, ByteBuffer)}
+	 * @param world the world the snapshot was saved from
+	 * @throws IllegalArgumentException if the buffer does not hold a snapshot of the world
+	 */
+	public void restore(ByteBuffer buffer, World world) {
+		int bodies = world.getBodyCount();
+		int joints = world.getJointCount();
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalArgumentException("The buffer does not hold a world snapshot.");
+		}
+		if (buffer.getInt() != bodies || buffer.getInt() != joints) {
+			throw new IllegalArgumentException("The snapshot was saved from a world with other bodies or joints.");
+		}
+		world.setAccumulatedTime(buffer.getDouble());
+
+		try {
+			for (int i = 0; i < bodies; i++) {
+				Body body = world.getBody(i);
+				this.transform.read(buffer, body.getTransform());
+				this.transform.read(buffer, body.getInitialTransform());
+				double vx = buffer.getDouble();
+				double vy = buffer.getDouble();
+				body.setLinearVelocity(vx, vy);
+				body.setAngularVelocity(buffer.getDouble());
+				BODY_STATE.setInt(body, buffer.getInt());
+				BODY_SLEEP_TIME.setDouble(body, buffer.getDouble());
+			}
+			for (int i = 0; i < joints; i++) {
+				MotorJoint motor = getMotorJoint(world.getJoint(i));
+				Vector2 impulse = (Vector2)MOTOR_LINEAR_IMPULSE.get(motor);
+				impulse.x = buffer.getDouble();
+				impulse.y = buffer.getDouble();
+				MOTOR_ANGULAR_IMPULSE.setDouble(motor, buffer.getDouble());
+				Vector2 target = (Vector2)MOTOR_LINEAR_TARGET.get(motor);
+				target.x = buffer.getDouble();
+				target.y = buffer.getDouble();
+				MOTOR_ANGULAR_TARGET.setDouble(motor, buffer.getDouble());
+			}
+		} catch (IllegalAccessException e) {
+			// the fields were made accessible
+			throw new IllegalStateException(e);
+		}
+
+		// the contacts and their warm starting cache are from the future
+		world.getContactManager().reset();
+		BroadphaseDetector<Body> broadphase = world.getBroadphaseDetector();
+		if (this.repeatable) {
+			// the broadphase tree was shaped by the future too
+			broadphase.clear();
+			for (int i = 0; i < bodies; i++) {
+				broadphase.add(world.getBody(i));
+			}
+		} else {
+			for (int i = 0; i < bodies; i++) {
+				broadphase.update(world.getBody(i));
+			}
+		}
+		world.setUpdateRequired(true);
+	}
+
+	/**
+	 * Returns true if restoring rebuilds the broadphase so that stepping from
+	 * the snapshot gives the same result every time.
+	 * @return boolean
+	 */
+	public boolean isRepeatable() {
+		return this.repeatable;
+	}
+
+	/**
+	 * Sets whether restoring rebuilds the broadphase so that stepping from
+	 * the snapshot gives the same result every time, whatever the world did
+	 * in between.
+	 * <p>
+	 * Rebuilding allocates the broadphase proxies of every body.
+	 * @param flag true to rebuild the broadphase on restore
+	 */
+	public void setRepeatable(boolean flag) {
+		this.repeatable = flag;
+	}
+}
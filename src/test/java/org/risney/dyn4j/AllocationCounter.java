@@ -0,0 +1,94 @@
+package org.risney.dyn4j;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+import junit.framework.Assert;
+
+/**
+ * Counts the bytes allocated by the current thread, for the tests of code
+ * that must not allocate.
+ * <p>
+ * The counts come from the HotSpot thread bean. A JVM without it can't
+ * measure allocations; the tests then report that they checked nothing
+ * instead of passing silently.
+ */
+public final class AllocationCounter
+{
+    /**
+     * The bytes a measured loop may allocate; far less than one object per
+     * iteration, but room for the odd allocation of the JVM itself
+     */
+    public static final long BUDGET = 1024;
+
+    /** The thread bean */
+    private final ThreadMXBean bean;
+
+    /** The id of the measured thread */
+    private final long thread;
+
+    /** The bytes allocated when the measurement started */
+    private long start;
+
+    /**
+     * Full constructor.
+     *
+     * @param bean the thread bean
+     */
+    private AllocationCounter( ThreadMXBean bean )
+    {
+        this.bean = bean;
+        this.thread = Thread.currentThread().getId();
+    }
+
+    /**
+     * Returns a counter of the current thread, or null if the JVM can't count
+     * the bytes a thread allocates, in which case it is reported.
+     *
+     * @param test the name of the test measuring
+     * @return the counter
+     */
+    public static AllocationCounter create( String test )
+    {
+        Object bean = ManagementFactory.getThreadMXBean();
+        if ( bean instanceof ThreadMXBean )
+        {
+            ThreadMXBean threads = (ThreadMXBean) bean;
+            if ( threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() )
+            {
+                return new AllocationCounter( threads );
+            }
+        }
+        System.err.println( test + ": allocations not measured, this JVM can't count the bytes a thread allocates" );
+        return null;
+    }
+
+    /**
+     * Starts measuring.
+     */
+    public void start()
+    {
+        this.start = this.bean.getThreadAllocatedBytes( this.thread );
+    }
+
+    /**
+     * Returns the bytes allocated since the measurement started.
+     *
+     * @return the bytes
+     */
+    public long getAllocatedBytes()
+    {
+        return this.bean.getThreadAllocatedBytes( this.thread ) - this.start;
+    }
+
+    /**
+     * Asserts that no more than {@link #BUDGET} bytes were allocated since
+     * the measurement started.
+     */
+    public void assertWithinBudget()
+    {
+        long allocated = this.getAllocatedBytes();
+        Assert.assertTrue( "allocated " + allocated + " bytes", allocated <= BUDGET );
+    }
+}
@@ -0,0 +1,167 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of picking many pointers at once against one query per
+ * pointer.
+ * <p>
+ * The scene is the {@link Picking} scene tiled to the given number of
+ * bodies, the pointers random screen points over it. Each invocation
+ * resolves all the pointers.
+ * Run with the <code>benchmark</code> profile:
+ * <pre>
+ * mvn -P benchmark test -DskipTests -Djmh.benchmarks=BatchPickerBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPickerBenchmark
+{
+    /** The probe radius of the examples */
+    private static final double RADIUS = 0.1;
+
+    /** The pixels per meter of the screen */
+    private static final double SCALE = 5.0;
+
+    /**
+     * The scene and the pointers.
+     */
+    @State(Scope.Thread)
+    public static class PointerState
+    {
+        @Param({ "1", "16", "256", "4096" })
+        public int pointers;
+
+        @Param({ "1000", "10000" })
+        public int bodies;
+
+        public World world;
+
+        public SpatialGrid grid;
+
+        public BatchPicker picker;
+
+        public BatchPicker gridPicker;
+
+        public QueryContext context;
+
+        public Convex probe;
+
+        public Transform transform;
+
+        public List<DetectResult> results;
+
+        public double[] screen;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            this.world = SpatialGridBenchmark.createWorld( this.bodies );
+            for ( int i = 0; i < 10; i++ )
+            {
+                this.world.step( 1 );
+            }
+            this.grid = new SpatialGrid( 1.0 );
+            this.grid.update( this.world );
+            this.picker = new BatchPicker( RADIUS, 0.0, 0.0, SCALE );
+            this.gridPicker = new BatchPicker( RADIUS, 0.0, 0.0, SCALE );
+            this.gridPicker.setGrid( this.grid );
+            this.context = new QueryContext( RADIUS );
+            this.probe = Geometry.createCircle( RADIUS );
+            this.transform = new Transform();
+            this.results = new ArrayList<DetectResult>();
+
+            int columns = (int) Math.ceil( Math.sqrt( this.bodies / 11.0 ) );
+            int rows = (int) Math.ceil( this.bodies / 11.0 / columns );
+            double width = SpatialGridBenchmark.WIDTH * columns;
+            double height = SpatialGridBenchmark.HEIGHT * rows;
+            Random random = new Random( 42 );
+            this.screen = new double[this.pointers * 2];
+            for ( int i = 0; i < this.pointers; i++ )
+            {
+                this.screen[i * 2] = ( -SpatialGridBenchmark.WIDTH * 0.5 + random.nextDouble() * width ) * SCALE;
+                this.screen[i * 2 + 1] = -( -1.0 + random.nextDouble() * height ) * SCALE;
+            }
+        }
+    }
+
+    /**
+     * All the pointers, with the picker's own grid brought up to date first.
+     */
+    @Benchmark
+    public int batch( PointerState state )
+    {
+        return state.picker.pick( state.world, state.screen, state.pointers );
+    }
+
+    /**
+     * All the pointers, looking up their bodies in a grid updated after each
+     * step.
+     */
+    @Benchmark
+    public int batchGrid( PointerState state )
+    {
+        return state.gridPicker.pick( state.world, state.screen, state.pointers );
+    }
+
+    /**
+     * One {@link World#detect} per pointer.
+     */
+    @Benchmark
+    public int worldDetect( PointerState state )
+    {
+        int hits = 0;
+        for ( int i = 0; i < state.pointers; i++ )
+        {
+            double x = BatchPicker.toWorldX( state.screen[i * 2], 0.0, SCALE );
+            double y = BatchPicker.toWorldY( state.screen[i * 2 + 1], 0.0, SCALE );
+            state.transform.identity();
+            state.transform.translate( x, y );
+            state.results.clear();
+            state.world.detect( state.probe, state.transform, null, false, false, false, state.results );
+            hits += state.results.size();
+        }
+        return hits;
+    }
+
+    /**
+     * One pooled query per pointer, its candidates from the broadphase.
+     */
+    @Benchmark
+    public int perPointer( PointerState state )
+    {
+        int hits = 0;
+        for ( int i = 0; i < state.pointers; i++ )
+        {
+            double x = BatchPicker.toWorldX( state.screen[i * 2], 0.0, SCALE );
+            double y = BatchPicker.toWorldY( state.screen[i * 2 + 1], 0.0, SCALE );
+            hits += state.context.detect( state.world, x, y, false );
+        }
+        return hits;
+    }
+}
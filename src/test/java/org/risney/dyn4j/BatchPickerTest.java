@@ -0,0 +1,203 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for picking with many pointers at once.
+ */
+public class BatchPickerTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public BatchPickerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( BatchPickerTest.class );
+    }
+
+    /**
+     * Screen points are converted the same way as by the examples.
+     */
+    public void testScreenToWorld()
+    {
+        double scale = AirHockey.SCALE;
+        assertEquals( 0.0, BatchPicker.toWorldX( 400.0, 800.0, scale ), 0.0 );
+        assertEquals( 0.0, BatchPicker.toWorldY( 300.0, 600.0, scale ), 0.0 );
+        assertEquals( 1.0, BatchPicker.toWorldX( 400.0 + scale, 800.0, scale ), 1.0e-12 );
+        assertEquals( 1.0, BatchPicker.toWorldY( 300.0 - scale, 600.0, scale ), 1.0e-12 );
+
+        BatchPicker picker = new BatchPicker( 0.1, 800.0, 600.0, scale );
+        picker.pick( new World(), new double[] { 123.0, 456.0 }, 1 );
+        assertEquals( ( 123.0 - 400.0 ) / scale, picker.getPoints()[0], 0.0 );
+        assertEquals( -( ( 456.0 - 300.0 ) / scale ), picker.getPoints()[1], 0.0 );
+    }
+
+    /**
+     * The same fixtures and depths are found as by one query per pointer.
+     */
+    public void testSameAsContext()
+    {
+        World world = Picking.createWorld();
+        for ( int i = 0; i < 30; i++ )
+        {
+            world.step( 1 );
+        }
+        QueryContext context = new QueryContext( 0.1 );
+        BatchPicker picker = new BatchPicker( 0.1, 800.0, 600.0, 45.0, 1.0 );
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        grid.update( world );
+        BatchPicker gridPicker = new BatchPicker( 0.1, 800.0, 600.0, 45.0, 1.0 );
+        gridPicker.setGrid( grid );
+
+        List<Double> points = new ArrayList<Double>();
+        for ( double x = -7.95; x <= 8.0; x += 0.1237 )
+        {
+            for ( double y = -1.95; y <= 6.0; y += 0.1237 )
+            {
+                points.add( x );
+                points.add( y );
+            }
+        }
+        int count = points.size() / 2;
+        double[] array = new double[points.size()];
+        for ( int i = 0; i < array.length; i++ )
+        {
+            array[i] = points.get( i );
+        }
+
+        int hits = picker.pickWorld( world, array, count );
+        int gridHits = gridPicker.pickWorld( world, array, count );
+        int expected = 0;
+        for ( int p = 0; p < count; p++ )
+        {
+            context.detect( world, array[p * 2], array[p * 2 + 1], true );
+            expected += context.getResultCount();
+            for ( DetectResult result : context.getResults() )
+            {
+                int body = world.getBodies().indexOf( result.getBody() );
+                int fixture = result.getBody().getFixtures().indexOf( result.getFixture() );
+                int hit = find( picker, hits, p, body, fixture );
+                assertTrue( hit >= 0 );
+                assertEquals( result.getPenetration().getDepth(), picker.getDepths()[hit], 0.0 );
+                hit = find( gridPicker, gridHits, p, body, fixture );
+                assertTrue( hit >= 0 );
+                assertEquals( result.getPenetration().getDepth(), gridPicker.getDepths()[hit], 0.0 );
+            }
+        }
+        assertEquals( expected, hits );
+        assertEquals( expected, gridHits );
+        assertTrue( hits > 100 );
+
+        // a few pointers far away
+        assertEquals( 0, picker.pickWorld( world, new double[] { 0.0, 100.0, 50.0, 0.0 }, 2 ) );
+        assertEquals( 0, gridPicker.pickWorld( world, new double[] { 0.0, 100.0, 50.0, 0.0 }, 2 ) );
+    }
+
+    /**
+     * Returns the hit of the given pointer, body and fixture, or -1.
+     */
+    private static int find( BatchPicker picker, int hits, int pointer, int body, int fixture )
+    {
+        for ( int i = 0; i < hits; i++ )
+        {
+            if ( picker.getPointers()[i] == pointer && picker.getBodies()[i] == body
+                && picker.getFixtures()[i] == fixture )
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Picking with a shared grid finds the same hits as with the picker's own
+     * grid while the bodies move.
+     */
+    public void testGridAfterMoves()
+    {
+        World world = Picking.createWorld();
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        BatchPicker picker = new BatchPicker( 0.1, 800.0, 600.0, 45.0, 1.0 );
+        BatchPicker gridPicker = new BatchPicker( 0.1, 800.0, 600.0, 45.0, 1.0 );
+        gridPicker.setGrid( grid );
+        assertNotSame( grid, picker.getGrid() );
+        assertSame( grid, gridPicker.getGrid() );
+        double[] points = new double[] { 0.0, 0.0, -3.0, 1.0, 2.5, 0.5, 0.0, 4.0 };
+        int total = 0;
+        for ( int i = 0; i < 120; i++ )
+        {
+            world.step( 1 );
+            grid.update( world );
+            int hits = picker.pickWorld( world, points, 4 );
+            assertEquals( hits, gridPicker.pickWorld( world, points, 4 ) );
+            for ( int h = 0; h < hits; h++ )
+            {
+                assertTrue( find( gridPicker, hits, picker.getPointers()[h], picker.getBodies()[h],
+                                  picker.getFixtures()[h] ) >= 0 );
+            }
+            total += hits;
+        }
+        assertTrue( total > 0 );
+    }
+
+    /**
+     * Picking does not allocate once the arrays are large enough.
+     */
+    public void testNoAllocation()
+    {
+        AllocationCounter counter = AllocationCounter.create( getName() );
+        if ( counter == null )
+        {
+            return;
+        }
+
+        World world = Picking.createWorld();
+        BatchPicker picker = new BatchPicker( 0.1, 800.0, 600.0, AirHockey.SCALE );
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        grid.update( world );
+        BatchPicker gridPicker = new BatchPicker( 0.1, 800.0, 600.0, AirHockey.SCALE );
+        gridPicker.setGrid( grid );
+        double[] screen = new double[64 * 2];
+        for ( int i = 0; i < 64; i++ )
+        {
+            screen[i * 2] = 100.0 + ( i % 8 ) * 80.0;
+            screen[i * 2 + 1] = 150.0 + ( i / 8 ) * 40.0;
+        }
+
+        // warm up
+        for ( int i = 0; i < 5000; i++ )
+        {
+            picker.pick( world, screen, 64 );
+            gridPicker.pick( world, screen, 64 );
+        }
+
+        counter.start();
+        int hits = 0;
+        for ( int i = 0; i < 100; i++ )
+        {
+            hits += picker.pick( world, screen, 64 );
+            hits += gridPicker.pick( world, screen, 64 );
+        }
+        counter.assertWithinBudget();
+        assertTrue( hits > 0 );
+    }
+}
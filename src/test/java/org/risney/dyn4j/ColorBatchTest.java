@@ -0,0 +1,114 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import org.dyn4j.dynamics.World;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for drawing bodies batched by color.
+ */
+public class ColorBatchTest
+    extends TestCase
+{
+    /** Two colors by body index */
+    private static final SnapshotBuffer.ColorProvider TWO_COLORS = new SnapshotBuffer.ColorProvider()
+    {
+        public Color getColor( SimulationBody body )
+        {
+            return body.getTransform().getTranslationX() < 0.0 ? Color.RED : Color.BLUE;
+        }
+    };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ColorBatchTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ColorBatchTest.class );
+    }
+
+    private static RenderSnapshot capture( World world )
+    {
+        SnapshotBuffer buffer = new SnapshotBuffer( 16 );
+        buffer.capture( world, 1, 1.0, TWO_COLORS );
+        return buffer.acquire();
+    }
+
+    /**
+     * One fill and one outline per color.
+     */
+    public void testOneFillPerColor()
+    {
+        RenderSnapshot snapshot = capture( ExampleScene.createWorld( 100 ) );
+        ColorBatch batch = new ColorBatch();
+        NullGraphics2D g = new NullGraphics2D();
+        snapshot.render( g, 20.0, 1.0, null, batch );
+
+        assertEquals( 2, batch.getBatchCount() );
+        assertEquals( 2, g.fills );
+        // the shapes and the rotation indicators of the circles
+        assertEquals( 4, g.draws );
+        assertTrue( g.colorChanges <= 4 );
+
+        // nothing left over for the next frame
+        g = new NullGraphics2D();
+        batch.flush( g );
+        assertEquals( 0, batch.getBatchCount() );
+        assertEquals( 0, g.fills );
+    }
+
+    /**
+     * Batched bodies that don't overlap look the same as bodies drawn one by one.
+     */
+    public void testSameImage()
+    {
+        RenderSnapshot snapshot = capture( ExampleScene.createWorld( 64 ) );
+        BufferedImage expected = render( snapshot, null );
+        BufferedImage actual = render( snapshot, new ColorBatch() );
+
+        int differences = 0;
+        for ( int y = 0; y < 600; y++ )
+        {
+            for ( int x = 0; x < 800; x++ )
+            {
+                if ( expected.getRGB( x, y ) != actual.getRGB( x, y ) )
+                {
+                    differences++;
+                }
+            }
+        }
+        // circles are drawn as curves rather than ellipses; allow for their edges
+        assertTrue( "" + differences, differences < 200 );
+    }
+
+    private static BufferedImage render( RenderSnapshot snapshot, ColorBatch batch )
+    {
+        BufferedImage image = new BufferedImage( 800, 600, BufferedImage.TYPE_INT_RGB );
+        Graphics2D g = image.createGraphics();
+        g.setColor( Color.WHITE );
+        g.fillRect( 0, 0, 800, 600 );
+        AffineTransform view = AffineTransform.getScaleInstance( 1, -1 );
+        view.translate( 400, -300 );
+        g.transform( view );
+        snapshot.render( g, 40.0, 1.0, null, batch );
+        g.dispose();
+        return image;
+    }
+}
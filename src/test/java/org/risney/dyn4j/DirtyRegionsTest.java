@@ -0,0 +1,272 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for tracking the regions changed between frames.
+ */
+public class DirtyRegionsTest
+    extends TestCase
+{
+    /** The scale in pixels per meter */
+    private static final double SCALE = 40.0;
+
+    /** Keeps the body color */
+    private static final SnapshotBuffer.ColorProvider BODY_COLOR = new SnapshotBuffer.ColorProvider()
+    {
+        public Color getColor( SimulationBody body )
+        {
+            return body.getColor();
+        }
+    };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public DirtyRegionsTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( DirtyRegionsTest.class );
+    }
+
+    /**
+     * Adds a unit square body at the given position.
+     */
+    private static SimulationBody add( World world, double x, double y, Mass.Type type )
+    {
+        SimulationBody body = new SimulationBody();
+        body.addFixture( Geometry.createSquare( 1.0 ) );
+        body.setMass( type );
+        body.translate( x, y );
+        world.addBody( body );
+        return body;
+    }
+
+    /**
+     * Returns a world without gravity with a static floor and resting bodies.
+     */
+    private static World createWorld()
+    {
+        World world = new World();
+        world.setGravity( World.ZERO_GRAVITY );
+        SimulationBody floor = new SimulationBody();
+        floor.addFixture( Geometry.createRectangle( 18.0, 1.0 ) );
+        floor.setMass( Mass.Type.INFINITE );
+        floor.translate( 0.0, -6.0 );
+        world.addBody( floor );
+        add( world, -6.0, 0.0, Mass.Type.NORMAL );
+        add( world, -3.0, 0.0, Mass.Type.NORMAL ).setAsleep( true );
+        add( world, 6.0, 4.0, Mass.Type.NORMAL );
+        return world;
+    }
+
+    /**
+     * Steps the world and updates the regions with a new snapshot.
+     */
+    private static boolean update( World world, SnapshotBuffer buffer, DirtyRegions regions, long step )
+    {
+        world.step( 1 );
+        buffer.capture( world, step, 1.0, BODY_COLOR );
+        return regions.update( buffer.acquire(), 1.0, SCALE );
+    }
+
+    /**
+     * Only the old and new places of the moving body are repainted.
+     */
+    public void testOneMoving()
+    {
+        World world = createWorld();
+        SimulationBody moving = add( world, 0.0, 0.0, Mass.Type.NORMAL );
+        moving.setLinearVelocity( new Vector2( 6.0, 0.0 ) );
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+
+        // the first frame is always repainted in full
+        assertFalse( update( world, buffer, regions, 1 ) );
+        assertEquals( 0, regions.getRegionCount() );
+
+        assertTrue( update( world, buffer, regions, 2 ) );
+        // the old and new places overlap
+        assertEquals( 1, regions.getRegionCount() );
+        Viewport region = regions.getRegion( 0 );
+        double x = moving.getWorldCenter().x;
+        assertTrue( region.intersects( x, 0.0, 0.0 ) );
+        assertTrue( region.getMaxX() - region.getMinX() < 2.0 );
+        // the resting bodies are left alone
+        assertFalse( region.intersects( -3.0, 0.0, 0.5 ) );
+        assertFalse( region.intersects( 6.0, 4.0, 0.5 ) );
+        assertEquals( 1, regions.getFullCount() );
+        assertEquals( 1, regions.getPartialCount() );
+
+        // nothing moving, nothing to repaint
+        moving.setLinearVelocity( 0.0, 0.0 );
+        update( world, buffer, regions, 3 );
+        assertTrue( update( world, buffer, regions, 4 ) );
+        assertEquals( 0, regions.getRegionCount() );
+    }
+
+    /**
+     * A resting body drawn in another color is repainted where it is.
+     */
+    public void testRecolored()
+    {
+        World world = createWorld();
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+        update( world, buffer, regions, 1 );
+        assertTrue( update( world, buffer, regions, 2 ) );
+        assertEquals( 0, regions.getRegionCount() );
+
+        // highlighted
+        SimulationBody body = (SimulationBody) world.getBody( 2 );
+        body.setColor( Color.GREEN );
+        assertTrue( update( world, buffer, regions, 3 ) );
+        assertEquals( 1, regions.getRegionCount() );
+        Viewport region = regions.getRegion( 0 );
+        assertTrue( region.intersects( -3.0, 0.0, 0.0 ) );
+        assertTrue( region.getMaxX() - region.getMinX() < 2.0 );
+
+        // unchanged since
+        assertTrue( update( world, buffer, regions, 4 ) );
+        assertEquals( 0, regions.getRegionCount() );
+    }
+
+    /**
+     * A body of infinite mass moved by hand, like a drag controller, is
+     * repainted as a moving body rather than as a change of the statics.
+     */
+    public void testMovedByHand()
+    {
+        World world = createWorld();
+        SimulationBody controller = add( world, 0.0, 0.0, Mass.Type.INFINITE );
+        controller.setMovable( true );
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+        update( world, buffer, regions, 1 );
+        long version = buffer.acquire().getStaticVersion();
+
+        for ( int i = 2; i < 10; i++ )
+        {
+            Transform tx = new Transform();
+            tx.translate( i * 0.2, 0.0 );
+            controller.setTransform( tx );
+            assertTrue( update( world, buffer, regions, i ) );
+            assertEquals( 1, regions.getRegionCount() );
+        }
+        assertEquals( version, buffer.acquire().getStaticVersion() );
+        assertEquals( 1, buffer.acquire().getStaticCount() );
+    }
+
+    /**
+     * A wall that never sleeps is still drawn with the static bodies.
+     */
+    public void testStaticWithoutAutoSleep()
+    {
+        World world = createWorld();
+        SimulationBody wall = add( world, 0.0, 0.0, Mass.Type.INFINITE );
+        wall.setAutoSleepingEnabled( false );
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+        update( world, buffer, regions, 1 );
+        // and the floor
+        assertEquals( 2, buffer.acquire().getStaticCount() );
+        assertTrue( buffer.acquire().isStatic( world.getBodyCount() - 1 ) );
+    }
+
+    /**
+     * The overlays of the last and this frame are repainted.
+     */
+    public void testOverlay()
+    {
+        World world = createWorld();
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+        update( world, buffer, regions, 1 );
+
+        regions.addOverlay( 2.0, 2.0, 0.1 );
+        assertTrue( update( world, buffer, regions, 2 ) );
+        assertEquals( 1, regions.getRegionCount() );
+
+        // erases the last one and draws the new one
+        regions.addOverlay( -2.0, -2.0, 0.1 );
+        assertTrue( update( world, buffer, regions, 3 ) );
+        assertEquals( 2, regions.getRegionCount() );
+
+        // erases the last one
+        assertTrue( update( world, buffer, regions, 4 ) );
+        assertEquals( 1, regions.getRegionCount() );
+        assertTrue( regions.getRegion( 0 ).intersects( -2.0, -2.0, 0.0 ) );
+    }
+
+    /**
+     * The whole screen is repainted when it can't be done in part.
+     */
+    public void testFullRepaint()
+    {
+        World world = createWorld();
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+        update( world, buffer, regions, 1 );
+        assertTrue( update( world, buffer, regions, 2 ) );
+
+        // after being invalidated
+        regions.invalidate();
+        assertFalse( update( world, buffer, regions, 3 ) );
+        assertTrue( update( world, buffer, regions, 4 ) );
+
+        // bodies added
+        SimulationBody added = add( world, 0.0, 0.0, Mass.Type.NORMAL );
+        assertFalse( update( world, buffer, regions, 5 ) );
+        assertTrue( update( world, buffer, regions, 6 ) );
+
+        // a body replaced by another
+        world.removeBody( added );
+        add( world, 0.0, 0.0, Mass.Type.NORMAL );
+        assertFalse( update( world, buffer, regions, 7 ) );
+
+        // too many moving bodies
+        for ( int i = 0; i < 20; i++ )
+        {
+            add( world, -8.0 + ( i % 5 ) * 4.0, -4.5 + ( i / 5 ) * 3.0, Mass.Type.NORMAL ).setLinearVelocity( new Vector2( 0.0, 1.0 ) );
+        }
+        assertFalse( update( world, buffer, regions, 8 ) );
+        assertFalse( update( world, buffer, regions, 9 ) );
+        assertEquals( 0, regions.getRegionCount() );
+    }
+
+    /**
+     * A large moving body covering most of the screen repaints it in full.
+     */
+    public void testLargeArea()
+    {
+        World world = createWorld();
+        SimulationBody large = new SimulationBody();
+        large.addFixture( Geometry.createSquare( 12.0 ) );
+        large.setMass( Mass.Type.NORMAL );
+        large.setLinearVelocity( new Vector2( 1.0, 0.0 ) );
+        world.addBody( large );
+        SnapshotBuffer buffer = new SnapshotBuffer( world.getBodyCount() );
+        DirtyRegions regions = new DirtyRegions( Viewport.centered( 800, 600, SCALE ) );
+        update( world, buffer, regions, 1 );
+        assertFalse( update( world, buffer, regions, 2 ) );
+    }
+}
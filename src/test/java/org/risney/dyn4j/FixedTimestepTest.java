@@ -0,0 +1,68 @@
+package org.risney.dyn4j;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the {@link FixedTimestep} accumulator.
+ */
+public class FixedTimestepTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public FixedTimestepTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( FixedTimestepTest.class );
+    }
+
+    /**
+     * Time is consumed in whole steps and the remainder becomes the alpha.
+     */
+    public void testAccumulate()
+    {
+        FixedTimestep timestep = new FixedTimestep( 0.25, 5 );
+        assertEquals( 0, timestep.advance( 0.125 ) );
+        assertEquals( 0.5, timestep.getAlpha(), 1.0e-9 );
+        assertEquals( 1, timestep.advance( 0.25 ) );
+        assertEquals( 0.5, timestep.getAlpha(), 1.0e-9 );
+        assertEquals( 2, timestep.advance( 0.375 ) );
+        assertEquals( 0.0, timestep.getAlpha(), 1.0e-9 );
+        assertEquals( 3, timestep.getStepCount() );
+    }
+
+    /**
+     * A long frame is capped at the maximum and the backlog is dropped.
+     */
+    public void testMaximumSteps()
+    {
+        FixedTimestep timestep = new FixedTimestep( 0.25, 5 );
+        assertEquals( 5, timestep.advance( 25.0625 ) );
+        assertEquals( 95, timestep.getDroppedStepCount() );
+        assertTrue( timestep.getAlpha() < 1.0 );
+        assertEquals( 0, timestep.advance( 0.0 ) );
+    }
+
+    /**
+     * Negative elapsed times do not rewind the accumulator.
+     */
+    public void testNegativeElapsedTime()
+    {
+        FixedTimestep timestep = new FixedTimestep( 0.25, 5 );
+        timestep.advance( 0.125 );
+        assertEquals( 0, timestep.advance( -1.0 ) );
+        assertEquals( 0.5, timestep.getAlpha(), 1.0e-9 );
+    }
+}
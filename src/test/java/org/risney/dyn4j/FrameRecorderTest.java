@@ -0,0 +1,211 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the offscreen frame recording.
+ */
+public class FrameRecorderTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public FrameRecorderTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( FrameRecorderTest.class );
+    }
+
+    /**
+     * Frames are dropped instead of waiting when the encoder is behind.
+     */
+    public void testDropsWhenBehind() throws InterruptedException
+    {
+        final CountDownLatch release = new CountDownLatch( 1 );
+        FrameRecorder recorder = new FrameRecorder( 16, 16, 2, new FrameRecorder.FrameWriter()
+        {
+            public void write( BufferedImage image, long number ) throws IOException
+            {
+                try
+                {
+                    release.await();
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IOException( e );
+                }
+            }
+
+            public void close()
+            {
+            }
+        } );
+
+        recorder.submit( recorder.acquire(), 0 );
+        recorder.submit( recorder.acquire(), 1 );
+        // both images are taken by the stuck encoder or its queue
+        assertNull( recorder.acquire() );
+        assertEquals( 1, recorder.getDroppedCount() );
+
+        release.countDown();
+        recorder.close();
+        assertEquals( 2, recorder.getSubmittedCount() );
+        assertEquals( 2, recorder.getWrittenCount() );
+        assertNull( recorder.acquire() );
+    }
+
+    /**
+     * Every frame counted as submitted is written when another thread closes
+     * the recorder meanwhile.
+     */
+    public void testCloseWhileSubmitting() throws InterruptedException
+    {
+        for ( int run = 0; run < 200; run++ )
+        {
+            final FrameRecorder recorder = new FrameRecorder( 1, 1, 2, new FrameRecorder.FrameWriter()
+            {
+                public void write( BufferedImage image, long number )
+                {
+                }
+
+                public void close()
+                {
+                }
+            } );
+            Thread producer = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( long i = 0; i < 1000; i++ )
+                    {
+                        FrameRecorder.Frame frame = recorder.acquire();
+                        if ( frame != null )
+                        {
+                            recorder.submit( frame, i );
+                        }
+                    }
+                }
+            };
+            producer.start();
+            Thread.yield();
+            recorder.close();
+            producer.join();
+            assertEquals( recorder.getSubmittedCount(), recorder.getWrittenCount() );
+        }
+    }
+
+    /**
+     * A headless recording waits for a slow encoder instead of dropping frames.
+     */
+    public void testRecordWaits() throws InterruptedException
+    {
+        final List<Long> numbers = Collections.synchronizedList( new ArrayList<Long>() );
+        FrameRecorder recorder = new FrameRecorder( 8, 8, 1, new FrameRecorder.FrameWriter()
+        {
+            public void write( BufferedImage image, long number ) throws IOException
+            {
+                try
+                {
+                    Thread.sleep( 2 );
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new IOException( e );
+                }
+                numbers.add( number );
+            }
+
+            public void close()
+            {
+            }
+        } );
+        OffscreenRenderer renderer = new OffscreenRenderer( 8, 8, 10.0 );
+        long frames = renderer.record( ExampleScene.BOUNCING_BALL.createWorld(), FixedTimestep.DEFAULT_STEP, 20, 1, recorder );
+        recorder.close();
+        assertEquals( 20, frames );
+        assertEquals( 0, recorder.getDroppedCount() );
+        assertEquals( 20, numbers.size() );
+        for ( int i = 0; i < 20; i++ )
+        {
+            assertEquals( i + 1, numbers.get( i ).longValue() );
+        }
+    }
+
+    /**
+     * A headless recording to a raw frame stream.
+     */
+    public void testRawFrames() throws IOException, InterruptedException
+    {
+        int width = 80;
+        int height = 60;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameRecorder recorder = new FrameRecorder( width, height, 16, new FrameRecorder.RawFrames( out, width, height ) );
+        OffscreenRenderer renderer = new OffscreenRenderer( width, height, 10.0 );
+        long frames = renderer.record( ExampleScene.BOUNCING_BALL.createWorld(), FixedTimestep.DEFAULT_STEP, 10, 2, recorder );
+        recorder.close();
+        assertEquals( 5, frames );
+        assertEquals( 5, recorder.getWrittenCount() );
+
+        byte[] bytes = out.toByteArray();
+        assertEquals( 13 + 5 * ( 8 + width * height * 3 ), bytes.length );
+        DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+        assertEquals( FrameRecorder.RawFrames.MAGIC, in.readInt() );
+        assertEquals( FrameRecorder.RawFrames.VERSION, in.readUnsignedByte() );
+        assertEquals( width, in.readInt() );
+        assertEquals( height, in.readInt() );
+        assertEquals( 1, in.readLong() );
+        // the top left corner is background
+        assertEquals( 0xFF, in.readUnsignedByte() );
+        assertEquals( 0xFF, in.readUnsignedByte() );
+        assertEquals( 0xFF, in.readUnsignedByte() );
+    }
+
+    /**
+     * A frame written as a PNG file reads back the same.
+     */
+    public void testPngSequence() throws IOException, InterruptedException
+    {
+        File directory = new File( "target/frames-" + System.nanoTime() );
+        FrameRecorder.PngSequence png = new FrameRecorder.PngSequence( directory, "test-" );
+        FrameRecorder recorder = new FrameRecorder( 8, 8, png );
+        FrameRecorder.Frame frame = recorder.acquire();
+        frame.getImage().setRGB( 3, 4, Color.RED.getRGB() );
+        recorder.submit( frame, 7 );
+        recorder.close();
+
+        File file = png.getFile( 7 );
+        assertEquals( "test-000007.png", file.getName() );
+        BufferedImage image = ImageIO.read( file );
+        assertEquals( Color.RED.getRGB(), image.getRGB( 3, 4 ) );
+        assertEquals( Color.BLACK.getRGB(), image.getRGB( 0, 0 ) );
+        file.delete();
+        directory.delete();
+    }
+}
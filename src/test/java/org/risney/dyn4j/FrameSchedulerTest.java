@@ -0,0 +1,91 @@
+package org.risney.dyn4j;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the pacing of the render and simulation loops.
+ */
+public class FrameSchedulerTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public FrameSchedulerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( FrameSchedulerTest.class );
+    }
+
+    /**
+     * Frames are not delivered faster than the target frame rate.
+     */
+    public void testFrameRate()
+    {
+        FrameScheduler scheduler = new FrameScheduler( 200.0 );
+        long start = System.nanoTime();
+        for ( int i = 0; i < 20; i++ )
+        {
+            scheduler.sync();
+        }
+        double elapsed = ( System.nanoTime() - start ) / SimulationFrame.NANO_TO_BASE;
+        assertTrue( "elapsed " + elapsed, elapsed >= 0.095 );
+        assertTrue( "elapsed " + elapsed, elapsed < 0.5 );
+    }
+
+    /**
+     * A scheduler without a frame rate does not wait.
+     */
+    public void testUnpaced()
+    {
+        FrameScheduler scheduler = new FrameScheduler( 0.0 );
+        long start = System.nanoTime();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            scheduler.sync();
+        }
+        double elapsed = ( System.nanoTime() - start ) / SimulationFrame.NANO_TO_BASE;
+        assertTrue( "elapsed " + elapsed, elapsed < 0.1 );
+    }
+
+    /**
+     * The idle frame rate is used while idle.
+     */
+    public void testIdle()
+    {
+        FrameScheduler scheduler = new FrameScheduler( 1000.0, 20.0 );
+        scheduler.setIdle( true );
+        scheduler.sync();
+        long start = System.nanoTime();
+        scheduler.sync();
+        double elapsed = ( System.nanoTime() - start ) / SimulationFrame.NANO_TO_BASE;
+        assertTrue( "elapsed " + elapsed, elapsed >= 0.04 );
+    }
+
+    /**
+     * An interrupted thread is not paced and the interrupt is kept.
+     */
+    public void testInterrupted()
+    {
+        // would wait a second
+        FrameScheduler scheduler = new FrameScheduler( 1.0 );
+        Thread.currentThread().interrupt();
+        long start = System.nanoTime();
+        assertFalse( scheduler.sync() );
+        double elapsed = ( System.nanoTime() - start ) / SimulationFrame.NANO_TO_BASE;
+        // clears the interrupt
+        assertTrue( Thread.interrupted() );
+        assertTrue( "elapsed " + elapsed, elapsed < 0.1 );
+    }
+}
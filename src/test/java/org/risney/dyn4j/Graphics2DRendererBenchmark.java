@@ -0,0 +1,157 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of drawing each shape type with {@link Graphics2DRenderer}
+ * into an offscreen image.
+ * <p>
+ * The full matrix is large; narrow it down with JMH parameters, for example:
+ * <pre>
+ * mvn -P benchmark test -DskipTests -Djmh.benchmarks=Graphics2DRendererBenchmark -Djmh.args="-p scale=32 -p antialias=true"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Graphics2DRendererBenchmark
+{
+    /** The shapes to draw, each about one meter across */
+    public enum ShapeType
+    {
+        CIRCLE
+        {
+            Convex create()
+            {
+                return Geometry.createCircle( 0.5 );
+            }
+        },
+        POLYGON
+        {
+            Convex create()
+            {
+                return Geometry.createUnitCirclePolygon( 6, 0.5 );
+            }
+        },
+        SEGMENT
+        {
+            Convex create()
+            {
+                return Geometry.createHorizontalSegment( 1.0 );
+            }
+        },
+        CAPSULE
+        {
+            Convex create()
+            {
+                return Geometry.createCapsule( 1.0, 0.5 );
+            }
+        },
+        ELLIPSE
+        {
+            Convex create()
+            {
+                return Geometry.createEllipse( 1.0, 0.5 );
+            }
+        },
+        SLICE
+        {
+            Convex create()
+            {
+                return Geometry.createSlice( 0.5, Math.toRadians( 50.0 ) );
+            }
+        },
+        HALF_ELLIPSE
+        {
+            Convex create()
+            {
+                return Geometry.createHalfEllipse( 1.0, 0.5 );
+            }
+        };
+
+        abstract Convex create();
+    }
+
+    /** What of the shape is drawn */
+    public enum Paint
+    {
+        FILL, OUTLINE, FILL_AND_OUTLINE
+    }
+
+    @Param({ "CIRCLE", "POLYGON", "SEGMENT", "CAPSULE", "ELLIPSE", "SLICE", "HALF_ELLIPSE" })
+    public ShapeType shape;
+
+    @Param({ "FILL", "OUTLINE", "FILL_AND_OUTLINE" })
+    public Paint paint;
+
+    /** Pixels per meter */
+    @Param({ "8", "32", "128" })
+    public double scale;
+
+    @Param({ "false", "true" })
+    public boolean antialias;
+
+    private Convex convex;
+
+    private Color fill;
+
+    private Color outline;
+
+    private BufferedImage image;
+
+    private Graphics2D g;
+
+    @Setup
+    public void setup()
+    {
+        this.convex = this.shape.create();
+        this.fill = this.paint != Paint.OUTLINE ? new Color( 120, 160, 200 ) : null;
+        this.outline = this.paint != Paint.FILL ? new Color( 84, 112, 140 ) : null;
+
+        this.image = new BufferedImage( 512, 512, BufferedImage.TYPE_INT_RGB );
+        this.g = this.image.createGraphics();
+        this.g.setRenderingHint( RenderingHints.KEY_ANTIALIASING,
+            this.antialias ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF );
+        // the same y axis flip and centered origin as the examples
+        this.g.translate( 256, 256 );
+        this.g.scale( 1, -1 );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        this.g.dispose();
+    }
+
+    /**
+     * Draws the shape once.
+     */
+    @Benchmark
+    public BufferedImage render()
+    {
+        Graphics2DRenderer.render( this.g, this.convex, this.scale, this.fill, this.outline );
+        return this.image;
+    }
+}
@@ -0,0 +1,156 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+
+import org.dyn4j.geometry.Circle;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Polygon;
+import org.dyn4j.geometry.Rectangle;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the shape renderer.
+ */
+public class Graphics2DRendererTest
+    extends TestCase
+{
+    /** One shape of every type */
+    private static final Convex[] SHAPES = {
+        Geometry.createCircle( 0.5 ),
+        Geometry.createUnitCirclePolygon( 10, 0.5 ),
+        Geometry.createHorizontalSegment( 1.0 ),
+        Geometry.createCapsule( 1.0, 0.5 ),
+        Geometry.createEllipse( 1.0, 0.5 ),
+        Geometry.createSlice( 0.5, Math.toRadians( 50.0 ) ),
+        Geometry.createHalfEllipse( 1.0, 0.5 ) };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public Graphics2DRendererTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( Graphics2DRendererTest.class );
+    }
+
+    /**
+     * A circle drawn by a custom renderer.
+     */
+    private static final class Dot
+        extends Circle
+    {
+        Dot()
+        {
+            super( 0.1 );
+        }
+    }
+
+    /**
+     * Shapes are drawn by the renderer of their class or closest superclass.
+     */
+    public void testRendererRegistry()
+    {
+        assertSame( Graphics2DRenderer.getRenderer( Polygon.class ), Graphics2DRenderer.getRenderer( Rectangle.class ) );
+        assertSame( Graphics2DRenderer.getRenderer( Circle.class ), Graphics2DRenderer.getRenderer( Dot.class ) );
+
+        SimulationBody body = new SimulationBody();
+        body.addFixture( new Dot() );
+        body.addFixture( Geometry.createSquare( 1.0 ) );
+        NullGraphics2D g = new NullGraphics2D();
+        body.render( g, 32.0 );
+        assertEquals( 2, g.fills );
+
+        // the body picks up a renderer registered later
+        final int[] dots = new int[1];
+        int version = Graphics2DRenderer.getRendererVersion();
+        Graphics2DRenderer.register( Dot.class, new Graphics2DRenderer.ShapeRenderer<Circle>()
+        {
+            public void render( Graphics2D g, Circle shape, double scale, Color fill, Color outline )
+            {
+                dots[0]++;
+            }
+        } );
+        assertTrue( version != Graphics2DRenderer.getRendererVersion() );
+        g = new NullGraphics2D();
+        body.render( g, 32.0 );
+        assertEquals( 1, dots[0] );
+        assertEquals( 1, g.fills );
+
+        // subclasses of registered shapes are unaffected
+        assertSame( Graphics2DRenderer.getRenderer( Circle.class ), Graphics2DRenderer.getRenderer( Geometry.createCircle( 1.0 ).getClass() ) );
+    }
+
+    /**
+     * Outline colors are cached per fill color.
+     */
+    public void testOutlineColor()
+    {
+        Color fill = new Color( 120, 160, 200, 100 );
+        Color outline = Graphics2DRenderer.getOutlineColor( fill );
+        assertSame( outline, Graphics2DRenderer.getOutlineColor( new Color( 120, 160, 200, 100 ) ) );
+        assertEquals( fill.darker().getRGB() & 0xFFFFFF, outline.getRGB() & 0xFFFFFF );
+        assertEquals( 100, outline.getAlpha() );
+    }
+
+    /**
+     * Drawing shapes and bodies does not allocate.
+     */
+    public void testNoAllocation()
+    {
+        AllocationCounter counter = AllocationCounter.create( getName() );
+        if ( counter == null )
+        {
+            return;
+        }
+
+        NullGraphics2D g = new NullGraphics2D();
+        Color color = new Color( 120, 160, 200 );
+        SimulationBody body = new SimulationBody();
+        for ( Convex shape : SHAPES )
+        {
+            body.addFixture( shape );
+        }
+        AffineTransform base = g.getTransform();
+
+        // warm up
+        for ( int i = 0; i < 20000; i++ )
+        {
+            draw( g, base, body, color );
+        }
+
+        counter.start();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            draw( g, base, body, color );
+        }
+        counter.assertWithinBudget();
+        assertTrue( g.fills > 0 && g.draws > 0 );
+    }
+
+    /**
+     * Draws every shape on its own and as the fixtures of a body.
+     */
+    private static void draw( NullGraphics2D g, AffineTransform base, SimulationBody body, Color color )
+    {
+        for ( Convex shape : SHAPES )
+        {
+            Graphics2DRenderer.render( g, shape, 32.0, color );
+        }
+        body.render( g, base, 32.0, 1.0, 2.0, 0.5, color );
+    }
+}
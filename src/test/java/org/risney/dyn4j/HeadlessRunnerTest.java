@@ -0,0 +1,48 @@
+package org.risney.dyn4j;
+
+import org.dyn4j.dynamics.World;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for running the example scenes without a window.
+ */
+public class HeadlessRunnerTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public HeadlessRunnerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( HeadlessRunnerTest.class );
+    }
+
+    /**
+     * Every scene can be built and stepped without a display.
+     */
+    public void testRunScenes()
+    {
+        HeadlessRunner runner = new HeadlessRunner();
+        for ( ExampleScene scene : ExampleScene.values() )
+        {
+            World world = scene.createWorld();
+            assertTrue( scene.name(), world.getBodyCount() > 0 );
+            HeadlessRunner.Result result = runner.run( world, 120 );
+            assertEquals( scene.name(), 120, result.getSteps() );
+            assertTrue( scene.name(), result.getStepsPerSecond() > 0.0 );
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.risney.dyn4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Transform;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for recording and replaying the input of a session.
+ */
+public class InputReplayerTest
+    extends TestCase
+{
+    /** The number of steps of a session */
+    private static final int STEPS = 240;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public InputReplayerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( InputReplayerTest.class );
+    }
+
+    /**
+     * Replays end in exactly the state of the recorded sessions.
+     */
+    public void testReplay() throws IOException
+    {
+        ExampleScene[] scenes = { ExampleScene.AIR_HOCKEY, ExampleScene.BOUNCING_BALL,
+            ExampleScene.MOUSE_DRAG, ExampleScene.THRUST };
+        for ( ExampleScene scene : scenes )
+        {
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            World recorded = this.record( scene, log );
+
+            InputReplayer replayer = new InputReplayer( new ByteArrayInputStream( log.toByteArray() ) );
+            assertEquals( scene, replayer.getScene() );
+            World replayed = scene.createWorld();
+            HeadlessRunner.Result result = replayer.replay( replayed );
+            assertEquals( STEPS, result.getSteps() );
+
+            for ( int i = 0; i < recorded.getBodyCount(); i++ )
+            {
+                Transform a = recorded.getBody( i ).getTransform();
+                Transform b = replayed.getBody( i ).getTransform();
+                assertEquals( scene + " body " + i, a.getTranslationX(), b.getTranslationX(), 0.0 );
+                assertEquals( scene + " body " + i, a.getTranslationY(), b.getTranslationY(), 0.0 );
+                assertEquals( scene + " body " + i, a.getRotation(), b.getRotation(), 0.0 );
+            }
+        }
+    }
+
+    /**
+     * Only changes of the input are written.
+     */
+    public void testCompact() throws IOException
+    {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        InputRecorder recorder = new InputRecorder( log, ExampleScene.THRUST, FixedTimestep.DEFAULT_STEP );
+        StepInput input = new StepInput();
+        for ( int i = 0; i < 10000; i++ )
+        {
+            input.setKeyDown( i >= 100 && i < 5000 );
+            recorder.record( i, input );
+        }
+        recorder.close();
+        // header, two changes and the end
+        assertTrue( "size " + log.size(), log.size() < 40 );
+    }
+
+    /**
+     * Steps a new world of the given scene with a scripted input and
+     * records the input.
+     */
+    private World record( ExampleScene scene, ByteArrayOutputStream log ) throws IOException
+    {
+        World world = scene.createWorld();
+        InputRecorder recorder = new InputRecorder( log, scene, FixedTimestep.DEFAULT_STEP );
+        StepInput input = new StepInput();
+        QueryContext context = scene.createQueryContext();
+        for ( int i = 0; i < STEPS; i++ )
+        {
+            input.clear();
+            if ( i >= 20 && i < 120 && i % 3 != 0 )
+            {
+                // drag across the scene
+                input.setPointer( -3.0 + i * 0.05, 1.0 - i * 0.02 );
+            }
+            input.setKeyDown( i >= 60 && i < 150 );
+            recorder.record( i, input );
+            scene.applyInput( world, input, context );
+            world.step( 1, FixedTimestep.DEFAULT_STEP );
+        }
+        recorder.close();
+        return world;
+    }
+}
@@ -0,0 +1,74 @@
+package org.risney.dyn4j;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the frame phase latency histograms.
+ */
+public class LatencyHistogramTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public LatencyHistogramTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( LatencyHistogramTest.class );
+    }
+
+    /**
+     * Every value falls in a bucket whose upper bound is at most
+     * 1/16th above it.
+     */
+    public void testBuckets()
+    {
+        long[] values = { 0, 1, 15, 16, 17, 31, 32, 1000, 16666666, Long.MAX_VALUE };
+        for ( long value : values )
+        {
+            int bucket = LatencyHistogram.getBucket( value );
+            long upper = LatencyHistogram.getUpperBound( bucket );
+            assertTrue( value + " <= " + upper, value <= upper );
+            assertTrue( value + " ~ " + upper, upper - value <= value / 16 );
+            if ( bucket > 0 )
+            {
+                assertTrue( LatencyHistogram.getUpperBound( bucket - 1 ) < value );
+            }
+        }
+    }
+
+    /**
+     * Percentiles of a uniform distribution.
+     */
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for ( int i = 1; i <= 10000; i++ )
+        {
+            histogram.record( i * 1000L );
+        }
+        assertEquals( 10000, histogram.getCount() );
+        assertEquals( 10000000, histogram.getMax() );
+        assertEquals( 5000500.0, histogram.getMean(), 0.0 );
+        assertEquals( 5000000, histogram.getP50(), 5000000 / 16 );
+        assertEquals( 9900000, histogram.getP99(), 9900000 / 16 );
+        assertEquals( 9990000, histogram.getP999(), 9990000 / 16 );
+        assertTrue( histogram.getP999() <= histogram.getMax() );
+
+        histogram.reset();
+        assertEquals( 0, histogram.getCount() );
+        assertEquals( 0, histogram.getP99() );
+        assertEquals( 0, histogram.getMax() );
+    }
+}
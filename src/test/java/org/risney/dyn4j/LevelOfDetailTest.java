@@ -0,0 +1,188 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Capsule;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for drawing small bodies with less detail.
+ */
+public class LevelOfDetailTest
+    extends TestCase
+{
+    /** Keeps the body color */
+    private static final SnapshotBuffer.ColorProvider BODY_COLOR = new SnapshotBuffer.ColorProvider()
+    {
+        public Color getColor( SimulationBody body )
+        {
+            return body.getColor();
+        }
+    };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public LevelOfDetailTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( LevelOfDetailTest.class );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        LevelOfDetail.setEnabled( true );
+    }
+
+    /**
+     * The level follows the radius in pixels.
+     */
+    public void testSelect()
+    {
+        assertSame( LevelOfDetail.POINT, LevelOfDetail.select( 0.4 ) );
+        assertSame( LevelOfDetail.FILL, LevelOfDetail.select( 2.0 ) );
+        assertSame( LevelOfDetail.FULL, LevelOfDetail.select( 3.0 ) );
+        // not known yet
+        assertSame( LevelOfDetail.FULL, LevelOfDetail.select( 0.0 ) );
+
+        LevelOfDetail.setEnabled( false );
+        assertSame( LevelOfDetail.FULL, LevelOfDetail.select( 0.4 ) );
+    }
+
+    /**
+     * A circle body drawn at the given scale.
+     */
+    private static NullGraphics2D render( double scale )
+    {
+        SimulationBody body = new SimulationBody();
+        body.addFixture( Geometry.createCircle( 0.5 ) );
+        body.setMass( Mass.Type.NORMAL );
+        NullGraphics2D g = new NullGraphics2D();
+        body.render( g, scale, 0.0, 0.0, 0.0, Color.RED );
+        return g;
+    }
+
+    /**
+     * Small bodies skip the outline and the rotation indicator, tiny ones are a pixel.
+     */
+    public void testBody()
+    {
+        NullGraphics2D g = render( 40.0 );
+        assertEquals( 1, g.fills );
+        assertEquals( 2, g.draws );
+
+        g = render( 4.0 );
+        assertEquals( 1, g.fills );
+        assertEquals( 0, g.draws );
+
+        g = render( 0.5 );
+        assertEquals( 1, g.fills );
+        assertEquals( 0, g.draws );
+
+        LevelOfDetail.setEnabled( false );
+        g = render( 0.5 );
+        assertEquals( 2, g.draws );
+    }
+
+    /**
+     * Small bodies are filled but not outlined when batched.
+     */
+    public void testBatch()
+    {
+        World world = ExampleScene.createWorld( 100 );
+        SnapshotBuffer buffer = new SnapshotBuffer( 101 );
+        buffer.capture( world, 1, 1.0, BODY_COLOR );
+        RenderSnapshot snapshot = buffer.acquire();
+
+        // the falling bodies are a few pixels across
+        NullGraphics2D g = new NullGraphics2D();
+        ColorBatch batch = new ColorBatch();
+        snapshot.renderDynamic( g, 4.0, 1.0, null, batch );
+        assertTrue( g.fills > 0 );
+        assertEquals( 0, g.draws );
+    }
+
+    /**
+     * The level is chosen from the size captured with the snapshot, not from
+     * the body the simulation may be changing.
+     */
+    public void testCapturedSize()
+    {
+        World world = new World();
+        SimulationBody body = new SimulationBody();
+        body.addFixture( Geometry.createCircle( 0.5 ) );
+        body.setMass( Mass.Type.NORMAL );
+        world.addBody( body );
+        SnapshotBuffer buffer = new SnapshotBuffer( 1 );
+        buffer.capture( world, 1, 1.0, BODY_COLOR );
+        RenderSnapshot snapshot = buffer.acquire();
+
+        // the body grows after the capture
+        Convex large = Geometry.createCircle( 10.0 );
+        large.translate( 5.0, 0.0 );
+        body.addFixture( large );
+        body.setMass( Mass.Type.NORMAL );
+
+        NullGraphics2D g = new NullGraphics2D();
+        snapshot.render( g, 0.5, 1.0 );
+        assertEquals( 1, g.fills );
+        assertEquals( 0, g.draws );
+
+        g = new NullGraphics2D();
+        snapshot.render( g, 0.5, 1.0, null, new ColorBatch() );
+        assertEquals( 1, g.fills );
+        assertEquals( 0, g.draws );
+    }
+
+    /**
+     * Small arcs are lines, large ones curves.
+     */
+    public void testArcs()
+    {
+        Capsule capsule = Geometry.createCapsule( 1.0, 0.5 );
+
+        Path2D.Double path = new Path2D.Double();
+        Graphics2DRenderer.append( path, capsule, 4.0 );
+        int[] segments = count( path );
+        assertEquals( 0, segments[PathIterator.SEG_CUBICTO] );
+        assertTrue( segments[PathIterator.SEG_LINETO] >= 4 );
+
+        path = new Path2D.Double();
+        Graphics2DRenderer.append( path, capsule, 40.0 );
+        segments = count( path );
+        assertEquals( 4, segments[PathIterator.SEG_CUBICTO] );
+    }
+
+    /**
+     * Counts the segments of each type of the given path.
+     */
+    private static int[] count( Path2D path )
+    {
+        int[] counts = new int[5];
+        double[] coords = new double[6];
+        for ( PathIterator i = path.getPathIterator( null ); !i.isDone(); i.next() )
+        {
+            counts[i.currentSegment( coords )]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,144 @@
+package org.risney.dyn4j;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.dyn4j.dynamics.World;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for stepping many worlds in parallel.
+ */
+public class MultiWorldEngineTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public MultiWorldEngineTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( MultiWorldEngineTest.class );
+    }
+
+    /**
+     * Every world is stepped once per tick and ends up where it would
+     * have been stepped on its own.
+     */
+    public void testTick()
+    {
+        ForkJoinPool pool = new ForkJoinPool( 4 );
+        try
+        {
+            MultiWorldEngine engine = new MultiWorldEngine( 60.0, pool );
+            for ( int i = 0; i < 8; i++ )
+            {
+                engine.add( ExampleScene.AIR_HOCKEY.createWorld() );
+            }
+            for ( int i = 0; i < 30; i++ )
+            {
+                engine.tick();
+            }
+            assertEquals( 30, engine.getTickCount() );
+
+            World reference = ExampleScene.AIR_HOCKEY.createWorld();
+            for ( int i = 0; i < 30; i++ )
+            {
+                reference.step( 1, engine.getStep() );
+            }
+            double x = reference.getBody( 6 ).getTransform().getTranslationX();
+            for ( MultiWorldEngine.Slot slot : engine.getSlots() )
+            {
+                assertEquals( 30, slot.getStepCount() );
+                assertTrue( slot.getStepTime() > 0 );
+                assertEquals( x, slot.getWorld().getBody( 6 ).getTransform().getTranslationX(), 0.0 );
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Submitted actions run before the next step and removed worlds
+     * are no longer stepped.
+     */
+    public void testSubmitAndRemove()
+    {
+        MultiWorldEngine engine = new MultiWorldEngine( 60.0 );
+        MultiWorldEngine.Slot a = engine.add( ExampleScene.PICKING.createWorld() );
+        MultiWorldEngine.Slot b = engine.add( ExampleScene.PICKING.createWorld() );
+        final long[] seen = new long[1];
+        final MultiWorldEngine.Slot slot = a;
+        a.submit( new Runnable()
+        {
+            public void run()
+            {
+                seen[0] = slot.getStepCount() + 1;
+            }
+        } );
+        engine.tick();
+        assertEquals( 1, seen[0] );
+
+        assertTrue( engine.remove( b ) );
+        assertFalse( engine.remove( b ) );
+        engine.tick();
+        assertEquals( 2, a.getStepCount() );
+        assertEquals( 1, b.getStepCount() );
+        assertEquals( 1, engine.getWorldCount() );
+    }
+
+    /**
+     * A world whose action throws stops on its own; the others keep ticking.
+     */
+    public void testFailedWorld() throws InterruptedException
+    {
+        MultiWorldEngine engine = new MultiWorldEngine( 100.0 );
+        MultiWorldEngine.Slot broken = engine.add( ExampleScene.PICKING.createWorld() );
+        MultiWorldEngine.Slot other = engine.add( ExampleScene.PICKING.createWorld() );
+        final IllegalStateException failure = new IllegalStateException( "broken" );
+        broken.submit( new Runnable()
+        {
+            public void run()
+            {
+                throw failure;
+            }
+        } );
+        engine.start();
+        Thread.sleep( 200 );
+        assertTrue( engine.isRunning() );
+        engine.stop();
+
+        assertTrue( broken.isFailed() );
+        assertSame( failure, broken.getFailure() );
+        assertEquals( 0, broken.getStepCount() );
+        assertFalse( other.isFailed() );
+        assertTrue( other.getStepCount() >= 5 );
+    }
+
+    /**
+     * The engine thread ticks at about the tick rate.
+     */
+    public void testStart() throws InterruptedException
+    {
+        MultiWorldEngine engine = new MultiWorldEngine( 100.0 );
+        MultiWorldEngine.Slot slot = engine.add( ExampleScene.THRUST.createWorld() );
+        engine.start();
+        Thread.sleep( 300 );
+        engine.stop();
+        long steps = slot.getStepCount();
+        assertTrue( "steps " + steps, steps >= 10 && steps <= 40 );
+    }
+}
@@ -0,0 +1,126 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+/**
+ * A graphics context that draws nothing and only counts the shapes it
+ * was asked to fill and draw.
+ * <p>
+ * Used to measure what the renderers do, without the Java2D pipeline.
+ */
+public class NullGraphics2D
+    extends Graphics2D
+{
+    /** The number of fill calls */
+    public int fills;
+
+    /** The number of draw calls */
+    public int draws;
+
+    /** The number of color changes */
+    public int colorChanges;
+
+    private final AffineTransform transform = new AffineTransform();
+
+    private Color color = Color.BLACK;
+
+    public void fill( Shape s ) { this.fills++; }
+    public void draw( Shape s ) { this.draws++; }
+    public void fillRect( int x, int y, int width, int height ) { this.fills++; }
+    public void drawLine( int x1, int y1, int x2, int y2 ) { this.draws++; }
+
+    public Color getColor() { return this.color; }
+    public void setColor( Color c )
+    {
+        if ( c != this.color ) this.colorChanges++;
+        this.color = c;
+    }
+
+    public void translate( int x, int y ) { this.transform.translate( x, y ); }
+    public void translate( double tx, double ty ) { this.transform.translate( tx, ty ); }
+    public void rotate( double theta ) { this.transform.rotate( theta ); }
+    public void rotate( double theta, double x, double y ) { this.transform.rotate( theta, x, y ); }
+    public void scale( double sx, double sy ) { this.transform.scale( sx, sy ); }
+    public void shear( double shx, double shy ) { this.transform.shear( shx, shy ); }
+    public void transform( AffineTransform tx ) { this.transform.concatenate( tx ); }
+    public void setTransform( AffineTransform tx ) { this.transform.setTransform( tx ); }
+    public AffineTransform getTransform() { return new AffineTransform( this.transform ); }
+
+    public Graphics create() { return this; }
+    public void dispose() {}
+    public void setPaintMode() {}
+    public void setXORMode( Color c ) {}
+    public Font getFont() { return null; }
+    public void setFont( Font font ) {}
+    public FontMetrics getFontMetrics( Font f ) { return null; }
+    public Rectangle getClipBounds() { return null; }
+    public void clipRect( int x, int y, int width, int height ) {}
+    public void setClip( int x, int y, int width, int height ) {}
+    public Shape getClip() { return null; }
+    public void setClip( Shape clip ) {}
+    public void copyArea( int x, int y, int width, int height, int dx, int dy ) {}
+    public void clearRect( int x, int y, int width, int height ) {}
+    public void drawRoundRect( int x, int y, int width, int height, int arcWidth, int arcHeight ) {}
+    public void fillRoundRect( int x, int y, int width, int height, int arcWidth, int arcHeight ) {}
+    public void drawOval( int x, int y, int width, int height ) {}
+    public void fillOval( int x, int y, int width, int height ) {}
+    public void drawArc( int x, int y, int width, int height, int startAngle, int arcAngle ) {}
+    public void fillArc( int x, int y, int width, int height, int startAngle, int arcAngle ) {}
+    public void drawPolyline( int[] xPoints, int[] yPoints, int nPoints ) {}
+    public void drawPolygon( int[] xPoints, int[] yPoints, int nPoints ) {}
+    public void fillPolygon( int[] xPoints, int[] yPoints, int nPoints ) {}
+    public void drawString( String str, int x, int y ) {}
+    public void drawString( String str, float x, float y ) {}
+    public void drawString( AttributedCharacterIterator iterator, int x, int y ) {}
+    public void drawString( AttributedCharacterIterator iterator, float x, float y ) {}
+    public void drawGlyphVector( GlyphVector g, float x, float y ) {}
+    public boolean drawImage( Image img, int x, int y, ImageObserver observer ) { return true; }
+    public boolean drawImage( Image img, int x, int y, int width, int height, ImageObserver observer ) { return true; }
+    public boolean drawImage( Image img, int x, int y, Color bgcolor, ImageObserver observer ) { return true; }
+    public boolean drawImage( Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer ) { return true; }
+    public boolean drawImage( Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer ) { return true; }
+    public boolean drawImage( Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer ) { return true; }
+    public boolean drawImage( Image img, AffineTransform xform, ImageObserver obs ) { return true; }
+    public void drawImage( BufferedImage img, BufferedImageOp op, int x, int y ) {}
+    public void drawRenderedImage( RenderedImage img, AffineTransform xform ) {}
+    public void drawRenderableImage( RenderableImage img, AffineTransform xform ) {}
+    public boolean hit( Rectangle rect, Shape s, boolean onStroke ) { return false; }
+    public GraphicsConfiguration getDeviceConfiguration() { return null; }
+    public void setComposite( Composite comp ) {}
+    public void setPaint( Paint paint ) {}
+    public void setStroke( Stroke s ) {}
+    public void setRenderingHint( RenderingHints.Key hintKey, Object hintValue ) {}
+    public Object getRenderingHint( RenderingHints.Key hintKey ) { return null; }
+    public void setRenderingHints( Map<?, ?> hints ) {}
+    public void addRenderingHints( Map<?, ?> hints ) {}
+    public RenderingHints getRenderingHints() { return new RenderingHints( null ); }
+    public Paint getPaint() { return this.color; }
+    public Composite getComposite() { return null; }
+    public void setBackground( Color color ) {}
+    public Color getBackground() { return null; }
+    public Stroke getStroke() { return null; }
+    public void clip( Shape s ) {}
+    public FontRenderContext getFontRenderContext() { return null; }
+}
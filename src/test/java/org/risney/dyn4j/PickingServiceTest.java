@@ -0,0 +1,224 @@
+package org.risney.dyn4j;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+import org.dyn4j.geometry.Vector2;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for picking only when the pointer or the bodies around it move.
+ */
+public class PickingServiceTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public PickingServiceTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( PickingServiceTest.class );
+    }
+
+    /**
+     * Adds a unit square body at the given position.
+     */
+    private static SimulationBody add( World world, double x, double y )
+    {
+        SimulationBody body = new SimulationBody();
+        body.addFixture( Geometry.createSquare( 1.0 ) );
+        body.setMass( Mass.Type.NORMAL );
+        body.translate( x, y );
+        world.addBody( body );
+        return body;
+    }
+
+    /**
+     * Returns input with the pointer at the given position.
+     */
+    private static StepInput pointer( double x, double y )
+    {
+        StepInput input = new StepInput();
+        input.setPointer( x, y );
+        return input;
+    }
+
+    /**
+     * The world is only queried again when the pointer moves.
+     */
+    public void testPointer()
+    {
+        World world = new World();
+        world.setGravity( World.ZERO_GRAVITY );
+        SimulationBody body = add( world, 0.0, 0.0 );
+        PickingService picking = new PickingService( 0.1, false );
+
+        assertTrue( picking.update( world, pointer( 0.0, 0.0 ), 1 ) );
+        assertEquals( 1, picking.getResults().size() );
+        assertTrue( picking.isHit( body ) );
+        assertEquals( 1, picking.getVersion() );
+
+        // nothing changed
+        for ( long step = 2; step < 10; step++ )
+        {
+            world.step( 1 );
+            assertFalse( picking.update( world, pointer( 0.0, 0.0 ), step ) );
+        }
+        assertEquals( 1, picking.getQueryCount() );
+        assertEquals( 8, picking.getSkipCount() );
+        assertEquals( 1, picking.getVersion() );
+        assertTrue( picking.isHit( body ) );
+
+        // moved off the body
+        assertTrue( picking.update( world, pointer( 3.0, 0.0 ), 10 ) );
+        assertTrue( picking.getResults().isEmpty() );
+        assertEquals( 10, picking.getVersion() );
+
+        // released
+        assertFalse( picking.update( world, new StepInput(), 11 ) );
+        assertTrue( picking.getResults().isEmpty() );
+        assertEquals( 11, picking.getVersion() );
+        assertTrue( picking.update( world, pointer( 3.0, 0.0 ), 12 ) );
+    }
+
+    /**
+     * The world is only queried again when a body near the pointer moves.
+     */
+    public void testBodies()
+    {
+        World world = new World();
+        world.setGravity( World.ZERO_GRAVITY );
+        SimulationBody near = add( world, 0.0, 0.0 );
+        SimulationBody far = add( world, 5.0, 5.0 );
+        far.setLinearVelocity( new Vector2( 1.0, 0.0 ) );
+        PickingService picking = new PickingService( 0.1, false );
+        StepInput input = pointer( 2.0, 0.0 );
+
+        assertTrue( picking.update( world, input, 0 ) );
+        assertTrue( picking.getResults().isEmpty() );
+
+        // a body moving far away doesn't matter
+        world.step( 1 );
+        assertFalse( picking.update( world, input, 1 ) );
+
+        // a body moving towards the pointer does once it's close
+        near.setLinearVelocity( new Vector2( 30.0, 0.0 ) );
+        world.step( 1 );
+        assertFalse( picking.update( world, input, 2 ) );
+        for ( long step = 3; !picking.isHit( near ) && step < 60; step++ )
+        {
+            world.step( 1 );
+            picking.update( world, input, step );
+        }
+        assertTrue( picking.isHit( near ) );
+
+        // and so does a body under the pointer moving away
+        long queries = picking.getQueryCount();
+        world.step( 1 );
+        world.step( 1 );
+        world.step( 1 );
+        assertTrue( picking.update( world, input, 100 ) );
+        assertEquals( queries + 1, picking.getQueryCount() );
+
+        // as do bodies added
+        near.setLinearVelocity( new Vector2() );
+        far.setLinearVelocity( new Vector2() );
+        world.step( 1 );
+        picking.update( world, input, 101 );
+        assertFalse( picking.update( world, input, 102 ) );
+        SimulationBody added = add( world, 2.0, 0.0 );
+        assertTrue( picking.update( world, input, 103 ) );
+        assertTrue( picking.isHit( added ) );
+    }
+
+    /**
+     * Every body under the pointer is a hit, once, however many overlap.
+     */
+    public void testHits()
+    {
+        World world = new World();
+        world.setGravity( World.ZERO_GRAVITY );
+        SimulationBody[] stack = new SimulationBody[500];
+        for ( int i = 0; i < stack.length; i++ )
+        {
+            stack[i] = add( world, 0.0, 0.0 );
+            stack[i].addFixture( Geometry.createCircle( 0.25 ) );
+        }
+        SimulationBody other = add( world, 5.0, 0.0 );
+        PickingService picking = new PickingService( 0.1, false );
+
+        assertTrue( picking.update( world, pointer( 0.0, 0.0 ), 0 ) );
+        assertEquals( 2 * stack.length, picking.getResults().size() );
+        assertEquals( stack.length, picking.getHitCount() );
+        for ( SimulationBody body : stack )
+        {
+            assertTrue( picking.isHit( body ) );
+        }
+        assertFalse( picking.isHit( other ) );
+
+        assertTrue( picking.update( world, pointer( 5.0, 0.0 ), 1 ) );
+        assertEquals( 1, picking.getHitCount() );
+        assertFalse( picking.isHit( stack[0] ) );
+        assertTrue( picking.isHit( other ) );
+
+        picking.update( world, new StepInput(), 2 );
+        assertEquals( 0, picking.getHitCount() );
+        assertFalse( picking.isHit( other ) );
+    }
+
+    /**
+     * Picking in a scene of the examples, with the pointer and the bodies
+     * moving, allocates nothing.
+     */
+    public void testNoAllocation()
+    {
+        AllocationCounter counter = AllocationCounter.create( getName() );
+        if ( counter == null )
+        {
+            return;
+        }
+
+        World world = Picking.createWorld();
+        PickingService picking = new PickingService( 0.1, false );
+        StepInput input = new StepInput();
+        // warm up
+        for ( int i = 0; i < 20000; i++ )
+        {
+            pick( world, picking, input, i );
+        }
+
+        counter.start();
+        int hits = 0;
+        for ( int i = 0; i < 1000; i++ )
+        {
+            hits += pick( world, picking, input, i );
+        }
+        counter.assertWithinBudget();
+        assertTrue( hits > 0 );
+        assertEquals( 21000, picking.getQueryCount() );
+    }
+
+    /**
+     * Moves the pointer and a body, then picks.
+     */
+    private static int pick( World world, PickingService picking, StepInput input, int i )
+    {
+        input.setPointer( -6.0 + ( i % 120 ) * 0.1, -1.0 + ( i % 7 ) * 0.5 );
+        world.getBody( i % world.getBodyCount() ).translate( i % 2 == 0 ? 0.01 : -0.01, 0.0 );
+        picking.update( world, input, i );
+        return picking.getHitCount();
+    }
+}
@@ -0,0 +1,178 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Transform;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the reusable query of the bodies under a probe.
+ */
+public class QueryContextTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public QueryContextTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( QueryContextTest.class );
+    }
+
+    /**
+     * The same bodies and penetrations are found as by the world.
+     */
+    public void testSameAsWorld()
+    {
+        World world = Picking.createWorld();
+        for ( int i = 0; i < 30; i++ )
+        {
+            world.step( 1 );
+        }
+        QueryContext context = new QueryContext( 0.1 );
+        Convex probe = Geometry.createCircle( 0.1 );
+        List<DetectResult> expected = new ArrayList<DetectResult>();
+        int hits = 0;
+
+        for ( double x = -7.95; x <= 8.0; x += 0.1237 )
+        {
+            for ( double y = -5.95; y <= 6.0; y += 0.1237 )
+            {
+                Transform transform = new Transform();
+                transform.translate( x, y );
+                expected.clear();
+                world.detect( probe, transform, null, false, false, true, expected );
+                context.detect( world, x, y, true );
+
+                List<DetectResult> actual = context.getResults();
+                assertEquals( expected.size(), actual.size() );
+                for ( DetectResult e : expected )
+                {
+                    DetectResult a = find( actual, e );
+                    assertNotNull( a );
+                    assertEquals( e.getPenetration().getDepth(), a.getPenetration().getDepth(), 1.0e-3 );
+                    assertEquals( e.getPenetration().getNormal().x, a.getPenetration().getNormal().x, 1.0e-3 );
+                    assertEquals( e.getPenetration().getNormal().y, a.getPenetration().getNormal().y, 1.0e-3 );
+                    hits++;
+                }
+            }
+        }
+        assertTrue( hits > 100 );
+
+        context.detect( world, 0.0, 100.0, false );
+        assertTrue( context.getResults().isEmpty() );
+    }
+
+    /**
+     * Returns the result for the fixture of the given one.
+     */
+    private static DetectResult find( List<DetectResult> results, DetectResult result )
+    {
+        for ( DetectResult r : results )
+        {
+            if ( r.getBody() == result.getBody() && r.getFixture() == result.getFixture() )
+            {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Querying through a grid does not allocate once the results are pooled.
+     */
+    public void testNoAllocation()
+    {
+        AllocationCounter counter = AllocationCounter.create( getName() );
+        if ( counter == null )
+        {
+            return;
+        }
+
+        World world = Picking.createWorld();
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        grid.update( world );
+        QueryContext context = new QueryContext( 0.1 );
+        context.setGrid( grid );
+
+        // warm up
+        for ( int i = 0; i < 20000; i++ )
+        {
+            query( world, context, i );
+        }
+
+        counter.start();
+        int hits = 0;
+        for ( int i = 0; i < 1000; i++ )
+        {
+            hits += query( world, context, i );
+        }
+        counter.assertWithinBudget();
+        assertTrue( hits > 0 );
+    }
+
+    /**
+     * Queries a point of a sweep across the scene.
+     */
+    private static int query( World world, QueryContext context, int i )
+    {
+        double x = -6.0 + ( i % 120 ) * 0.1;
+        double y = -1.0 + ( i % 7 ) * 0.5;
+        return context.detect( world, x, y, true );
+    }
+
+    /**
+     * The bodies found in the cells of a grid are the ones found in the
+     * broadphase.
+     */
+    public void testGrid()
+    {
+        World world = Picking.createWorld();
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        QueryContext broadphase = new QueryContext( 0.1 );
+        QueryContext cells = new QueryContext( 0.1 );
+        cells.setGrid( grid );
+        int hits = 0;
+
+        for ( int step = 0; step < 30; step++ )
+        {
+            world.step( 1 );
+            grid.update( world );
+            for ( double x = -7.95; x <= 8.0; x += 0.2237 )
+            {
+                for ( double y = -1.95; y <= 8.0; y += 0.2237 )
+                {
+                    broadphase.detect( world, x, y, true );
+                    cells.detect( world, x, y, true );
+                    assertEquals( broadphase.getResultCount(), cells.getResultCount() );
+                    for ( DetectResult e : broadphase.getResults() )
+                    {
+                        DetectResult a = find( cells.getResults(), e );
+                        assertNotNull( a );
+                        assertEquals( e.getPenetration().getDepth(), a.getPenetration().getDepth(), 0.0 );
+                        hits++;
+                    }
+                }
+            }
+        }
+        assertTrue( hits > 100 );
+    }
+}
@@ -0,0 +1,109 @@
+package org.risney.dyn4j;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the rendering quality presets.
+ */
+public class RenderPresetTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public RenderPresetTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( RenderPresetTest.class );
+    }
+
+    /**
+     * The hints of a preset are set on the graphics context.
+     */
+    public void testApply()
+    {
+        BufferedImage image = new BufferedImage( 4, 4, BufferedImage.TYPE_INT_RGB );
+        Graphics2D g = image.createGraphics();
+
+        RenderPreset.QUALITY.apply( g );
+        assertEquals( RenderingHints.VALUE_ANTIALIAS_ON, g.getRenderingHint( RenderingHints.KEY_ANTIALIASING ) );
+        assertEquals( RenderingHints.VALUE_STROKE_PURE, g.getRenderingHint( RenderingHints.KEY_STROKE_CONTROL ) );
+        assertEquals( RenderingHints.VALUE_RENDER_QUALITY, g.getRenderingHint( RenderingHints.KEY_RENDERING ) );
+
+        RenderPreset.SPEED.apply( g );
+        assertEquals( RenderingHints.VALUE_ANTIALIAS_OFF, g.getRenderingHint( RenderingHints.KEY_ANTIALIASING ) );
+        assertEquals( RenderingHints.VALUE_STROKE_NORMALIZE, g.getRenderingHint( RenderingHints.KEY_STROKE_CONTROL ) );
+        g.dispose();
+    }
+
+    /**
+     * The standard preset leaves the hints alone.
+     */
+    public void testStandard()
+    {
+        BufferedImage image = new BufferedImage( 4, 4, BufferedImage.TYPE_INT_RGB );
+        Graphics2D g = image.createGraphics();
+        RenderingHints hints = (RenderingHints) g.getRenderingHints().clone();
+        RenderPreset.STANDARD.apply( g );
+        assertEquals( hints, g.getRenderingHints() );
+        assertFalse( RenderPreset.STANDARD.isAntialiased() );
+        assertSame( RenderPreset.Pipeline.DEFAULT, RenderPreset.STANDARD.getPipeline() );
+        g.dispose();
+    }
+
+    /**
+     * The preset is read from the system property.
+     */
+    public void testDefault()
+    {
+        String old = System.getProperty( RenderPreset.PRESET_PROPERTY );
+        try
+        {
+            System.clearProperty( RenderPreset.PRESET_PROPERTY );
+            assertSame( RenderPreset.STANDARD, RenderPreset.getDefault() );
+            System.setProperty( RenderPreset.PRESET_PROPERTY, " quality" );
+            assertSame( RenderPreset.QUALITY, RenderPreset.getDefault() );
+            System.setProperty( RenderPreset.PRESET_PROPERTY, "fancy" );
+            assertSame( RenderPreset.STANDARD, RenderPreset.getDefault() );
+        }
+        finally
+        {
+            if ( old == null )
+            {
+                System.clearProperty( RenderPreset.PRESET_PROPERTY );
+            }
+            else
+            {
+                System.setProperty( RenderPreset.PRESET_PROPERTY, old );
+            }
+        }
+    }
+
+    /**
+     * A benchmark result survives the trip from a forked JVM.
+     */
+    public void testResultLine()
+    {
+        RenderBenchmark.Result result = new RenderBenchmark.Result( RenderPreset.BALANCED, "headless",
+            123.5, 1000L, 2000L, 3000L, 4000L );
+        RenderBenchmark.Result parsed = RenderBenchmark.Result.parse( result.toLine() );
+        assertSame( RenderPreset.BALANCED, parsed.getPreset() );
+        assertEquals( 123.5, parsed.getFramesPerSecond(), 1.0e-9 );
+        assertEquals( result.toString(), parsed.toString() );
+    }
+}
@@ -0,0 +1,161 @@
+package org.risney.dyn4j;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+import org.dyn4j.dynamics.BodyFixture;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the cache of local space shape paths.
+ */
+public class ShapeCacheTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ShapeCacheTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ShapeCacheTest.class );
+    }
+
+    /**
+     * A path is built once per shape and scale.
+     */
+    public void testBuiltOncePerScale()
+    {
+        ShapeCache cache = new ShapeCache();
+        Convex capsule = Geometry.createCapsule( 1.0, 0.5 );
+        Path2D path = cache.get( capsule, 32.0 );
+        assertNotNull( path );
+        assertSame( path, cache.get( capsule, 32.0 ) );
+        assertEquals( 1, cache.getBuildCount() );
+
+        Rectangle2D bounds = path.getBounds2D();
+        assertEquals( 32.0, bounds.getWidth(), 1.0e-6 );
+        assertEquals( 16.0, bounds.getHeight(), 1.0e-6 );
+
+        // another scale keeps both paths
+        Path2D scaled = cache.get( capsule, 64.0 );
+        assertNotSame( path, scaled );
+        assertEquals( 64.0, scaled.getBounds2D().getWidth(), 1.0e-6 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertSame( path, cache.get( capsule, 32.0 ) );
+            assertSame( scaled, cache.get( capsule, 64.0 ) );
+        }
+        assertEquals( 2, cache.getBuildCount() );
+        assertEquals( 1, cache.getSize() );
+
+        // equal shapes are different keys
+        cache.get( Geometry.createCapsule( 1.0, 0.5 ), 64.0 );
+        assertEquals( 2, cache.getSize() );
+    }
+
+    /**
+     * The paths of the scales drawn longest ago are dropped.
+     */
+    public void testScalesDropped()
+    {
+        ShapeCache cache = new ShapeCache();
+        Convex square = Geometry.createSquare( 1.0 );
+        for ( int scale = 1; scale <= 5; scale++ )
+        {
+            cache.get( square, scale );
+        }
+        assertEquals( 5, cache.getBuildCount() );
+
+        // the last four are kept
+        cache.get( square, 5.0 );
+        cache.get( square, 2.0 );
+        assertEquals( 5, cache.getBuildCount() );
+        cache.get( square, 1.0 );
+        assertEquals( 6, cache.getBuildCount() );
+    }
+
+    /**
+     * Threads share the paths, and see the paths another thread removed.
+     *
+     * @throws InterruptedException if interrupted
+     */
+    public void testThreads()
+        throws InterruptedException
+    {
+        final ShapeCache cache = new ShapeCache();
+        final Convex square = Geometry.createSquare( 1.0 );
+        final Path2D[] paths = new Path2D[2];
+        Path2D path = cache.get( square, 32.0 );
+
+        Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                paths[0] = cache.get( square, 32.0 );
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame( path, paths[0] );
+        assertEquals( 1, cache.getBuildCount() );
+
+        thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                cache.remove( square );
+            }
+        };
+        thread.start();
+        thread.join();
+        paths[1] = cache.get( square, 32.0 );
+        assertNotSame( path, paths[1] );
+        assertEquals( 2, cache.getBuildCount() );
+    }
+
+    /**
+     * Circles and segments are not cached.
+     */
+    public void testNotCached()
+    {
+        ShapeCache cache = new ShapeCache();
+        assertNull( cache.get( Geometry.createCircle( 0.5 ), 32.0 ) );
+        assertNull( cache.get( Geometry.createHorizontalSegment( 1.0 ), 32.0 ) );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    /**
+     * Removing a fixture from a body removes the path of its shape.
+     */
+    public void testRemovedFixture()
+    {
+        ShapeCache cache = Graphics2DRenderer.getShapeCache();
+        SimulationBody body = new SimulationBody();
+        BodyFixture square = body.addFixture( Geometry.createSquare( 1.0 ) );
+        BodyFixture slice = body.addFixture( Geometry.createSlice( 0.5, 1.0 ) );
+        Graphics2DRenderer.render( new NullGraphics2D(), square.getShape(), 32.0, null );
+        Graphics2DRenderer.render( new NullGraphics2D(), slice.getShape(), 32.0, null );
+
+        assertTrue( body.removeFixture( square ) );
+        assertFalse( cache.remove( square.getShape() ) );
+        body.removeAllFixtures();
+        assertFalse( cache.remove( slice.getShape() ) );
+    }
+}
@@ -0,0 +1,101 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+
+import org.dyn4j.dynamics.World;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the hand over of snapshots between threads.
+ */
+public class SnapshotBufferTest
+    extends TestCase
+{
+    /** Keeps the body color */
+    private static final SnapshotBuffer.ColorProvider BODY_COLOR = new SnapshotBuffer.ColorProvider()
+    {
+        public Color getColor( SimulationBody body )
+        {
+            return body.getColor();
+        }
+    };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public SnapshotBufferTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( SnapshotBufferTest.class );
+    }
+
+    /**
+     * The reader always sees the latest published snapshot and keeps
+     * its snapshot when nothing new was published.
+     */
+    public void testLatestWins()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        SnapshotBuffer buffer = new SnapshotBuffer( 1 );
+        assertEquals( -1, buffer.acquire().getStep() );
+
+        buffer.capture( world, 1, 0.0, BODY_COLOR );
+        buffer.capture( world, 2, 0.0, BODY_COLOR );
+        RenderSnapshot snapshot = buffer.acquire();
+        assertEquals( 2, snapshot.getStep() );
+        assertEquals( world.getBodyCount(), snapshot.getSize() );
+        assertSame( snapshot, buffer.acquire() );
+
+        buffer.capture( world, 3, 0.0, BODY_COLOR );
+        assertEquals( 3, buffer.acquire().getStep() );
+    }
+
+    /**
+     * The writer knows whether the world was asleep at its last capture.
+     */
+    public void testAsleep()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        SnapshotBuffer buffer = new SnapshotBuffer( 1 );
+        buffer.capture( world, 1, 1.0, BODY_COLOR );
+        assertFalse( buffer.isAsleep() );
+
+        for ( int i = 0; i < world.getBodyCount(); i++ )
+        {
+            world.getBody( i ).setAsleep( true );
+        }
+        buffer.capture( world, 2, 1.0, BODY_COLOR );
+        assertTrue( buffer.isAsleep() );
+    }
+
+    /**
+     * The captured transforms are those of the world at capture time.
+     */
+    public void testCapturedTransforms()
+    {
+        World world = ExampleScene.THRUST.createWorld();
+        world.step( 10 );
+        SnapshotBuffer buffer = new SnapshotBuffer( 4 );
+        buffer.capture( world, 10, 0.0, BODY_COLOR );
+        RenderSnapshot snapshot = buffer.acquire();
+        for ( int i = 0; i < snapshot.getSize(); i++ )
+        {
+            SimulationBody body = snapshot.getBody( i );
+            assertEquals( body.getTransform().getTranslationY(), snapshot.getTranslationY( i, 1.0 ), 0.0 );
+            assertEquals( body.getInitialTransform().getTranslationY(), snapshot.getTranslationY( i, 0.0 ), 0.0 );
+            assertSame( body.getColor(), snapshot.getColor( i ) );
+        }
+    }
+}
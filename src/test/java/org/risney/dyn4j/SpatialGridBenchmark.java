@@ -0,0 +1,252 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Transform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of the grid queries against the general detection path.
+ * <p>
+ * The scene is the {@link Picking} scene tiled until it has the given number
+ * of bodies, stepped a few times so the bodies have left where they were
+ * placed. Each invocation is one query at the next of a fixed set of random
+ * points over the scene. Run with the <code>benchmark</code> profile:
+ * <pre>
+ * mvn -P benchmark test -DskipTests -Djmh.benchmarks=SpatialGridBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialGridBenchmark
+{
+    /** The probe radius of the examples */
+    private static final double RADIUS = 0.1;
+
+    /** The number of query points */
+    private static final int POINTS = 1024;
+
+    /** The width of a copy of the scene */
+    static final double WIDTH = 22.0;
+
+    /** The height of a copy of the scene */
+    static final double HEIGHT = 10.0;
+
+    /**
+     * The scaled scene and its index.
+     */
+    @State(Scope.Thread)
+    public static class SceneState
+    {
+        @Param({ "1000", "10000" })
+        public int bodies;
+
+        public World world;
+
+        public SpatialGrid grid;
+
+        public QueryContext context;
+
+        public QueryContext gridContext;
+
+        public Convex probe;
+
+        public Transform transform;
+
+        public List<DetectResult> results;
+
+        public double[] points;
+
+        public int next;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            this.world = createWorld( this.bodies );
+            for ( int i = 0; i < 10; i++ )
+            {
+                this.world.step( 1 );
+            }
+            this.grid = new SpatialGrid( 1.0 );
+            this.grid.update( this.world );
+            this.context = new QueryContext( RADIUS );
+            this.gridContext = new QueryContext( RADIUS );
+            this.gridContext.setGrid( this.grid );
+            this.probe = Geometry.createCircle( RADIUS );
+            this.transform = new Transform();
+            this.results = new ArrayList<DetectResult>();
+
+            int columns = (int) Math.ceil( Math.sqrt( this.bodies / 11.0 ) );
+            int rows = (int) Math.ceil( this.bodies / 11.0 / columns );
+            Random random = new Random( 42 );
+            this.points = new double[POINTS * 2];
+            for ( int i = 0; i < POINTS; i++ )
+            {
+                this.points[i * 2] = -WIDTH * 0.5 + random.nextDouble() * WIDTH * columns;
+                this.points[i * 2 + 1] = -1.0 + random.nextDouble() * HEIGHT * rows;
+            }
+        }
+
+        /**
+         * Returns the offset of the next query point.
+         */
+        public int next()
+        {
+            int o = this.next;
+            this.next = ( o + 2 ) % this.points.length;
+            return o;
+        }
+    }
+
+    /**
+     * The scaled scene stepped before each update of its index.
+     */
+    @State(Scope.Thread)
+    public static class UpdateState
+    {
+        @Param({ "1000", "10000" })
+        public int bodies;
+
+        public World world;
+
+        public SpatialGrid grid;
+
+        @Setup(Level.Trial)
+        public void setup()
+        {
+            this.world = createWorld( this.bodies );
+            this.grid = new SpatialGrid( 1.0 );
+            this.grid.update( this.world );
+        }
+
+        @Setup(Level.Invocation)
+        public void step()
+        {
+            this.world.step( 1 );
+        }
+    }
+
+    /**
+     * Creates the {@link Picking} scene tiled until it has the given number
+     * of bodies.
+     */
+    static World createWorld( int bodies )
+    {
+        World world = new World();
+        int columns = (int) Math.ceil( Math.sqrt( bodies / 11.0 ) );
+        for ( int copy = 0; world.getBodyCount() < bodies; copy++ )
+        {
+            World scene = Picking.createWorld();
+            double x = ( copy % columns ) * WIDTH;
+            double y = ( copy / columns ) * HEIGHT;
+            while ( scene.getBodyCount() > 0 && world.getBodyCount() < bodies )
+            {
+                Body body = scene.getBody( 0 );
+                scene.removeBody( body );
+                body.translate( x, y );
+                world.addBody( body );
+            }
+        }
+        return world;
+    }
+
+    /**
+     * The bodies under the probe through {@link World#detect}.
+     */
+    @Benchmark
+    public int worldDetect( SceneState state )
+    {
+        int o = state.next();
+        state.transform.identity();
+        state.transform.translate( state.points[o], state.points[o + 1] );
+        state.results.clear();
+        state.world.detect( state.probe, state.transform, null, false, false, false, state.results );
+        return state.results.size();
+    }
+
+    /**
+     * The bodies under the probe through the pooled query.
+     */
+    @Benchmark
+    public int contextDetect( SceneState state )
+    {
+        int o = state.next();
+        return state.context.detect( state.world, state.points[o], state.points[o + 1], false );
+    }
+
+    /**
+     * The bodies under the probe through the pooled query finding its
+     * candidates in the grid.
+     */
+    @Benchmark
+    public int contextGridDetect( SceneState state )
+    {
+        int o = state.next();
+        return state.gridContext.detect( state.world, state.points[o], state.points[o + 1], false );
+    }
+
+    /**
+     * The bodies under the probe through the grid.
+     */
+    @Benchmark
+    public int gridRadius( SceneState state )
+    {
+        int o = state.next();
+        return state.grid.queryRadius( state.points[o], state.points[o + 1], RADIUS );
+    }
+
+    /**
+     * The bodies containing a point through the grid.
+     */
+    @Benchmark
+    public int gridPoint( SceneState state )
+    {
+        int o = state.next();
+        return state.grid.queryPoint( state.points[o], state.points[o + 1] );
+    }
+
+    /**
+     * The bodies in a 4x3 meter selection through the grid.
+     */
+    @Benchmark
+    public int gridRectangle( SceneState state )
+    {
+        int o = state.next();
+        double x = state.points[o];
+        double y = state.points[o + 1];
+        return state.grid.queryRectangle( x, y, x + 4.0, y + 3.0 );
+    }
+
+    /**
+     * Keeping the grid up to date after a step of the moving scene; the step
+     * itself is not measured.
+     */
+    @Benchmark
+    public int gridUpdate( UpdateState state )
+    {
+        state.grid.update( state.world );
+        return state.grid.getBodyCount();
+    }
+}
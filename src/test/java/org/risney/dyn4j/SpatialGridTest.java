@@ -0,0 +1,234 @@
+package org.risney.dyn4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.DetectResult;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.AABB;
+import org.dyn4j.geometry.Convex;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+import org.dyn4j.geometry.Vector2;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the uniform grid of body bounds.
+ */
+public class SpatialGridTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public SpatialGridTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( SpatialGridTest.class );
+    }
+
+    /**
+     * The bodies of the results of the last query.
+     */
+    private static Set<Body> results( SpatialGrid grid )
+    {
+        Set<Body> bodies = new HashSet<Body>();
+        for ( int i = 0; i < grid.getResultCount(); i++ )
+        {
+            assertTrue( bodies.add( grid.getBody( i ) ) );
+        }
+        return bodies;
+    }
+
+    /**
+     * The queries find the same bodies as the general detection path while
+     * the scene moves.
+     */
+    public void testSameAsDetect()
+    {
+        World world = Picking.createWorld();
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        QueryContext context = new QueryContext( 0.3 );
+        int hits = 0;
+
+        for ( int step = 0; step < 60; step++ )
+        {
+            world.step( 1 );
+            grid.update( world );
+            if ( step % 10 != 0 )
+            {
+                continue;
+            }
+            for ( double x = -7.95; x <= 8.0; x += 0.1237 )
+            {
+                for ( double y = -1.95; y <= 8.0; y += 0.1237 )
+                {
+                    // circles
+                    context.detect( world, x, y, false );
+                    Set<Body> expected = new HashSet<Body>();
+                    for ( DetectResult result : context.getResults() )
+                    {
+                        expected.add( result.getBody() );
+                    }
+                    grid.queryRadius( x, y, 0.3 );
+                    assertEquals( expected, results( grid ) );
+                    hits += expected.size();
+
+                    // points
+                    expected.clear();
+                    Vector2 point = new Vector2( x, y );
+                    for ( int i = 0; i < world.getBodyCount(); i++ )
+                    {
+                        if ( world.getBody( i ).contains( point ) )
+                        {
+                            expected.add( world.getBody( i ) );
+                        }
+                    }
+                    grid.queryPoint( x, y );
+                    assertEquals( expected, results( grid ) );
+                }
+            }
+        }
+        assertTrue( hits > 1000 );
+
+        // rectangles
+        grid.queryRectangle( -1.0, 1.0, 2.0, 3.0 );
+        Set<Body> expected = new HashSet<Body>();
+        for ( int i = 0; i < world.getBodyCount(); i++ )
+        {
+            AABB aabb = world.getBody( i ).createAABB();
+            if ( aabb.overlaps( new AABB( -1.0, 1.0, 2.0, 3.0 ) ) )
+            {
+                expected.add( world.getBody( i ) );
+            }
+        }
+        assertFalse( expected.isEmpty() );
+        assertEquals( expected, results( grid ) );
+    }
+
+    /**
+     * Shapes without a closed form are tested exactly, not against their
+     * rotation disc.
+     */
+    public void testOtherShapes()
+    {
+        World world = new World();
+        world.setGravity( World.ZERO_GRAVITY );
+        Convex[] shapes = new Convex[] {
+            Geometry.createCapsule( 2.0, 0.5 ),
+            Geometry.createEllipse( 2.0, 0.5 ),
+            Geometry.createHalfEllipse( 2.0, 0.5 ),
+            Geometry.createSlice( 1.0, Math.toRadians( 60.0 ) )
+        };
+        for ( int i = 0; i < shapes.length; i++ )
+        {
+            SimulationBody body = new SimulationBody();
+            body.addFixture( shapes[i] );
+            body.setMass( Mass.Type.NORMAL );
+            body.translate( i * 3.0, 0.0 );
+            body.rotate( 0.3 * i );
+            world.addBody( body );
+        }
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        grid.update( world );
+        QueryContext context = new QueryContext( 0.2 );
+        int hits = 0;
+        int misses = 0;
+
+        for ( double x = -1.5; x <= 11.0; x += 0.0737 )
+        {
+            for ( double y = -1.5; y <= 1.5; y += 0.0737 )
+            {
+                context.detect( world, x, y, false );
+                Set<Body> expected = new HashSet<Body>();
+                for ( DetectResult result : context.getResults() )
+                {
+                    expected.add( result.getBody() );
+                }
+                grid.queryRadius( x, y, 0.2 );
+                assertEquals( expected, results( grid ) );
+                hits += expected.size();
+
+                // inside the rotation disc but not touching
+                for ( int i = 0; i < world.getBodyCount(); i++ )
+                {
+                    Body body = world.getBody( i );
+                    double d = body.getRotationDiscRadius() + 0.2;
+                    if ( !expected.contains( body ) && body.getWorldCenter().distanceSquared( x, y ) < d * d )
+                    {
+                        misses++;
+                    }
+                }
+            }
+        }
+        assertTrue( hits > 100 );
+        assertTrue( misses > 100 );
+    }
+
+    /**
+     * Only moving bodies change cells, and removed bodies leave the grid.
+     */
+    public void testIncremental()
+    {
+        World world = new World();
+        world.setGravity( World.ZERO_GRAVITY );
+        List<Body> bodies = new ArrayList<Body>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            SimulationBody body = new SimulationBody();
+            body.addFixture( Geometry.createSquare( 0.5 ) );
+            body.setMass( Mass.Type.NORMAL );
+            body.translate( ( i % 10 ) * 3.0, ( i / 10 ) * 3.0 );
+            world.addBody( body );
+            bodies.add( body );
+        }
+        SpatialGrid grid = new SpatialGrid( 1.0 );
+        grid.update( world );
+        assertEquals( 100, grid.getBodyCount() );
+        assertEquals( 100, grid.getMoveCount() );
+
+        // resting
+        world.step( 1 );
+        grid.update( world );
+        assertEquals( 100, grid.getMoveCount() );
+
+        // one moving across the cells
+        bodies.get( 0 ).setLinearVelocity( new Vector2( 10.0, 0.0 ) );
+        for ( int i = 0; i < 30; i++ )
+        {
+            world.step( 1 );
+            grid.update( world );
+        }
+        long moves = grid.getMoveCount() - 100;
+        assertTrue( moves > 0 && moves <= 30 );
+        Vector2 center = bodies.get( 0 ).getWorldCenter();
+        assertEquals( 1, grid.queryPoint( center.x, center.y ) );
+        assertSame( bodies.get( 0 ), grid.getBody( 0 ) );
+        assertEquals( 0, grid.queryPoint( 0.0, 0.0 ) );
+
+        // removed
+        world.removeBody( bodies.get( 0 ) );
+        grid.update( world );
+        assertEquals( 99, grid.getBodyCount() );
+        assertEquals( 0, grid.queryPoint( center.x, center.y ) );
+        assertEquals( 1, grid.queryPoint( 27.0, 27.0 ) );
+        assertSame( bodies.get( 99 ), grid.getBody( 0 ) );
+        assertEquals( 98, grid.getResult( 0 ) );
+        assertEquals( 99, grid.queryRectangle( -1.0, -1.0, 30.0, 30.0 ) );
+    }
+}
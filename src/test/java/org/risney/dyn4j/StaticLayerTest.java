@@ -0,0 +1,155 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for the layer of static bodies.
+ */
+public class StaticLayerTest
+    extends TestCase
+{
+    /** Keeps the body color */
+    private static final SnapshotBuffer.ColorProvider BODY_COLOR = new SnapshotBuffer.ColorProvider()
+    {
+        public Color getColor( SimulationBody body )
+        {
+            return body.getColor();
+        }
+    };
+
+    private World world;
+
+    private SimulationBody ground;
+
+    private SimulationBody ball;
+
+    private SnapshotBuffer buffer;
+
+    private AffineTransform view;
+
+    private StaticLayer layer;
+
+    private BufferedImage image;
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public StaticLayerTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( StaticLayerTest.class );
+    }
+
+    protected void setUp()
+    {
+        this.world = new World();
+        this.ground = new SimulationBody();
+        this.ground.addFixture( Geometry.createSquare( 2.0 ) );
+        this.ground.setMass( Mass.Type.INFINITE );
+        this.ground.setColor( Color.BLUE );
+        this.world.addBody( this.ground );
+
+        this.ball = new SimulationBody();
+        this.ball.addFixture( Geometry.createCircle( 0.5 ) );
+        this.ball.setMass( Mass.Type.NORMAL );
+        this.ball.translate( 0.0, 5.0 );
+        this.world.addBody( this.ball );
+
+        this.buffer = new SnapshotBuffer( 4 );
+        this.view = AffineTransform.getScaleInstance( 1, -1 );
+        this.view.translate( 400, -300 );
+        this.layer = new StaticLayer( 800, 600, this.view, Color.WHITE );
+        this.image = new BufferedImage( 800, 600, BufferedImage.TYPE_INT_RGB );
+    }
+
+    /**
+     * Captures the world and draws the layer.
+     */
+    private RenderSnapshot render( long step )
+    {
+        this.buffer.capture( this.world, step, 1.0, BODY_COLOR );
+        RenderSnapshot snapshot = this.buffer.acquire();
+        Graphics2D g = this.image.createGraphics();
+        g.transform( this.view );
+        this.layer.render( g, snapshot, 32.0 );
+        g.dispose();
+        return snapshot;
+    }
+
+    /**
+     * The layer holds the background and the static bodies only.
+     */
+    public void testContents()
+    {
+        RenderSnapshot snapshot = render( 1 );
+        assertEquals( 1, snapshot.getStaticCount() );
+        assertTrue( snapshot.isStatic( 0 ) );
+        assertFalse( snapshot.isStatic( 1 ) );
+
+        // the ground at the center, the ball is not drawn
+        assertEquals( Color.BLUE.getRGB(), this.image.getRGB( 400, 300 ) );
+        assertEquals( Color.WHITE.getRGB(), this.image.getRGB( 400, 300 - 5 * 32 ) );
+        assertEquals( Color.WHITE.getRGB(), this.image.getRGB( 10, 10 ) );
+    }
+
+    /**
+     * The layer is only drawn again when a static body changes.
+     */
+    public void testRebuiltOnChange()
+    {
+        RenderSnapshot snapshot = render( 1 );
+        long version = snapshot.getStaticVersion();
+        for ( int i = 2; i < 10; i++ )
+        {
+            this.world.step( 1 );
+            assertEquals( version, render( i ).getStaticVersion() );
+        }
+        assertEquals( 1, this.layer.getBuildCount() );
+
+        // moved
+        this.ground.translate( 1.0, 0.0 );
+        assertTrue( render( 10 ).getStaticVersion() != version );
+        assertEquals( 2, this.layer.getBuildCount() );
+        assertEquals( Color.BLUE.getRGB(), this.image.getRGB( 400 + 32 + 16, 300 ) );
+
+        // recolored
+        this.ground.setColor( Color.RED );
+        render( 11 );
+        assertEquals( 3, this.layer.getBuildCount() );
+
+        // added
+        SimulationBody wall = new SimulationBody();
+        wall.addFixture( Geometry.createRectangle( 0.2, 4.0 ) );
+        wall.setMass( Mass.Type.INFINITE );
+        this.world.addBody( wall );
+        render( 12 );
+        assertEquals( 4, this.layer.getBuildCount() );
+
+        // removed
+        this.world.removeBody( wall );
+        render( 13 );
+        assertEquals( 5, this.layer.getBuildCount() );
+        render( 14 );
+        assertEquals( 5, this.layer.getBuildCount() );
+    }
+}
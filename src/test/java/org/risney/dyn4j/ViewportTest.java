@@ -0,0 +1,119 @@
+package org.risney.dyn4j;
+
+import java.awt.Color;
+
+import org.dyn4j.dynamics.World;
+import org.dyn4j.geometry.Geometry;
+import org.dyn4j.geometry.Mass;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for culling bodies outside of the viewport.
+ */
+public class ViewportTest
+    extends TestCase
+{
+    /** Keeps the body color */
+    private static final SnapshotBuffer.ColorProvider BODY_COLOR = new SnapshotBuffer.ColorProvider()
+    {
+        public Color getColor( SimulationBody body )
+        {
+            return body.getColor();
+        }
+    };
+
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public ViewportTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( ViewportTest.class );
+    }
+
+    /**
+     * Adds a square body at the given position.
+     */
+    private static SimulationBody add( World world, double x, double y )
+    {
+        SimulationBody body = new SimulationBody();
+        body.addFixture( Geometry.createSquare( 1.0 ) );
+        body.setMass( Mass.Type.NORMAL );
+        body.translate( x, y );
+        world.addBody( body );
+        return body;
+    }
+
+    /**
+     * Bodies outside the viewport are not drawn and are counted.
+     */
+    public void testCulled()
+    {
+        World world = new World();
+        add( world, 0.0, 0.0 );
+        // overlapping the right edge
+        add( world, 10.4, 0.0 );
+        add( world, 20.0, 0.0 );
+        add( world, 0.0, -20.0 );
+
+        SnapshotBuffer buffer = new SnapshotBuffer( 4 );
+        buffer.capture( world, 1, 1.0, BODY_COLOR );
+        RenderSnapshot snapshot = buffer.acquire();
+
+        Viewport viewport = Viewport.centered( 800, 600, 40.0 );
+        assertEquals( 10.0, viewport.getMaxX(), 0.0 );
+        NullGraphics2D g = new NullGraphics2D();
+        snapshot.render( g, 40.0, 1.0, viewport );
+        assertEquals( 2, viewport.getDrawnCount() );
+        assertEquals( 2, viewport.getCulledCount() );
+        assertEquals( 2, g.fills );
+
+        snapshot.render( g, 40.0, 1.0, viewport );
+        assertEquals( 4, viewport.getDrawnTotal() );
+        assertEquals( 4, viewport.getCulledTotal() );
+
+        // without a viewport every body is drawn
+        g = new NullGraphics2D();
+        snapshot.render( g, 40.0, 1.0 );
+        assertEquals( 4, g.fills );
+    }
+
+    /**
+     * The test uses the center of mass in world space.
+     */
+    public void testOffsetCenter()
+    {
+        World world = new World();
+        SimulationBody body = new SimulationBody();
+        body.addFixture( Geometry.createRectangle( 1.0, 1.0 ) ).getShape().translate( 5.0, 0.0 );
+        body.setMass( Mass.Type.NORMAL );
+        // the fixture ends up at (-5, 12)
+        body.translate( 0.0, 12.0 );
+        body.rotate( Math.PI, 0.0, 12.0 );
+        world.addBody( body );
+
+        SnapshotBuffer buffer = new SnapshotBuffer( 1 );
+        buffer.capture( world, 1, 1.0, BODY_COLOR );
+        RenderSnapshot snapshot = buffer.acquire();
+
+        Viewport viewport = new Viewport( -6.0, 11.0, -4.0, 13.0 );
+        snapshot.render( new NullGraphics2D(), 40.0, 1.0, viewport );
+        assertEquals( 1, viewport.getDrawnCount() );
+
+        viewport.set( 4.0, 11.0, 6.0, 13.0 );
+        snapshot.render( new NullGraphics2D(), 40.0, 1.0, viewport );
+        assertEquals( 1, viewport.getCulledCount() );
+    }
+}
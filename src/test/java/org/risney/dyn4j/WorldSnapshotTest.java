@@ -0,0 +1,279 @@
+package org.risney.dyn4j;
+
+import java.nio.ByteBuffer;
+
+import org.dyn4j.dynamics.Body;
+import org.dyn4j.dynamics.World;
+import org.dyn4j.dynamics.joint.DistanceJoint;
+import org.dyn4j.geometry.AABB;
+import org.dyn4j.geometry.Transform;
+import org.dyn4j.geometry.Vector2;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for saving and restoring the state of a world.
+ */
+public class WorldSnapshotTest
+    extends TestCase
+{
+    /**
+     * Create the test case
+     *
+     * @param testName name of the test case
+     */
+    public WorldSnapshotTest( String testName )
+    {
+        super( testName );
+    }
+
+    /**
+     * @return the suite of tests being tested
+     */
+    public static Test suite()
+    {
+        return new TestSuite( WorldSnapshotTest.class );
+    }
+
+    /**
+     * Stepping after a rollback repeats the original run exactly when no
+     * bodies are in contact; this includes the motor joint's warm start.
+     */
+    public void testRollback()
+    {
+        World world = ExampleScene.MOUSE_DRAG.createWorld();
+        StepInput input = new StepInput();
+        input.setPointer( -3.0, 2.0 );
+        ExampleScene.MOUSE_DRAG.applyInput( world, input, ExampleScene.MOUSE_DRAG.createQueryContext() );
+        step( world, 20 );
+
+        WorldSnapshot snapshot = new WorldSnapshot();
+        ByteBuffer buffer = WorldSnapshot.allocate( world );
+        snapshot.save( world, buffer );
+        assertEquals( buffer.capacity(), buffer.position() );
+
+        step( world, 30 );
+        Transform expected = world.getBody( 1 ).getTransform().copy();
+        double expectedVelocity = world.getBody( 1 ).getLinearVelocity().x;
+
+        buffer.flip();
+        snapshot.restore( buffer, world );
+        step( world, 30 );
+        Transform actual = world.getBody( 1 ).getTransform();
+        assertEquals( expected.getTranslationX(), actual.getTranslationX(), 0.0 );
+        assertEquals( expected.getTranslationY(), actual.getTranslationY(), 0.0 );
+        assertEquals( expected.getRotation(), actual.getRotation(), 0.0 );
+        assertEquals( expectedVelocity, world.getBody( 1 ).getLinearVelocity().x, 0.0 );
+    }
+
+    /**
+     * Stepping after a rollback of a repeatable snapshot where bodies rest
+     * on each other gives the same result however far the world ran before
+     * it was rolled back.
+     */
+    public void testRollbackWithContacts()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        step( world, 60 );
+        assertFalse( world.getContactManager().isListEmpty() );
+
+        WorldSnapshot snapshot = new WorldSnapshot();
+        snapshot.setRepeatable( true );
+        ByteBuffer buffer = WorldSnapshot.allocate( world );
+        snapshot.save( world, buffer );
+
+        // a short future, rolled back
+        step( world, 5 );
+        buffer.flip();
+        snapshot.restore( buffer, world );
+        step( world, 40 );
+        double[] first = state( world );
+
+        // a long future, rolled back
+        step( world, 90 );
+        buffer.flip();
+        snapshot.restore( buffer, world );
+        step( world, 40 );
+        double[] second = state( world );
+
+        for ( int i = 0; i < first.length; i++ )
+        {
+            assertEquals( first[i], second[i], 0.0 );
+        }
+    }
+
+    /**
+     * Restoring updates the broadphase in place, so the bodies are found
+     * where they were restored to before the world steps again.
+     */
+    public void testBroadphaseUpdated()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        step( world, 10 );
+        WorldSnapshot snapshot = new WorldSnapshot();
+        ByteBuffer buffer = WorldSnapshot.allocate( world );
+        snapshot.save( world, buffer );
+
+        Body body = world.getBody( world.getBodyCount() - 1 );
+        Vector2 center = body.getWorldCenter().copy();
+        body.translate( 100.0, 0.0 );
+        step( world, 1 );
+        AABB bounds = new AABB( center, 0.01 );
+        assertFalse( world.getBroadphaseDetector().detect( bounds ).contains( body ) );
+
+        buffer.flip();
+        snapshot.restore( buffer, world );
+        assertTrue( world.getBroadphaseDetector().detect( bounds ).contains( body ) );
+        assertEquals( world.getBodyCount(), countProxies( world ) );
+    }
+
+    /**
+     * Returns the number of bodies the broadphase of the world holds.
+     */
+    private static int countProxies( World world )
+    {
+        AABB all = new AABB( -1.0e6, -1.0e6, 1.0e6, 1.0e6 );
+        return world.getBroadphaseDetector().detect( all ).size();
+    }
+
+    /**
+     * Worlds with joints whose warm starting can't be saved are refused.
+     */
+    public void testUnsupportedJoint()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        Body a = world.getBody( world.getBodyCount() - 1 );
+        Body b = world.getBody( world.getBodyCount() - 2 );
+        world.addJoint( new DistanceJoint( a, b, a.getWorldCenter(), b.getWorldCenter() ) );
+        try
+        {
+            WorldSnapshot.getSize( world );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+        try
+        {
+            new WorldSnapshot().save( world, ByteBuffer.allocate( 4096 ) );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Returns the transforms and velocities of the bodies of the world.
+     */
+    private static double[] state( World world )
+    {
+        double[] state = new double[world.getBodyCount() * 6];
+        for ( int i = 0; i < world.getBodyCount(); i++ )
+        {
+            Body body = world.getBody( i );
+            state[i * 6] = body.getTransform().getTranslationX();
+            state[i * 6 + 1] = body.getTransform().getTranslationY();
+            state[i * 6 + 2] = body.getTransform().getRotation();
+            state[i * 6 + 3] = body.getLinearVelocity().x;
+            state[i * 6 + 4] = body.getLinearVelocity().y;
+            state[i * 6 + 5] = body.getAngularVelocity();
+        }
+        return state;
+    }
+
+    /**
+     * Every saved value is restored, including sleep state.
+     */
+    public void testRestore()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        step( world, 300 );
+        WorldSnapshot snapshot = new WorldSnapshot();
+        ByteBuffer buffer = WorldSnapshot.allocate( world );
+        snapshot.save( world, buffer );
+
+        World other = ExampleScene.PICKING.createWorld();
+        buffer.flip();
+        snapshot.restore( buffer, other );
+        for ( int i = 0; i < world.getBodyCount(); i++ )
+        {
+            Body a = world.getBody( i );
+            Body b = other.getBody( i );
+            assertEquals( a.getTransform().getTranslationX(), b.getTransform().getTranslationX(), 0.0 );
+            assertEquals( a.getTransform().getTranslationY(), b.getTransform().getTranslationY(), 0.0 );
+            assertEquals( a.getTransform().getRotation(), b.getTransform().getRotation(), 0.0 );
+            assertEquals( a.getInitialTransform().getTranslationX(), b.getInitialTransform().getTranslationX(), 0.0 );
+            assertEquals( a.getLinearVelocity(), b.getLinearVelocity() );
+            assertEquals( a.getAngularVelocity(), b.getAngularVelocity(), 0.0 );
+            assertEquals( a.isAsleep(), b.isAsleep() );
+            assertEquals( a.isActive(), b.isActive() );
+        }
+    }
+
+    /**
+     * A snapshot of one scene is refused by another.
+     */
+    public void testMismatch()
+    {
+        World world = ExampleScene.PICKING.createWorld();
+        ByteBuffer buffer = WorldSnapshot.allocate( world );
+        WorldSnapshot snapshot = new WorldSnapshot();
+        snapshot.save( world, buffer );
+        buffer.flip();
+        try
+        {
+            snapshot.restore( buffer, ExampleScene.THRUST.createWorld() );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Saving does not allocate.
+     */
+    public void testNoAllocation()
+    {
+        AllocationCounter counter = AllocationCounter.create( getName() );
+        if ( counter == null )
+        {
+            return;
+        }
+
+        World world = ExampleScene.createWorld( 1000 );
+        WorldSnapshot snapshot = new WorldSnapshot();
+        ByteBuffer buffer = WorldSnapshot.allocate( world );
+        // warm up
+        for ( int i = 0; i < 2000; i++ )
+        {
+            buffer.clear();
+            snapshot.save( world, buffer );
+        }
+
+        counter.start();
+        for ( int i = 0; i < 100; i++ )
+        {
+            buffer.clear();
+            snapshot.save( world, buffer );
+        }
+        counter.assertWithinBudget();
+    }
+
+    /**
+     * Steps the world the given number of times.
+     */
+    private static void step( World world, int steps )
+    {
+        for ( int i = 0; i < steps; i++ )
+        {
+            world.step( 1, FixedTimestep.DEFAULT_STEP );
+        }
+    }
+}
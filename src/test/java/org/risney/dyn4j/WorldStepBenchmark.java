@@ -0,0 +1,101 @@
+package org.risney.dyn4j;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dyn4j.dynamics.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks of stepping the example scenes.
+ * <p>
+ * The worlds are rebuilt for every iteration so that each iteration measures
+ * the same part of the simulation instead of an ever more settled (and
+ * eventually sleeping) world. Run with the <code>benchmark</code> profile,
+ * which adds the gc profiler to report the allocation rate:
+ * <pre>
+ * mvn -P benchmark test -DskipTests -Djmh.benchmarks=WorldStepBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldStepBenchmark
+{
+    /**
+     * One of the example scenes.
+     */
+    @State(Scope.Thread)
+    public static class SceneState
+    {
+        @Param({ "AIR_HOCKEY", "BOUNCING_BALL", "MOUSE_DRAG", "PICKING", "THRUST" })
+        public ExampleScene scene;
+
+        public World world;
+
+        @Setup(Level.Iteration)
+        public void setup()
+        {
+            this.world = this.scene.createWorld();
+        }
+    }
+
+    /**
+     * A scaled up scene of the given number of bodies.
+     */
+    @State(Scope.Thread)
+    public static class ScaledState
+    {
+        @Param({ "100", "1000", "10000" })
+        public int bodies;
+
+        public World world;
+
+        @Setup(Level.Iteration)
+        public void setup()
+        {
+            this.world = ExampleScene.createWorld( this.bodies );
+        }
+    }
+
+    /**
+     * One step of the default step size.
+     */
+    @Benchmark
+    public boolean sceneStep( SceneState state )
+    {
+        state.world.step( 1 );
+        return state.world.isUpdateRequired();
+    }
+
+    /**
+     * One update by the default step size, as the example loops do.
+     */
+    @Benchmark
+    public boolean sceneUpdate( SceneState state )
+    {
+        return state.world.update( FixedTimestep.DEFAULT_STEP );
+    }
+
+    /**
+     * One step of the default step size.
+     */
+    @Benchmark
+    public boolean scaledStep( ScaledState state )
+    {
+        state.world.step( 1 );
+        return state.world.isUpdateRequired();
+    }
+}